@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.index;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.update.StripedReadWriteLock;
+import org.apache.solr.update.VersionBucket;
+import org.apache.solr.update.VersionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the contention of many indexing threads on the locks {@link VersionInfo} takes for
+ * every update: the update lock, then the lock of the version bucket of the id, under which a new
+ * version is taken from the clock.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 2, iterations = 5)
+@Threads(64)
+public class VersionLocking {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    /** The {@code versionLocking} of the update log. */
+    @Param({VersionInfo.FAIR_VERSION_LOCKING, VersionInfo.STRIPED_VERSION_LOCKING})
+    String versionLocking;
+
+    @Param("65536")
+    int numVersionBuckets;
+
+    ReadWriteLock lock;
+    VersionBucket[] buckets;
+    final AtomicLong clock = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+      lock =
+          VersionInfo.STRIPED_VERSION_LOCKING.equals(versionLocking)
+              ? new StripedReadWriteLock()
+              : new ReentrantReadWriteLock(true);
+      buckets = new VersionBucket[numVersionBuckets];
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new VersionBucket();
+        buckets[i].seedHighest(1);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      long seed = BaseBenchState.getRandomSeed() + Thread.currentThread().getId();
+      random = new SplittableRandom(seed);
+    }
+  }
+
+  @Benchmark
+  public long update(BenchState state, ThreadState thread) throws IOException {
+    Lock lock = state.lock.readLock();
+    lock.lock();
+    try {
+      VersionBucket bucket = state.buckets[thread.random.nextInt(state.buckets.length)];
+      return bucket.runWithLock(
+          0,
+          () -> {
+            long version = state.clock.incrementAndGet();
+            bucket.updateHighest(version);
+            return version;
+          });
+    } finally {
+      lock.unlock();
+    }
+  }
+}
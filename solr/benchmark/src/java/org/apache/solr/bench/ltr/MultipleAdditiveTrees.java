@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.ltr;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.ltr.feature.Feature;
+import org.apache.solr.ltr.feature.ValueFeature;
+import org.apache.solr.ltr.model.LTRScoringModel;
+import org.apache.solr.ltr.model.MultipleAdditiveTreesModel;
+import org.apache.solr.ltr.norm.IdentityNormalizer;
+import org.apache.solr.ltr.norm.Normalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares scoring the reranked documents with the flattened trees of a {@link
+ * MultipleAdditiveTreesModel} against walking its tree nodes.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 9)
+@Threads(value = 1)
+public class MultipleAdditiveTrees {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"100", "1000"})
+    int numTrees;
+
+    /** Depth of the trees, which are full binary trees. */
+    @Param({"4", "8"})
+    int depth;
+
+    @Param("50")
+    int numFeatures;
+
+    /** The number of feature vectors scored per invocation, like reRankDocs. */
+    @Param("500")
+    int reRankDocs;
+
+    MultipleAdditiveTreesModel model;
+    float[][] featureVectors;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+
+      List<Feature> features = new ArrayList<>();
+      for (int i = 0; i < numFeatures; i++) {
+        Feature feature = new ValueFeature("f" + i, Map.of("value", 1));
+        feature.setIndex(i);
+        features.add(feature);
+      }
+      List<Normalizer> norms =
+          new ArrayList<>(Collections.nCopies(numFeatures, IdentityNormalizer.INSTANCE));
+
+      List<Object> trees = new ArrayList<>();
+      for (int i = 0; i < numTrees; i++) {
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("weight", Double.toString(random.nextDouble()));
+        tree.put("root", node(random, depth));
+        trees.add(tree);
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("trees", trees);
+
+      try (SolrResourceLoader loader = new SolrResourceLoader(Path.of("."))) {
+        model =
+            (MultipleAdditiveTreesModel)
+                LTRScoringModel.getInstance(
+                    loader,
+                    MultipleAdditiveTreesModel.class.getName(),
+                    "bench",
+                    features,
+                    norms,
+                    "bench",
+                    features,
+                    params);
+      }
+
+      featureVectors = new float[reRankDocs][numFeatures];
+      for (float[] featureVector : featureVectors) {
+        for (int i = 0; i < numFeatures; i++) {
+          featureVector[i] = (float) random.nextDouble();
+        }
+      }
+    }
+
+    private Map<String, Object> node(SplittableRandom random, int depth) {
+      Map<String, Object> node = new HashMap<>();
+      if (depth == 0) {
+        node.put("value", Double.toString(random.nextDouble(-10, 10)));
+      } else {
+        node.put("feature", "f" + random.nextInt(numFeatures));
+        node.put("threshold", Double.toString(random.nextDouble()));
+        node.put("left", node(random, depth - 1));
+        node.put("right", node(random, depth - 1));
+      }
+      return node;
+    }
+  }
+
+  @Benchmark
+  public float flattenedTrees(BenchState state) {
+    float sum = 0;
+    for (float[] featureVector : state.featureVectors) {
+      sum += state.model.score(featureVector);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public float treeNodes(BenchState state) {
+    float sum = 0;
+    for (float[] featureVector : state.featureVectors) {
+      sum += state.model.scoreTreeNodes(featureVector);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import static org.apache.solr.bench.Docs.docs;
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.strings;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.Docs;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the collapse query parser on a String field, with and without the collapseCache
+ * holding the global ordinals and group heads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Warmup(time = 5, iterations = 4)
+@Measurement(time = 10, iterations = 5)
+@Fork(value = 1)
+@Timeout(time = 60)
+public class Collapse {
+
+  static final String COLLECTION = "c1";
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"500000"})
+    int docCount;
+
+    /** The number of distinct values of the collapse field. */
+    @Param({"1000", "100000"})
+    int groupCard;
+
+    @Param({"false", "true"})
+    boolean collapseCache;
+
+    /** The group head selector local params, score or min/max of a numeric field. */
+    @Param({"", "max=val_i_dv", "min=val_l_dv"})
+    String groupHead;
+
+    /** The query, matching either all docs or roughly a tenth of them. */
+    @Param({"*:*", "filter_i_dv:[0 TO 9]"})
+    String q;
+
+    private QueryRequest queryRequest;
+
+    @Setup(Level.Trial)
+    public void setup(MiniClusterState.MiniClusterBenchState miniClusterState) throws Exception {
+      System.setProperty("collapseCache.enabled", Boolean.toString(collapseCache));
+
+      // keep several segments, so collapsing without the cache has to map segment ordinals
+      System.setProperty("maxMergeAtOnce", "30");
+      System.setProperty("segmentsPerTier", "30");
+
+      miniClusterState.startMiniCluster(1);
+      miniClusterState.createCollection(COLLECTION, 1, 1);
+
+      Docs docs =
+          docs()
+              .field("id", integers().incrementing())
+              .field(
+                  "group_s",
+                  strings().basicLatinAlphabet().maxCardinality(groupCard).ofLengthBetween(4, 32))
+              .field("val_i_dv", integers().all())
+              .field("val_l_dv", integers().all())
+              .field("filter_i_dv", integers().between(0, 99));
+
+      miniClusterState.index(COLLECTION, docs, docCount);
+      miniClusterState.forceMerge(COLLECTION, 12);
+
+      ModifiableSolrParams params =
+          MiniClusterState.params(
+              "q",
+              q,
+              "fq",
+              "{!collapse field=group_s " + groupHead + "}",
+              "rows",
+              "10",
+              "fl",
+              "id");
+      queryRequest = new QueryRequest(params);
+      queryRequest.setBasePath(miniClusterState.nodes.get(0));
+    }
+  }
+
+  @Benchmark
+  public Object collapse(
+      MiniClusterState.MiniClusterBenchState miniClusterState, BenchState state) throws Exception {
+    return miniClusterState.client.request(state.queryRequest, COLLECTION);
+  }
+}
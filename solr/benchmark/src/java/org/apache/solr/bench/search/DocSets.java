@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.search.BitDocSet;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.RoaringDocSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the memory and the intersection speed of the {@link DocSet} implementations that end up
+ * in the filterCache, for filters matching a given percentage of the index. The memory used by
+ * each filter is logged at setup.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 9)
+@Threads(value = 1)
+public class DocSets {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"10000000"})
+    int maxDoc;
+
+    /** Percentage of the index matched by each filter. */
+    @Param({"0.5", "1", "5", "10"})
+    double percent;
+
+    @Param({"bit", "roaring"})
+    String docSetType;
+
+    DocSet filter1;
+    DocSet filter2;
+    // a broad main query, which stays a BitDocSet
+    DocSet query;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+      filter1 = newDocSet(randomBits(random, percent), docSetType);
+      filter2 = newDocSet(randomBits(random, percent), docSetType);
+      query = newDocSet(randomBits(random, 50), "bit");
+      BaseBenchState.log(
+          docSetType
+              + " filter at "
+              + percent
+              + "%: "
+              + RamUsageEstimator.humanReadableUnits(filter1.ramBytesUsed()));
+    }
+
+    private FixedBitSet randomBits(SplittableRandom random, double percent) {
+      FixedBitSet bits = new FixedBitSet(maxDoc);
+      long numDocs = (long) (maxDoc * percent / 100);
+      for (long i = 0; i < numDocs; i++) {
+        bits.set(random.nextInt(maxDoc));
+      }
+      return bits;
+    }
+
+    private static DocSet newDocSet(FixedBitSet bits, String docSetType) {
+      switch (docSetType) {
+        case "bit":
+          return new BitDocSet(bits, bits.cardinality());
+        case "roaring":
+          return RoaringDocSet.of(bits);
+        default:
+          throw new IllegalArgumentException("Unknown docSetType: " + docSetType);
+      }
+    }
+  }
+
+  @Benchmark
+  public int filtersIntersectionSize(BenchState state) {
+    return state.filter1.intersectionSize(state.filter2);
+  }
+
+  @Benchmark
+  public Object filtersIntersection(BenchState state) {
+    return state.filter1.intersection(state.filter2);
+  }
+
+  @Benchmark
+  public int queryIntersectionSize(BenchState state) {
+    return state.query.intersectionSize(state.filter1);
+  }
+}
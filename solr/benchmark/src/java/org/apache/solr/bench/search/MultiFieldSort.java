@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.handler.component.ShardDoc;
+import org.apache.solr.handler.component.ShardFieldSortedHitQueue;
+import org.apache.solr.search.NumericSortCollector;
+import org.apache.solr.search.NumericSortKeys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sorting on several numeric fields with the comparators of the fields and with {@link
+ * NumericSortKeys}: when collecting the top documents of an index, with a {@link
+ * TopFieldCollector} or a {@link NumericSortCollector}, and when merging the top documents of
+ * shards in a {@link ShardFieldSortedHitQueue}.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 9)
+@Threads(value = 1)
+public class MultiFieldSort {
+
+  private static final Sort SORT =
+      new Sort(
+          new SortField("category", SortField.Type.INT),
+          new SortField("price", SortField.Type.DOUBLE, true),
+          new SortField("timestamp", SortField.Type.LONG, true));
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"1000000"})
+    int numDocs;
+
+    @Param({"10", "1000"})
+    int numHits;
+
+    @Param({"16"})
+    int numShards;
+
+    /** Whether the sort values are compared as {@link NumericSortKeys}. */
+    @Param({"false", "true"})
+    boolean packed;
+
+    ByteBuffersDirectory directory;
+    DirectoryReader reader;
+    IndexSearcher searcher;
+    NumericSortKeys sortKeys;
+    List<ShardDoc> shardDocs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+      directory = new ByteBuffersDirectory();
+      try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+        for (int i = 0; i < numDocs; i++) {
+          Document doc = new Document();
+          // few categories, so that the other fields break ties
+          doc.add(new NumericDocValuesField("category", random.nextInt(8)));
+          doc.add(new DoubleDocValuesField("price", random.nextInt(1000) / 10.0));
+          doc.add(new NumericDocValuesField("timestamp", random.nextLong()));
+          writer.addDocument(doc);
+        }
+        writer.forceMerge(4);
+      }
+      reader = DirectoryReader.open(directory);
+      searcher = new IndexSearcher(reader);
+      sortKeys = NumericSortKeys.forCollection(SORT.getSort());
+
+      // the top documents of each shard, in the order of the sort
+      shardDocs = new ArrayList<>();
+      for (int shard = 0; shard < numShards; shard++) {
+        NamedList<List<Object>> sortFieldValues = new NamedList<>();
+        List<Object> categories = new ArrayList<>();
+        List<Object> prices = new ArrayList<>();
+        List<Object> timestamps = new ArrayList<>();
+        sortFieldValues.add("category", categories);
+        sortFieldValues.add("price", prices);
+        sortFieldValues.add("timestamp", timestamps);
+        for (int i = 0; i < numHits; i++) {
+          categories.add(i * 8 / numHits);
+          prices.add(100.0 - (i % 100));
+          timestamps.add(-random.nextLong(Long.MAX_VALUE));
+          ShardDoc doc = new ShardDoc();
+          doc.id = shard + "_" + i;
+          doc.shard = "shard" + shard;
+          doc.orderInShard = i;
+          doc.sortFieldValues = sortFieldValues;
+          shardDocs.add(doc);
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+      reader.close();
+      directory.close();
+    }
+  }
+
+  @Benchmark
+  public TopDocs collect(BenchState state) throws IOException {
+    TopDocsCollector<?> collector =
+        state.packed
+            ? new NumericSortCollector(state.sortKeys, state.numHits)
+            : TopFieldCollector.create(SORT, state.numHits, null, Integer.MAX_VALUE);
+    state.searcher.search(new MatchAllDocsQuery(), collector);
+    return collector.topDocs();
+  }
+
+  @Benchmark
+  public ShardDoc merge(BenchState state) {
+    ShardFieldSortedHitQueue queue =
+        new ShardFieldSortedHitQueue(SORT.getSort(), state.numHits, null, state.packed);
+    for (ShardDoc doc : state.shardDocs) {
+      // the keys are computed once per merge
+      doc.sortKeys = null;
+      queue.insertWithOverflow(doc);
+    }
+    return queue.top();
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.handler.component.ShardDoc;
+import org.apache.solr.handler.component.ShardDocMerger;
+import org.apache.solr.handler.component.ShardFieldSortedHitQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ways the ids returned by the shards of a distributed search are merged into the
+ * page of the response: inserting a {@link ShardDoc} per returned id in a {@link
+ * ShardFieldSortedHitQueue}, as QueryComponent used to, or a k-way merge of the shards with a
+ * {@link ShardDocMerger}.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 9)
+@Threads(value = 1)
+public class ShardMerge {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"100"})
+    int numShards;
+
+    @Param({"10", "1000"})
+    int rows;
+
+    @Param({"0", "1000"})
+    int start;
+
+    /** The sort: the score, a numeric field then the score, or a string field. */
+    @Param({"score", "numeric", "string"})
+    String sort;
+
+    SortField[] sortFields;
+    List<String> shards;
+    List<NamedList<List<Object>>> sortFieldValues;
+    List<Object[]> ids;
+    List<float[]> scores;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+      switch (sort) {
+        case "score":
+          sortFields = new SortField[] {SortField.FIELD_SCORE};
+          break;
+        case "numeric":
+          sortFields =
+              new SortField[] {
+                new SortField("popularity", SortField.Type.INT, true), SortField.FIELD_SCORE
+              };
+          break;
+        case "string":
+          sortFields = new SortField[] {new SortField("name", SortField.Type.STRING)};
+          break;
+        default:
+          throw new IllegalArgumentException(sort);
+      }
+
+      // the top start + rows docs of each shard, in the order of the sort
+      final int numDocs = start + rows;
+      shards = new ArrayList<>();
+      sortFieldValues = new ArrayList<>();
+      ids = new ArrayList<>();
+      scores = new ArrayList<>();
+      for (int shard = 0; shard < numShards; shard++) {
+        NamedList<List<Object>> values = new NamedList<>();
+        Object[] shardIds = new Object[numDocs];
+        float[] shardScores = new float[numDocs];
+        List<Object> popularities = new ArrayList<>();
+        List<Object> names = new ArrayList<>();
+        float score = 10f;
+        int popularity = 100;
+        for (int i = 0; i < numDocs; i++) {
+          shardIds[i] = shard + "_" + i;
+          // decreasing scores and popularities, and increasing names
+          score -= random.nextFloat() / numDocs;
+          shardScores[i] = score;
+          if (random.nextInt(10) == 0) {
+            popularity--;
+          }
+          popularities.add(popularity);
+          String name = Integer.toString(i * numShards + random.nextInt(numShards));
+          names.add(new BytesRef(String.format(Locale.ROOT, "%10s", name)));
+        }
+        if (sort.equals("numeric")) {
+          values.add("popularity", popularities);
+        } else if (sort.equals("string")) {
+          values.add("name", names);
+        }
+        shards.add("shard" + shard);
+        sortFieldValues.add(values);
+        ids.add(shardIds);
+        scores.add(shardScores);
+      }
+    }
+  }
+
+  @Benchmark
+  public ShardDoc[] queue(BenchState state) {
+    ShardFieldSortedHitQueue queue =
+        new ShardFieldSortedHitQueue(state.sortFields, state.start + state.rows, null);
+    for (int shard = 0; shard < state.numShards; shard++) {
+      Object[] ids = state.ids.get(shard);
+      float[] scores = state.scores.get(shard);
+      for (int i = 0; i < ids.length; i++) {
+        ShardDoc doc = new ShardDoc();
+        doc.id = ids[i];
+        doc.shard = state.shards.get(shard);
+        doc.orderInShard = i;
+        doc.score = scores[i];
+        doc.sortFieldValues = state.sortFieldValues.get(shard);
+        queue.insertWithOverflow(doc);
+      }
+    }
+    ShardDoc[] page = new ShardDoc[Math.max(0, queue.size() - state.start)];
+    for (int i = page.length - 1; i >= 0; i--) {
+      page[i] = queue.pop();
+      page[i].positionInResponse = i;
+    }
+    return page;
+  }
+
+  @Benchmark
+  public ShardDoc[] kway(BenchState state) {
+    ShardDocMerger merger = new ShardDocMerger(state.sortFields, null);
+    for (int shard = 0; shard < state.numShards; shard++) {
+      Object[] ids = state.ids.get(shard);
+      float[] scores = state.scores.get(shard);
+      // the arrays mergeIds fills from the response of the shard
+      Object[] shardIds = new Object[ids.length];
+      int[] ordersInShard = new int[ids.length];
+      float[] shardScores = new float[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        shardIds[i] = ids[i];
+        ordersInShard[i] = i;
+        shardScores[i] = scores[i];
+      }
+      merger.addShard(
+          state.shards.get(shard),
+          state.sortFieldValues.get(shard),
+          shardIds,
+          ordersInShard,
+          shardScores,
+          ids.length);
+    }
+    return merger.merge(state.start, state.rows);
+  }
+}
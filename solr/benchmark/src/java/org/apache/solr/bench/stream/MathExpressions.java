@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.eval.CorrelationEvaluator;
+import org.apache.solr.client.solrj.io.eval.EBESubtractEvaluator;
+import org.apache.solr.client.solrj.io.eval.ExponentialMovingAverageEvaluator;
+import org.apache.solr.client.solrj.io.eval.MovingAverageEvaluator;
+import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates math expressions over the columns of a time series, like the ones the timeseries
+ * stream produces. Run with {@code -prof gc} to see the allocation per evaluation.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 9)
+@Threads(value = 1)
+public class MathExpressions {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    /** The number of points of the time series. */
+    @Param({"1000", "100000"})
+    int numPoints;
+
+    @Param({
+      "corr(movingAvg(a, 10), movingAvg(b, 10))",
+      "corr(expMovingAvg(a, 10), ebeSubtract(movingAvg(b, 10), movingAvg(a, 10)))"
+    })
+    String expression;
+
+    StreamEvaluator evaluator;
+    Tuple tuple;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      StreamFactory factory =
+          new StreamFactory()
+              .withFunctionName("corr", CorrelationEvaluator.class)
+              .withFunctionName("movingAvg", MovingAverageEvaluator.class)
+              .withFunctionName("expMovingAvg", ExponentialMovingAverageEvaluator.class)
+              .withFunctionName("ebeSubtract", EBESubtractEvaluator.class);
+      evaluator = factory.constructEvaluator(expression);
+
+      // the columns of a time series, as col() reads them from the tuples of the stream
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+      List<Double> a = new ArrayList<>(numPoints);
+      List<Double> b = new ArrayList<>(numPoints);
+      for (int i = 0; i < numPoints; i++) {
+        a.add(i + random.nextDouble(100));
+        b.add(2 * i + random.nextDouble(100));
+      }
+      tuple = new Tuple();
+      tuple.put("a", a);
+      tuple.put("b", b);
+    }
+  }
+
+  @Benchmark
+  public Object evaluate(BenchState state) throws IOException {
+    return state.evaluator.evaluate(state.tuple);
+  }
+}
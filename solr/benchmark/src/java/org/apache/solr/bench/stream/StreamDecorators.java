@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.BatchTupleStream;
+import org.apache.solr.client.solrj.io.stream.HashJoinStream;
+import org.apache.solr.client.solrj.io.stream.RollupStream;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares rolling up in memory tuples one at a time against rolling up {@link TupleBatch}es, and
+ * measures a hash join of the same tuples, which doesn't read batches.
+ */
+@Fork(value = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(time = 1, iterations = 5)
+@Measurement(time = 1, iterations = 9)
+@Threads(value = 1)
+public class StreamDecorators {
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"100000", "1000000"})
+    int numTuples;
+
+    /** The number of distinct values of the field the tuples are rolled up and joined on. */
+    @Param({"100", "10000"})
+    int cardinality;
+
+    List<Tuple> tuples;
+    List<Tuple> joinedTuples;
+    List<TupleBatch> batches;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+
+      // sorted on the bucket field, like the rollup expects
+      tuples = new ArrayList<>(numTuples);
+      for (int i = 0; i < numTuples; i++) {
+        Tuple tuple = new Tuple();
+        tuple.put("bucket", (long) i * cardinality / numTuples);
+        tuple.put("count", (long) random.nextInt(1000));
+        tuple.put("price", random.nextDouble(100));
+        tuples.add(tuple);
+      }
+
+      joinedTuples = new ArrayList<>(cardinality);
+      for (int i = 0; i < cardinality; i++) {
+        Tuple tuple = new Tuple();
+        tuple.put("bucket", (long) i);
+        tuple.put("name", "bucket" + i);
+        joinedTuples.add(tuple);
+      }
+
+      batches = new ArrayList<>();
+      TupleBatch batch = null;
+      for (Tuple tuple : tuples) {
+        if (batch == null || batch.isFull()) {
+          batch = new TupleBatch();
+          batches.add(batch);
+        }
+        batch.add(tuple);
+      }
+      if (batch == null) {
+        batch = new TupleBatch();
+        batches.add(batch);
+      }
+      batch.setEOF(Tuple.EOF());
+    }
+  }
+
+  @Benchmark
+  public long rollupTuples(BenchState state) throws IOException {
+    return rollup(new ListStream(state.tuples));
+  }
+
+  @Benchmark
+  public long rollupBatches(BenchState state) throws IOException {
+    return rollup(new BatchListStream(state.batches));
+  }
+
+  @Benchmark
+  public long hashJoinTuples(BenchState state) throws IOException {
+    List<String> on = List.of("bucket");
+    return count(
+        new HashJoinStream(new ListStream(state.tuples), new ListStream(state.joinedTuples), on));
+  }
+
+  private static long rollup(TupleStream stream) throws IOException {
+    Metric[] metrics = {
+      new CountMetric(), new SumMetric("count"), new MaxMetric("count"), new MeanMetric("price")
+    };
+    return count(new RollupStream(stream, new Bucket[] {new Bucket("bucket")}, metrics));
+  }
+
+  private static long count(TupleStream stream) throws IOException {
+    long count = 0;
+    try (stream) {
+      stream.setStreamContext(new StreamContext());
+      stream.open();
+      while (!stream.read().EOF) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Reads tuples from a list. */
+  private static class ListStream extends TupleStream {
+    private final List<Tuple> tuples;
+    private int next;
+
+    ListStream(List<Tuple> tuples) {
+      this.tuples = tuples;
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {}
+
+    @Override
+    public List<TupleStream> children() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Tuple read() {
+      return next < tuples.size() ? tuples.get(next++) : Tuple.EOF();
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return null;
+    }
+  }
+
+  /** Reads batches from a list, the last one marked as EOF. */
+  private static class BatchListStream extends TupleStream implements BatchTupleStream {
+    private final List<TupleBatch> batches;
+    private int next;
+
+    BatchListStream(List<TupleBatch> batches) {
+      this.batches = batches;
+    }
+
+    @Override
+    public TupleBatch readBatch() {
+      return batches.get(next++);
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {}
+
+    @Override
+    public List<TupleStream> children() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void open() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Tuple read() {
+      throw new UnsupportedOperationException("Read in batches");
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return null;
+    }
+  }
+}
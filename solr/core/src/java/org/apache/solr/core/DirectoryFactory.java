@@ -339,6 +339,18 @@ public abstract class DirectoryFactory implements NamedListInitializedPlugin, Cl
 
   public void cleanupOldIndexDirectories(
       final String dataDirPath, final String currentIndexDirPath, boolean afterCoreReload) {
+    cleanupOldIndexDirectories(dataDirPath, currentIndexDirPath, afterCoreReload, null);
+  }
+
+  /**
+   * Removes the old index directories of the data dir, except the current one and, if not null,
+   * {@code resumeIndexDirPath}, the tmp index dir kept by a failed index fetch to resume from.
+   */
+  public void cleanupOldIndexDirectories(
+      final String dataDirPath,
+      final String currentIndexDirPath,
+      boolean afterCoreReload,
+      final String resumeIndexDirPath) {
     File dataDir = new File(dataDirPath);
     if (!dataDir.isDirectory()) {
       log.debug(
@@ -348,6 +360,7 @@ public abstract class DirectoryFactory implements NamedListInitializedPlugin, Cl
     }
 
     final File currentIndexDir = new File(currentIndexDirPath);
+    final File resumeIndexDir = resumeIndexDirPath == null ? null : new File(resumeIndexDirPath);
     File[] oldIndexDirs =
         dataDir.listFiles(
             new FileFilter() {
@@ -356,6 +369,7 @@ public abstract class DirectoryFactory implements NamedListInitializedPlugin, Cl
                 String fileName = file.getName();
                 return file.isDirectory()
                     && !file.equals(currentIndexDir)
+                    && !file.equals(resumeIndexDir)
                     && (fileName.equals("index") || fileName.matches(INDEX_W_TIMESTAMP_REGEX));
               }
             });
@@ -67,7 +67,10 @@ public abstract class EphemeralDirectoryFactory extends CachingDirectoryFactory
 
   @Override
   public void cleanupOldIndexDirectories(
-      final String dataDirPath, final String currentIndexDirPath, boolean reload) {
+      final String dataDirPath,
+      final String currentIndexDirPath,
+      boolean reload,
+      final String resumeIndexDirPath) {
     // currently a no-op
   }
 }
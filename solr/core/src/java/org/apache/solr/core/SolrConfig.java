@@ -318,6 +318,9 @@ public class SolrConfig implements MapSerializable {
               this, get("query").get("queryResultCache"), "query/queryResultCache");
       documentCacheConfig =
           CacheConfig.getConfig(this, get("query").get("documentCache"), "query/documentCache");
+      storedFieldsCacheConfig =
+          CacheConfig.getConfig(
+              this, get("query").get("storedFieldsCache"), "query/storedFieldsCache");
       CacheConfig conf =
           CacheConfig.getConfig(this, get("query").get("fieldValueCache"), "query/fieldValueCache");
       if (conf == null) {
@@ -329,6 +332,8 @@ public class SolrConfig implements MapSerializable {
       }
       fieldValueCacheConfig = conf;
       useColdSearcher = get("query").get("useColdSearcher").boolVal(false);
+      asyncCacheWarming = get("query").get("asyncCacheWarming").boolVal(false);
+      cacheKeysSnapshotConfig = CacheKeysSnapshot.Config.of(get("query").get("cacheKeysSnapshot"));
       dataDir = get("dataDir").txt();
       if (dataDir != null && dataDir.length() == 0) dataDir = null;
 
@@ -671,6 +676,7 @@ public class SolrConfig implements MapSerializable {
   public final CacheConfig filterCacheConfig;
   public final CacheConfig queryResultCacheConfig;
   public final CacheConfig documentCacheConfig;
+  public final CacheConfig storedFieldsCacheConfig;
   public final CacheConfig fieldValueCacheConfig;
   public final Map<String, CacheConfig> userCacheConfigs;
   // SolrIndexSearcher - more...
@@ -688,6 +694,10 @@ public class SolrConfig implements MapSerializable {
 
   public final int maxWarmingSearchers;
   public final boolean useColdSearcher;
+  /** Whether a new searcher is registered before its caches are warmed, rather than after. */
+  public final boolean asyncCacheWarming;
+  /** The snapshot of the hottest keys of the query result cache, or null if not configured. */
+  public final CacheKeysSnapshot.Config cacheKeysSnapshotConfig;
   public final Version luceneMatchVersion;
   protected String dataDir;
   public final int slowQueryThresholdMillis; // threshold above which a query is considered slow
@@ -1044,7 +1054,12 @@ public class SolrConfig implements MapSerializable {
     }
 
     addCacheConfig(
-        m, filterCacheConfig, queryResultCacheConfig, documentCacheConfig, fieldValueCacheConfig);
+        m,
+        filterCacheConfig,
+        queryResultCacheConfig,
+        documentCacheConfig,
+        storedFieldsCacheConfig,
+        fieldValueCacheConfig);
     m = new LinkedHashMap<>();
     result.put("requestDispatcher", m);
     m.put("handleSelect", handleSelect);
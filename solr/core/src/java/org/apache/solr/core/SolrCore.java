@@ -114,6 +114,7 @@ import org.apache.solr.handler.component.HighlightComponent;
 import org.apache.solr.handler.component.SearchComponent;
 import org.apache.solr.logging.MDCLoggingContext;
 import org.apache.solr.metrics.SolrCoreMetricManager;
+import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.pkg.PackageListeners;
@@ -130,6 +131,7 @@ import org.apache.solr.response.GraphMLResponseWriter;
 import org.apache.solr.response.JacksonJsonWriter;
 import org.apache.solr.response.PHPResponseWriter;
 import org.apache.solr.response.PHPSerializedResponseWriter;
+import org.apache.solr.response.PrometheusResponseWriter;
 import org.apache.solr.response.PythonResponseWriter;
 import org.apache.solr.response.QueryResponseWriter;
 import org.apache.solr.response.RawResponseWriter;
@@ -146,9 +148,12 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.ManagedIndexSchema;
 import org.apache.solr.schema.SimilarityFactory;
+import org.apache.solr.search.CacheKeysSnapshot;
 import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SolrFieldCacheBean;
 import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.StoredFieldsCache;
 import org.apache.solr.search.ValueSourceParser;
 import org.apache.solr.search.stats.LocalStatsCache;
 import org.apache.solr.search.stats.StatsCache;
@@ -242,6 +247,8 @@ public class SolrCore implements SolrInfoBean, Closeable {
   private final RecoveryStrategy.Builder recoveryStrategyBuilder;
   private IndexReaderFactory indexReaderFactory;
   private final Codec codec;
+  private final StoredFieldsCache storedFieldsCache;
+  private final CacheKeysSnapshot cacheKeysSnapshot;
   private final ConfigSet configSet;
   // singleton listener for all packages used in schema
 
@@ -1118,6 +1125,16 @@ public class SolrCore implements SolrInfoBean, Closeable {
       solrFieldCacheBean.initializeMetrics(solrMetricsContext, "core");
       infoRegistry.put("fieldCache", solrFieldCacheBean);
 
+      // shared by the searchers of this core, since its entries are per segment
+      this.storedFieldsCache = StoredFieldsCache.newInstance(solrConfig.storedFieldsCacheConfig);
+      if (storedFieldsCache != null) {
+        SolrCache<?, ?> cache = storedFieldsCache.getCache();
+        cache.initializeMetrics(solrMetricsContext, SolrMetricManager.mkName(cache.name(), "core"));
+        infoRegistry.put(cache.name(), cache);
+      }
+      this.cacheKeysSnapshot =
+          CacheKeysSnapshot.newInstance(this, solrConfig.cacheKeysSnapshotConfig);
+
       this.maxWarmingSearchers = solrConfig.maxWarmingSearchers;
       this.slowQueryThresholdMillis = solrConfig.slowQueryThresholdMillis;
 
@@ -1768,6 +1785,17 @@ public class SolrCore implements SolrInfoBean, Closeable {
 
     ExecutorUtil.shutdownAndAwaitTermination(coreAsyncTaskExecutor);
 
+    if (cacheKeysSnapshot != null) {
+      try {
+        cacheKeysSnapshot.save();
+      } catch (Throwable e) {
+        log.error("Exception saving cacheKeysSnapshot", e);
+        if (e instanceof Error) {
+          throw (Error) e;
+        }
+      }
+    }
+
     // stop reporting metrics
     try {
       coreMetricManager.close();
@@ -1851,6 +1879,17 @@ public class SolrCore implements SolrInfoBean, Closeable {
       }
     }
 
+    if (storedFieldsCache != null) {
+      try {
+        storedFieldsCache.close();
+      } catch (Throwable e) {
+        log.error("Exception closing storedFieldsCache", e);
+        if (e instanceof Error) {
+          throw (Error) e;
+        }
+      }
+    }
+
     if (coreStateClosed) {
       try {
         cleanupOldIndexDirectories(false);
@@ -2615,6 +2654,33 @@ public class SolrCore implements SolrInfoBean, Closeable {
 
       Future<Void> future = null;
 
+      // register the new searcher before it's warmed, queries compute what isn't warmed yet
+      final boolean warmAfterRegistering =
+          solrConfig.asyncCacheWarming
+              && !alreadyRegistered
+              && currSearcher != null
+              && newSearcher != currSearcher;
+      if (warmAfterRegistering) {
+        // keep the new searcher open while it's warmed, even if it's replaced in the meantime
+        newSearchHolder.incref();
+        future =
+            searcherExecutor.submit(
+                () -> {
+                  try {
+                    registerSearcher(newSearchHolder);
+                  } catch (Throwable e) {
+                    log.error("Exception registering new searcher", e);
+                    if (e instanceof Error) {
+                      throw (Error) e;
+                    }
+                  }
+                  return null;
+                });
+        alreadyRegistered = true;
+      }
+      // callers waiting for the new searcher wait for its registration only
+      final Future<Void> registerFuture = future;
+
       // if the underlying searcher has not changed, no warming is needed
       if (newSearcher != currSearcher) {
 
@@ -2643,6 +2709,16 @@ public class SolrCore implements SolrInfoBean, Closeable {
           future =
               searcherExecutor.submit(
                   () -> {
+                    if (cacheKeysSnapshot != null) {
+                      try {
+                        cacheKeysSnapshot.replay(newSearcher);
+                      } catch (Throwable e) {
+                        log.error("Exception replaying the cache keys of the snapshot", e);
+                        if (e instanceof Error) {
+                          throw e;
+                        }
+                      }
+                    }
                     for (SolrEventListener listener : firstSearcherListeners) {
                       try {
                         listener.newSearcher(newSearcher, null);
@@ -2699,6 +2775,15 @@ public class SolrCore implements SolrInfoBean, Closeable {
                   }
                   return null;
                 });
+      } else if (warmAfterRegistering) {
+        searcherExecutor.submit(
+            () -> {
+              // we are all done with the old searcher we used for warming, and with warming
+              currSearcherHolderF.decref();
+              newSearchHolder.decref();
+              return null;
+            });
+        future = registerFuture;
       }
 
       if (waitSearcher != null) {
@@ -3037,6 +3122,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
     m.put(CommonParams.JAVABIN, new BinaryResponseWriter());
     m.put("cbor", new CborResponseWriter());
     m.put("csv", new CSVResponseWriter());
+    m.put("prometheus", new PrometheusResponseWriter());
     m.put("schema.xml", new SchemaXmlResponseWriter());
     m.put("smile", new SmileResponseWriter());
     m.put(ReplicationHandler.FILE_STREAM, getFileStreamWriter());
@@ -3283,6 +3369,21 @@ public class SolrCore implements SolrInfoBean, Closeable {
     return codec;
   }
 
+  /**
+   * The cache of stored fields shared by the searchers of this core, or null if none is configured.
+   */
+  public StoredFieldsCache getStoredFieldsCache() {
+    return storedFieldsCache;
+  }
+
+  /**
+   * The snapshot of the hottest keys of the query result cache, replayed by the first searcher, or
+   * null if none is configured.
+   */
+  public CacheKeysSnapshot getCacheKeysSnapshot() {
+    return cacheKeysSnapshot;
+  }
+
   public void unloadOnClose(
       final CoreDescriptor desc,
       boolean deleteIndexDir,
@@ -3494,6 +3595,15 @@ public class SolrCore implements SolrInfoBean, Closeable {
     final String myIndexDir = getNewIndexDir(); // ensure the latest replicated index is protected
     final String coreName = getName();
     if (myDirFactory != null && myDataDir != null && myIndexDir != null) {
+      // the tmp index dir of a failed fetch looks like an old index dir, but must be kept
+      String resumeTmpIdxDirName = null;
+      try {
+        resumeTmpIdxDirName = IndexFetcher.getResumeTmpIdxDirName(this);
+      } catch (Exception e) {
+        log.warn("Could not check for a failed index fetch to resume for core {}", coreName, e);
+      }
+      final String myResumeIndexDir =
+          resumeTmpIdxDirName == null ? null : myDataDir + resumeTmpIdxDirName;
       Thread cleanupThread =
           new Thread(
               () -> {
@@ -3502,7 +3612,8 @@ public class SolrCore implements SolrInfoBean, Closeable {
                     coreName,
                     myDataDir);
                 try {
-                  myDirFactory.cleanupOldIndexDirectories(myDataDir, myIndexDir, reload);
+                  myDirFactory.cleanupOldIndexDirectories(
+                      myDataDir, myIndexDir, reload, myResumeIndexDir);
                 } catch (Exception exc) {
                   log.error("Failed to cleanup old index directories for core {}", coreName, exc);
                 }
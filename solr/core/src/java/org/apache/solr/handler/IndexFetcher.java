@@ -29,6 +29,7 @@ import static org.apache.solr.handler.ReplicationHandler.COMPRESSION;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILES;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILE_SHORT;
 import static org.apache.solr.handler.ReplicationHandler.EXTERNAL;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_CONCURRENCY;
 import static org.apache.solr.handler.ReplicationHandler.FETCH_FROM_LEADER;
 import static org.apache.solr.handler.ReplicationHandler.FILE;
 import static org.apache.solr.handler.ReplicationHandler.FILE_STREAM;
@@ -38,7 +39,11 @@ import static org.apache.solr.handler.ReplicationHandler.INTERNAL;
 import static org.apache.solr.handler.ReplicationHandler.LEADER_URL;
 import static org.apache.solr.handler.ReplicationHandler.LEGACY_LEADER_URL;
 import static org.apache.solr.handler.ReplicationHandler.LEGACY_SKIP_COMMIT_ON_LEADER_VERSION_ZERO;
+import static org.apache.solr.handler.ReplicationHandler.MAX_READ_PER_SECOND;
 import static org.apache.solr.handler.ReplicationHandler.OFFSET;
+import static org.apache.solr.handler.ReplicationHandler.PACKET_COMPRESSION;
+import static org.apache.solr.handler.ReplicationHandler.PACKET_COMPRESSION_CODEC;
+import static org.apache.solr.handler.ReplicationHandler.RESUMABLE_FETCH;
 import static org.apache.solr.handler.ReplicationHandler.SIZE;
 import static org.apache.solr.handler.ReplicationHandler.SKIP_COMMIT_ON_LEADER_VERSION_ZERO;
 
@@ -74,11 +79,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -96,6 +104,8 @@ import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
@@ -171,6 +181,9 @@ public class IndexFetcher {
 
   private volatile LocalFsFileFetcher localFileFetcher;
 
+  /** index file fetchers currently in flight; more than one when fetchConcurrency &gt; 1 */
+  private final Set<DirectoryFileFetcher> activeFileFetchers = ConcurrentHashMap.newKeySet();
+
   private volatile ExecutorService fsyncService;
 
   private volatile boolean stop = false;
@@ -179,6 +192,17 @@ public class IndexFetcher {
 
   private boolean useExternalCompression = false;
 
+  /** per packet compression is configured, and the leader advertised support for it */
+  private boolean usePacketCompression = false;
+
+  private volatile boolean leaderSupportsPacketCompression = false;
+
+  /** bytes the current or last fetch did not transfer thanks to per packet compression */
+  private final LongAdder bytesSavedByCompression = new LongAdder();
+
+  /** most index files the current or last fetch downloaded at the same time */
+  private final AtomicInteger maxConcurrentFileFetches = new AtomicInteger();
+
   boolean fetchFromLeader = false;
 
   private final HttpClient myHttpClient;
@@ -193,6 +217,23 @@ public class IndexFetcher {
 
   private boolean clearLocalIndexFirst = false;
 
+  /** number of index files downloaded in parallel */
+  private int fetchConcurrency = 1;
+
+  /** throttles the aggregate read rate of all index file fetchers, null if unlimited */
+  private RateLimiter readRateLimiter;
+
+  /** if true, the tmp index dir of a failed full copy is kept and reused by the next attempt */
+  private boolean resumableFetch = false;
+
+  /**
+   * tmp index dir name and leader generation kept from the last failed full copy, also recorded in
+   * replication.properties so that the fetch can be resumed after a restart
+   */
+  private volatile String resumeTmpIdxDirName;
+
+  private volatile long resumeGeneration = -1;
+
   private static final String INTERRUPT_RESPONSE_MESSAGE =
       "Interrupted while waiting for modify lock";
 
@@ -303,6 +344,7 @@ public class IndexFetcher {
     String compress = (String) initArgs.get(COMPRESSION);
     useInternalCompression = INTERNAL.equals(compress);
     useExternalCompression = EXTERNAL.equals(compress);
+    usePacketCompression = PACKET_COMPRESSION_CODEC.equals(compress);
     connTimeout = getParameter(initArgs, HttpClientUtil.PROP_CONNECTION_TIMEOUT, 30000, null);
 
     // allow a leader override for tests - you specify this in /replication follower section of
@@ -312,6 +354,26 @@ public class IndexFetcher {
       soTimeout = getParameter(initArgs, HttpClientUtil.PROP_SO_TIMEOUT, 120000, null);
     }
 
+    // these may be configured as <str> as well as typed values
+    Object concurrency = initArgs.get(FETCH_CONCURRENCY);
+    if (concurrency != null) {
+      fetchConcurrency = Math.max(1, Integer.parseInt(concurrency.toString()));
+    }
+    Object maxReadMBPerSec = initArgs.get(MAX_READ_PER_SECOND);
+    if (maxReadMBPerSec != null) {
+      double mbPerSec = Double.parseDouble(maxReadMBPerSec.toString());
+      if (mbPerSec > 0) {
+        readRateLimiter = new RateLimiter.SimpleRateLimiter(mbPerSec);
+      }
+    }
+    Object resumable = initArgs.get(RESUMABLE_FETCH);
+    resumableFetch = resumable != null && Boolean.parseBoolean(resumable.toString());
+    if (resumableFetch) {
+      loadResumeState();
+    } else {
+      discardResumeState();
+    }
+
     String httpBasicAuthUser = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_USER);
     String httpBasicAuthPassword = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_PASS);
     myHttpClient =
@@ -415,6 +477,15 @@ public class IndexFetcher {
 
       files = (List<Map<String, Object>>) response.get(CONF_FILES);
       if (files != null) confFilesToDownload = Collections.synchronizedList(files);
+
+      leaderSupportsPacketCompression =
+          PACKET_COMPRESSION_CODEC.equals(response.get(PACKET_COMPRESSION));
+      if (usePacketCompression && !leaderSupportsPacketCompression) {
+        log.warn(
+            "Leader at {} does not support {} compression, index files are fetched uncompressed",
+            leaderUrl,
+            PACKET_COMPRESSION_CODEC);
+      }
     } catch (SolrServerException e) {
       throw new IOException(e);
     }
@@ -438,6 +509,8 @@ public class IndexFetcher {
       throws IOException, InterruptedException {
 
     this.clearLocalIndexFirst = false;
+    bytesSavedByCompression.reset();
+    maxConcurrentFileFetches.set(0);
     boolean cleanupDone = false;
     boolean successfulInstall = false;
     markReplicationStart();
@@ -605,8 +678,18 @@ public class IndexFetcher {
               || commit.getGeneration() >= latestGeneration
               || forceReplication;
 
-      String timestamp = new SimpleDateFormat(SnapShooter.DATE_FMT, Locale.ROOT).format(new Date());
-      String tmpIdxDirName = "index." + timestamp;
+      String tmpIdxDirName = getResumableTmpIdxDirName(isFullCopyNeeded, latestGeneration);
+      final boolean resuming = tmpIdxDirName != null;
+      if (!resuming) {
+        String timestamp =
+            new SimpleDateFormat(SnapShooter.DATE_FMT, Locale.ROOT).format(new Date());
+        tmpIdxDirName = "index." + timestamp;
+      } else {
+        log.info(
+            "Resuming failed full index fetch of generation {} in {}",
+            latestGeneration,
+            tmpIdxDirName);
+      }
       tmpIndexDirPath = solrCore.getDataDir() + tmpIdxDirName;
 
       tmpIndexDir =
@@ -684,9 +767,15 @@ public class IndexFetcher {
           log.info("Starting download (fullCopy={}) to {}", isFullCopyNeeded, tmpIndexDir);
           successfulInstall = false;
 
+          if (resumableFetch && isFullCopyNeeded) {
+            // if this attempt fails, keep what was fully downloaded so far for the next one
+            resumeTmpIdxDirName = tmpIdxDirName;
+            resumeGeneration = latestGeneration;
+          }
           long bytesDownloaded =
               downloadIndexFiles(
                   isFullCopyNeeded,
+                  resuming,
                   indexDir,
                   tmpIndexDir,
                   indexDirPath,
@@ -695,6 +784,8 @@ public class IndexFetcher {
           final long timeTakenSeconds = getReplicationTimeElapsed();
           final Long bytesDownloadedPerSecond =
               (timeTakenSeconds != 0 ? Long.valueOf(bytesDownloaded / timeTakenSeconds) : null);
+          lastCycleDownloadSpeed =
+              bytesDownloadedPerSecond == null ? -1 : bytesDownloadedPerSecond;
           log.info(
               "Total time taken for download (fullCopy={},bytesDownloaded={}) : {} secs ({} bytes/sec) to {}",
               isFullCopyNeeded,
@@ -825,8 +916,18 @@ public class IndexFetcher {
       boolean successfulInstall)
       throws IOException {
     try {
+      if (successfulInstall) {
+        resumeTmpIdxDirName = null;
+        resumeGeneration = -1;
+      } else if (resumeTmpIdxDirName != null && tmpIndexDir != null) {
+        // keep the fully downloaded files around for the next attempt to resume from
+        log.info("Keeping {} to resume the failed index fetch", resumeTmpIdxDirName);
+        deleteTmpIdxDir = false;
+      }
+
       if (!successfulInstall) {
         try {
+          // also records the kept tmp index dir, if any
           logReplicationTimeAndConfFiles(null, successfulInstall);
         } catch (Exception e) {
           // this can happen on shutdown, a fetch may be running in a thread after DirectoryFactory
@@ -843,6 +944,7 @@ public class IndexFetcher {
       filesToDownload = filesDownloaded = confFilesDownloaded = confFilesToDownload = null;
       markReplicationStop();
       dirFileFetcher = null;
+      activeFileFetchers.clear();
       localFileFetcher = null;
       if (fsyncService != null && !ExecutorUtil.isShutdown(fsyncService)) fsyncService.shutdown();
       fsyncService = null;
@@ -879,6 +981,133 @@ public class IndexFetcher {
     }
   }
 
+  /**
+   * Returns the name of the tmp index dir kept from a failed full copy of the same leader
+   * generation, or null if there is nothing to resume from. A kept dir that can't be resumed from
+   * is removed.
+   */
+  private String getResumableTmpIdxDirName(boolean isFullCopyNeeded, long latestGeneration)
+      throws IOException {
+    String dirName = resumeTmpIdxDirName;
+    if (dirName == null) return null;
+    String dirPath = solrCore.getDataDir() + dirName;
+    if (resumableFetch
+        && isFullCopyNeeded
+        && resumeGeneration == latestGeneration
+        && solrCore.getDirectoryFactory().exists(dirPath)) {
+      return dirName;
+    }
+    resumeTmpIdxDirName = null;
+    resumeGeneration = -1;
+    log.info("Removing {} of a failed index fetch which can't be resumed", dirName);
+    Directory dir =
+        solrCore
+            .getDirectoryFactory()
+            .get(dirPath, DirContext.DEFAULT, solrCore.getSolrConfig().indexConfig.lockType);
+    try {
+      solrCore.getDirectoryFactory().doneWithDirectory(dir);
+      solrCore.getDirectoryFactory().remove(dir);
+    } finally {
+      solrCore.getDirectoryFactory().release(dir);
+    }
+    return null;
+  }
+
+  /**
+   * Restores the tmp index dir and generation of a failed full copy recorded in
+   * replication.properties before a restart, if the dir still exists.
+   */
+  private void loadResumeState() {
+    try {
+      Properties props = replicationHandler.loadReplicationProperties();
+      String dirName = getResumeTmpIdxDirName(props);
+      if (dirName == null) return;
+      if (!solrCore.getDirectoryFactory().exists(solrCore.getDataDir() + dirName)) {
+        log.info("{} of a failed index fetch no longer exists, it can't be resumed", dirName);
+        return;
+      }
+      resumeGeneration = Long.parseLong(props.getProperty(RESUME_GENERATION, "-1"));
+      resumeTmpIdxDirName = dirName;
+      log.info("Found {} of a failed index fetch of generation {}", dirName, resumeGeneration);
+    } catch (Exception e) {
+      log.warn("Could not load the state of a failed index fetch to resume", e);
+    }
+  }
+
+  /**
+   * Removes the tmp index dir of a failed full copy recorded in replication.properties, and the
+   * record, since it won't be resumed from now that resumableFetch is off.
+   */
+  private void discardResumeState() {
+    DirectoryFactory dirFactory = solrCore.getDirectoryFactory();
+    Directory dataDir = null;
+    try {
+      Properties props = replicationHandler.loadReplicationProperties();
+      if (!props.containsKey(RESUME_TMP_INDEX_DIR) && !props.containsKey(RESUME_GENERATION)) {
+        return;
+      }
+      String dirName = getResumeTmpIdxDirName(props);
+      if (dirName != null && dirFactory.exists(solrCore.getDataDir() + dirName)) {
+        log.info("Removing {} of a failed index fetch, resumableFetch is off", dirName);
+        Directory dir =
+            dirFactory.get(
+                solrCore.getDataDir() + dirName,
+                DirContext.DEFAULT,
+                solrCore.getSolrConfig().indexConfig.lockType);
+        try {
+          dirFactory.doneWithDirectory(dir);
+          dirFactory.remove(dir);
+        } finally {
+          dirFactory.release(dir);
+        }
+      }
+      props.remove(RESUME_TMP_INDEX_DIR);
+      props.remove(RESUME_GENERATION);
+      dataDir =
+          dirFactory.get(
+              solrCore.getDataDir(),
+              DirContext.META_DATA,
+              solrCore.getSolrConfig().indexConfig.lockType);
+      storeReplicationProperties(dataDir, props);
+    } catch (Exception e) {
+      log.warn("Could not remove the state of a failed index fetch", e);
+    } finally {
+      if (dataDir != null) {
+        try {
+          dirFactory.release(dataDir);
+        } catch (IOException e) {
+          log.warn("Could not release the data dir", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the name of the tmp index dir kept by a failed full copy of the given core for the next
+   * fetch to resume from, or null if there is none. That dir must not be removed as an old index
+   * dir.
+   */
+  public static String getResumeTmpIdxDirName(SolrCore core) {
+    return getResumeTmpIdxDirName(ReplicationHandler.loadReplicationProperties(core));
+  }
+
+  /**
+   * Returns the name of the tmp index dir of a failed full copy recorded in the given replication
+   * properties, or null if there is none. The name is only trusted if it is that of an index dir
+   * in the data dir.
+   */
+  static String getResumeTmpIdxDirName(Properties props) {
+    String dirName = props.getProperty(RESUME_TMP_INDEX_DIR);
+    if (dirName == null
+        || !dirName.startsWith("index.")
+        || dirName.contains("/")
+        || dirName.contains("\\")
+        || dirName.contains("..")) {
+      return null;
+    }
+    return dirName;
+  }
+
   private boolean hasUnusedFiles(Directory indexDir, IndexCommit commit) throws IOException {
     String segmentsFileName = commit.getSegmentsFileName();
     SegmentInfos infos = SegmentInfos.readCommit(indexDir, segmentsFileName);
@@ -897,6 +1126,9 @@ public class IndexFetcher {
 
   private volatile Exception fsyncException;
 
+  /** bytes per second of the last index download, -1 if unknown */
+  private volatile long lastCycleDownloadSpeed = -1;
+
   /**
    * terminate the fsync service and wait for all the tasks to complete. If it is already terminated
    */
@@ -960,6 +1192,20 @@ public class IndexFetcher {
       }
 
       props.setProperty(LAST_CYCLE_BYTES_DOWNLOADED, String.valueOf(getTotalBytesDownloaded()));
+      props.setProperty(
+          LAST_CYCLE_BYTES_SAVED_BY_COMPRESSION, String.valueOf(bytesSavedByCompression.sum()));
+      props.setProperty(
+          LAST_CYCLE_MAX_CONCURRENT_FILE_FETCHES, String.valueOf(maxConcurrentFileFetches.get()));
+      if (lastCycleDownloadSpeed >= 0) {
+        props.setProperty(LAST_CYCLE_DOWNLOAD_SPEED, String.valueOf(lastCycleDownloadSpeed));
+      }
+      if (!successfulInstall && resumeTmpIdxDirName != null) {
+        props.setProperty(RESUME_TMP_INDEX_DIR, resumeTmpIdxDirName);
+        props.setProperty(RESUME_GENERATION, String.valueOf(resumeGeneration));
+      } else {
+        props.remove(RESUME_TMP_INDEX_DIR);
+        props.remove(RESUME_GENERATION);
+      }
       if (!successfulInstall) {
         int numFailures = 1;
         if (props.containsKey(TIMES_FAILED)) {
@@ -971,15 +1217,7 @@ public class IndexFetcher {
         props.setProperty(REPLICATION_FAILED_AT_LIST, sb.toString());
       }
 
-      String tmpFileName = REPLICATION_PROPERTIES + "." + System.nanoTime();
-      final IndexOutput out = dir.createOutput(tmpFileName, DirectoryFactory.IOCONTEXT_NO_CACHE);
-      try (Writer outFile =
-          new OutputStreamWriter(new PropertiesOutputStream(out), StandardCharsets.UTF_8)) {
-        props.store(outFile, "Replication details");
-        dir.sync(Collections.singleton(tmpFileName));
-      }
-
-      solrCore.getDirectoryFactory().renameWithOverwrite(dir, tmpFileName, REPLICATION_PROPERTIES);
+      storeReplicationProperties(dir, props);
     } catch (Exception e) {
       log.warn("Exception while updating statistics", e);
     } finally {
@@ -989,6 +1227,19 @@ public class IndexFetcher {
     }
   }
 
+  /** Replaces replication.properties in the given data dir */
+  private void storeReplicationProperties(Directory dir, Properties props) throws IOException {
+    String tmpFileName = REPLICATION_PROPERTIES + "." + System.nanoTime();
+    final IndexOutput out = dir.createOutput(tmpFileName, DirectoryFactory.IOCONTEXT_NO_CACHE);
+    try (Writer outFile =
+        new OutputStreamWriter(new PropertiesOutputStream(out), StandardCharsets.UTF_8)) {
+      props.store(outFile, "Replication details");
+      dir.sync(Collections.singleton(tmpFileName));
+    }
+
+    solrCore.getDirectoryFactory().renameWithOverwrite(dir, tmpFileName, REPLICATION_PROPERTIES);
+  }
+
   long getTotalBytesDownloaded() {
     long bytesDownloaded = 0;
     // get size from list of files to download
@@ -1001,16 +1252,21 @@ public class IndexFetcher {
       bytesDownloaded += (Long) file.get(SIZE);
     }
 
-    // get size from current file being downloaded
-    Map<String, Object> currentFile = getCurrentFile();
-    if (currentFile != null) {
-      if (currentFile.containsKey("bytesDownloaded")) {
-        bytesDownloaded += (Long) currentFile.get("bytesDownloaded");
-      }
+    // get size from the files currently being downloaded
+    for (DirectoryFileFetcher fetcher : activeFileFetchers) {
+      bytesDownloaded += fetcher.getBytesDownloaded();
     }
     return bytesDownloaded;
   }
 
+  long getBytesSavedByCompression() {
+    return bytesSavedByCompression.sum();
+  }
+
+  int getMaxConcurrentFileFetches() {
+    return maxConcurrentFileFetches.get();
+  }
+
   private StringBuilder readToStringBuilder(long replicationTime, String str) {
     StringBuilder sb = new StringBuilder();
     List<String> l = new ArrayList<>();
@@ -1118,6 +1374,7 @@ public class IndexFetcher {
    * Download the index files. If a new index is needed, download all the files.
    *
    * @param downloadCompleteIndex is it a fresh index copy
+   * @param resuming whether tmpIndexDir was kept from a failed attempt and may hold complete files
    * @param indexDir the indexDir to be merged to
    * @param tmpIndexDir the directory to which files need to be downloaded to
    * @param indexDirPath the path of indexDir
@@ -1126,6 +1383,7 @@ public class IndexFetcher {
    */
   private long downloadIndexFiles(
       boolean downloadCompleteIndex,
+      boolean resuming,
       Directory indexDir,
       Directory tmpIndexDir,
       String indexDirPath,
@@ -1162,6 +1420,7 @@ public class IndexFetcher {
       deleteFilesInAdvance(indexDir, indexDirPath, totalSpaceRequired, usableSpace);
     }
 
+    List<Map<String, Object>> filesToFetch = new ArrayList<>();
     for (Map<String, Object> file : filesToDownload) {
       String filename = (String) file.get(NAME);
       long size = (Long) file.get(SIZE);
@@ -1191,15 +1450,22 @@ public class IndexFetcher {
           }
           // A hard link here should survive the eventual directory move, and should be more space
           // efficient as compared to a file copy. TODO: Maybe we could do a move safely here?
-          Files.createLink(Path.of(tmpIndexDirPath, filename), localFile.toPath());
+          if (!(resuming && slowFileExists(tmpIndexDir, filename))) {
+            Files.createLink(Path.of(tmpIndexDirPath, filename), localFile.toPath());
+          }
           bytesSkippedCopying += localFile.length();
+        } else if (resuming && isFetchedByFailedAttempt(tmpIndexDir, file)) {
+          if (log.isDebugEnabled()) {
+            log.debug("Skipping download for {} because a failed fetch already got it", filename);
+          }
+          bytesSkippedCopying += size;
         } else {
-          dirFileFetcher =
-              new DirectoryFileFetcher(
-                  tmpIndexDir, file, (String) file.get(NAME), FILE, latestGeneration);
-          currentFile = file;
-          dirFileFetcher.fetchFile();
-          bytesDownloaded += dirFileFetcher.getBytesDownloaded();
+          if (resuming && slowFileExists(tmpIndexDir, filename)) {
+            // a stale copy left behind by the failed attempt
+            tmpIndexDir.deleteFile(filename);
+          }
+          filesToFetch.add(file);
+          continue;
         }
         filesDownloaded.add(new HashMap<>(file));
       } else {
@@ -1208,13 +1474,90 @@ public class IndexFetcher {
         }
       }
     }
+    bytesDownloaded = fetchIndexFiles(tmpIndexDir, filesToFetch, latestGeneration);
     log.info(
-        "Bytes downloaded: {}, Bytes skipped downloading: {}",
+        "Bytes downloaded: {}, Bytes skipped downloading: {}, Bytes saved by compression: {}",
         bytesDownloaded,
-        bytesSkippedCopying);
+        bytesSkippedCopying,
+        bytesSavedByCompression.sum());
+    return bytesDownloaded;
+  }
+
+  /**
+   * A file kept in the tmp index dir of a failed attempt can be reused if it is complete, i.e. it
+   * matches the leader's checksum. Partially fetched files are deleted when their fetch fails.
+   */
+  private static boolean isFetchedByFailedAttempt(Directory tmpIndexDir, Map<String, Object> file) {
+    Long checksum = (Long) file.get(CHECKSUM);
+    if (checksum == null) return false;
+    CompareResult compareResult =
+        compareFile(tmpIndexDir, (String) file.get(NAME), (Long) file.get(SIZE), checksum);
+    return compareResult.equal && compareResult.checkSummed;
+  }
+
+  /**
+   * Downloads the given index files to tmpIndexDir, using up to {@code fetchConcurrency} parallel
+   * requests to the leader.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFiles(
+      Directory tmpIndexDir, List<Map<String, Object>> files, long latestGeneration)
+      throws Exception {
+    long bytesDownloaded = 0;
+    if (fetchConcurrency <= 1 || files.size() <= 1) {
+      for (Map<String, Object> file : files) {
+        bytesDownloaded += fetchIndexFile(tmpIndexDir, file, latestGeneration);
+      }
+      return bytesDownloaded;
+    }
+
+    log.info("Fetching {} files with {} parallel requests", files.size(), fetchConcurrency);
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            Math.min(fetchConcurrency, files.size()),
+            new SolrNamedThreadFactory("indexFileFetcher"));
+    try {
+      List<Future<Long>> futures = new ArrayList<>(files.size());
+      for (Map<String, Object> file : files) {
+        futures.add(executor.submit(() -> fetchIndexFile(tmpIndexDir, file, latestGeneration)));
+      }
+      for (Future<Long> future : futures) {
+        try {
+          bytesDownloaded += future.get();
+        } catch (ExecutionException e) {
+          // stop the other fetchers, the attempt has failed anyway
+          abortFetch();
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw new SolrException(ErrorCode.SERVER_ERROR, e.getCause());
+        }
+      }
+    } finally {
+      ExecutorUtil.shutdownNowAndAwaitTermination(executor);
+    }
     return bytesDownloaded;
   }
 
+  private long fetchIndexFile(
+      Directory tmpIndexDir, Map<String, Object> file, long latestGeneration) throws Exception {
+    DirectoryFileFetcher fetcher =
+        new DirectoryFileFetcher(
+            tmpIndexDir, file, (String) file.get(NAME), FILE, latestGeneration);
+    activeFileFetchers.add(fetcher);
+    maxConcurrentFileFetches.accumulateAndGet(activeFileFetchers.size(), Math::max);
+    dirFileFetcher = fetcher;
+    currentFile = file;
+    try {
+      fetcher.fetchFile();
+    } finally {
+      activeFileFetchers.remove(fetcher);
+    }
+    filesDownloaded.add(new HashMap<>(file));
+    return fetcher.getBytesDownloaded();
+  }
+
   // only for testing purposes. do not use this anywhere else
   // -----------START----------------------
   static BooleanSupplier testWait = () -> true;
@@ -1744,6 +2087,8 @@ public class IndexFetcher {
     private final long size;
     private long bytesDownloaded = 0;
     private byte[] buf;
+    private final boolean packetCompression;
+    private byte[] compressedBuf = new byte[0];
     private final Checksum checksum;
     private int errorCount = 0;
     private boolean aborted = false;
@@ -1761,6 +2106,9 @@ public class IndexFetcher {
       buf = new byte[(int) Math.min(this.size, ReplicationHandler.PACKET_SZ)];
       this.solrParamOutput = solrParamOutput;
       this.saveAs = saveAs;
+      // only index files are streamed with per packet compression
+      this.packetCompression =
+          usePacketCompression && leaderSupportsPacketCompression && FILE.equals(solrParamOutput);
       indexGen = latestGen;
       if (includeChecksum) {
         checksum = new Adler32();
@@ -1822,7 +2170,7 @@ public class IndexFetcher {
       try {
         while (true) {
           if (stop) {
-            stop = false;
+            // stop is reset by cleanup, so that parallel fetchers all see it
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
@@ -1847,19 +2195,37 @@ public class IndexFetcher {
             checkSumServer = readLong(longbytes);
           }
           // then read the packet of bytes
-          fis.readFully(buf, 0, packetSize);
+          if (packetCompression) {
+            fis.readFully(intbytes);
+            int storedLen = readInt(intbytes);
+            if (storedLen < packetSize) {
+              compressedBuf = ArrayUtil.grow(compressedBuf, storedLen);
+              fis.readFully(compressedBuf, 0, storedLen);
+              ReplicationPacketCompression.decompress(compressedBuf, storedLen, buf, packetSize);
+              bytesSavedByCompression.add(packetSize - storedLen);
+            } else {
+              fis.readFully(buf, 0, packetSize);
+            }
+          } else {
+            fis.readFully(buf, 0, packetSize);
+          }
           // compare the checksum as sent from the leader
           if (includeChecksum) {
             checksum.reset();
             checksum.update(buf, 0, packetSize);
             long checkSumClient = checksum.getValue();
             if (checkSumClient != checkSumServer) {
-              log.error("Checksum not matched between client and server for file: {}", fileName);
-              // if checksum is wrong it is a problem return (there doesn't seem to be a retry in
-              // this case.)
-              return 1;
+              // the packet wasn't written, so retry from the current offset
+              throw new IOException(
+                  "Checksum not matched between client and server for file: "
+                      + fileName
+                      + " at offset "
+                      + bytesDownloaded);
             }
           }
+          if (readRateLimiter != null) {
+            readRateLimiter.pause(packetSize);
+          }
           // if everything is fine, write down the packet to the file
           file.write(buf, packetSize);
           bytesDownloaded += packetSize;
@@ -1964,6 +2330,9 @@ public class IndexFetcher {
       if (useInternalCompression) {
         params.set(COMPRESSION, "true");
       }
+      if (packetCompression) {
+        params.set(PACKET_COMPRESSION, PACKET_COMPRESSION_CODEC);
+      }
       // use checksum
       if (this.includeChecksum) {
         params.set(CHECKSUM, true);
@@ -2155,6 +2524,12 @@ public class IndexFetcher {
 
   static final String LAST_CYCLE_BYTES_DOWNLOADED = "lastCycleBytesDownloaded";
 
+  static final String LAST_CYCLE_DOWNLOAD_SPEED = "lastCycleDownloadSpeed";
+
+  static final String LAST_CYCLE_BYTES_SAVED_BY_COMPRESSION = "lastCycleBytesSavedByCompression";
+
+  static final String LAST_CYCLE_MAX_CONCURRENT_FILE_FETCHES = "lastCycleMaxConcurrentFileFetches";
+
   static final String TIMES_FAILED = "timesFailed";
 
   static final String REPLICATION_FAILED_AT = "replicationFailedAt";
@@ -2164,4 +2539,8 @@ public class IndexFetcher {
   static final String INDEX_REPLICATED_AT_LIST = "indexReplicatedAtList";
 
   static final String REPLICATION_FAILED_AT_LIST = "replicationFailedAtList";
+
+  static final String RESUME_TMP_INDEX_DIR = "resumeTmpIndexDir";
+
+  static final String RESUME_GENERATION = "resumeGeneration";
 }
@@ -18,6 +18,8 @@ package org.apache.solr.handler;
 
 import static org.apache.solr.common.params.CommonParams.NAME;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -243,6 +245,11 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
   /** Disable the timer task for polling */
   private AtomicBoolean pollDisabled = new AtomicBoolean(false);
 
+  /** index file bytes streamed to followers, and the bytes saved by per packet compression */
+  private Meter transferBytes;
+
+  private Counter transferBytesSaved;
+
   String getPollInterval() {
     return pollIntervalStr;
   }
@@ -884,6 +891,9 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
         "indexPath",
         getCategory().toString(),
         scope);
+    transferBytes = solrMetricsContext.meter("transferBytes", getCategory().toString(), scope);
+    transferBytesSaved =
+        solrMetricsContext.counter("transferBytesSaved", getCategory().toString(), scope);
     solrMetricsContext.gauge(() -> isLeader, true, "isLeader", getCategory().toString(), scope);
     solrMetricsContext.gauge(() -> isFollower, true, "isFollower", getCategory().toString(), scope);
     final MetricsMap fetcherMap =
@@ -897,6 +907,8 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
                 }
                 map.put("isPollingDisabled", isPollingDisabled());
                 map.put("isReplicating", isReplicating());
+                map.put("bytesSavedByCompression", fetcher.getBytesSavedByCompression());
+                map.put("maxConcurrentFileFetches", fetcher.getMaxConcurrentFileFetches());
                 long elapsed = fetcher.getReplicationTimeElapsed();
                 long val = fetcher.getTotalBytesDownloaded();
                 if (elapsed > 0) {
@@ -1091,6 +1103,9 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
     addVal(consumer, IndexFetcher.TIMES_CONFIG_REPLICATED, props, Integer.class);
     addVal(consumer, IndexFetcher.CONF_FILES_REPLICATED_AT, props, Date.class);
     addVal(consumer, IndexFetcher.LAST_CYCLE_BYTES_DOWNLOADED, props, Long.class);
+    addVal(consumer, IndexFetcher.LAST_CYCLE_DOWNLOAD_SPEED, props, Long.class);
+    addVal(consumer, IndexFetcher.LAST_CYCLE_BYTES_SAVED_BY_COMPRESSION, props, Long.class);
+    addVal(consumer, IndexFetcher.LAST_CYCLE_MAX_CONCURRENT_FILE_FETCHES, props, Integer.class);
     addVal(consumer, IndexFetcher.TIMES_FAILED, props, Integer.class);
     addVal(consumer, IndexFetcher.REPLICATION_FAILED_AT, props, Date.class);
     addVal(consumer, IndexFetcher.PREVIOUS_CYCLE_TIME_TAKEN, props, Long.class);
@@ -1152,6 +1167,10 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
   }
 
   Properties loadReplicationProperties() {
+    return loadReplicationProperties(core);
+  }
+
+  static Properties loadReplicationProperties(SolrCore core) {
     Directory dir = null;
     try {
       try {
@@ -1521,6 +1540,9 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
     private RateLimiter rateLimiter;
 
+    /** non null if the follower asked for per packet compression */
+    private final ReplicationPacketCompression packetCompression;
+
     byte[] buf;
 
     public DirectoryFileStream(SolrParams solrParams) {
@@ -1534,6 +1556,11 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
       sOffset = params.get(OFFSET);
       sLen = params.get(LEN);
       compress = Boolean.parseBoolean(params.get(COMPRESSION));
+      if (PACKET_COMPRESSION_CODEC.equals(params.get(PACKET_COMPRESSION))) {
+        packetCompression = new ReplicationPacketCompression();
+      } else {
+        packetCompression = null;
+      }
       useChecksum = params.getBool(CHECKSUM, false);
       indexGen = params.getLong(GENERATION);
       if (useChecksum) {
@@ -1613,6 +1640,9 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
         long filelen = dir.fileLength(fileName);
         long maxBytesBeforePause = 0;
+        // the packet framing is the same for all files, but only some are worth compressing
+        final boolean compressPackets =
+            packetCompression != null && ReplicationPacketCompression.isCompressible(fileName);
 
         while (true) {
           offset = offset == -1 ? 0 : offset;
@@ -1625,8 +1655,20 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
             checksum.update(buf, 0, read);
             fos.writeLong(checksum.getValue());
           }
-          fos.write(buf, 0, read);
+          if (packetCompression != null) {
+            int storedLen = compressPackets ? packetCompression.compress(buf, read) : read;
+            fos.writeInt(storedLen);
+            if (storedLen < read) {
+              fos.write(packetCompression.compressedBytes(), 0, storedLen);
+              if (transferBytesSaved != null) transferBytesSaved.inc(read - storedLen);
+            } else {
+              fos.write(buf, 0, read);
+            }
+          } else {
+            fos.write(buf, 0, read);
+          }
           fos.flush();
+          if (transferBytes != null) transferBytes.mark(read);
           log.debug("Wrote {} bytes for file {}", offset + read, fileName); // nowarn
 
           // Pause if necessary
@@ -1846,6 +1888,18 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   public static final String MAX_WRITE_PER_SECOND = "maxWriteMBPerSec";
 
+  /** Follower side throttle of the aggregate index download rate, in MB per second */
+  public static final String MAX_READ_PER_SECOND = "maxReadMBPerSec";
+
+  /** Number of index files a follower downloads in parallel, defaults to 1 */
+  public static final String FETCH_CONCURRENCY = "fetchConcurrency";
+
+  /**
+   * If true, the files fully downloaded by a failed full index fetch are kept and reused by the
+   * next fetch of the same generation.
+   */
+  public static final String RESUMABLE_FETCH = "resumableFetch";
+
   public static final String CONF_FILE_SHORT = "cf";
 
   public static final String TLOG_FILE = "tlogFile";
@@ -1875,6 +1929,15 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   public static final String COMPRESSION = "compression";
 
+  /**
+   * Request param by which a follower asks for per packet compression of an index file, with the
+   * codec the leader advertised in its file list.
+   */
+  public static final String PACKET_COMPRESSION = "packetCompression";
+
+  /** Value of {@link #COMPRESSION} for per packet compression of the compressible index files */
+  public static final String PACKET_COMPRESSION_CODEC = ReplicationPacketCompression.LZ4_CODEC;
+
   public static final String EXTERNAL = "external";
 
   public static final String INTERNAL = "internal";
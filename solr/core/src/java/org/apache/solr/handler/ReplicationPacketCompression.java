@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.compress.LZ4;
+
+/**
+ * Per packet LZ4 compression of index files streamed by {@link ReplicationHandler} to {@link
+ * IndexFetcher}. Unlike the <code>internal</code> compression, which deflates the whole stream,
+ * this only compresses files that are likely to compress, and only sends a compressed packet if it
+ * is actually smaller than the raw one.
+ *
+ * <p>The leader advertises {@link #LZ4_CODEC} in its file list, and the follower asks for it when
+ * fetching each file. A packet is then written as the raw length, the optional checksum of the raw
+ * bytes, the stored length and the stored bytes. If the stored length is smaller than the raw
+ * length the stored bytes are LZ4 compressed, otherwise they are the raw bytes.
+ */
+class ReplicationPacketCompression {
+
+  /** The only codec for now. */
+  static final String LZ4_CODEC = "lz4";
+
+  /**
+   * Extensions of files whose content Lucene already compresses (stored fields, term vectors),
+   * or which are dominated by such content (compound files), or which hardly compress (vectors).
+   */
+  private static final Set<String> INCOMPRESSIBLE_EXTENSIONS = Set.of("fdt", "tvd", "cfs", "vec");
+
+  private final LZ4.FastCompressionHashTable hashTable = new LZ4.FastCompressionHashTable();
+  private final ByteBuffersDataOutput compressed = new ByteBuffersDataOutput();
+  private byte[] compressedBytes = new byte[0];
+
+  /** Whether packets of the given index file are worth compressing. */
+  static boolean isCompressible(String fileName) {
+    int dot = fileName.lastIndexOf('.');
+    if (dot == -1) {
+      // segments_N
+      return false;
+    }
+    String ext = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    return !INCOMPRESSIBLE_EXTENSIONS.contains(ext);
+  }
+
+  /**
+   * Compresses the first <code>len</code> bytes of the packet.
+   *
+   * @return the number of bytes to store: if less than <code>len</code>, the packet has been
+   *     compressed into {@link #compressedBytes()}, otherwise the raw packet should be stored
+   */
+  int compress(byte[] buf, int len) throws IOException {
+    compressed.reset();
+    LZ4.compress(buf, 0, len, compressed, hashTable);
+    int size = (int) compressed.size();
+    if (size >= len) {
+      return len;
+    }
+    compressedBytes = ArrayUtil.grow(compressedBytes, size);
+    compressed.copyTo(new ByteArrayDataOutput(compressedBytes));
+    return size;
+  }
+
+  /** The bytes of the last packet that {@link #compress} could compress. */
+  byte[] compressedBytes() {
+    return compressedBytes;
+  }
+
+  /** Decompresses <code>storedLen</code> bytes of <code>src</code> into the packet buffer. */
+  static void decompress(byte[] src, int storedLen, byte[] buf, int packetSize)
+      throws IOException {
+    int decompressed =
+        LZ4.decompress(new ByteArrayDataInput(src, 0, storedLen), packetSize, buf, 0);
+    if (decompressed != packetSize) {
+      throw new IOException(
+          "Expected " + packetSize + " bytes after decompression but got " + decompressed);
+    }
+  }
+}
@@ -33,6 +33,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
@@ -40,6 +41,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.apache.solr.common.MapWriter;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.CommonTestInjection;
 import org.apache.solr.common.util.NamedList;
@@ -69,6 +71,12 @@ public class MetricsHandler extends RequestHandlerBase implements PermissionName
   public static final String EXPR_PARAM = "expr";
   public static final String TYPE_PARAM = "type";
 
+  /**
+   * The response writer of the Prometheus text format. The metrics selected by the registry,
+   * group, prefix, regex and type parameters are handed to it as they are, instead of as maps.
+   */
+  public static final String PROMETHEUS_WT = "prometheus";
+
   public static final String ALL = "all";
 
   private static final Pattern KEY_SPLIT_REGEX =
@@ -139,6 +147,10 @@ public class MetricsHandler extends RequestHandlerBase implements PermissionName
     List<MetricFilter> metricFilters =
         metricTypes.stream().map(MetricType::asMetricFilter).collect(Collectors.toList());
     Set<String> requestedRegistries = parseRegistries(params);
+    if (PROMETHEUS_WT.equals(params.get(CommonParams.WT))) {
+      handlePrometheusRequest(requestedRegistries, metricFilters, mustMatchFilter, consumer);
+      return;
+    }
 
     NamedList<Object> response = new SimpleOrderedMap<>();
     for (String registryName : requestedRegistries) {
@@ -161,6 +173,31 @@ public class MetricsHandler extends RequestHandlerBase implements PermissionName
     consumer.accept("metrics", response);
   }
 
+  private void handlePrometheusRequest(
+      Set<String> requestedRegistries,
+      List<MetricFilter> metricFilters,
+      MetricFilter mustMatchFilter,
+      BiConsumer<String, Object> consumer) {
+    Map<String, Map<String, Metric>> response = new TreeMap<>();
+    for (String registryName : requestedRegistries) {
+      Map<String, Metric> result = new TreeMap<>();
+      metricManager
+          .registry(registryName)
+          .getMetrics()
+          .forEach(
+              (name, metric) -> {
+                if (metricFilters.stream().anyMatch(filter -> filter.matches(name, metric))
+                    && mustMatchFilter.matches(name, metric)) {
+                  result.put(name, metric);
+                }
+              });
+      if (!result.isEmpty()) {
+        response.put(registryName, result);
+      }
+    }
+    consumer.accept("metrics", response);
+  }
+
   private static class MetricsExpr {
     Pattern registryRegex;
     MetricFilter metricFilter;
@@ -97,6 +97,10 @@ public class CoreReplicationAPI extends ReplicationAPIBase {
     @JsonProperty("confFiles")
     public List<FileMetaData> confFiles;
 
+    /** The per packet compression codec the leader supports, if any */
+    @JsonProperty("packetCompression")
+    public String packetCompression;
+
     @JsonProperty("status")
     public String status;
 
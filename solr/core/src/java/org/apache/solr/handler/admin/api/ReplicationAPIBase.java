@@ -159,6 +159,7 @@ public abstract class ReplicationAPIBase extends JerseyResource {
         }
       }
       filesResponse.fileList = new ArrayList<>(result);
+      filesResponse.packetCompression = ReplicationHandler.PACKET_COMPRESSION_CODEC;
 
       if (replicationHandler.getConfFileNameAlias().size() < 1
           || solrCore.getCoreContainer().isZooKeeperAware()) return filesResponse;
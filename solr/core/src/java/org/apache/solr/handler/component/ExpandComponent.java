@@ -55,12 +55,13 @@ import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BitSet;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.CharsRefBuilder;
-import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.SparseFixedBitSet;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ExpandParams;
@@ -228,7 +229,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
           "Expand not supported for fieldType:'" + fieldType.getTypeName() + "'");
     }
 
-    FixedBitSet groupBits = null;
+    BitSet groupBits = null;
     LongHashSet groupSet = null;
     DocList docList = rb.getResults().docList;
     IntHashSet collapsedSet = new IntHashSet(docList.size() * 2);
@@ -263,7 +264,8 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
             : Integer.MAX_VALUE;
     IntObjectHashMap<BytesRef> ordBytes = null;
     if (values != null) {
-      groupBits = new FixedBitSet(values.getValueCount());
+      // only the groups of the current page are set, no need for a bit per value of the field
+      groupBits = new SparseFixedBitSet(Math.max(1, values.getValueCount()));
       OrdinalMap ordinalMap = null;
       SortedDocValues[] sortedDocValues = null;
       LongValues segmentOrdinalMap = null;
@@ -300,7 +302,8 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
           if (contextDoc == currentValues.docID()) {
             int contextOrd = currentValues.ordValue();
             int ord = (int) segmentOrdinalMap.get(contextOrd);
-            if (!groupBits.getAndSet(ord)) {
+            if (!groupBits.get(ord)) {
+              groupBits.set(ord);
               BytesRef ref = currentValues.lookupOrd(contextOrd);
               ordBytes.put(ord, BytesRef.deepCopyOf(ref));
             }
@@ -314,7 +317,8 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
           }
           if (globalDoc == values.docID()) {
             int ord = values.ordValue();
-            if (!groupBits.getAndSet(ord)) {
+            if (!groupBits.get(ord)) {
+              groupBits.set(ord);
               BytesRef ref = values.lookupOrd(ord);
               ordBytes.put(ord, BytesRef.deepCopyOf(ref));
             }
@@ -443,6 +447,16 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     searcher.search(QueryUtils.combineQueryAndFilter(query, pfilter.filter), collector);
 
     rb.rsp.add("expanded", groupExpandCollector.getGroups(searcher, rb.rsp.getReturnFields()));
+
+    if (rb.isDebug()) {
+      SimpleOrderedMap<Object> dbg = new SimpleOrderedMap<>();
+      dbg.add("groups", groupExpandCollector.getGroups().size());
+      dbg.add("pageDocs", collapsedSet.size());
+      if (groupBits != null) {
+        dbg.add("groupBitsBytes", groupBits.ramBytesUsed());
+      }
+      rb.addDebug(dbg, "expand", field);
+    }
   }
 
   @Override
@@ -520,7 +534,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
     private final MultiDocValues.MultiSortedDocValues multiSortedDocValues;
 
     private final LongObjectMap<Collector> groups;
-    private final FixedBitSet groupBits;
+    private final BitSet groupBits;
     private final IntHashSet collapsedSet;
 
     public GroupExpandCollector(
@@ -531,7 +545,7 @@ public class ExpandComponent extends SearchComponent implements PluginInfoInitia
         FieldType fieldType,
         IntObjectHashMap<BytesRef> ordBytes,
         SortedDocValues docValues,
-        FixedBitSet groupBits,
+        BitSet groupBits,
         IntHashSet collapsedSet)
         throws IOException {
       super(limit, sort, query, expandNulls, fieldType, ordBytes);
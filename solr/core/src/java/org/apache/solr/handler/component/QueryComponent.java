@@ -71,6 +71,10 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.BasicResultContext;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.response.transform.DocTransformer;
+import org.apache.solr.response.transform.DocTransformers;
+import org.apache.solr.response.transform.ScoreAugmenter;
+import org.apache.solr.schema.BoolField;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
@@ -128,6 +132,12 @@ public class QueryComponent extends SearchComponent {
   public static final String COMPONENT_NAME = "query";
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /** The default of {@link ShardParams#DISTRIB_SINGLE_PASS_MAX_BYTES} */
+  public static final long DEFAULT_SINGLE_PASS_MAX_BYTES = 128 * 1024;
+
+  /** The estimated size of a value of a docValues field that isn't a number, such as a string */
+  private static final int ESTIMATED_VALUE_BYTES = 32;
+
   @Override
   public void prepare(ResponseBuilder rb) throws IOException {
     SolrQueryRequest req = rb.req;
@@ -753,8 +763,13 @@ public class QueryComponent extends SearchComponent {
     // that's the same as fl=*,score
     ReturnFields fields = rb.rsp.getReturnFields();
 
-    // distrib.singlePass=true forces a one-pass query regardless of requested fields
-    boolean distribSinglePass = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
+    // distrib.singlePass=true forces a one-pass query regardless of requested fields, and
+    // distrib.singlePass=auto only does one when the requested fields are cheap to fetch
+    boolean distribSinglePass =
+        ShardParams.DISTRIB_SINGLE_PASS_AUTO.equals(
+                rb.req.getParams().get(ShardParams.DISTRIB_SINGLE_PASS))
+            ? isSinglePassCheaper(rb)
+            : rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
 
     if (distribSinglePass
         || (fields != null
@@ -838,6 +853,78 @@ public class QueryComponent extends SearchComponent {
     rb.addRequest(this, sreq);
   }
 
+  /**
+   * Whether fetching the requested fields of all the top docs of the shards in the first pass is
+   * cheaper than fetching the fields of the docs of the page in a second pass, for {@code
+   * distrib.singlePass=auto}. The requested fields must all be single-valued docValues fields used
+   * as stored, so that the shards don't need to read the stored documents of their top docs, and
+   * the estimated size of the fields of the docs that won't be on the page must not exceed {@code
+   * distrib.singlePass.maxBytes}.
+   */
+  protected boolean isSinglePassCheaper(ResponseBuilder rb) {
+    ReturnFields fields = rb.rsp.getReturnFields();
+    if (fields == null
+        || fields.wantsAllFields()
+        || fields.hasPatternMatching()
+        || !isScoreOnly(fields.getTransformer())
+        || fields.getLuceneFieldNames() == null) {
+      return false;
+    }
+
+    IndexSchema schema = rb.req.getSchema();
+    String keyFieldName = schema.getUniqueKeyField().getName();
+    long docBytes = 0;
+    for (String fieldName : fields.getLuceneFieldNames()) {
+      if (fieldName.equals(keyFieldName) || fieldName.equals("score")) {
+        // fetched with the top ids anyway
+        continue;
+      }
+      SchemaField schemaField = schema.getFieldOrNull(fieldName);
+      if (schemaField == null
+          || !schemaField.hasDocValues()
+          || !schemaField.useDocValuesAsStored()
+          || schemaField.multiValued()) {
+        return false;
+      }
+      docBytes += fieldName.length() + estimateValueBytes(schemaField);
+    }
+
+    SortSpec ss = rb.getSortSpec();
+    long shardRows = rb.shards_rows > -1 ? rb.shards_rows : (long) ss.getOffset() + ss.getCount();
+    int numShards = rb.shards == null ? 1 : rb.shards.length;
+    // the docs returned by the shards that won't be on the page
+    long extraDocs = Math.max(0, numShards * shardRows - ss.getCount());
+    long maxBytes =
+        rb.req
+            .getParams()
+            .getLong(ShardParams.DISTRIB_SINGLE_PASS_MAX_BYTES, DEFAULT_SINGLE_PASS_MAX_BYTES);
+    return extraDocs * docBytes <= maxBytes;
+  }
+
+  /** Whether the transformer only adds the score, if any */
+  private static boolean isScoreOnly(DocTransformer transformer) {
+    if (transformer instanceof DocTransformers) {
+      DocTransformers transformers = (DocTransformers) transformer;
+      for (int i = 0; i < transformers.size(); i++) {
+        if (!isScoreOnly(transformers.getTransformer(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return transformer == null || transformer instanceof ScoreAugmenter;
+  }
+
+  private static int estimateValueBytes(SchemaField schemaField) {
+    FieldType type = schemaField.getType();
+    if (type.getNumberType() != null) {
+      return Long.BYTES;
+    } else if (type instanceof BoolField) {
+      return 1;
+    }
+    return ESTIMATED_VALUE_BYTES;
+  }
+
   protected boolean addFL(StringBuilder fl, String field, boolean additionalAdded) {
     if (additionalAdded) fl.append(",");
     fl.append(field);
@@ -876,11 +963,9 @@ public class QueryComponent extends SearchComponent {
     // id to shard mapping, to eliminate any accidental dups
     HashMap<Object, String> uniqueDoc = new HashMap<>();
 
-    // Merge the docs via a priority queue so we don't have to sort *all* of the
-    // documents... we only need to order the top (rows+start)
-    final ShardFieldSortedHitQueue queue =
-        new ShardFieldSortedHitQueue(
-            sortFields, ss.getOffset() + ss.getCount(), rb.req.getSearcher());
+    // The docs of each shard are already sorted, so merge the shards and only create ShardDocs
+    // for the docs of the page (start -> start+rows)
+    final ShardDocMerger merger = new ShardDocMerger(sortFields, rb.req.getSearcher());
 
     NamedList<Object> shardInfo = null;
     if (rb.req.getParams().getBool(ShardParams.SHARDS_INFO, false)) {
@@ -1013,8 +1098,12 @@ public class QueryComponent extends SearchComponent {
       NamedList<List<Object>> unmarshalledSortFieldValues =
           needsUnmarshalling ? unmarshalSortValues(ss, sortFieldValues, schema) : new NamedList<>();
 
-      // go through every doc in this response, construct a ShardDoc, and
-      // put it in the priority queue so it can be ordered.
+      // go through every doc in this response, and add its id, position and score to the
+      // docs of the shard so it can be ordered.
+      final Object[] ids = new Object[docs.size()];
+      final int[] ordersInShard = new int[docs.size()];
+      final float[] scores = new float[docs.size()];
+      int numDocs = 0;
       for (int i = 0; i < docs.size(); i++) {
         SolrDocument doc = docs.get(i);
         Object id = doc.getFieldValue(uniqueKeyField.getName());
@@ -1024,46 +1113,39 @@ public class QueryComponent extends SearchComponent {
           // duplicate detected
           numFound--;
 
-          // For now, just always use the first encountered since we can't currently
-          // remove the previous one added to the priority queue.  If we switched
-          // to the Java5 PriorityQueue, this would be easier.
+          // For now, just always use the first encountered.
           continue;
           // make which duplicate is used deterministic based on shard
           // if (prevShard.compareTo(srsp.shard) >= 0) {
-          //  TODO: remove previous from priority queue
+          //  TODO: remove previous from the docs of its shard
           //  continue;
           // }
         }
 
-        ShardDoc shardDoc = new ShardDoc();
-        shardDoc.id = id;
-        shardDoc.shard = srsp.getShard();
-        shardDoc.orderInShard = i;
+        ids[numDocs] = id;
+        ordersInShard[numDocs] = i;
+        scores[numDocs] = Float.NaN;
         Object scoreObj = doc.getFieldValue("score");
         if (scoreObj != null) {
           if (scoreObj instanceof String) {
-            shardDoc.score = Float.parseFloat((String) scoreObj);
+            scores[numDocs] = Float.parseFloat((String) scoreObj);
           } else {
-            shardDoc.score = (Float) scoreObj;
+            scores[numDocs] = (Float) scoreObj;
           }
         }
-
-        shardDoc.sortFieldValues = unmarshalledSortFieldValues;
-
-        queue.insertWithOverflow(shardDoc);
+        numDocs++;
       } // end for-each-doc-in-response
+
+      merger.addShard(
+          srsp.getShard(), unmarshalledSortFieldValues, ids, ordersInShard, scores, numDocs);
     } // end for-each-response
 
-    // The queue now has 0 -> queuesize docs, where queuesize <= start + rows
-    // So we want to pop the last documents off the queue to get
-    // the docs offset -> queuesize
-    int resultSize = queue.size() - ss.getOffset();
-    resultSize = Math.max(0, resultSize); // there may not be any docs in range
+    // there may not be any docs in range
+    final ShardDoc[] page = merger.merge(ss.getOffset(), ss.getCount());
+    final int resultSize = page.length;
 
     Map<Object, ShardDoc> resultIds = new HashMap<>();
-    for (int i = resultSize - 1; i >= 0; i--) {
-      ShardDoc shardDoc = queue.pop();
-      shardDoc.positionInResponse = i;
+    for (ShardDoc shardDoc : page) {
       // Need the toString() for correlation with other lists that must
       // be strings (like keys in highlighting, explain, etc)
       resultIds.put(shardDoc.id.toString(), shardDoc);
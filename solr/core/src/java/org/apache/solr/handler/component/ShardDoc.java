@@ -47,6 +47,10 @@ public class ShardDoc extends FieldDoc {
   public int positionInResponse;
   // the ordinal position in the merged response arraylist
 
+  public long[] sortKeys;
+  // the sort values of this doc as NumericSortKeys, when the sort allows it,
+  // computed by the ShardFieldSortedHitQueue on the first comparison
+
   public ShardDoc(float score, Object[] fields, Object uniqueId, String shard) {
     super(-1, score, fields);
     this.id = uniqueId;
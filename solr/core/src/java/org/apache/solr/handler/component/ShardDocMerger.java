@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.search.NumericSortKeys;
+
+/**
+ * Merges the docs returned by shards into a page of the distributed response. The docs of each
+ * shard are already in the order of the sort, so they are merged with a k-way merge of the shards
+ * rather than by inserting every doc in a {@link ShardFieldSortedHitQueue}. The docs of a shard are
+ * kept in primitive arrays, and a {@link ShardDoc} is only created for the docs of the page.
+ *
+ * <p>The docs are ordered as by a {@link ShardFieldSortedHitQueue}: by their sort values, compared
+ * as {@link NumericSortKeys} when possible, then by shard, then by their order in the shard.
+ *
+ * @lucene.internal
+ */
+public class ShardDocMerger {
+
+  // only used to compare docs, it holds none
+  private final ShardFieldSortedHitQueue sortOrder;
+  private final int numKeys;
+  private final List<ShardDocs> shards = new ArrayList<>();
+  private int numDocs;
+
+  public ShardDocMerger(SortField[] sortFields, IndexSearcher searcher) {
+    this.sortOrder = new ShardFieldSortedHitQueue(sortFields, 0, searcher);
+    this.numKeys = sortOrder.numSortKeys();
+  }
+
+  /**
+   * Adds the docs returned by a shard.
+   *
+   * @param shard the shard
+   * @param sortFieldValues the sort values of all the docs returned by the shard, see {@link
+   *     ShardDoc#sortFieldValues}
+   * @param ids the unique keys of the docs, in the order of the sort
+   * @param ordersInShard the positions of the docs in the response of the shard
+   * @param scores the scores of the docs, NaN when unknown
+   * @param size the number of docs
+   */
+  public void addShard(
+      String shard,
+      NamedList<List<Object>> sortFieldValues,
+      Object[] ids,
+      int[] ordersInShard,
+      float[] scores,
+      int size) {
+    if (size > 0) {
+      shards.add(new ShardDocs(shard, sortFieldValues, ids, ordersInShard, scores, size));
+      numDocs += size;
+    }
+  }
+
+  /**
+   * Merges the docs of the shards.
+   *
+   * @param offset the number of docs to skip
+   * @param count the maximum number of docs to return
+   * @return the docs from offset to offset + count, in order, with their {@link
+   *     ShardDoc#positionInResponse}
+   */
+  public ShardDoc[] merge(int offset, int count) {
+    final PriorityQueue<ShardDocs> heads =
+        new PriorityQueue<>(shards.size()) {
+          @Override
+          protected boolean lessThan(ShardDocs a, ShardDocs b) {
+            // the shard whose current doc sorts first is on top
+            return sortsBefore(a, b);
+          }
+        };
+    for (ShardDocs shard : shards) {
+      shard.reset();
+      heads.add(shard);
+    }
+
+    final int end = (int) Math.min((long) offset + count, numDocs);
+    final ShardDoc[] page = new ShardDoc[Math.max(0, end - offset)];
+    for (int i = 0; i < end; i++) {
+      final ShardDocs top = heads.top();
+      if (i >= offset) {
+        page[i - offset] = top.newShardDoc(i - offset);
+      }
+      if (top.next()) {
+        heads.updateTop();
+      } else {
+        heads.pop();
+      }
+    }
+    return page;
+  }
+
+  /** Whether the current doc of the first shard sorts before the one of the second shard. */
+  private boolean sortsBefore(ShardDocs a, ShardDocs b) {
+    int c;
+    if (a.hasKeys && b.hasKeys) {
+      c = -NumericSortKeys.compare(a.keys, 0, b.keys, 0, numKeys);
+    } else {
+      c = sortOrder.compareSortValues(a.current, b.current);
+    }
+    // solve tiebreaks by comparing shards, like the ShardFieldSortedHitQueue
+    if (c == 0) {
+      c = -a.current.shard.compareTo(b.current.shard);
+    }
+    return c > 0;
+  }
+
+  /** The docs of a shard, and the current one in the merge. */
+  private class ShardDocs {
+    final Object[] ids;
+    final int[] ordersInShard;
+    final float[] scores;
+    final int size;
+    int pos;
+    // holds the sort values of the doc at pos, to compare it with the comparators
+    final ShardDoc current;
+    // the keys of the sort values of the doc at pos, valid when hasKeys is true
+    final long[] keys;
+    boolean hasKeys;
+
+    ShardDocs(
+        String shard,
+        NamedList<List<Object>> sortFieldValues,
+        Object[] ids,
+        int[] ordersInShard,
+        float[] scores,
+        int size) {
+      this.ids = ids;
+      this.ordersInShard = ordersInShard;
+      this.scores = scores;
+      this.size = size;
+      this.current = new ShardDoc();
+      current.shard = shard;
+      current.sortFieldValues = sortFieldValues;
+      this.keys = new long[numKeys];
+    }
+
+    void reset() {
+      pos = 0;
+      setCurrent();
+    }
+
+    /** Moves to the next doc, and returns false if there is none. */
+    boolean next() {
+      if (++pos == size) {
+        return false;
+      }
+      setCurrent();
+      return true;
+    }
+
+    private void setCurrent() {
+      current.orderInShard = ordersInShard[pos];
+      current.score = scores[pos];
+      hasKeys = numKeys > 0 && sortOrder.sortKeys(current, keys);
+    }
+
+    ShardDoc newShardDoc(int positionInResponse) {
+      final ShardDoc doc = new ShardDoc();
+      doc.id = ids[pos];
+      doc.shard = current.shard;
+      doc.orderInShard = ordersInShard[pos];
+      doc.score = scores[pos];
+      doc.sortFieldValues = current.sortFieldValues;
+      doc.positionInResponse = positionInResponse;
+      return doc;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.PriorityQueue;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.search.NumericSortKeys;
 
 // used by distributed search to merge results.
 public class ShardFieldSortedHitQueue extends PriorityQueue<ShardDoc> {
@@ -45,12 +46,30 @@ public class ShardFieldSortedHitQueue extends PriorityQueue<ShardDoc> {
    */
   protected List<String> fieldNames = new ArrayList<>();
 
+  /**
+   * The keys the docs are compared with when the sort is on numeric fields or the score only, null
+   * otherwise
+   */
+  private final NumericSortKeys sortKeys;
+
+  /** The position in {@link #fieldNames} of the values of each sort field, -1 for the score */
+  private final int[] valueIndexes;
+
   @SuppressWarnings("unchecked")
   private static Comparator<ShardDoc>[] newArray(int sz) {
     return (Comparator<ShardDoc>[]) Array.newInstance(Comparator.class, sz);
   }
 
   public ShardFieldSortedHitQueue(SortField[] fields, int size, IndexSearcher searcher) {
+    this(fields, size, searcher, true);
+  }
+
+  /**
+   * @param packNumericSortKeys whether to compare the sort values of numeric fields and scores as
+   *     {@link NumericSortKeys}, rather than with the comparators of the fields
+   */
+  public ShardFieldSortedHitQueue(
+      SortField[] fields, int size, IndexSearcher searcher, boolean packNumericSortKeys) {
     super(size);
     final int n = fields.length;
     comparators = newArray(n);
@@ -75,6 +94,12 @@ public class ShardFieldSortedHitQueue extends PriorityQueue<ShardDoc> {
       // System.out.println("%%%%%%%%%%%%%%%%%% got "+fields[i].getType() +"   for "+ fieldname +"
       // fields[i].getReverse(): "+fields[i].getReverse());
     }
+
+    sortKeys = packNumericSortKeys ? NumericSortKeys.forValues(this.fields) : null;
+    valueIndexes = new int[n];
+    for (int i = 0, j = 0; i < n; i++) {
+      valueIndexes[i] = this.fields[i].getType() == SortField.Type.SCORE ? -1 : j++;
+    }
   }
 
   @Override
@@ -90,23 +115,91 @@ public class ShardFieldSortedHitQueue extends PriorityQueue<ShardDoc> {
       return !(docA.orderInShard < docB.orderInShard);
     }
 
+    int c = 0;
+    final long[] keysA, keysB;
+    if (sortKeys != null
+        && (keysA = sortKeys(docA)) != NO_SORT_KEYS
+        && (keysB = sortKeys(docB)) != NO_SORT_KEYS) {
+      // the first doc sorts first if its keys are smaller, unlike with the comparators
+      c = -NumericSortKeys.compare(keysA, 0, keysB, 0, keysA.length);
+    }
+
     // run comparators
-    final int n = comparators.length;
+    if (c == 0) {
+      c = compareSortValues(docA, docB);
+    }
+
+    // solve tiebreaks by comparing shards (similar to using docid)
+    // smaller docid's beat larger ids, so reverse the natural ordering
+    if (c == 0) {
+      c = -docA.shard.compareTo(docB.shard);
+    }
+
+    return c < 0;
+  }
+
+  /**
+   * Compares the sort values of two docs with the comparators of the fields.
+   *
+   * @return a negative number if the first doc sorts last, a positive one if it sorts first, and 0
+   *     if their sort values are equal
+   */
+  int compareSortValues(ShardDoc docA, ShardDoc docB) {
     int c = 0;
+    final int n = comparators.length;
     for (int i = 0; i < n && c == 0; i++) {
       c =
           (fields[i].getReverse())
               ? comparators[i].compare(docB, docA)
               : comparators[i].compare(docA, docB);
     }
+    return c;
+  }
 
-    // solve tiebreaks by comparing shards (similar to using docid)
-    // smaller docid's beat larger ids, so reverse the natural ordering
-    if (c == 0) {
-      c = -docA.shard.compareTo(docB.shard);
+  private static final long[] NO_SORT_KEYS = new long[0];
+
+  /** The keys of the sort values of the doc, or {@link #NO_SORT_KEYS} if a value isn't numeric */
+  private long[] sortKeys(ShardDoc doc) {
+    long[] keys = doc.sortKeys;
+    if (keys == null) {
+      keys = new long[valueIndexes.length];
+      if (!sortKeys(doc, keys)) {
+        keys = NO_SORT_KEYS;
+      }
+      doc.sortKeys = keys;
     }
+    return keys;
+  }
 
-    return c < 0;
+  /**
+   * The number of keys of the sort values of a doc, or 0 if the sort values aren't compared as
+   * {@link NumericSortKeys}.
+   */
+  int numSortKeys() {
+    return sortKeys == null ? 0 : valueIndexes.length;
+  }
+
+  /**
+   * Computes the keys of the sort values of the doc, {@link #numSortKeys()} of them.
+   *
+   * @return false if a sort value isn't numeric, in which case the keys are undefined
+   */
+  boolean sortKeys(ShardDoc doc, long[] keys) {
+    for (int i = 0; i < valueIndexes.length; i++) {
+      final Object value;
+      if (valueIndexes[i] < 0) {
+        value = doc.score;
+      } else if (doc.sortFieldValues != null && valueIndexes[i] < doc.sortFieldValues.size()) {
+        value = doc.sortFieldValues.getVal(valueIndexes[i]).get(doc.orderInShard);
+      } else {
+        value = null;
+      }
+      if (!(value instanceof Number)) {
+        return false;
+      }
+      keys[i] = sortKeys.key(i, (Number) value);
+    }
+    return true;
   }
 
   Comparator<ShardDoc> getCachedComparator(SortField sortField, IndexSearcher searcher) {
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
@@ -52,10 +53,17 @@ import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrDocumentFetcher;
 import org.apache.solr.search.SolrReturnFields;
 
-/** This streams SolrDocuments from a DocList and applies transformer */
+/**
+ * This streams SolrDocuments from a DocList and applies transformer. The documents are fetched in
+ * batches of up to {@link #BATCH_SIZE}, see {@link SolrDocumentFetcher#solrDocs(int[], int,
+ * SolrReturnFields)}.
+ */
 public class DocsStreamer implements Iterator<SolrDocument> {
   public static final Set<Class<? extends FieldType>> KNOWN_TYPES = new HashSet<>();
 
+  /** The maximum number of documents fetched together. */
+  static final int BATCH_SIZE = 1024;
+
   private final org.apache.solr.response.ResultContext rctx;
   private final SolrDocumentFetcher docFetcher; // a collaborator of SolrIndexSearcher
   private final DocList docs;
@@ -67,6 +75,13 @@ public class DocsStreamer implements Iterator<SolrDocument> {
 
   private int idx = -1;
 
+  // the current batch of documents, their ids and their scores if they are wanted
+  private final int[] batchIds;
+  private final float[] batchScores;
+  private SolrDocument[] batch;
+  private int batchSize;
+  private int batchIdx;
+
   public DocsStreamer(ResultContext rctx) {
     this.rctx = rctx;
     this.docs = rctx.getDocList();
@@ -75,6 +90,10 @@ public class DocsStreamer implements Iterator<SolrDocument> {
     docFetcher = rctx.getSearcher().getDocFetcher();
     solrReturnFields = (SolrReturnFields) rctx.getReturnFields();
 
+    final int maxBatchSize = Math.max(1, Math.min(BATCH_SIZE, docs.size()));
+    batchIds = new int[maxBatchSize];
+    batchScores = transformer != null && rctx.wantsScores() ? new float[maxBatchSize] : null;
+
     if (transformer != null) transformer.setContext(rctx);
   }
 
@@ -84,20 +103,25 @@ public class DocsStreamer implements Iterator<SolrDocument> {
 
   @Override
   public boolean hasNext() {
-    return docIterator.hasNext();
+    return batchIdx < batchSize || docIterator.hasNext();
   }
 
   @Override
   public SolrDocument next() {
-    int id = docIterator.nextDoc();
+    if (batchIdx == batchSize) {
+      fetchBatch();
+    }
+    int id = batchIds[batchIdx];
+    SolrDocument sdoc = batch[batchIdx];
+    // let the documents be collected once they were written
+    batch[batchIdx] = null;
     idx++;
-    SolrDocument sdoc = docFetcher.solrDoc(id, solrReturnFields);
 
     if (transformer != null) {
       boolean doScore = rctx.wantsScores();
       try {
         if (doScore) {
-          transformer.transform(sdoc, id, docIterator.score());
+          transformer.transform(sdoc, id, batchScores[batchIdx]);
         } else {
           transformer.transform(sdoc, id);
         }
@@ -106,9 +130,26 @@ public class DocsStreamer implements Iterator<SolrDocument> {
             SolrException.ErrorCode.SERVER_ERROR, "Error applying transformer", e);
       }
     }
+    batchIdx++;
     return sdoc;
   }
 
+  private void fetchBatch() {
+    batchSize = 0;
+    batchIdx = 0;
+    while (batchSize < batchIds.length && docIterator.hasNext()) {
+      batchIds[batchSize] = docIterator.nextDoc();
+      if (batchScores != null) {
+        batchScores[batchSize] = docIterator.score();
+      }
+      batchSize++;
+    }
+    if (batchSize == 0) {
+      throw new NoSuchElementException();
+    }
+    batch = docFetcher.solrDocs(batchIds, batchSize, solrReturnFields);
+  }
+
   /**
    * This method is less efficient then the 3 arg version because it may convert some fields that
    * are not needed
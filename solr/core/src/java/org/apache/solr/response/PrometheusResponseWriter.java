@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import com.codahale.metrics.Counting;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.solr.handler.admin.MetricsHandler;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+
+/**
+ * Writes the metrics returned by the {@link MetricsHandler} in the Prometheus text exposition
+ * format, so that Prometheus can scrape a node directly. The handler hands over the metrics
+ * themselves instead of converting them to maps first; see {@link MetricsHandler#PROMETHEUS_WT}.
+ *
+ * <p>A metric {@code QUERY./select.requests} of the registry {@code solr.core.techproducts} is
+ * written as {@code solr_metrics_core_query_select_requests_total{core="techproducts"}}: the name
+ * starts with the group of the registry and the rest of the registry name is a label named after
+ * the group. Counters and meters are written as counters, timers and histograms as summaries (with
+ * timer values in seconds) and gauges with a numeric or boolean value as gauges. Gauges with a map
+ * value are written as one gauge per numeric entry; other gauges are left out.
+ */
+public class PrometheusResponseWriter implements QueryResponseWriter {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final String PREFIX = "solr_metrics_";
+  private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.99, 0.999};
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  @Override
+  public String getContentType(SolrQueryRequest req, SolrQueryResponse res) {
+    return CONTENT_TYPE;
+  }
+
+  @Override
+  public void write(Writer writer, SolrQueryRequest req, SolrQueryResponse res) throws IOException {
+    Exception e = res.getException();
+    if (e != null) {
+      writer.write("# error: " + escapeComment(String.valueOf(e.getMessage())) + "\n");
+      return;
+    }
+    Object error = res.getValues().get("error");
+    if (error != null) {
+      writer.write("# error: " + escapeComment(error.toString()) + "\n");
+    }
+    Object metrics = res.getValues().get("metrics");
+    if (!(metrics instanceof Map)) {
+      return;
+    }
+
+    // all samples of a metric family must be written together, whichever registry they come from
+    Map<String, Family> families = new LinkedHashMap<>();
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, Metric>> registries = (Map<String, Map<String, Metric>>) metrics;
+    for (Map.Entry<String, Map<String, Metric>> registry : registries.entrySet()) {
+      String labels = registryLabels(registry.getKey());
+      String prefix = PREFIX + registryGroup(registry.getKey()) + "_";
+      for (Map.Entry<String, Metric> metric : registry.getValue().entrySet()) {
+        addSamples(families, prefix + sanitize(metric.getKey()), labels, metric.getValue());
+      }
+    }
+    for (Map.Entry<String, Family> family : families.entrySet()) {
+      writer.write("# TYPE ");
+      writer.write(family.getKey());
+      writer.write(' ');
+      writer.write(family.getValue().type);
+      writer.write('\n');
+      for (String sample : family.getValue().samples) {
+        writer.write(sample);
+      }
+    }
+  }
+
+  private static void addSamples(
+      Map<String, Family> families, String name, String labels, Metric metric) {
+    if (metric instanceof Timer || metric instanceof Histogram) {
+      boolean timer = metric instanceof Timer;
+      String family = timer ? name + "_seconds" : name;
+      double scale = timer ? NANOS_PER_SECOND : 1.0;
+      Snapshot snapshot =
+          timer ? ((Timer) metric).getSnapshot() : ((Histogram) metric).getSnapshot();
+      for (double quantile : QUANTILES) {
+        String quantileLabels = withLabel(labels, "quantile", Double.toString(quantile));
+        double value = snapshot.getValue(quantile) / scale;
+        addSample(families, family, "summary", family, quantileLabels, formatDouble(value));
+      }
+      String count = Long.toString(((Counting) metric).getCount());
+      addSample(families, family, "summary", family + "_count", labels, count);
+    } else if (metric instanceof Counting) {
+      // counters and meters
+      String count = Long.toString(((Counting) metric).getCount());
+      addSample(families, name + "_total", "counter", name + "_total", labels, count);
+    } else if (metric instanceof Gauge) {
+      Object value;
+      try {
+        value = ((Gauge<?>) metric).getValue();
+      } catch (RuntimeException e) {
+        // some gauges fail while their component is closing, which must not fail the scrape
+        return;
+      }
+      if (value instanceof Map) {
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          String entryValue = formatGaugeValue(entry.getValue());
+          if (entryValue != null) {
+            String family = name + "_" + sanitize(String.valueOf(entry.getKey()));
+            addSample(families, family, "gauge", family, labels, entryValue);
+          }
+        }
+      } else {
+        String gaugeValue = formatGaugeValue(value);
+        if (gaugeValue != null) {
+          addSample(families, name, "gauge", name, labels, gaugeValue);
+        }
+      }
+    }
+  }
+
+  private static void addSample(
+      Map<String, Family> families,
+      String family,
+      String type,
+      String name,
+      String labels,
+      String value) {
+    Family f = families.computeIfAbsent(family, k -> new Family(type));
+    if (!f.type.equals(type)) {
+      // two metrics with different types sanitized to the same name, only the first one is kept
+      return;
+    }
+    f.samples.add(name + labels + " " + value + "\n");
+  }
+
+  private static String formatGaugeValue(Object value) {
+    if (value instanceof Number) {
+      Number number = (Number) value;
+      if (value instanceof Double || value instanceof Float) {
+        return formatDouble(number.doubleValue());
+      }
+      return Long.toString(number.longValue());
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? "1" : "0";
+    }
+    return null;
+  }
+
+  private static String formatDouble(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    }
+    return Double.toString(value);
+  }
+
+  /** The group of a registry, e.g. {@code core} for {@code solr.core.techproducts}. */
+  static String registryGroup(String registry) {
+    String name = unprefixed(registry);
+    int dot = name.indexOf('.');
+    return sanitize(dot < 0 ? name : name.substring(0, dot));
+  }
+
+  /** The labels of a registry, e.g. {@code {core="techproducts"}} for solr.core.techproducts. */
+  static String registryLabels(String registry) {
+    String name = unprefixed(registry);
+    int dot = name.indexOf('.');
+    if (dot < 0) {
+      return "";
+    }
+    return withLabel("", sanitize(name.substring(0, dot)), name.substring(dot + 1));
+  }
+
+  private static String unprefixed(String registry) {
+    String prefix = SolrMetricManager.REGISTRY_NAME_PREFIX;
+    return registry.startsWith(prefix) ? registry.substring(prefix.length()) : registry;
+  }
+
+  private static String withLabel(String labels, String name, String value) {
+    String label = name + "=\"" + escapeLabelValue(value) + "\"";
+    if (labels.isEmpty()) {
+      return "{" + label + "}";
+    }
+    return labels.substring(0, labels.length() - 1) + "," + label + "}";
+  }
+
+  /**
+   * A valid metric name from a Solr metric name: lower case, with runs of characters other than
+   * letters, digits and colons replaced by a single underscore.
+   */
+  static String sanitize(String name) {
+    StringBuilder sb = new StringBuilder(name.length());
+    boolean underscore = false;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == ':') {
+        sb.append(c);
+        underscore = false;
+      } else if (!underscore) {
+        sb.append('_');
+        underscore = true;
+      }
+    }
+    return sb.toString().toLowerCase(Locale.ROOT);
+  }
+
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String escapeComment(String comment) {
+    return comment.replace('\n', ' ');
+  }
+
+  private static class Family {
+    final String type;
+    final List<String> samples = new ArrayList<>();
+
+    Family(String type) {
+      this.type = type;
+    }
+  }
+}
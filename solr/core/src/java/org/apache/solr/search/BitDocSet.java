@@ -228,6 +228,9 @@ public class BitDocSet extends DocSet {
       BitDocSet otherDocSet = (BitDocSet) other;
       newbits = FixedBitSet.ensureCapacity(newbits, otherDocSet.bits.length());
       newbits.or(otherDocSet.bits);
+    } else if (other instanceof RoaringDocSet) {
+      newbits = FixedBitSet.ensureCapacity(newbits, ((RoaringDocSet) other).maxDoc());
+      other.addAllTo(newbits);
     } else {
       DocIterator iter = other.iterator();
       while (iter.hasNext()) {
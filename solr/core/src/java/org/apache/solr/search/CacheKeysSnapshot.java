@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import static org.apache.solr.common.params.CommonParams.DISTRIB;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.solr.common.ConfigNode;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.servlet.SolrRequestParsers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists the requests of the hottest keys of the query result cache to the data directory of the
+ * core, so that they can be replayed to warm the caches of the first searcher after a restart.
+ *
+ * <p>The keys of the cache can't be parsed back, so the requests that looked them up are tracked
+ * instead: the request of a key is recorded the first time the key is looked up, by its handler
+ * path and its parameters. Replaying the request warms the filter cache with its filters as well.
+ * The tracked keys are bounded, and ranked like the entries of a {@link CaffeineCache}. They are
+ * shared by the searchers of the core, so they are not lost when a new searcher is opened.
+ *
+ * <p>The snapshot is saved at most once per {@code saveIntervalSeconds} while requests are
+ * served, and when the core is closed. It is configured with {@code <cacheKeysSnapshot/>} in the
+ * {@code <query>} section of solrconfig.xml.
+ *
+ * @see org.apache.solr.core.SolrCore#getCacheKeysSnapshot()
+ */
+public class CacheKeysSnapshot {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String FILE_NAME = "cache_keys.txt";
+
+  private final SolrCore core;
+  private final Config config;
+  private final Path file;
+  // the requests of the keys, by key
+  private final Cache<QueryResultKey, String> requests;
+  private final AtomicBoolean saving = new AtomicBoolean();
+  private volatile long lastSaved = System.nanoTime();
+  private volatile boolean modified;
+
+  public CacheKeysSnapshot(SolrCore core, Config config, Path file) {
+    this.core = core;
+    this.config = config;
+    this.file = file;
+    // track more keys than are saved, for the hottest ones to stand out
+    this.requests = Caffeine.newBuilder().maximumSize(4L * config.size).build();
+  }
+
+  /**
+   * Creates the snapshot of the core, if it is configured.
+   *
+   * @return the snapshot, or null if it isn't configured or the data directory isn't local
+   */
+  public static CacheKeysSnapshot newInstance(SolrCore core, Config config) {
+    if (config == null) {
+      return null;
+    }
+    if (core.getDirectoryFactory().isSharedStorage()) {
+      log.warn("Cache keys are not saved to the shared data directory {}", core.getDataDir());
+      return null;
+    }
+    try {
+      return new CacheKeysSnapshot(core, config, Path.of(core.getDataDir(), FILE_NAME));
+    } catch (InvalidPathException e) {
+      log.warn("Cache keys can't be saved to the data directory {}", core.getDataDir(), e);
+      return null;
+    }
+  }
+
+  /** The file the snapshot is saved to. */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Records that the key was looked up in the query result cache, by the current request. The
+   * snapshot is saved in the background if it wasn't saved for a while.
+   */
+  void record(QueryResultKey key) {
+    if (requests.getIfPresent(key) == null) {
+      final String request = requestOf(SolrRequestInfo.getRequestInfo());
+      if (request == null) {
+        return;
+      }
+      requests.put(key, request);
+      modified = true;
+    }
+    if (System.nanoTime() - lastSaved > TimeUnit.SECONDS.toNanos(config.saveIntervalSeconds)
+        && modified
+        && saving.compareAndSet(false, true)) {
+      try {
+        core.runAsync(this::saveQuietly);
+      } catch (RuntimeException e) {
+        // the core is closing, it saves the snapshot itself
+        saving.set(false);
+      }
+    }
+  }
+
+  /** The request as a line of the snapshot, or null if it can't be replayed. */
+  private static String requestOf(SolrRequestInfo requestInfo) {
+    if (requestInfo == null) {
+      return null;
+    }
+    final SolrQueryRequest req = requestInfo.getReq();
+    final String path = req.getPath();
+    if (path == null) {
+      // not a request to a handler, such as autowarming
+      return null;
+    }
+    final ModifiableSolrParams params = new ModifiableSolrParams(req.getParams());
+    // the time of the replay is used for date math
+    params.remove(CommonParams.NOW);
+    return path + params.toQueryString();
+  }
+
+  private void saveQuietly() {
+    try {
+      save();
+    } catch (IOException e) {
+      log.warn("Error saving the cache keys to {}", file, e);
+    }
+  }
+
+  /** Saves the requests of the hottest keys, the hottest first. */
+  public void save() throws IOException {
+    saving.set(true);
+    try {
+      modified = false;
+      final Map<QueryResultKey, String> hottest =
+          requests
+              .policy()
+              .eviction()
+              .map(p -> p.hottest(config.size))
+              .orElse(Collections.emptyMap());
+      if (hottest.isEmpty()) {
+        return;
+      }
+      Files.createDirectories(file.getParent());
+      final Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        for (String request : hottest.values()) {
+          writer.write(request);
+          writer.newLine();
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      log.debug("Saved {} cache keys to {}", hottest.size(), file);
+    } finally {
+      lastSaved = System.nanoTime();
+      saving.set(false);
+    }
+  }
+
+  /**
+   * Replays the requests of the saved snapshot against the searcher, the hottest first, until
+   * {@code warmCount} of them were replayed or {@code warmTimeLimitMs} has elapsed.
+   *
+   * @return the number of requests that were replayed
+   */
+  public int replay(SolrIndexSearcher searcher) {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    final long start = System.nanoTime();
+    final long timeLimit = TimeUnit.MILLISECONDS.toNanos(config.warmTimeLimitMs);
+    int count = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while (count < config.warmCount
+          && System.nanoTime() - start < timeLimit
+          && (line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        replay(searcher, line);
+        count++;
+      }
+    } catch (IOException e) {
+      log.warn("Error reading the cache keys from {}", file, e);
+    }
+    if (log.isInfoEnabled()) {
+      log.info(
+          "Replayed {} cache keys from {} in {} ms",
+          count,
+          file,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    return count;
+  }
+
+  private void replay(SolrIndexSearcher searcher, String line) {
+    final int query = line.indexOf('?');
+    final String path = query < 0 ? line : line.substring(0, query);
+    final ModifiableSolrParams params =
+        new ModifiableSolrParams(
+            SolrRequestParsers.parseQueryString(query < 0 ? "" : line.substring(query + 1)));
+    // the request is replayed against this core only
+    params.set(DISTRIB, false);
+    final SolrQueryRequest req =
+        new LocalSolrQueryRequest(core, params) {
+          @Override
+          public SolrIndexSearcher getSearcher() {
+            return searcher;
+          }
+
+          @Override
+          public void close() {}
+        };
+    req.getContext().put("path", path);
+    final SolrQueryResponse rsp = new SolrQueryResponse();
+    SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
+    try {
+      core.execute(core.getRequestHandler(path), req, rsp);
+    } catch (Exception e) {
+      // continue with the other requests, the failure was logged
+    } finally {
+      try {
+        req.close();
+      } finally {
+        SolrRequestInfo.clearRequestInfo();
+      }
+    }
+  }
+
+  /** The configuration of {@code <cacheKeysSnapshot/>}. */
+  public static class Config {
+    /** The number of keys that are saved. */
+    public final int size;
+    /** The number of saved keys that are replayed at most. */
+    public final int warmCount;
+    /** The time after which no more keys are replayed. */
+    public final long warmTimeLimitMs;
+    /** The minimum time between two saves while requests are served. */
+    public final long saveIntervalSeconds;
+
+    public Config(int size, int warmCount, long warmTimeLimitMs, long saveIntervalSeconds) {
+      this.size = size;
+      this.warmCount = warmCount;
+      this.warmTimeLimitMs = warmTimeLimitMs;
+      this.saveIntervalSeconds = saveIntervalSeconds;
+    }
+
+    /**
+     * Reads the configuration from its element.
+     *
+     * @return the configuration, or null if the element is missing or not enabled
+     */
+    public static Config of(ConfigNode node) {
+      if (!node.exists() || !node.boolAttr("enabled", true)) {
+        return null;
+      }
+      final int size = node.intAttr("size", 256);
+      return new Config(
+          size,
+          node.intAttr("warmCount", size),
+          node.intAttr("warmTimeLimitMs", 60000),
+          node.intAttr("saveIntervalSeconds", 300));
+    }
+  }
+}
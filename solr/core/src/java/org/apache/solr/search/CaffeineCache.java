@@ -35,6 +35,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
@@ -77,6 +78,22 @@ public class CaffeineCache<K, V> extends SolrCacheBase
   private static final long RAM_BYTES_PER_FUTURE =
       RamUsageEstimator.shallowSizeOfInstance(CompletableFuture.class);
 
+  /**
+   * Enables cost-aware admission: a value put with its cost is only cached if its cost, times the
+   * number of times its key was looked up recently, is at least this many milliseconds. Keys
+   * queried once are only cached if they were that expensive, cheaper ones once they are looked up
+   * often enough. Values put without a cost are always cached.
+   *
+   * @see SolrCache#put(Object, Object, long)
+   */
+  public static final String ADMIT_COST_MS_PARAM = "admitCostMs";
+
+  /**
+   * The size in kilobytes of the entries whose admission {@link #ADMIT_COST_MS_PARAM} applies to as
+   * is. Larger entries need to be proportionally more expensive or more frequent. Defaults to 64.
+   */
+  public static final String ADMIT_RAM_KB_PARAM = "admitRamKB";
+
   private Executor executor;
 
   private CacheStats priorStats;
@@ -91,6 +108,22 @@ public class CaffeineCache<K, V> extends SolrCacheBase
   private Cache<K, V> cache;
   private AsyncCache<K, V> asyncCache;
   private long warmupTime;
+  // the number of entries carried over by warming, and the hit ratio of the cache it warmed from
+  private int warmupEntries;
+  // the entries of the old cache that remain to be regenerated
+  private volatile int warmupPending;
+  private double previousHitRatio = 1.0;
+  // cost-aware admission; the sketch is handed over to the caches warmed from this one
+  private long admitCostNanos;
+  private long admitRamBytes;
+  private FrequencySketch sketch;
+  private Map<K, Long> costs;
+  private LongAdder admitted;
+  private LongAdder rejected;
+  private LongAdder timeSaved;
+  private long priorAdmitted;
+  private long priorRejected;
+  private long priorTimeSaved;
   private int maxSize;
   private long maxRamBytes;
   private int initialSize;
@@ -124,6 +157,10 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     str = args.get(MAX_RAM_MB_PARAM);
     int maxRamMB = str == null ? -1 : Double.valueOf(str).intValue();
     maxRamBytes = maxRamMB < 0 ? Long.MAX_VALUE : maxRamMB * 1024L * 1024L;
+    str = args.get(ADMIT_COST_MS_PARAM);
+    admitCostNanos = str == null ? 0 : (long) (Double.parseDouble(str) * 1_000_000);
+    str = args.get(ADMIT_RAM_KB_PARAM);
+    admitRamBytes = Math.max(1, str == null ? 64 : Long.parseLong(str)) * 1024L;
     cleanupThread = Boolean.parseBoolean(args.get(CLEANUP_THREAD_PARAM));
     async = Boolean.parseBoolean(args.getOrDefault(ASYNC_PARAM, "true"));
     if (async) {
@@ -142,6 +179,13 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     hits = new LongAdder();
     inserts = new LongAdder();
     lookups = new LongAdder();
+    admitted = new LongAdder();
+    rejected = new LongAdder();
+    timeSaved = new LongAdder();
+    if (admitCostNanos > 0) {
+      sketch = new FrequencySketch(maxSize);
+      costs = new ConcurrentHashMap<>();
+    }
 
     initialRamBytes =
         RamUsageEstimator.shallowSizeOfInstance(cache.getClass())
@@ -190,6 +234,9 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     if (async) {
       ramBytes.add(-RAM_BYTES_PER_FUTURE);
     }
+    if (costs != null && cause != RemovalCause.REPLACED) {
+      costs.remove(key);
+    }
   }
 
   @Override
@@ -199,7 +246,17 @@ public class CaffeineCache<K, V> extends SolrCacheBase
 
   @Override
   public V get(K key) {
-    return cache.getIfPresent(key);
+    V value = cache.getIfPresent(key);
+    if (sketch != null) {
+      sketch.increment(key);
+      if (value != null) {
+        Long cost = costs.get(key);
+        if (cost != null) {
+          timeSaved.add(cost);
+        }
+      }
+    }
+    return value;
   }
 
   private V computeAsync(K key, IOFunction<? super K, ? extends V> mappingFunction)
@@ -279,6 +336,32 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     return old;
   }
 
+  @Override
+  public V put(K key, V val, long costNanos) {
+    if (sketch != null) {
+      if (!admit(key, val, costNanos)) {
+        rejected.increment();
+        return null;
+      }
+      admitted.increment();
+      costs.put(key, costNanos);
+    }
+    return put(key, val);
+  }
+
+  /**
+   * Whether the time the value is expected to save, going by how often its key was looked up, is
+   * worth the memory it takes.
+   */
+  private boolean admit(K key, V val, long costNanos) {
+    long entryRamBytes =
+        RamUsageEstimator.sizeOfObject(key, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED)
+            + RamUsageEstimator.sizeOfObject(val, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED);
+    double expectedSavingNanos = (double) Math.max(1, sketch.frequency(key)) * costNanos;
+    return expectedSavingNanos
+        >= admitCostNanos * Math.max(1.0, (double) entryRamBytes / admitRamBytes);
+  }
+
   /**
    * Update the estimate of used memory
    *
@@ -311,6 +394,9 @@ public class CaffeineCache<K, V> extends SolrCacheBase
   public void clear() {
     cache.invalidateAll();
     ramBytes.reset();
+    if (costs != null) {
+      costs.clear();
+    }
   }
 
   @Override
@@ -381,13 +467,17 @@ public class CaffeineCache<K, V> extends SolrCacheBase
 
   @Override
   public void warm(SolrIndexSearcher searcher, SolrCache<K, V> old) {
+    CaffeineCache<K, V> other = (CaffeineCache<K, V>) old;
+    if (sketch != null && other.sketch != null) {
+      // keep the frequencies of the keys, or admission would start over with every searcher
+      sketch = other.sketch;
+    }
     if (regenerator == null) {
       return;
     }
 
     long warmingStartTime = System.nanoTime();
     Map<K, V> hottest = Collections.emptyMap();
-    CaffeineCache<K, V> other = (CaffeineCache<K, V>) old;
 
     // warm entries
     if (isAutowarmingOn()) {
@@ -396,22 +486,54 @@ public class CaffeineCache<K, V> extends SolrCacheBase
           other.cache.policy().eviction().map(p -> p.hottest(size)).orElse(Collections.emptyMap());
     }
 
-    for (Entry<K, V> entry : hottest.entrySet()) {
-      try {
-        boolean continueRegen =
-            regenerator.regenerateItem(searcher, this, old, entry.getKey(), entry.getValue());
-        if (!continueRegen) {
-          break;
+    // the cache is already live if the searcher was registered before warming, then the requests
+    // compute the entries that aren't warmed yet themselves, and their statistics are kept
+    final boolean live = getState() == State.LIVE;
+    // the hottest entries come first
+    warmupPending = hottest.size();
+    try {
+      for (Entry<K, V> entry : hottest.entrySet()) {
+        warmupPending--;
+        if (live && cache.asMap().containsKey(entry.getKey())) {
+          continue;
+        }
+        try {
+          boolean continueRegen =
+              regenerator.regenerateItem(searcher, this, old, entry.getKey(), entry.getValue());
+          if (costs != null && other.costs != null) {
+            // regenerators put without a cost, keep the one of the old entry for timeSaved
+            Long cost = other.costs.get(entry.getKey());
+            if (cost != null && cache.asMap().containsKey(entry.getKey())) {
+              costs.put(entry.getKey(), cost);
+            }
+          }
+          if (!continueRegen) {
+            break;
+          }
+        } catch (Exception e) {
+          log.error("Error during auto-warming of key: {}", entry.getKey(), e);
         }
-      } catch (Exception e) {
-        log.error("Error during auto-warming of key: {}", entry.getKey(), e);
       }
+    } finally {
+      warmupPending = 0;
     }
 
-    hits.reset();
-    inserts.reset();
-    lookups.reset();
+    warmupEntries = cache.asMap().size();
+    if (!live) {
+      hits.reset();
+      inserts.reset();
+      lookups.reset();
+      admitted.reset();
+      rejected.reset();
+      timeSaved.reset();
+    }
+    priorAdmitted = other.admitted.sum() + other.priorAdmitted;
+    priorRejected = other.rejected.sum() + other.priorRejected;
+    priorTimeSaved = other.timeSaved.sum() + other.priorTimeSaved;
     CacheStats oldStats = other.cache.stats();
+    previousHitRatio =
+        hitRate(
+            oldStats.hitCount() + other.hits.sum(), oldStats.requestCount() + other.lookups.sum());
     priorStats = oldStats.plus(other.priorStats);
     priorHits = oldStats.hitCount() + other.hits.sum() + other.priorHits;
     priorInserts = other.inserts.sum() + other.priorInserts;
@@ -482,8 +604,16 @@ public class CaffeineCache<K, V> extends SolrCacheBase
                 map.put(EVICTIONS_PARAM, stats.evictionCount());
                 map.put(SIZE_PARAM, cache.asMap().size());
                 map.put("warmupTime", warmupTime);
+                map.put("warmupEntries", warmupEntries);
+                map.put("warmupPending", warmupPending);
+                map.put("previous_hitratio", previousHitRatio);
                 map.put(RAM_BYTES_USED_PARAM, ramBytesUsed());
                 map.put(MAX_RAM_MB_PARAM, getMaxRamMB());
+                if (sketch != null) {
+                  map.put("admitted", admitted.sum());
+                  map.put("rejected", rejected.sum());
+                  map.put("timeSavedMs", TimeUnit.NANOSECONDS.toMillis(timeSaved.sum()));
+                }
 
                 CacheStats cumulativeStats = priorStats.plus(stats);
                 long cumLookups = priorLookups + lookupCount;
@@ -493,6 +623,13 @@ public class CaffeineCache<K, V> extends SolrCacheBase
                 map.put("cumulative_hitratio", hitRate(cumHits, cumLookups));
                 map.put("cumulative_inserts", priorInserts + insertCount);
                 map.put("cumulative_evictions", cumulativeStats.evictionCount());
+                if (sketch != null) {
+                  map.put("cumulative_admitted", priorAdmitted + admitted.sum());
+                  map.put("cumulative_rejected", priorRejected + rejected.sum());
+                  map.put(
+                      "cumulative_timeSavedMs",
+                      TimeUnit.NANOSECONDS.toMillis(priorTimeSaved + timeSaved.sum()));
+                }
               }
             });
     solrMetricsContext.gauge(cacheMap, true, scope, getCategory().toString());
@@ -34,6 +34,7 @@ import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import org.apache.lucene.codecs.DocValuesProducer;
 import org.apache.lucene.index.DocValues;
@@ -61,15 +62,22 @@ import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitSet;
 import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.SparseFixedBitSet;
+import org.apache.lucene.util.packed.PackedInts;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.handler.component.QueryElevationComponent;
 import org.apache.solr.handler.component.ResponseBuilder;
@@ -138,6 +146,15 @@ public class CollapsingQParserPlugin extends QParserPlugin {
    */
   public static final String HINT_BLOCK = "block";
 
+  /**
+   * Name of the optional user cache holding, per collapse field, the global ordinal of each
+   * document and, for min/max group head selectors on a numeric field, the head of each group
+   * across the whole index. When configured (with {@link CollapseCacheRegenerator} so entries are
+   * rebuilt while warming a new searcher) collapsing on a String field no longer needs to map
+   * segment ordinals to global ordinals per request.
+   */
+  public static final String COLLAPSE_CACHE = "collapseCache";
+
   /**
    * If elevation is used in combination with the collapse query parser, we can define that we only
    * want to return the representative and not all elevated docs by setting this parameter to false
@@ -145,6 +162,14 @@ public class CollapsingQParserPlugin extends QParserPlugin {
    */
   public static String COLLECT_ELEVATED_DOCS_WHEN_COLLAPSING = "collectElevatedDocsWhenCollapsing";
 
+  /**
+   * The number of bytes an ordinal based collapse may allocate for the set of group heads and the
+   * map from each group to its head, before the map is packed, then kept as a hash map of the
+   * groups that have a head. Not set by default, so the map is an int array over the values of the
+   * field once enough groups have a head.
+   */
+  public static final String COLLAPSE_MEMORY_BUDGET = "collapseMemoryBudget";
+
   /**
    * @deprecated use {@link NullPolicy} instead.
    */
@@ -506,6 +531,89 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         Collections.singletonMap(collapseField, type)::get);
   }
 
+  /**
+   * Use a sparse collapsed set when there is less than a group head per 2^7 docs: past that point
+   * most of the 64 bits words of a {@link FixedBitSet} are likely to hold a head.
+   */
+  private static final int SPARSE_COLLAPSED_SET_SHIFT = 7;
+
+  /**
+   * Allocates the set of group heads of an ordinal based collapse. When there can only be far fewer
+   * group heads than documents, a {@link SparseFixedBitSet} is used since it only allocates memory
+   * for the blocks of docs that have a head, instead of one bit per document of the index.
+   */
+  static BitSet newCollapsedSet(int maxDoc, int valueCount, int nullPolicy, int numBoostedDocs) {
+    if (nullPolicy != NullPolicy.EXPAND.getCode()) {
+      // one head per group, the null group and the boosted docs
+      long maxHeads = (long) valueCount + 1 + numBoostedDocs;
+      if (maxHeads < (maxDoc >>> SPARSE_COLLAPSED_SET_SHIFT)) {
+        return new SparseFixedBitSet(maxDoc);
+      }
+    }
+    return new FixedBitSet(maxDoc);
+  }
+
+  /**
+   * Allocates the map from the global ordinal of each group to the doc of its head. With a {@link
+   * #COLLAPSE_MEMORY_BUDGET}, if the collapsed set and an int per group don't fit in the budget,
+   * the docs are packed with as few bits as maxDoc needs, and if that doesn't fit either, the map
+   * stays a hash map only holding the groups that have a head.
+   */
+  static IntIntDynamicMap newGroupHeadMap(int maxDoc, int valueCount, BitSet collapsedSet) {
+    final long budget = getMemoryBudget();
+    if (budget > 0) {
+      final long available = budget - collapsedSet.ramBytesUsed();
+      if ((long) valueCount * Integer.BYTES > available) {
+        final long packedBytes =
+            PackedInts.Format.PACKED.byteCount(
+                PackedInts.VERSION_CURRENT, valueCount, PackedInts.bitsRequired(maxDoc));
+        return new IntIntDynamicMap(valueCount, -1, maxDoc - 1, packedBytes > available);
+      }
+    }
+    return new IntIntDynamicMap(valueCount, -1);
+  }
+
+  /** The {@link #COLLAPSE_MEMORY_BUDGET} of the current request, 0 if there is none */
+  private static long getMemoryBudget() {
+    final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    if (info == null || info.getReq() == null) {
+      return 0;
+    }
+    return info.getReq().getParams().getLong(COLLAPSE_MEMORY_BUDGET, 0);
+  }
+
+  /**
+   * Adds the memory allocated to collapse on the field to the debug output, if debug is enabled
+   */
+  private static void addMemoryDebugInfo(
+      String collapseField,
+      DelegatingCollector collector,
+      BitSet collapsedSet,
+      Accountable... groupHeadStructures) {
+    final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    final ResponseBuilder rb = info == null ? null : info.getResponseBuilder();
+    if (rb == null || !rb.isDebug()) {
+      return;
+    }
+    long groupHeadBytes = 0;
+    for (Accountable structure : groupHeadStructures) {
+      if (structure != null) {
+        groupHeadBytes += structure.ramBytesUsed();
+      }
+    }
+    final SimpleOrderedMap<Object> dbg = new SimpleOrderedMap<>();
+    dbg.add("collector", collector.getClass().getSimpleName());
+    dbg.add("collapsedSet", collapsedSet.getClass().getSimpleName());
+    dbg.add("collapsedSetBytes", collapsedSet.ramBytesUsed());
+    dbg.add("groupHeadBytes", groupHeadBytes);
+    dbg.add("totalBytes", collapsedSet.ramBytesUsed() + groupHeadBytes);
+    final long budget = getMemoryBudget();
+    if (budget > 0) {
+      dbg.add("memoryBudget", budget);
+    }
+    rb.addDebug(dbg, "collapse", collapseField);
+  }
+
   private static class ReaderWrapper extends FilterLeafReader {
 
     private final FieldInfos fieldInfos;
@@ -594,8 +702,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
   static class OrdScoreCollector extends DelegatingCollector {
 
     private LeafReaderContext[] contexts;
+    private final String collapseField;
     private final DocValuesProducer collapseValuesProducer;
-    private FixedBitSet collapsedSet;
+    private BitSet collapsedSet;
     private SortedDocValues collapseValues;
     private OrdinalMap ordinalMap;
     private SortedDocValues segmentValues;
@@ -615,6 +724,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public OrdScoreCollector(
         int maxDoc,
         int segments,
+        String collapseField,
         DocValuesProducer collapseValuesProducer,
         int nullPolicy,
         IntIntHashMap boostDocsMap,
@@ -629,7 +739,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         contexts[i] = con.get(i);
       }
 
-      this.collapsedSet = new FixedBitSet(maxDoc);
+      this.collapseField = collapseField;
       this.collapseValuesProducer = collapseValuesProducer;
       this.collapseValues = collapseValuesProducer.getSorted(null);
 
@@ -638,13 +748,15 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues) collapseValues;
         this.ordinalMap = multiSortedDocValues.mapping;
       }
-      this.ords = new IntIntDynamicMap(valueCount, -1);
-      this.scores = new IntFloatDynamicMap(valueCount, -Float.MAX_VALUE);
       this.nullPolicy = nullPolicy;
       if (nullPolicy == NullPolicy.EXPAND.getCode()) {
         nullScores = new FloatArrayList();
       }
       this.boostedDocsCollector = BoostedDocsCollector.build(boostDocsMap);
+      this.collapsedSet =
+          newCollapsedSet(maxDoc, valueCount, nullPolicy, boostedDocsCollector.numBoostedDocs());
+      this.ords = newGroupHeadMap(maxDoc, valueCount, collapsedSet);
+      this.scores = new IntFloatDynamicMap(valueCount, -Float.MAX_VALUE);
     }
 
     @Override
@@ -732,6 +844,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         collapsedSet.set(nullDoc);
       }
       ords.forEachValue(doc -> collapsedSet.set(doc));
+      addMemoryDebugInfo(collapseField, this, collapsedSet, ords, scores);
 
       int currentContext = 0;
       int currentDocBase = 0;
@@ -1006,6 +1119,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
   static class OrdFieldValueCollector extends DelegatingCollector {
     private LeafReaderContext[] contexts;
 
+    private final String collapseField;
     private DocValuesProducer collapseValuesProducer;
     private SortedDocValues collapseValues;
     protected OrdinalMap ordinalMap;
@@ -1024,9 +1138,15 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
     private final BoostedDocsCollector boostedDocsCollector;
 
+    /** Precomputed group heads, null unless collapsing on the min/max of a field is cached */
+    private final CollapseCacheValue cachedGroupHeads;
+    /** The groups whose precomputed head has been collected, so no other doc can replace it */
+    private FixedBitSet collectedHeads;
+
     public OrdFieldValueCollector(
         int maxDoc,
         int segments,
+        String collapseField,
         DocValuesProducer collapseValuesProducer,
         int nullPolicy,
         GroupHeadSelector groupHeadSelector,
@@ -1037,7 +1157,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         IntIntHashMap boostDocsMap,
         FunctionQuery funcQuery,
         IndexSearcher searcher,
-        boolean collectElevatedDocsWhenCollapsing)
+        boolean collectElevatedDocsWhenCollapsing,
+        CollapseCacheValue cachedGroupHeads)
         throws IOException {
 
       assert !GroupHeadSelectorType.SCORE.equals(groupHeadSelector.type);
@@ -1049,6 +1170,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       for (int i = 0; i < con.size(); i++) {
         contexts[i] = con.get(i);
       }
+      this.collapseField = collapseField;
       this.collapseValuesProducer = collapseValuesProducer;
       this.collapseValues = collapseValuesProducer.getSorted(null);
       if (collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
@@ -1089,59 +1211,86 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                 searcher,
                 collapseValues);
       } else {
-        NumberType numType = fieldType.getNumberType();
-        if (null == numType) {
-          throw new SolrException(
-              SolrException.ErrorCode.BAD_REQUEST,
-              "min/max must be either Int/Long/Float based field types");
-        }
-        switch (numType) {
-          case INTEGER:
-            {
-              this.collapseStrategy =
-                  new OrdIntStrategy(
-                      maxDoc,
-                      nullPolicy,
-                      valueCount,
-                      groupHeadSelector,
-                      this.needsScores,
-                      boostedDocsCollector,
-                      collapseValues);
-              break;
-            }
-          case FLOAT:
-            {
-              this.collapseStrategy =
-                  new OrdFloatStrategy(
-                      maxDoc,
-                      nullPolicy,
-                      valueCount,
-                      groupHeadSelector,
-                      this.needsScores,
-                      boostedDocsCollector,
-                      collapseValues);
-              break;
-            }
-          case LONG:
-            {
-              this.collapseStrategy =
-                  new OrdLongStrategy(
-                      maxDoc,
-                      nullPolicy,
-                      valueCount,
-                      groupHeadSelector,
-                      this.needsScores,
-                      boostedDocsCollector,
-                      collapseValues);
-              break;
-            }
-          default:
-            {
-              throw new SolrException(
-                  SolrException.ErrorCode.BAD_REQUEST,
-                  "min/max must be either Int/Long/Float field types");
-            }
-        }
+        this.collapseStrategy =
+            newMinMaxStrategy(
+                maxDoc,
+                nullPolicy,
+                valueCount,
+                groupHeadSelector,
+                this.needsScores,
+                fieldType,
+                boostedDocsCollector,
+                collapseValues);
+      }
+
+      if (cachedGroupHeads != null && cachedGroupHeads.hasGroupHeads()) {
+        assert sortSpec == null && funcQuery == null;
+        this.cachedGroupHeads = cachedGroupHeads;
+        this.collectedHeads = new FixedBitSet(valueCount);
+      } else {
+        this.cachedGroupHeads = null;
+      }
+    }
+
+    /**
+     * Builds the strategy selecting the group head by the min/max value of an Int/Long/Float field
+     */
+    static OrdFieldValueStrategy newMinMaxStrategy(
+        int maxDoc,
+        int nullPolicy,
+        int valueCount,
+        GroupHeadSelector groupHeadSelector,
+        boolean needsScores,
+        FieldType fieldType,
+        BoostedDocsCollector boostedDocsCollector,
+        SortedDocValues collapseValues)
+        throws IOException {
+      NumberType numType = fieldType.getNumberType();
+      if (null == numType) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST,
+            "min/max must be either Int/Long/Float based field types");
+      }
+      switch (numType) {
+        case INTEGER:
+          {
+            return new OrdIntStrategy(
+                maxDoc,
+                nullPolicy,
+                valueCount,
+                groupHeadSelector,
+                needsScores,
+                boostedDocsCollector,
+                collapseValues);
+          }
+        case FLOAT:
+          {
+            return new OrdFloatStrategy(
+                maxDoc,
+                nullPolicy,
+                valueCount,
+                groupHeadSelector,
+                needsScores,
+                boostedDocsCollector,
+                collapseValues);
+          }
+        case LONG:
+          {
+            return new OrdLongStrategy(
+                maxDoc,
+                nullPolicy,
+                valueCount,
+                groupHeadSelector,
+                needsScores,
+                boostedDocsCollector,
+                collapseValues);
+          }
+        default:
+          {
+            throw new SolrException(
+                SolrException.ErrorCode.BAD_REQUEST,
+                "min/max must be either Int/Long/Float field types");
+          }
       }
     }
 
@@ -1192,6 +1341,18 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
       }
 
+      if (cachedGroupHeads != null && ord > -1) {
+        // Docs are collected in increasing order and the min/max strategies only replace the
+        // current head with a strictly better doc, so once the doc that is the head of its group
+        // across the whole index has been collected, no other doc of that group can win.
+        if (collectedHeads.get(ord)) {
+          return;
+        }
+        if (cachedGroupHeads.groupHead(ord) == globalDoc) {
+          collectedHeads.set(ord);
+        }
+      }
+
       collapseStrategy.collapse(ord, contextDoc, globalDoc);
     }
 
@@ -1221,8 +1382,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       leafDelegate = delegate.getLeafCollector(contexts[currentContext]);
       ScoreAndDoc dummy = new ScoreAndDoc();
       leafDelegate.setScorer(dummy);
-      DocIdSetIterator it =
-          new BitSetIterator(collapseStrategy.getCollapsedSet(), 0); // cost is not useful here
+      final BitSet collapsedSet = collapseStrategy.getCollapsedSet();
+      addMemoryDebugInfo(collapseField, this, collapsedSet, collapseStrategy);
+      DocIdSetIterator it = new BitSetIterator(collapsedSet, 0); // cost is not useful here
       int globalDoc = -1;
       int nullScoreIndex = 0;
       IntFloatDynamicMap scores = collapseStrategy.getScores();
@@ -2134,6 +2296,31 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
       }
 
+      CollapseCacheValue cached = null;
+      if (collapseFieldType instanceof StrField && !blockCollapse && !HINT_TOP_FC.equals(hint)) {
+        @SuppressWarnings("unchecked")
+        SolrCache<CollapseCacheKey, CollapseCacheValue> collapseCache =
+            searcher.getCache(COLLAPSE_CACHE);
+        if (collapseCache != null) {
+          CollapseCacheKey key =
+              new CollapseCacheKey(
+                  collapseField,
+                  CollapseCacheKey.isGroupHeadCacheable(groupHeadSelector, minMaxFieldType)
+                      ? groupHeadSelector
+                      : null);
+          cached = collapseCache.computeIfAbsent(key, k -> CollapseCacheValue.build(k, searcher));
+          final CollapseCacheValue cachedValues = cached;
+          docValuesProducer =
+              new EmptyDocValuesProducer() {
+                @Override
+                public SortedDocValues getSorted(FieldInfo ignored) throws IOException {
+                  return cachedValues.getSorted(
+                      DocValues.getSorted(searcher.getSlowAtomicReader(), collapseField));
+                }
+              };
+        }
+      }
+
       int maxDoc = searcher.maxDoc();
       int leafCount = searcher.getTopReaderContext().leaves().size();
 
@@ -2151,6 +2338,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
           return new OrdScoreCollector(
               maxDoc,
               leafCount,
+              collapseField,
               docValuesProducer,
               nullPolicy,
               boostDocs,
@@ -2196,6 +2384,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
           return new OrdFieldValueCollector(
               maxDoc,
               leafCount,
+              collapseField,
               docValuesProducer,
               nullPolicy,
               groupHeadSelector,
@@ -2206,7 +2395,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               boostDocs,
               funcQuery,
               searcher,
-              collectElevatedDocsWhenCollapsing);
+              collectElevatedDocsWhenCollapsing,
+              cached);
 
         } else if (isNumericCollapsible(collapseFieldType)) {
 
@@ -2246,6 +2436,238 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     }
   }
 
+  /**
+   * Key of the {@link #COLLAPSE_CACHE}: the collapse field and, if group heads are cached as well,
+   * the min/max group head selector.
+   */
+  public static final class CollapseCacheKey {
+    private final String collapseField;
+    /** null if only the ordinals of the collapse field are cached */
+    private final GroupHeadSelector groupHeadSelector;
+
+    CollapseCacheKey(String collapseField, GroupHeadSelector groupHeadSelector) {
+      this.collapseField = collapseField;
+      this.groupHeadSelector = groupHeadSelector;
+    }
+
+    /**
+     * Group heads are only cached when they are selected by the min/max value of an Int/Long/Float
+     * field, i.e. independently of the score and of the query.
+     */
+    static boolean isGroupHeadCacheable(
+        GroupHeadSelector groupHeadSelector, FieldType minMaxFieldType) {
+      if (!GroupHeadSelectorType.MIN_MAX.contains(groupHeadSelector.type)
+          || minMaxFieldType == null) {
+        return false;
+      }
+      NumberType numType = minMaxFieldType.getNumberType();
+      return numType == NumberType.INTEGER
+          || numType == NumberType.FLOAT
+          || numType == NumberType.LONG;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (other instanceof CollapseCacheKey) {
+        final CollapseCacheKey that = (CollapseCacheKey) other;
+        return collapseField.equals(that.collapseField)
+            && Objects.equals(groupHeadSelector, that.groupHeadSelector);
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * collapseField.hashCode() + Objects.hashCode(groupHeadSelector);
+    }
+
+    @Override
+    public String toString() {
+      return "CollapseCacheKey(collapseField="
+          + collapseField
+          + ", groupHeadSelector="
+          + groupHeadSelector
+          + ")";
+    }
+  }
+
+  /**
+   * Value of the {@link #COLLAPSE_CACHE}: the global ordinal of the collapse field for each
+   * document of the searcher, and optionally the head of each group across the whole index.
+   */
+  static final class CollapseCacheValue implements Accountable {
+    private static final long BASE_RAM_BYTES_USED =
+        RamUsageEstimator.shallowSizeOfInstance(CollapseCacheValue.class);
+
+    private final int valueCount;
+    /** global ordinal + 1 per docid, 0 if the doc has no value */
+    private final PackedInts.Mutable ords;
+    /** head docid + 1 per global ordinal, 0 if the group has no head; null if not cached */
+    private final PackedInts.Mutable heads;
+
+    private CollapseCacheValue(int valueCount, PackedInts.Mutable ords, PackedInts.Mutable heads) {
+      this.valueCount = valueCount;
+      this.ords = ords;
+      this.heads = heads;
+    }
+
+    static CollapseCacheValue build(CollapseCacheKey key, SolrIndexSearcher searcher)
+        throws IOException {
+      final int maxDoc = searcher.maxDoc();
+      final SortedDocValues values =
+          DocValues.getSorted(searcher.getSlowAtomicReader(), key.collapseField);
+      final int valueCount = values.getValueCount();
+
+      final PackedInts.Mutable ords =
+          PackedInts.getMutable(maxDoc, PackedInts.bitsRequired(valueCount), PackedInts.DEFAULT);
+      for (int doc = values.nextDoc();
+          doc != DocIdSetIterator.NO_MORE_DOCS;
+          doc = values.nextDoc()) {
+        ords.set(doc, values.ordValue() + 1L);
+      }
+
+      PackedInts.Mutable heads = null;
+      if (key.groupHeadSelector != null) {
+        final FieldType minMaxFieldType =
+            searcher.getSchema().getField(key.groupHeadSelector.selectorText).getType();
+        // select the heads exactly as a query matching all docs would
+        final OrdFieldValueStrategy strategy =
+            OrdFieldValueCollector.newMinMaxStrategy(
+                maxDoc,
+                NullPolicy.IGNORE.getCode(),
+                valueCount,
+                key.groupHeadSelector,
+                false,
+                minMaxFieldType,
+                BoostedDocsCollector.build(null),
+                values);
+        for (LeafReaderContext context : searcher.getTopReaderContext().leaves()) {
+          strategy.setNextReader(context);
+          final Bits liveDocs = context.reader().getLiveDocs();
+          final int segMaxDoc = context.reader().maxDoc();
+          for (int contextDoc = 0; contextDoc < segMaxDoc; contextDoc++) {
+            if (liveDocs != null && !liveDocs.get(contextDoc)) {
+              continue;
+            }
+            final int globalDoc = context.docBase + contextDoc;
+            final int ord = (int) ords.get(globalDoc) - 1;
+            if (ord > -1) {
+              strategy.collapse(ord, contextDoc, globalDoc);
+            }
+          }
+        }
+        heads =
+            PackedInts.getMutable(valueCount, PackedInts.bitsRequired(maxDoc), PackedInts.DEFAULT);
+        for (int ord = 0; ord < valueCount; ord++) {
+          heads.set(ord, strategy.ords.get(ord) + 1L);
+        }
+      }
+      return new CollapseCacheValue(valueCount, ords, heads);
+    }
+
+    boolean hasGroupHeads() {
+      return heads != null;
+    }
+
+    /** The docid of the head of the group, or -1 if the group has no head */
+    int groupHead(int ord) {
+      return (int) heads.get(ord) - 1;
+    }
+
+    /**
+     * Returns a view of the cached ordinals keyed by top level docids. It isn't a {@link
+     * MultiDocValues.MultiSortedDocValues}, so collectors read the global ordinals directly rather
+     * than through an {@link OrdinalMap}.
+     *
+     * @param lookup the top level doc values of the collapse field, to lookup terms by ordinal
+     */
+    SortedDocValues getSorted(SortedDocValues lookup) {
+      final int maxDoc = ords.size();
+      return new SortedDocValues() {
+        private int doc = -1;
+        private int currentOrd = -1;
+
+        @Override
+        public boolean advanceExact(int target) {
+          doc = target;
+          currentOrd = (int) ords.get(target) - 1;
+          return currentOrd > -1;
+        }
+
+        @Override
+        public int ordValue() {
+          return currentOrd;
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) throws IOException {
+          return lookup.lookupOrd(ord);
+        }
+
+        @Override
+        public int getValueCount() {
+          return valueCount;
+        }
+
+        @Override
+        public int docID() {
+          return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+          return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+          for (doc = target; doc < maxDoc; doc++) {
+            currentOrd = (int) ords.get(doc) - 1;
+            if (currentOrd > -1) {
+              return doc;
+            }
+          }
+          return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() {
+          return maxDoc;
+        }
+      };
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + ords.ramBytesUsed() + (heads == null ? 0 : heads.ramBytesUsed());
+    }
+  }
+
+  /**
+   * Rebuilds the entries of the {@link #COLLAPSE_CACHE} against the new searcher, so the first
+   * collapse requests after a commit don't pay for it.
+   */
+  public static class CollapseCacheRegenerator implements CacheRegenerator {
+
+    @Override
+    public <K, V> boolean regenerateItem(
+        SolrIndexSearcher newSearcher,
+        SolrCache<K, V> newCache,
+        SolrCache<K, V> oldCache,
+        K oldKey,
+        V oldVal)
+        throws IOException {
+      final CollapseCacheKey key = (CollapseCacheKey) oldKey;
+      if (newSearcher.getSchema().getFieldOrNull(key.collapseField) == null) {
+        return true;
+      }
+      @SuppressWarnings("unchecked")
+      final V newVal = (V) CollapseCacheValue.build(key, newSearcher);
+      newCache.put(oldKey, newVal);
+      return true;
+    }
+  }
+
   public static final class CollapseScore {
     /**
      * Inspects the GroupHeadSelector to determine if this CollapseScore is needed. If it is, then
@@ -2287,14 +2709,14 @@ public class CollapsingQParserPlugin extends QParserPlugin {
    * The abstract base Strategy for collapse strategies that collapse on an ordinal using min/max
    * field value to select the group head.
    */
-  private abstract static class OrdFieldValueStrategy {
+  private abstract static class OrdFieldValueStrategy implements Accountable {
     protected int nullPolicy;
     protected IntIntDynamicMap ords;
     protected Scorable scorer;
     protected FloatArrayList nullScores;
     protected float nullScore;
     protected IntFloatDynamicMap scores;
-    protected FixedBitSet collapsedSet;
+    protected BitSet collapsedSet;
     protected int nullDoc = -1;
     protected boolean needsScores;
 
@@ -2311,10 +2733,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         boolean needsScores,
         BoostedDocsCollector boostedDocsCollector,
         SortedDocValues values) {
-      this.ords = new IntIntDynamicMap(valueCount, -1);
       this.nullPolicy = nullPolicy;
       this.needsScores = needsScores;
-      this.collapsedSet = new FixedBitSet(maxDoc);
+      this.collapsedSet =
+          newCollapsedSet(maxDoc, valueCount, nullPolicy, boostedDocsCollector.numBoostedDocs());
+      this.ords = newGroupHeadMap(maxDoc, valueCount, collapsedSet);
 
       this.boostedDocsCollector = boostedDocsCollector;
 
@@ -2326,7 +2749,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
-    public FixedBitSet getCollapsedSet() {
+    public BitSet getCollapsedSet() {
       // Handle the boosted docs.
       boostedDocsCollector.purgeGroupsThatHaveBoostedDocs(
           collapsedSet,
@@ -2361,6 +2784,12 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public IntFloatDynamicMap getScores() {
       return scores;
     }
+
+    /** The memory used to track the group heads, not including the collapsed set */
+    @Override
+    public long ramBytesUsed() {
+      return ords.ramBytesUsed() + (scores == null ? 0 : scores.ramBytesUsed());
+    }
   }
 
   /*
@@ -2398,6 +2827,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
     @Override
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.minMaxValues = DocValues.getNumeric(context.reader(), this.field);
@@ -2475,6 +2909,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
     @Override
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.minMaxValues = DocValues.getNumeric(context.reader(), this.field);
@@ -2554,6 +2993,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
     @Override
     public void setNextReader(LeafReaderContext context) throws IOException {
       this.minMaxVals = DocValues.getNumeric(context.reader(), this.field);
@@ -2640,6 +3084,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       collapseScore.setupIfNeeded(groupHeadSelector, rcontext);
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return super.ramBytesUsed() + ordVals.ramBytesUsed();
+    }
+
     @Override
     public void setNextReader(LeafReaderContext context) throws IOException {
       functionValues = this.valueSource.getValues(rcontext, context);
@@ -3385,7 +3834,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
         @Override
         public void purgeGroupsThatHaveBoostedDocs(
-            final FixedBitSet collapsedSet,
+            final BitSet collapsedSet,
             final IntProcedure removeGroupKey,
             final Runnable resetNullGroupHead) {
           return;
@@ -3408,6 +3857,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       boostedDocsIdsIter = getMergeBoost();
     }
 
+    /** The number of requested boosted docs (regardless of wether any have been collected) */
+    public int numBoostedDocs() {
+      return sortedGlobalDocIds.length;
+    }
+
     /** True if there are any requested boosts (regardless of wether any have been collected) */
     public boolean hasBoosts() {
       return hasBoosts;
@@ -3447,7 +3901,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
      * tracking collapse keys...
      */
     public void purgeGroupsThatHaveBoostedDocs(
-        final FixedBitSet collapsedSet,
+        final BitSet collapsedSet,
         final IntProcedure removeGroupKey,
         final Runnable resetNullGroupHead) {
       // Add the (collected) boosted docs to the collapsedSet
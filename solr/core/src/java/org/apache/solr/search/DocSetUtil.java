@@ -91,7 +91,7 @@ public class DocSetUtil {
       return searcher.offerLiveDocs(collector::getDocSet, size);
     }
 
-    return collector.getDocSet();
+    return compact(collector.getDocSet());
   }
 
   /**
@@ -248,7 +248,24 @@ public class DocSetUtil {
       return smallSet;
     }
 
-    return docSet;
+    return compact(docSet);
+  }
+
+  /**
+   * Returns a {@link RoaringDocSet} copy of a {@link BitDocSet} if it's sparse enough for that to
+   * take less memory, see {@link RoaringDocSet#isPreferred(int, int)}. Otherwise returns the set
+   * itself.
+   *
+   * @lucene.internal
+   */
+  public static DocSet compact(DocSet docs) {
+    if (docs instanceof BitDocSet && !(docs instanceof MutableBitDocSet)) {
+      FixedBitSet bits = ((BitDocSet) docs).getBits();
+      if (RoaringDocSet.isPreferred(docs.size(), bits.length())) {
+        return RoaringDocSet.of(bits);
+      }
+    }
+    return docs;
   }
 
   public static DocSet toSmallSet(BitDocSet bitSet) {
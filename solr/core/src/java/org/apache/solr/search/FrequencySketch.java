@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.lucene.util.BitUtil;
+
+/**
+ * A TinyLFU frequency sketch: a count-min sketch of 4-bit counters, estimating how often each key
+ * was seen recently. All counters are halved once the number of increments reaches ten times the
+ * number of keys it's sized for, so that keys that aren't seen anymore lose their frequency. The
+ * estimate is at most 15.
+ *
+ * <p>This is the same structure the eviction policy of Caffeine uses internally, which it doesn't
+ * expose. Like Caffeine, it doesn't update the counters on every lookup: the keys are recorded in
+ * buffers, one per group of threads, and a thread that fills a buffer adds its keys to the counters
+ * if no other thread is doing so. Keys are dropped while a buffer is full, which only makes the
+ * estimate a little lower under heavy concurrency.
+ *
+ * @see <a href="http://arxiv.org/pdf/1512.00727.pdf">TinyLFU</a>
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private static final int NUM_BUFFERS =
+      Math.min(64, BitUtil.nextHighestPowerOfTwo(2 * Runtime.getRuntime().availableProcessors()));
+  private static final int BUFFER_SIZE = 16;
+
+  private final Buffer[] buffers;
+  // guards the counters
+  private final ReentrantLock lock = new ReentrantLock();
+  // each long holds 16 counters; the 4 counters of a key are in 4 different longs
+  private final long[] table;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * @param maximumSize the number of keys to size the sketch for, usually the size of the cache
+   */
+  FrequencySketch(int maximumSize) {
+    int length = BitUtil.nextHighestPowerOfTwo(Math.max(16, Math.min(maximumSize, 1 << 24)));
+    table = new long[length];
+    sampleSize = 10 * length;
+    buffers = new Buffer[NUM_BUFFERS];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = new Buffer();
+    }
+  }
+
+  /**
+   * The estimated number of times the key was seen, at most 15. This adds the keys recorded so far
+   * to the counters first, so it's more expensive than {@link #increment(Object)}.
+   */
+  int frequency(Object key) {
+    final int hash = hash(key);
+    final int start = (hash & 3) << 2;
+    lock.lock();
+    try {
+      for (Buffer buffer : buffers) {
+        drain(buffer);
+      }
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        final int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Records that the key was seen once more. */
+  void increment(Object key) {
+    final int probe = spread((int) Thread.currentThread().getId());
+    final Buffer buffer = buffers[probe & (buffers.length - 1)];
+    if (buffer.offer(hash(key)) && lock.tryLock()) {
+      try {
+        drain(buffer);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** Adds the keys recorded in the buffer to the counters, under the lock. */
+  private void drain(Buffer buffer) {
+    for (int i = 0; i < BUFFER_SIZE; i++) {
+      final int hash = buffer.hashes.getAndSet(i, 0);
+      if (hash != 0) {
+        add(hash);
+      }
+    }
+    buffer.count.set(0);
+  }
+
+  private void add(int hash) {
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    final int offset = counter << 2;
+    final long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves all counters, and the number of increments accordingly. */
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  /** The hashes of keys seen by some threads, not added to the counters yet. */
+  private static final class Buffer {
+    // 0 marks an empty slot
+    final AtomicIntegerArray hashes = new AtomicIntegerArray(BUFFER_SIZE);
+    final AtomicInteger count = new AtomicInteger();
+
+    /** Records the hash of a key if there is room, and returns whether the buffer is full. */
+    boolean offer(int hash) {
+      if (count.get() >= BUFFER_SIZE) {
+        return true;
+      }
+      final int index = count.getAndIncrement();
+      if (index < BUFFER_SIZE) {
+        hashes.set(index, hash);
+      }
+      return index >= BUFFER_SIZE - 1;
+    }
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & (table.length - 1);
+  }
+
+  // never 0, which marks an empty slot of a buffer
+  private static int hash(Object key) {
+    final int hash = spread(key.hashCode());
+    return hash == 0 ? 1 : hash;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
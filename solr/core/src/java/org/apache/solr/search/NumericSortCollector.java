@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+
+/**
+ * Collects the top documents of a sort on several numeric fields, like a {@link
+ * org.apache.lucene.search.TopFieldCollector} that counts all the hits. The values of the sort
+ * fields of the competitive documents are packed as {@link NumericSortKeys} in a single array of
+ * longs, and the queue compares them without any comparator or boxing. The values of a document are
+ * only read as far as needed to tell whether it's competitive.
+ *
+ * <p>Like {@link org.apache.lucene.search.TopFieldCollector}, ties are broken by doc ID, and the
+ * returned {@link FieldDoc}s hold the values of the sort fields, and no score.
+ *
+ * @lucene.internal
+ */
+public class NumericSortCollector extends TopDocsCollector<FieldDoc> {
+
+  private final NumericSortKeys sortKeys;
+  private final int numKeys;
+  private final int numHits;
+  // the keys of the documents of the queue, numKeys per slot
+  private final long[] keys;
+  // the global doc IDs of the documents of the queue, per slot
+  private final int[] docs;
+  // a heap of slots, 1-based, with the slot of the least competitive document on top
+  private final int[] heap;
+  private int size;
+  private final long[] scratch;
+
+  /**
+   * @param sortKeys the keys of the sort, see {@link NumericSortKeys#forCollection}
+   * @param numHits the number of top documents to collect
+   */
+  public NumericSortCollector(NumericSortKeys sortKeys, int numHits) {
+    super(null);
+    if (numHits <= 0) {
+      throw new IllegalArgumentException("numHits must be > 0");
+    }
+    this.sortKeys = sortKeys;
+    this.numKeys = sortKeys.size();
+    this.numHits = numHits;
+    this.keys = new long[numHits * numKeys];
+    this.docs = new int[numHits];
+    this.heap = new int[numHits + 1];
+    this.scratch = new long[numKeys];
+  }
+
+  @Override
+  public ScoreMode scoreMode() {
+    return ScoreMode.COMPLETE_NO_SCORES;
+  }
+
+  @Override
+  public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+    final int docBase = context.docBase;
+    final NumericDocValues[] values = new NumericDocValues[numKeys];
+    final long[] missingKeys = new long[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      values[i] = DocValues.getNumeric(context.reader(), sortKeys.getFields()[i].getField());
+      missingKeys[i] = sortKeys.missingKey(i);
+    }
+    return new LeafCollector() {
+      @Override
+      public void setScorer(Scorable scorer) {}
+
+      @Override
+      public void collect(int doc) throws IOException {
+        totalHits++;
+        int i = 0;
+        if (size == numHits) {
+          // compare with the least competitive document, reading no more values than needed
+          final int offset = heap[1] * numKeys;
+          int c = 0;
+          for (; i < numKeys; i++) {
+            scratch[i] = key(i, doc);
+            c = Long.compare(scratch[i], keys[offset + i]);
+            if (c != 0) {
+              break;
+            }
+          }
+          // on a tie, this document has the greater doc ID
+          if (c >= 0) {
+            return;
+          }
+          i++;
+        }
+        for (; i < numKeys; i++) {
+          scratch[i] = key(i, doc);
+        }
+        if (size < numHits) {
+          final int slot = size++;
+          System.arraycopy(scratch, 0, keys, slot * numKeys, numKeys);
+          docs[slot] = docBase + doc;
+          heap[size] = slot;
+          upHeap(size);
+        } else {
+          final int slot = heap[1];
+          System.arraycopy(scratch, 0, keys, slot * numKeys, numKeys);
+          docs[slot] = docBase + doc;
+          downHeap(1);
+        }
+      }
+
+      private long key(int field, int doc) throws IOException {
+        final NumericDocValues docValues = values[field];
+        return docValues.advanceExact(doc)
+            ? sortKeys.keyOfDocValue(field, docValues.longValue())
+            : missingKeys[field];
+      }
+    };
+  }
+
+  /** Whether the document of the first slot is less competitive than the one of the second. */
+  private boolean lessCompetitive(int slot1, int slot2) {
+    final int c = NumericSortKeys.compare(keys, slot1 * numKeys, keys, slot2 * numKeys, numKeys);
+    return c != 0 ? c > 0 : docs[slot1] > docs[slot2];
+  }
+
+  private void upHeap(int i) {
+    final int slot = heap[i];
+    int j = i >>> 1;
+    while (j > 0 && lessCompetitive(slot, heap[j])) {
+      heap[i] = heap[j];
+      i = j;
+      j = i >>> 1;
+    }
+    heap[i] = slot;
+  }
+
+  private void downHeap(int i) {
+    final int slot = heap[i];
+    int j = i << 1;
+    while (j <= size) {
+      if (j < size && lessCompetitive(heap[j + 1], heap[j])) {
+        j++;
+      }
+      if (!lessCompetitive(heap[j], slot)) {
+        break;
+      }
+      heap[i] = heap[j];
+      i = j;
+      j = i << 1;
+    }
+    heap[i] = slot;
+  }
+
+  @Override
+  protected int topDocsSize() {
+    return size;
+  }
+
+  @Override
+  public int getTotalHits() {
+    return totalHits;
+  }
+
+  /** Like {@link TopDocsCollector#topDocs(int, int)}, this can only be called once. */
+  @Override
+  public TopDocs topDocs(int start, int howMany) {
+    final int resultsSize = Math.min(size - start, howMany);
+    final ScoreDoc[] results;
+    if (start < 0 || resultsSize <= 0) {
+      results = new ScoreDoc[0];
+    } else {
+      // pop the least competitive documents until the first result
+      while (size > start + resultsSize) {
+        pop();
+      }
+      results = new ScoreDoc[resultsSize];
+      for (int i = resultsSize - 1; i >= 0; i--) {
+        final int slot = pop();
+        final Object[] fields = new Object[numKeys];
+        for (int k = 0; k < numKeys; k++) {
+          fields[k] = sortKeys.value(k, keys[slot * numKeys + k]);
+        }
+        results[i] = new FieldDoc(docs[slot], Float.NaN, fields);
+      }
+    }
+    return new TopFieldDocs(
+        new TotalHits(totalHits, TotalHits.Relation.EQUAL_TO), results, sortKeys.getFields());
+  }
+
+  private int pop() {
+    final int slot = heap[1];
+    heap[1] = heap[size];
+    size--;
+    if (size > 0) {
+      downHeap(1);
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * Encodes the values of a sort on numeric fields as longs, one per sort field, such that comparing
+ * the longs of two documents field by field, as signed longs, gives the order of the sort. This
+ * lets sorts on several numeric fields compare primitive arrays instead of going through a
+ * comparator per field and boxed values.
+ *
+ * <p>The fields are either {@link SortField.Type#INT}, {@link SortField.Type#LONG}, {@link
+ * SortField.Type#FLOAT} or {@link SortField.Type#DOUBLE} fields read from numeric doc values, or
+ * the score. Reversed fields are encoded with their bits flipped.
+ *
+ * @lucene.internal
+ */
+public final class NumericSortKeys {
+
+  /** The maximum number of sort fields that are encoded. */
+  public static final int MAX_SORT_FIELDS = 4;
+
+  private final SortField[] fields;
+  private final SortField.Type[] types;
+  private final boolean[] flip;
+
+  private NumericSortKeys(SortField[] fields) {
+    this.fields = fields;
+    this.types = new SortField.Type[fields.length];
+    this.flip = new boolean[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      types[i] = fields[i].getType();
+      // the score sorts in descending order unless reversed, unlike the other fields
+      flip[i] = (types[i] == SortField.Type.SCORE) != fields[i].getReverse();
+    }
+  }
+
+  /**
+   * The keys of a sort that is collected from numeric doc values.
+   *
+   * @return the keys, or null if the sort isn't on 2 to {@link #MAX_SORT_FIELDS} plain numeric
+   *     fields
+   */
+  public static NumericSortKeys forCollection(SortField[] fields) {
+    if (fields.length < 2 || fields.length > MAX_SORT_FIELDS) {
+      return null;
+    }
+    for (SortField field : fields) {
+      // subclasses such as SortedNumericSortField read other doc values
+      if (field.getClass() != SortField.class || !isNumeric(field.getType())) {
+        return null;
+      }
+    }
+    return new NumericSortKeys(fields);
+  }
+
+  /**
+   * The keys of a sort whose values are already known, such as the sort values returned by shards.
+   *
+   * @return the keys, or null if the sort isn't on up to {@link #MAX_SORT_FIELDS} numeric fields
+   *     and the score, with at least one numeric field
+   */
+  public static NumericSortKeys forValues(SortField[] fields) {
+    if (fields.length > MAX_SORT_FIELDS) {
+      return null;
+    }
+    boolean numeric = false;
+    for (SortField field : fields) {
+      if (isNumeric(field.getType())) {
+        numeric = true;
+      } else if (field.getType() != SortField.Type.SCORE) {
+        return null;
+      }
+    }
+    return numeric ? new NumericSortKeys(fields) : null;
+  }
+
+  private static boolean isNumeric(SortField.Type type) {
+    switch (type) {
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** The number of sort fields. */
+  public int size() {
+    return fields.length;
+  }
+
+  /** The sort fields. */
+  public SortField[] getFields() {
+    return fields;
+  }
+
+  /**
+   * The key of a value of a sort field.
+   *
+   * @param value the value, which is the score for the score
+   */
+  public long key(int field, Number value) {
+    final long key;
+    switch (types[field]) {
+      case INT:
+      case LONG:
+        key = value.longValue();
+        break;
+      case FLOAT:
+      case SCORE:
+        key = NumericUtils.floatToSortableInt(value.floatValue());
+        break;
+      case DOUBLE:
+        key = NumericUtils.doubleToSortableLong(value.doubleValue());
+        break;
+      default:
+        throw new AssertionError(types[field]);
+    }
+    return flip[field] ? ~key : key;
+  }
+
+  /**
+   * The key of a value of a sort field, as read from numeric doc values: the bits of the value for
+   * floating point fields.
+   */
+  public long keyOfDocValue(int field, long docValue) {
+    final long key;
+    switch (types[field]) {
+      case INT:
+        key = (int) docValue;
+        break;
+      case LONG:
+        key = docValue;
+        break;
+      case FLOAT:
+        key = NumericUtils.floatToSortableInt(Float.intBitsToFloat((int) docValue));
+        break;
+      case DOUBLE:
+        key = NumericUtils.doubleToSortableLong(Double.longBitsToDouble(docValue));
+        break;
+      default:
+        throw new AssertionError(types[field]);
+    }
+    return flip[field] ? ~key : key;
+  }
+
+  /** The value of a sort field back from its key, as {@link SortField} comparators return it. */
+  public Object value(int field, long key) {
+    final long k = flip[field] ? ~key : key;
+    switch (types[field]) {
+      case INT:
+        return (int) k;
+      case LONG:
+        return k;
+      case FLOAT:
+      case SCORE:
+        return NumericUtils.sortableIntToFloat((int) k);
+      case DOUBLE:
+        return NumericUtils.sortableLongToDouble(k);
+      default:
+        throw new AssertionError(types[field]);
+    }
+  }
+
+  /**
+   * The key of the value that documents without a value sort with, which is the missing value of
+   * the field, or 0.
+   */
+  public long missingKey(int field) {
+    final Object missingValue = fields[field].getMissingValue();
+    return key(field, missingValue == null ? 0 : (Number) missingValue);
+  }
+
+  /**
+   * Compares the keys of two documents, each of {@link #size()} keys starting at the given offset.
+   *
+   * @return a negative number if the first document sorts first, a positive one if it sorts last,
+   *     and 0 if they are equal
+   */
+  public static int compare(long[] keys1, int offset1, long[] keys2, int offset2, int size) {
+    for (int i = 0; i < size; i++) {
+      final int c = Long.compare(keys1[offset1 + i], keys2[offset2 + i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+}
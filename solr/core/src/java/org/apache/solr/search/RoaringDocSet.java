@@ -0,0 +1,689 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A compressed implementation of a {@link DocSet}, for sets too big for a {@link SortedIntDocSet}
+ * but sparse enough that most of the words of a {@link BitDocSet} would be zero.
+ *
+ * <p>Like a roaring bitmap, the doc ids are split in blocks of 2<sup>16</sup> docs. A block
+ * holding at most {@value #MAX_ARRAY_LENGTH} docs stores the low 16 bits of their ids in a sorted
+ * <code>char[]</code>, a denser block stores them in a bitmap of 2<sup>16</sup> bits, and an empty
+ * block stores nothing. Instances are immutable.
+ *
+ * @see DocSetUtil#compact(DocSet)
+ * @lucene.internal
+ */
+public class RoaringDocSet extends DocSet {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(RoaringDocSet.class);
+
+  static final int BLOCK_SHIFT = 16;
+  static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+  private static final int BITMAP_WORDS = BLOCK_SIZE >>> 6;
+
+  /** Past this number of docs, a bitmap block takes less memory than a sorted array block. */
+  static final int MAX_ARRAY_LENGTH = BITMAP_WORDS << 2;
+
+  private final int maxDoc;
+  // for each block, at most one of arrays[block] and bitmaps[block] is non-null
+  private final char[][] arrays;
+  private final long[][] bitmaps;
+  private final int size;
+  private final long ramBytesUsed;
+
+  private RoaringDocSet(int maxDoc, char[][] arrays, long[][] bitmaps, int size) {
+    this.maxDoc = maxDoc;
+    this.arrays = arrays;
+    this.bitmaps = bitmaps;
+    this.size = size;
+    long ram =
+        BASE_RAM_BYTES_USED
+            + RamUsageEstimator.shallowSizeOf(arrays)
+            + RamUsageEstimator.shallowSizeOf(bitmaps);
+    for (int block = 0; block < arrays.length; block++) {
+      if (arrays[block] != null) {
+        ram += RamUsageEstimator.sizeOf(arrays[block]);
+      } else if (bitmaps[block] != null) {
+        ram += RamUsageEstimator.sizeOf(bitmaps[block]);
+      }
+    }
+    this.ramBytesUsed = ram;
+  }
+
+  /**
+   * Whether a set of <code>size</code> docs out of <code>maxDoc</code>, too big for a {@link
+   * SortedIntDocSet}, takes less memory as a {@link RoaringDocSet} than as a {@link BitDocSet}.
+   * Even if all its blocks are arrays, the set needs 16 bits per doc, so it has to hold less than
+   * 1/16th of the index. Small indexes have too few blocks for this to be worth it.
+   */
+  public static boolean isPreferred(int size, int maxDoc) {
+    return maxDoc >= BLOCK_SIZE && size < (maxDoc >>> 4);
+  }
+
+  /** Builds a set holding the bits set in <code>bits</code>, with a maxDoc of its length. */
+  public static RoaringDocSet of(FixedBitSet bits) {
+    final int maxDoc = bits.length();
+    final long[] words = bits.getBits();
+    final int numWords = FixedBitSet.bits2words(maxDoc);
+    final int numBlocks = numBlocks(maxDoc);
+    final char[][] arrays = new char[numBlocks][];
+    final long[][] bitmaps = new long[numBlocks][];
+    int size = 0;
+    for (int block = 0; block < numBlocks; block++) {
+      final int wordStart = block * BITMAP_WORDS;
+      final int wordEnd = Math.min(wordStart + BITMAP_WORDS, numWords);
+      int cardinality = 0;
+      for (int w = wordStart; w < wordEnd; w++) {
+        cardinality += Long.bitCount(words[w]);
+      }
+      if (cardinality == 0) {
+        continue;
+      }
+      if (cardinality > MAX_ARRAY_LENGTH) {
+        bitmaps[block] = new long[BITMAP_WORDS];
+        System.arraycopy(words, wordStart, bitmaps[block], 0, wordEnd - wordStart);
+      } else {
+        arrays[block] = toArray(words, wordStart, wordEnd, cardinality);
+      }
+      size += cardinality;
+    }
+    return new RoaringDocSet(maxDoc, arrays, bitmaps, size);
+  }
+
+  private static int numBlocks(int maxDoc) {
+    return maxDoc == 0 ? 0 : ((maxDoc - 1) >>> BLOCK_SHIFT) + 1;
+  }
+
+  /** Gathers the set bits of <code>words[wordStart, wordEnd)</code> relative to wordStart. */
+  private static char[] toArray(long[] words, int wordStart, int wordEnd, int cardinality) {
+    final char[] array = new char[cardinality];
+    int i = 0;
+    for (int w = wordStart; w < wordEnd; w++) {
+      long word = words[w];
+      while (word != 0) {
+        array[i++] = (char) (((w - wordStart) << 6) | Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    assert i == cardinality;
+    return array;
+  }
+
+  /** Builds a {@link RoaringDocSet} from docs added in increasing order. */
+  public static final class Builder {
+    private final int maxDoc;
+    private final char[][] arrays;
+    private final long[][] bitmaps;
+    private final char[] buffer = new char[MAX_ARRAY_LENGTH];
+    private long[] bitmap; // the current block, once it no longer fits the buffer
+    private int block = -1;
+    private int blockCardinality;
+    private int size;
+    private int lastDoc = -1;
+
+    public Builder(int maxDoc) {
+      this.maxDoc = maxDoc;
+      final int numBlocks = numBlocks(maxDoc);
+      this.arrays = new char[numBlocks][];
+      this.bitmaps = new long[numBlocks][];
+    }
+
+    public Builder add(int doc) {
+      if (doc <= lastDoc || doc >= maxDoc) {
+        throw new IllegalArgumentException(
+            "docs must be added in increasing order and less than maxDoc="
+                + maxDoc
+                + ", got "
+                + doc
+                + " after "
+                + lastDoc);
+      }
+      final int docBlock = doc >>> BLOCK_SHIFT;
+      if (docBlock != block) {
+        flush();
+        block = docBlock;
+      }
+      if (bitmap == null && blockCardinality == MAX_ARRAY_LENGTH) {
+        bitmap = new long[BITMAP_WORDS];
+        for (int i = 0; i < blockCardinality; i++) {
+          bitmap[buffer[i] >>> 6] |= 1L << buffer[i];
+        }
+      }
+      if (bitmap != null) {
+        bitmap[(doc & BLOCK_MASK) >>> 6] |= 1L << doc;
+      } else {
+        buffer[blockCardinality] = (char) doc;
+      }
+      blockCardinality++;
+      lastDoc = doc;
+      return this;
+    }
+
+    private void flush() {
+      if (blockCardinality == 0) {
+        return;
+      }
+      if (bitmap != null) {
+        bitmaps[block] = bitmap;
+        bitmap = null;
+      } else {
+        arrays[block] = Arrays.copyOf(buffer, blockCardinality);
+      }
+      size += blockCardinality;
+      blockCardinality = 0;
+    }
+
+    public RoaringDocSet build() {
+      flush();
+      return new RoaringDocSet(maxDoc, arrays, bitmaps, size);
+    }
+  }
+
+  /** The number of docs of the index this set was built for; all its docs are lower. */
+  public int maxDoc() {
+    return maxDoc;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    final int block = doc >>> BLOCK_SHIFT;
+    if (block >= arrays.length) {
+      return false;
+    }
+    final long[] bitmap = bitmaps[block];
+    if (bitmap != null) {
+      return (bitmap[(doc & BLOCK_MASK) >>> 6] & (1L << doc)) != 0;
+    }
+    final char[] array = arrays[block];
+    return array != null && Arrays.binarySearch(array, (char) doc) >= 0;
+  }
+
+  @Override
+  public DocIterator iterator() {
+    return new DocIterator() {
+      private final BlockIterator iter = new BlockIterator();
+      private int pos = iter.nextDoc();
+
+      @Override
+      public boolean hasNext() {
+        return pos != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      @Override
+      public int nextDoc() {
+        int old = pos;
+        pos = iter.nextDoc();
+        return old;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  @Override
+  public DocIdSetIterator iterator(LeafReaderContext context) {
+    if (size == 0) {
+      return null;
+    }
+    if (context.isTopLevel) {
+      return new BlockIterator();
+    }
+
+    final int segMaxDoc = context.reader().maxDoc();
+    if (segMaxDoc < 1) {
+      // entirely empty segment
+      return null;
+    }
+
+    final int base = context.docBase;
+    final int max = base + segMaxDoc; // one past the max doc in this segment.
+    final BlockIterator iter = new BlockIterator();
+
+    return new DocIdSetIterator() {
+      int adjustedDoc = -1;
+
+      @Override
+      public int docID() {
+        return adjustedDoc;
+      }
+
+      @Override
+      public int nextDoc() {
+        return adjust(adjustedDoc == -1 ? iter.advance(base) : iter.nextDoc());
+      }
+
+      @Override
+      public int advance(int target) {
+        if (target == NO_MORE_DOCS || target + base >= max) {
+          return adjustedDoc = NO_MORE_DOCS;
+        }
+        return adjust(iter.advance(target + base));
+      }
+
+      private int adjust(int pos) {
+        return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+      }
+
+      @Override
+      public long cost() {
+        // pro-rated for the segment
+        return Math.max(1L, (long) size * segMaxDoc / Math.max(1, maxDoc));
+      }
+    };
+  }
+
+  /** Iterates all the docs of the set, block by block. */
+  private class BlockIterator extends DocIdSetIterator {
+    private int block = -1;
+    private char[] array;
+    private long[] bitmap;
+    private int index; // in the array, or of the current word in the bitmap
+    private long word; // the bits of bitmap[index] left to return
+    private int doc = -1;
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+      for (; ; ) {
+        if (array != null) {
+          if (++index < array.length) {
+            return doc = (block << BLOCK_SHIFT) | array[index];
+          }
+        } else if (bitmap != null) {
+          while (word == 0 && ++index < BITMAP_WORDS) {
+            word = bitmap[index];
+          }
+          if (word != 0) {
+            final int bit = Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            return doc = (block << BLOCK_SHIFT) | (index << 6) | bit;
+          }
+        }
+        if (!moveToBlock(block + 1)) {
+          return doc = NO_MORE_DOCS;
+        }
+      }
+    }
+
+    @Override
+    public int advance(int target) {
+      if (target >= maxDoc) {
+        return doc = NO_MORE_DOCS;
+      }
+      final int targetBlock = target >>> BLOCK_SHIFT;
+      if (targetBlock != block && !moveToBlock(targetBlock)) {
+        return doc = NO_MORE_DOCS;
+      }
+      if (block == targetBlock) {
+        final int low = target & BLOCK_MASK;
+        if (array != null) {
+          int i = Arrays.binarySearch(array, index + 1, array.length, (char) low);
+          index = (i < 0 ? -1 - i : i) - 1;
+        } else {
+          index = low >>> 6;
+          word = bitmap[index] & (-1L << low);
+        }
+      }
+      return nextDoc();
+    }
+
+    /** Positions the iterator before the first doc of the first non-empty block from block on */
+    private boolean moveToBlock(int from) {
+      for (block = from; block < arrays.length; block++) {
+        array = arrays[block];
+        bitmap = bitmaps[block];
+        if (array != null || bitmap != null) {
+          index = -1;
+          word = 0;
+          return true;
+        }
+      }
+      array = null;
+      bitmap = null;
+      return false;
+    }
+
+    @Override
+    public long cost() {
+      return size;
+    }
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    if (other instanceof RoaringDocSet) {
+      final RoaringDocSet o = (RoaringDocSet) other;
+      return intersection(o.arrays, o.bitmaps, null, Math.max(maxDoc, o.maxDoc));
+    } else if (other instanceof BitDocSet) {
+      final FixedBitSet bits = other.getFixedBitSet();
+      return intersection(null, null, bits, Math.max(maxDoc, bits.length()));
+    } else {
+      // the smaller DocSets probe exists() for each of their docs, so dispatch to them.
+      return other.intersection(this);
+    }
+  }
+
+  /**
+   * Intersects this set block by block with either another {@link RoaringDocSet} (given its
+   * <code>otherArrays</code> and <code>otherBitmaps</code>) or a {@link FixedBitSet}.
+   */
+  private RoaringDocSet intersection(
+      char[][] otherArrays, long[][] otherBitmaps, FixedBitSet otherBits, int newMaxDoc) {
+    final int numBlocks = numBlocks(newMaxDoc);
+    final char[][] newArrays = new char[numBlocks][];
+    final long[][] newBitmaps = new long[numBlocks][];
+    final long[] scratch = new long[BITMAP_WORDS];
+    final char[] scratchArray = new char[MAX_ARRAY_LENGTH];
+    int newSize = 0;
+    for (int block = 0; block < arrays.length; block++) {
+      final char[] array = arrays[block];
+      final long[] bitmap = bitmaps[block];
+      if (array == null && bitmap == null) {
+        continue;
+      }
+      final char[] otherArray = otherArrays == null ? null : blockOf(otherArrays, block);
+      final long[] otherBitmap =
+          otherArrays == null ? bitmapOf(otherBits, block, scratch) : blockOf(otherBitmaps, block);
+      if (otherArray == null && otherBitmap == null) {
+        continue;
+      }
+
+      if (array != null && otherArray != null) {
+        final int n = intersect(array, otherArray, scratchArray);
+        if (n > 0) {
+          newArrays[block] = Arrays.copyOf(scratchArray, n);
+          newSize += n;
+        }
+      } else if (array != null || otherArray != null) {
+        final char[] a = array != null ? array : otherArray;
+        final long[] b = array != null ? otherBitmap : bitmap;
+        int n = 0;
+        for (char c : a) {
+          if ((b[c >>> 6] & (1L << c)) != 0) {
+            scratchArray[n++] = c;
+          }
+        }
+        if (n > 0) {
+          newArrays[block] = Arrays.copyOf(scratchArray, n);
+          newSize += n;
+        }
+      } else {
+        final long[] and = new long[BITMAP_WORDS];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          and[w] = bitmap[w] & otherBitmap[w];
+          n += Long.bitCount(and[w]);
+        }
+        if (n > MAX_ARRAY_LENGTH) {
+          newBitmaps[block] = and;
+        } else if (n > 0) {
+          newArrays[block] = toArray(and, 0, BITMAP_WORDS, n);
+        }
+        newSize += n;
+      }
+    }
+    return new RoaringDocSet(newMaxDoc, newArrays, newBitmaps, newSize);
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    if (other instanceof RoaringDocSet) {
+      final RoaringDocSet o = (RoaringDocSet) other;
+      return intersectionSize(o.arrays, o.bitmaps, null, false);
+    } else if (other instanceof BitDocSet) {
+      return intersectionSize(null, null, other.getFixedBitSet(), false);
+    } else {
+      // they had better not call us back!
+      return other.intersectionSize(this);
+    }
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    if (other instanceof RoaringDocSet) {
+      final RoaringDocSet o = (RoaringDocSet) other;
+      return intersectionSize(o.arrays, o.bitmaps, null, true) > 0;
+    } else if (other instanceof BitDocSet) {
+      return intersectionSize(null, null, other.getFixedBitSet(), true) > 0;
+    } else {
+      // they had better not call us back!
+      return other.intersects(this);
+    }
+  }
+
+  /**
+   * Counts the docs in common with either another {@link RoaringDocSet} or a {@link FixedBitSet},
+   * stopping at the first block having some if <code>any</code> is true.
+   */
+  private int intersectionSize(
+      char[][] otherArrays, long[][] otherBitmaps, FixedBitSet otherBits, boolean any) {
+    final long[] scratch = new long[BITMAP_WORDS];
+    int count = 0;
+    for (int block = 0; block < arrays.length && !(any && count > 0); block++) {
+      final char[] array = arrays[block];
+      final long[] bitmap = bitmaps[block];
+      if (array == null && bitmap == null) {
+        continue;
+      }
+      final char[] otherArray = otherArrays == null ? null : blockOf(otherArrays, block);
+      final long[] otherBitmap =
+          otherArrays == null ? bitmapOf(otherBits, block, scratch) : blockOf(otherBitmaps, block);
+      if (otherArray == null && otherBitmap == null) {
+        continue;
+      }
+
+      if (array != null && otherArray != null) {
+        count += intersect(array, otherArray, null);
+      } else if (array != null || otherArray != null) {
+        final char[] a = array != null ? array : otherArray;
+        final long[] b = array != null ? otherBitmap : bitmap;
+        for (char c : a) {
+          if ((b[c >>> 6] & (1L << c)) != 0) {
+            count++;
+          }
+        }
+      } else {
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+          count += Long.bitCount(bitmap[w] & otherBitmap[w]);
+        }
+      }
+    }
+    return count;
+  }
+
+  private static <T> T blockOf(T[] blocks, int block) {
+    return block < blocks.length ? blocks[block] : null;
+  }
+
+  /**
+   * Copies the words of a block of <code>bits</code> into <code>scratch</code>, or returns null if
+   * they are all zero.
+   */
+  private static long[] bitmapOf(FixedBitSet bits, int block, long[] scratch) {
+    final long[] words = bits.getBits();
+    final int wordStart = block * BITMAP_WORDS;
+    final int wordEnd = Math.min(wordStart + BITMAP_WORDS, FixedBitSet.bits2words(bits.length()));
+    boolean empty = true;
+    for (int w = wordStart; w < wordEnd; w++) {
+      scratch[w - wordStart] = words[w];
+      empty &= words[w] == 0;
+    }
+    if (empty) {
+      return null;
+    }
+    Arrays.fill(scratch, Math.max(0, wordEnd - wordStart), BITMAP_WORDS, 0L);
+    return scratch;
+  }
+
+  /**
+   * Intersects two sorted arrays, writing the common values to <code>dest</code> unless it is null.
+   *
+   * @return the number of common values
+   */
+  private static int intersect(char[] a, char[] b, char[] dest) {
+    int i = 0, j = 0, n = 0;
+    while (i < a.length && j < b.length) {
+      final char x = a[i], y = b[j];
+      if (x < y) {
+        i++;
+      } else if (x > y) {
+        j++;
+      } else {
+        if (dest != null) {
+          dest[n] = x;
+        }
+        n++;
+        i++;
+        j++;
+      }
+    }
+    return n;
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    if (other.size() == 0) {
+      return this;
+    }
+    final Builder builder = new Builder(maxDoc);
+    for (BlockIterator iter = new BlockIterator();
+        iter.nextDoc() != DocIdSetIterator.NO_MORE_DOCS; ) {
+      if (!other.exists(iter.doc)) {
+        builder.add(iter.doc);
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    final FixedBitSet otherBits = other.getFixedBitSet();
+    final FixedBitSet newbits =
+        FixedBitSet.ensureCapacity(getFixedBitSetClone(), otherBits.length());
+    newbits.or(otherBits);
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public void addAllTo(FixedBitSet target) {
+    final long[] words = target.getBits();
+    final int numWords = FixedBitSet.bits2words(target.length());
+    for (int block = 0; block < arrays.length; block++) {
+      final long[] bitmap = bitmaps[block];
+      final char[] array = arrays[block];
+      if (bitmap != null) {
+        final int wordStart = block * BITMAP_WORDS;
+        final int wordEnd = Math.min(wordStart + BITMAP_WORDS, numWords);
+        for (int w = wordStart; w < wordEnd; w++) {
+          words[w] |= bitmap[w - wordStart];
+        }
+      } else if (array != null) {
+        final int blockStart = block << BLOCK_SHIFT;
+        for (char c : array) {
+          target.set(blockStart | c);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Bits getBits() {
+    return new Bits() {
+      @Override
+      public boolean get(int index) {
+        return exists(index);
+      }
+
+      @Override
+      public int length() {
+        return maxDoc;
+      }
+    };
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSet() {
+    return getFixedBitSetClone();
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSetClone() {
+    final FixedBitSet bits = new FixedBitSet(maxDoc);
+    addAllTo(bits);
+    return bits;
+  }
+
+  @Override
+  public DocSetQuery makeQuery() {
+    return new DocSetQuery(this);
+  }
+
+  @Override
+  public RoaringDocSet clone() {
+    // immutable, and so are the blocks
+    return this;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String toString() {
+    return "RoaringDocSet{"
+        + "size="
+        + size()
+        + ",ramUsed="
+        + RamUsageEstimator.humanReadableUnits(ramBytesUsed())
+        + '}';
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A cache key for a document of a segment: the core cache key of the segment and the doc ID within
+ * the segment. Unlike a doc ID of a searcher, it stays valid for as long as the segment exists, so
+ * the entries of caches using it don't depend on the searcher.
+ */
+public final class SegmentDocKey implements Accountable {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(SegmentDocKey.class);
+
+  private final IndexReader.CacheKey segment;
+  private final int docId;
+
+  public SegmentDocKey(IndexReader.CacheKey segment, int docId) {
+    this.segment = segment;
+    this.docId = docId;
+  }
+
+  /**
+   * The key of a document of a segment.
+   *
+   * @param docId the doc ID within the segment
+   * @return the key, or null if the segment has no core cache key
+   */
+  public static SegmentDocKey of(LeafReader leafReader, int docId) {
+    final IndexReader.CacheHelper cacheHelper = leafReader.getCoreCacheHelper();
+    return cacheHelper == null ? null : new SegmentDocKey(cacheHelper.getKey(), docId);
+  }
+
+  /** The core cache key of the segment. */
+  public IndexReader.CacheKey getSegment() {
+    return segment;
+  }
+
+  /** The doc ID within the segment. */
+  public int getDocId() {
+    return docId;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof SegmentDocKey)) return false;
+    SegmentDocKey other = (SegmentDocKey) o;
+    return docId == other.docId && segment == other.segment;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(segment) + docId;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    // the segment key is shared by all the keys of the segment
+    return BASE_RAM_BYTES_USED;
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentDocKey(" + segment + "," + docId + ")";
+  }
+}
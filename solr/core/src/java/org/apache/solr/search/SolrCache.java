@@ -84,6 +84,17 @@ public interface SolrCache<K, V> extends SolrInfoBean {
   /** :TODO: copy from Map */
   public V put(K key, V value);
 
+  /**
+   * Like {@link #put(Object, Object)}, for a value that took the given time to compute. A cache may
+   * use the cost to decide whether the value is worth caching, see {@link CaffeineCache}. By
+   * default the value is always cached.
+   *
+   * @return the previous value, or null if there was none or if the value wasn't cached
+   */
+  default V put(K key, V value, long costNanos) {
+    return put(key, value);
+  }
+
   /** :TODO: copy from Map */
   public V get(K key);
 
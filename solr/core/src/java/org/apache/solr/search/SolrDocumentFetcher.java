@@ -26,14 +26,17 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.FieldType;
@@ -42,9 +45,11 @@ import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StoredValue;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
@@ -57,7 +62,9 @@ import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.misc.document.LazyDocument;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.SolrDocument;
@@ -86,7 +93,13 @@ public class SolrDocumentFetcher {
 
   private final boolean enableLazyFieldLoading;
 
-  private final SolrCache<Integer, Document> documentCache;
+  private final SolrCache<SegmentDocKey, Document> documentCache;
+
+  /** The leaves of the searcher by their core cache key, for warming the document cache. */
+  private final Map<IndexReader.CacheKey, LeafReaderContext> segments;
+
+  /** The stored fields cache of the core, if any; not used when there are large fields. */
+  private final StoredFieldsCache storedFieldsCache;
 
   private final Set<String> allStored;
 
@@ -128,6 +141,17 @@ public class SolrDocumentFetcher {
     } else {
       documentCache = null;
     }
+    if (documentCache != null) {
+      segments = new HashMap<>();
+      for (LeafReaderContext leafContext : searcher.getLeafContexts()) {
+        final IndexReader.CacheHelper cacheHelper = leafContext.reader().getCoreCacheHelper();
+        if (cacheHelper != null) {
+          segments.put(cacheHelper.getKey(), leafContext);
+        }
+      }
+    } else {
+      segments = Collections.emptyMap();
+    }
 
     final Set<String> nonStoredDVsUsedAsStored = new HashSet<>();
     final Set<String> allNonStoredDVs = new HashSet<>();
@@ -169,6 +193,11 @@ public class SolrDocumentFetcher {
     this.largeFields = Collections.unmodifiableSet(storedLargeFields);
     this.dvsCanSubstituteStored = Collections.unmodifiableSet(dvsCanSubstituteStored);
     this.allStored = Collections.unmodifiableSet(allStoreds);
+    // large fields are loaded lazily so that they don't take up the caches
+    this.storedFieldsCache =
+        largeFields.isEmpty() && searcher.getCore() != null
+            ? searcher.getCore().getStoredFieldsCache()
+            : null;
   }
 
   // Does this field have both stored=true and docValues=true and is otherwise
@@ -191,7 +220,7 @@ public class SolrDocumentFetcher {
     return enableLazyFieldLoading;
   }
 
-  public SolrCache<Integer, Document> getDocumentCache() {
+  public SolrCache<SegmentDocKey, Document> getDocumentCache() {
     return documentCache;
   }
 
@@ -254,9 +283,10 @@ public class SolrDocumentFetcher {
    */
   public Document doc(int i, Set<String> fields) throws IOException {
     Document d;
-    if (documentCache != null) {
+    final SegmentDocKey key = documentCache == null ? null : documentCacheKey(i);
+    if (key != null) {
       final Set<String> getFields = enableLazyFieldLoading ? fields : null;
-      d = documentCache.computeIfAbsent(i, docId -> docNC(docId, getFields));
+      d = documentCache.computeIfAbsent(key, k -> docNC(i, getFields));
       if (d == null) {
         // failed to retrieve due to an earlier exception, try again?
         return docNC(i, fields);
@@ -272,10 +302,61 @@ public class SolrDocumentFetcher {
     final DirectoryReader reader = searcher.getIndexReader();
     final SolrDocumentStoredFieldVisitor visitor =
         new SolrDocumentStoredFieldVisitor(fields, reader, i);
-    reader.document(i, visitor);
+    if (storedFieldsCache != null) {
+      final LeafReaderContext leafContext = leafContext(i);
+      storedFieldsCache.document(leafContext.reader(), i - leafContext.docBase, visitor, null);
+    } else {
+      reader.document(i, visitor);
+    }
     return visitor.getDocument();
   }
 
+  private LeafReaderContext leafContext(int docId) {
+    final List<LeafReaderContext> leafContexts = searcher.getLeafContexts();
+    return leafContexts.get(ReaderUtil.subIndex(docId, leafContexts));
+  }
+
+  /** The key of a document in the document cache, or null if it can't be cached. */
+  private SegmentDocKey documentCacheKey(int docId) {
+    final LeafReaderContext leafContext = leafContext(docId);
+    return SegmentDocKey.of(leafContext.reader(), docId - leafContext.docBase);
+  }
+
+  /**
+   * Adds a document of the document cache of the previous searcher to the document cache, if its
+   * segment is part of this searcher too and it wasn't deleted since. Its lazy fields are bound to
+   * this searcher.
+   *
+   * @see SolrIndexSearcher#initRegenerators(SolrConfig)
+   */
+  void warmDocumentCache(SegmentDocKey key, Document oldDoc) {
+    final LeafReaderContext leafContext = segments.get(key.getSegment());
+    if (leafContext == null) {
+      return;
+    }
+    final Bits liveDocs = leafContext.reader().getLiveDocs();
+    if (liveDocs != null && !liveDocs.get(key.getDocId())) {
+      return;
+    }
+    final int docId = leafContext.docBase + key.getDocId();
+    final Document doc = new Document();
+    LazyDocument lazyDocument = null;
+    for (IndexableField field : oldDoc) {
+      if (field instanceof LargeLazyField) {
+        doc.add(new LargeLazyField(field.name(), docId));
+      } else if (field instanceof LazyDocument.LazyField
+          && !((LazyDocument.LazyField) field).hasBeenLoaded()) {
+        if (lazyDocument == null) {
+          lazyDocument = new LazyDocument(searcher.getIndexReader(), docId);
+        }
+        doc.add(lazyDocument.getField(searcher.getFieldInfos().fieldInfo(field.name())));
+      } else {
+        doc.add(field);
+      }
+    }
+    documentCache.put(key, doc);
+  }
+
   /**
    * This is an optimized version for populating a SolrDocument that:
    *
@@ -308,6 +389,99 @@ public class SolrDocumentFetcher {
     return solrReturnFields.getFetchOptimizer(rfoSupplier).getSolrDoc(luceneDocId);
   }
 
+  /**
+   * Fetches several documents like {@link #solrDoc(int, SolrReturnFields)}, but together: the
+   * documents are read in increasing docid order, so that the docValues of each field are only
+   * iterated once per segment, and a block of compressed stored fields is only decompressed once
+   * for all the documents of the block.
+   *
+   * @param luceneDocIds the Lucene doc IDs, in any order
+   * @param count the number of doc IDs to fetch, from the start of the array
+   * @param solrReturnFields the structure holding the fields to be returned, see {@link
+   *     #solrDoc(int, SolrReturnFields)}
+   * @return the documents, in the order of their doc IDs
+   */
+  public SolrDocument[] solrDocs(int[] luceneDocIds, int count, SolrReturnFields solrReturnFields) {
+    Supplier<RetrieveFieldsOptimizer> rfoSupplier =
+        () -> new RetrieveFieldsOptimizer(solrReturnFields);
+    return solrReturnFields.getFetchOptimizer(rfoSupplier).getSolrDocs(luceneDocIds, count);
+  }
+
+  /**
+   * The positions of the doc IDs ordered by doc ID, each in the low bits of a long with the doc ID
+   * in the high bits.
+   */
+  private static long[] sortedOrder(int[] luceneDocIds, int count) {
+    final long[] order = new long[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = ((long) luceneDocIds[i] << 32) | i;
+    }
+    Arrays.sort(order);
+    return order;
+  }
+
+  /**
+   * Retrieves the documents of the doc IDs like {@link #doc(int, Set)}, visiting them in increasing
+   * doc ID order. Stored fields are read with the merge instance of the stored fields reader of a
+   * segment where possible, which decompresses each block of documents once instead of once per
+   * document.
+   *
+   * @param order the doc IDs, see {@link #sortedOrder(int[], int)}
+   * @return the documents, in the order of the positions of the doc IDs
+   */
+  private Document[] docs(long[] order, Set<String> fields) throws IOException {
+    final Document[] docs = new Document[order.length];
+    final Set<String> loadFields = documentCache == null || enableLazyFieldLoading ? fields : null;
+    final DirectoryReader reader = searcher.getIndexReader();
+    final List<LeafReaderContext> leafContexts = searcher.getLeafContexts();
+    LeafReaderContext leafContext = null;
+    StoredFields storedFields = null;
+    for (long entry : order) {
+      final int docid = (int) (entry >>> 32);
+      if (leafContext == null || docid >= leafContext.docBase + leafContext.reader().maxDoc()) {
+        leafContext = leafContexts.get(ReaderUtil.subIndex(docid, leafContexts));
+        storedFields = null;
+      }
+      final int segmentDocId = docid - leafContext.docBase;
+      final SegmentDocKey key =
+          documentCache == null && storedFieldsCache == null
+              ? null
+              : SegmentDocKey.of(leafContext.reader(), segmentDocId);
+      Document doc = documentCache == null || key == null ? null : documentCache.get(key);
+      if (doc == null) {
+        if (storedFields == null) {
+          storedFields = sequentialStoredFields(leafContext.reader());
+        }
+        final SolrDocumentStoredFieldVisitor visitor =
+            new SolrDocumentStoredFieldVisitor(loadFields, reader, docid);
+        if (storedFieldsCache != null) {
+          storedFieldsCache.document(
+              leafContext.reader(), key, segmentDocId, visitor, storedFields);
+        } else {
+          storedFields.document(segmentDocId, visitor);
+        }
+        doc = visitor.getDocument();
+        if (documentCache != null && key != null) {
+          documentCache.put(key, doc);
+        }
+      }
+      docs[(int) entry] = doc;
+    }
+    return docs;
+  }
+
+  /** Stored fields of a segment for reading documents in increasing doc ID order. */
+  private static StoredFields sequentialStoredFields(LeafReader leafReader) throws IOException {
+    final LeafReader unwrapped = FilterLeafReader.unwrap(leafReader);
+    if (unwrapped instanceof CodecReader) {
+      final StoredFieldsReader fieldsReader = ((CodecReader) unwrapped).getFieldsReader();
+      if (fieldsReader != null) {
+        return fieldsReader.getMergeInstance();
+      }
+    }
+    return leafReader.storedFields();
+  }
+
   /**
    * {@link StoredFieldVisitor} which loads the specified fields eagerly (or all if null). If {@link
    * #enableLazyFieldLoading} then the rest get special lazy field entries. Designated "large"
@@ -373,6 +547,9 @@ public class SolrDocumentFetcher {
       // get cached document or retrieve it including all fields (and cache it)
       Document cached = doc(docId);
       visitFromCached(cached, visitor);
+    } else if (storedFieldsCache != null) {
+      final LeafReaderContext leafContext = leafContext(docId);
+      storedFieldsCache.document(leafContext.reader(), docId - leafContext.docBase, visitor, null);
     } else {
       searcher.getIndexReader().document(docId, visitor);
     }
@@ -568,7 +745,12 @@ public class SolrDocumentFetcher {
     final int localId = docid - leafContexts.get(subIndex).docBase;
     final LeafReader leafReader = leafContexts.get(subIndex).reader();
     for (String fieldName : fields) {
-      Object fieldValue = decodeDVField(localId, leafReader, fieldName);
+      DocValuesFieldReader fieldReader = newDocValuesFieldReader(fieldName);
+      if (fieldReader == null) {
+        continue;
+      }
+      fieldReader.reset(leafReader);
+      Object fieldValue = fieldReader.read(localId);
       if (fieldValue != null) {
         doc.setField(fieldName, fieldValue);
       }
@@ -576,88 +758,179 @@ public class SolrDocumentFetcher {
   }
 
   /**
-   * Decode value from DV field for a document
+   * Adds the docValues fields to several documents like {@link
+   * #decorateDocValueFields(SolrDocumentBase, int, Set)}, visiting the documents in increasing
+   * docid order so that the docValues of each field are only iterated once per segment.
    *
-   * @return null if DV field is not exist or can not decodable
+   * @param docs the documents to add the docValues to
+   * @param order the docids of the documents, see {@link #sortedOrder(int[], int)}
    */
-  private Object decodeDVField(int localId, LeafReader leafReader, String fieldName)
-      throws IOException {
+  private void decorateDocValueFields(
+      SolrDocumentBase<?, ?>[] docs, long[] order, Set<String> fields) throws IOException {
+    final List<DocValuesFieldReader> fieldReaders = new ArrayList<>(fields.size());
+    for (String fieldName : fields) {
+      DocValuesFieldReader fieldReader = newDocValuesFieldReader(fieldName);
+      if (fieldReader != null) {
+        fieldReaders.add(fieldReader);
+      }
+    }
+    if (fieldReaders.isEmpty()) {
+      return;
+    }
+    final List<LeafReaderContext> leafContexts = searcher.getLeafContexts();
+    LeafReaderContext leafContext = null;
+    int previousId = -1;
+    for (long entry : order) {
+      final int docid = (int) (entry >>> 32);
+      final SolrDocumentBase<?, ?> doc = docs[(int) entry];
+      if (docid == previousId) {
+        // the iterators can't return to a document listed twice
+        decorateDocValueFields(doc, docid, fields);
+        continue;
+      }
+      if (leafContext == null || docid >= leafContext.docBase + leafContext.reader().maxDoc()) {
+        leafContext = leafContexts.get(ReaderUtil.subIndex(docid, leafContexts));
+        for (DocValuesFieldReader fieldReader : fieldReaders) {
+          fieldReader.reset(leafContext.reader());
+        }
+      }
+      for (DocValuesFieldReader fieldReader : fieldReaders) {
+        Object fieldValue = fieldReader.read(docid - leafContext.docBase);
+        if (fieldValue != null) {
+          doc.setField(fieldReader.schemaField.getName(), fieldValue);
+        }
+      }
+      previousId = docid;
+    }
+  }
+
+  /**
+   * Returns a reader of the values of a docValues field, or null if the field doesn't exist or
+   * doesn't have docValues.
+   */
+  private DocValuesFieldReader newDocValuesFieldReader(String fieldName) {
     final SchemaField schemaField = searcher.getSchema().getFieldOrNull(fieldName);
     FieldInfo fi = searcher.getFieldInfos().fieldInfo(fieldName);
     if (schemaField == null || !schemaField.hasDocValues() || fi == null) {
       return null; // Searcher doesn't have info about this field, hence ignore it.
     }
+    return new DocValuesFieldReader(schemaField, fi.getDocValuesType());
+  }
 
-    final DocValuesType dvType = fi.getDocValuesType();
-    switch (dvType) {
-      case NUMERIC:
-        final NumericDocValues ndv = leafReader.getNumericDocValues(fieldName);
-        if (ndv == null) {
-          return null;
-        }
-        if (!ndv.advanceExact(localId)) {
-          return null;
-        }
-        Long val = ndv.longValue();
-        return decodeNumberFromDV(schemaField, val, false);
-      case BINARY:
-        BinaryDocValues bdv = leafReader.getBinaryDocValues(fieldName);
-        if (bdv != null && bdv.advanceExact(localId)) {
-          return BytesRef.deepCopyOf(bdv.binaryValue());
-        }
-        return null;
-      case SORTED:
-        SortedDocValues sdv = leafReader.getSortedDocValues(fieldName);
-        if (sdv != null && sdv.advanceExact(localId)) {
-          final BytesRef bRef = sdv.lookupOrd(sdv.ordValue());
-          // Special handling for Boolean fields since they're stored as 'T' and 'F'.
-          if (schemaField.getType() instanceof BoolField) {
-            return schemaField.getType().toObject(schemaField, bRef);
-          } else {
-            return bRef.utf8ToString();
+  /**
+   * Decodes the values of a docValues field. The iterator of a segment is kept between documents,
+   * so the documents of a segment must be read in increasing order.
+   */
+  private class DocValuesFieldReader {
+    private final SchemaField schemaField;
+    private final DocValuesType dvType;
+    private NumericDocValues ndv;
+    private BinaryDocValues bdv;
+    private SortedDocValues sdv;
+    private SortedNumericDocValues numericDv;
+    private SortedSetDocValues values;
+
+    DocValuesFieldReader(SchemaField schemaField, DocValuesType dvType) {
+      this.schemaField = schemaField;
+      this.dvType = dvType;
+    }
+
+    /** Starts reading the documents of another segment. */
+    void reset(LeafReader leafReader) throws IOException {
+      final String fieldName = schemaField.getName();
+      switch (dvType) {
+        case NUMERIC:
+          ndv = leafReader.getNumericDocValues(fieldName);
+          break;
+        case BINARY:
+          bdv = leafReader.getBinaryDocValues(fieldName);
+          break;
+        case SORTED:
+          sdv = leafReader.getSortedDocValues(fieldName);
+          break;
+        case SORTED_NUMERIC:
+          numericDv = leafReader.getSortedNumericDocValues(fieldName);
+          break;
+        case SORTED_SET:
+          values = leafReader.getSortedSetDocValues(fieldName);
+          break;
+        default:
+          break;
+      }
+    }
+
+    /**
+     * Decode value from DV field for a document
+     *
+     * @return null if DV field is not exist or can not decodable
+     */
+    Object read(int localId) throws IOException {
+      switch (dvType) {
+        case NUMERIC:
+          if (ndv == null) {
+            return null;
           }
-        }
-        return null;
-      case SORTED_NUMERIC:
-        final SortedNumericDocValues numericDv = leafReader.getSortedNumericDocValues(fieldName);
-        if (numericDv != null && numericDv.advance(localId) == localId) {
-          final int docValueCount = numericDv.docValueCount();
-          final List<Object> outValues = new ArrayList<>(docValueCount);
-          for (int i = 0; i < docValueCount; i++) {
-            long number = numericDv.nextValue();
-            Object value = decodeNumberFromDV(schemaField, number, true);
-            // return immediately if the number is not decodable, hence won't return an empty list.
-            if (value == null) {
-              return null;
-            }
-            // normally never true but LatLonPointSpatialField uses SORTED_NUMERIC even when single
-            // valued
-            else if (schemaField.multiValued() == false) {
-              return value;
+          if (!ndv.advanceExact(localId)) {
+            return null;
+          }
+          Long val = ndv.longValue();
+          return decodeNumberFromDV(schemaField, val, false);
+        case BINARY:
+          if (bdv != null && bdv.advanceExact(localId)) {
+            return BytesRef.deepCopyOf(bdv.binaryValue());
+          }
+          return null;
+        case SORTED:
+          if (sdv != null && sdv.advanceExact(localId)) {
+            final BytesRef bRef = sdv.lookupOrd(sdv.ordValue());
+            // Special handling for Boolean fields since they're stored as 'T' and 'F'.
+            if (schemaField.getType() instanceof BoolField) {
+              return schemaField.getType().toObject(schemaField, bRef);
             } else {
-              outValues.add(value);
+              return bRef.utf8ToString();
             }
           }
-          assert outValues.size() > 0;
-          return outValues;
-        }
-        return null;
-      case SORTED_SET:
-        final SortedSetDocValues values = leafReader.getSortedSetDocValues(fieldName);
-        if (values != null && values.getValueCount() > 0 && values.advance(localId) == localId) {
-          final List<Object> outValues = new ArrayList<>();
-          for (long ord = values.nextOrd();
-              ord != SortedSetDocValues.NO_MORE_ORDS;
-              ord = values.nextOrd()) {
-            BytesRef value = values.lookupOrd(ord);
-            outValues.add(schemaField.getType().toObject(schemaField, value));
+          return null;
+        case SORTED_NUMERIC:
+          if (numericDv != null && numericDv.advanceExact(localId)) {
+            final int docValueCount = numericDv.docValueCount();
+            final List<Object> outValues = new ArrayList<>(docValueCount);
+            for (int i = 0; i < docValueCount; i++) {
+              long number = numericDv.nextValue();
+              Object value = decodeNumberFromDV(schemaField, number, true);
+              // return immediately if the number is not decodable, hence won't return an empty
+              // list.
+              if (value == null) {
+                return null;
+              }
+              // normally never true but LatLonPointSpatialField uses SORTED_NUMERIC even when
+              // single valued
+              else if (schemaField.multiValued() == false) {
+                return value;
+              } else {
+                outValues.add(value);
+              }
+            }
+            assert outValues.size() > 0;
+            return outValues;
           }
-          assert outValues.size() > 0;
-          return outValues;
-        }
-        return null;
-      default:
-        return null;
+          return null;
+        case SORTED_SET:
+          if (values != null && values.getValueCount() > 0 && values.advanceExact(localId)) {
+            final List<Object> outValues = new ArrayList<>();
+            for (long ord = values.nextOrd();
+                ord != SortedSetDocValues.NO_MORE_ORDS;
+                ord = values.nextOrd()) {
+              BytesRef value = values.lookupOrd(ord);
+              outValues.add(schemaField.getType().toObject(schemaField, value));
+            }
+            assert outValues.size() > 0;
+            return outValues;
+          }
+          return null;
+        default:
+          return null;
+      }
     }
   }
 
@@ -891,5 +1164,42 @@ public class SolrDocumentFetcher {
       }
       return sdoc;
     }
+
+    private SolrDocument[] getSolrDocs(int[] luceneDocIds, int count) {
+      final SolrDocument[] sdocs = new SolrDocument[count];
+      final long[] order = sortedOrder(luceneDocIds, count);
+      try {
+        if (returnStoredFields()) {
+          final Document[] docs = docs(order, getStoredFields());
+          for (int i = 0; i < count; i++) {
+            // make sure to use the schema from the searcher and not the request (cross-core)
+            sdocs[i] =
+                DocsStreamer.convertLuceneDocToSolrDoc(
+                    docs[i], searcher.getSchema(), getReturnFields());
+          }
+          if (returnDVFields() == false) {
+            solrReturnFields.setFieldSources(SolrReturnFields.FIELD_SOURCES.ALL_FROM_STORED);
+            return sdocs;
+          } else {
+            solrReturnFields.setFieldSources(SolrReturnFields.FIELD_SOURCES.MIXED_SOURCES);
+          }
+        } else {
+          // no need to get stored fields of the documents, see SOLR-5968
+          for (int i = 0; i < count; i++) {
+            sdocs[i] = new SolrDocument();
+          }
+          solrReturnFields.setFieldSources(SolrReturnFields.FIELD_SOURCES.ALL_FROM_DV);
+        }
+
+        // decorate the documents with non-stored docValues fields
+        if (returnDVFields()) {
+          decorateDocValueFields(sdocs, order, getDvFields());
+        }
+      } catch (IOException e) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR, "Error reading " + count + " documents", e);
+      }
+      return sdocs;
+    }
   }
 }
@@ -147,6 +147,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final long openNanoTime = System.nanoTime();
   private Date registerTime;
   private long warmupTime = 0;
+  // whether the caches are being warmed, after the searcher was registered with asyncCacheWarming
+  private volatile boolean warming;
   private final DirectoryReader reader;
   private final boolean closeReader;
 
@@ -393,7 +395,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
               ? null
               : solrConfig.queryResultCacheConfig.newInstance();
       if (queryResultCache != null) clist.add(queryResultCache);
-      SolrCache<Integer, Document> documentCache = docFetcher.getDocumentCache();
+      SolrCache<SegmentDocKey, Document> documentCache = docFetcher.getDocumentCache();
       if (documentCache != null) clist.add(documentCache);
 
       if (solrConfig.userCacheConfigs.isEmpty()) {
@@ -644,6 +646,26 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
           });
     }
 
+    if (solrConfig.documentCacheConfig != null
+        && solrConfig.documentCacheConfig.getRegenerator() == null) {
+      solrConfig.documentCacheConfig.setRegenerator(
+          new CacheRegenerator() {
+            @Override
+            public <K, V> boolean regenerateItem(
+                SolrIndexSearcher newSearcher,
+                SolrCache<K, V> newCache,
+                SolrCache<K, V> oldCache,
+                K oldKey,
+                V oldVal) {
+              // the document is carried over as is, it doesn't need to be read again
+              newSearcher
+                  .getDocFetcher()
+                  .warmDocumentCache((SegmentDocKey) oldKey, (Document) oldVal);
+              return true;
+            }
+          });
+    }
+
     if (solrConfig.filterCacheConfig != null
         && solrConfig.filterCacheConfig.getRegenerator() == null) {
       solrConfig.filterCacheConfig.setRegenerator(
@@ -1544,6 +1566,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
    * cache is not populated.
    */
   private void getDocListC(QueryResult qr, QueryCommand cmd) throws IOException {
+    final long startTime = System.nanoTime();
     DocListAndSet out = new DocListAndSet();
     qr.setDocListAndSet(out);
     QueryResultKey key = null;
@@ -1573,6 +1596,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       key =
           new QueryResultKey(q, cmd.getFilterList(), cmd.getSort(), flags, cmd.getMinExactCount());
       if ((flags & NO_CHECK_QCACHE) == 0) {
+        final CacheKeysSnapshot cacheKeysSnapshot = core.getCacheKeysSnapshot();
+        if (cacheKeysSnapshot != null) {
+          cacheKeysSnapshot.record(key);
+        }
         superset = queryResultCache.get(key);
 
         if (superset != null) {
@@ -1732,7 +1759,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // lastly, put the superset in the cache if the size is less than or equal
     // to queryResultMaxDocsCached
     if (key != null && superset.size() <= queryResultMaxDocsCached && !qr.isPartialResults()) {
-      queryResultCache.put(key, superset);
+      // the cache may decide the result is too cheap to compute to be worth caching
+      queryResultCache.put(key, superset, System.nanoTime() - startTime);
     }
   }
 
@@ -1802,6 +1830,13 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       final CursorMark cursor = cmd.getCursorMark();
 
       final FieldDoc searchAfter = (null != cursor ? cursor.getSearchAfterFieldDoc() : null);
+      if (searchAfter == null && minNumFound == Integer.MAX_VALUE && len > 0) {
+        // all the hits are counted, so no document would be skipped by the comparators anyway
+        final NumericSortKeys sortKeys = NumericSortKeys.forCollection(weightedSort.getSort());
+        if (sortKeys != null) {
+          return new NumericSortCollector(sortKeys, len);
+        }
+      }
       return TopFieldCollector.create(weightedSort, len, searchAfter, minNumFound);
     }
   }
@@ -2305,7 +2340,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
 
     // bit of a hack to tell if a set is sorted - do it better in the future.
-    boolean inOrder = set instanceof BitDocSet || set instanceof SortedIntDocSet;
+    boolean inOrder =
+        set instanceof BitDocSet
+            || set instanceof SortedIntDocSet
+            || set instanceof RoaringDocSet;
 
     TopDocsCollector<? extends ScoreDoc> topCollector = buildTopDocsCollector(nDocs, cmd);
 
@@ -2433,43 +2471,48 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   public void warm(SolrIndexSearcher old) {
     // Make sure this is first! filters can help queryResults execute!
     long warmingStartTime = System.nanoTime();
-    // warm the caches in order...
-    ModifiableSolrParams params = new ModifiableSolrParams();
-    params.add("warming", "true");
-    for (int i = 0; i < cacheList.length; i++) {
-      if (log.isDebugEnabled()) {
-        log.debug("autowarming [{}] from [{}]\n\t{}", this, old, old.cacheList[i]);
-      }
+    warming = true;
+    try {
+      // warm the caches in order...
+      ModifiableSolrParams params = new ModifiableSolrParams();
+      params.add("warming", "true");
+      for (int i = 0; i < cacheList.length; i++) {
+        if (log.isDebugEnabled()) {
+          log.debug("autowarming [{}] from [{}]\n\t{}", this, old, old.cacheList[i]);
+        }
 
-      final SolrQueryRequest req =
-          new LocalSolrQueryRequest(core, params) {
-            @Override
-            public SolrIndexSearcher getSearcher() {
-              return SolrIndexSearcher.this;
-            }
+        final SolrQueryRequest req =
+            new LocalSolrQueryRequest(core, params) {
+              @Override
+              public SolrIndexSearcher getSearcher() {
+                return SolrIndexSearcher.this;
+              }
 
-            @Override
-            public void close() {}
-          };
+              @Override
+              public void close() {}
+            };
 
-      final SolrQueryResponse rsp = new SolrQueryResponse();
-      SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
-      try {
-        cacheList[i].warm(this, old.cacheList[i]);
-      } finally {
+        final SolrQueryResponse rsp = new SolrQueryResponse();
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
         try {
-          req.close();
+          cacheList[i].warm(this, old.cacheList[i]);
         } finally {
-          SolrRequestInfo.clearRequestInfo();
+          try {
+            req.close();
+          } finally {
+            SolrRequestInfo.clearRequestInfo();
+          }
         }
-      }
 
-      if (log.isDebugEnabled()) {
-        log.debug("autowarming result for [{}]\n\t{}", this, cacheList[i]);
+        if (log.isDebugEnabled()) {
+          log.debug("autowarming result for [{}]\n\t{}", this, cacheList[i]);
+        }
       }
+      warmupTime =
+          TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+    } finally {
+      warming = false;
     }
-    warmupTime =
-        TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
   }
 
   /** return the named generic cache */
@@ -2563,6 +2606,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     parentContext.gauge(() -> cachingEnabled, true, "caching", Category.SEARCHER.toString(), scope);
     parentContext.gauge(() -> openTime, true, "openedAt", Category.SEARCHER.toString(), scope);
     parentContext.gauge(() -> warmupTime, true, "warmupTime", Category.SEARCHER.toString(), scope);
+    parentContext.gauge(() -> warming, true, "warming", Category.SEARCHER.toString(), scope);
     parentContext.gauge(
         () -> registerTime, true, "registeredAt", Category.SEARCHER.toString(), scope);
     parentContext.gauge(
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+
+/**
+ * A cache of the decompressed stored fields of documents, shared by all the searchers of a core.
+ * Unlike the document cache of a searcher, its entries are keyed by segment and by the doc ID
+ * within the segment, so they stay valid for the segments a new searcher has in common with the
+ * previous one. The entries of segments that went away are not removed, they are evicted like any
+ * other entry that isn't used anymore.
+ *
+ * <p>All the stored fields of a document are cached together, serialized to a compact byte array,
+ * whichever fields were asked for. They are replayed to the {@link StoredFieldVisitor} of a
+ * request like the stored fields reader would.
+ *
+ * <p>It is configured with {@code <storedFieldsCache/>} in the {@code <query>} section of
+ * solrconfig.xml, preferably with a {@code maxRamMB} limit since the size of the documents varies.
+ *
+ * @see org.apache.solr.core.SolrCore#getStoredFieldsCache()
+ */
+public class StoredFieldsCache implements Closeable {
+
+  private static final byte STRING = 0;
+  private static final byte BINARY = 1;
+  private static final byte INT = 2;
+  private static final byte LONG = 3;
+  private static final byte FLOAT = 4;
+  private static final byte DOUBLE = 5;
+
+  private final SolrCache<SegmentDocKey, byte[]> cache;
+
+  public StoredFieldsCache(SolrCache<SegmentDocKey, byte[]> cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Creates the cache of the given configuration.
+   *
+   * @return the cache, or null if it isn't configured or couldn't be created
+   */
+  @SuppressWarnings("unchecked")
+  public static StoredFieldsCache newInstance(CacheConfig config) {
+    if (config == null) {
+      return null;
+    }
+    SolrCache<SegmentDocKey, byte[]> cache = config.newInstance();
+    if (cache == null) {
+      return null;
+    }
+    cache.setState(SolrCache.State.LIVE);
+    return new StoredFieldsCache(cache);
+  }
+
+  /** The underlying cache, for its statistics. */
+  public SolrCache<SegmentDocKey, byte[]> getCache() {
+    return cache;
+  }
+
+  /**
+   * Visits the stored fields of a document, from the cache if possible. Otherwise all the stored
+   * fields of the document are read, and cached.
+   *
+   * @param leafReader the segment of the document
+   * @param docId the doc ID within the segment
+   * @param storedFields the stored fields of the segment to read the document with, or null to
+   *     use {@link LeafReader#storedFields()}
+   */
+  public void document(
+      LeafReader leafReader, int docId, StoredFieldVisitor visitor, StoredFields storedFields)
+      throws IOException {
+    document(leafReader, SegmentDocKey.of(leafReader, docId), docId, visitor, storedFields);
+  }
+
+  /**
+   * Like {@link #document(LeafReader, int, StoredFieldVisitor, StoredFields)}, with the key of the
+   * document if the caller has it already.
+   *
+   * @param key the key of the document, or null if its segment has no core cache key
+   */
+  public void document(
+      LeafReader leafReader,
+      SegmentDocKey key,
+      int docId,
+      StoredFieldVisitor visitor,
+      StoredFields storedFields)
+      throws IOException {
+    if (key == null) {
+      // the segment can't be told apart from others
+      (storedFields == null ? leafReader.storedFields() : storedFields).document(docId, visitor);
+      return;
+    }
+    final byte[] fields =
+        cache.computeIfAbsent(
+            key,
+            k -> {
+              final RecordingVisitor recorder = new RecordingVisitor();
+              (storedFields == null ? leafReader.storedFields() : storedFields)
+                  .document(docId, recorder);
+              return recorder.out.toArrayCopy();
+            });
+    replay(fields, leafReader.getFieldInfos(), visitor);
+  }
+
+  static void replay(byte[] fields, FieldInfos fieldInfos, StoredFieldVisitor visitor)
+      throws IOException {
+    final ByteArrayDataInput in = new ByteArrayDataInput(fields);
+    while (!in.eof()) {
+      final FieldInfo fieldInfo = fieldInfos.fieldInfo(in.readVInt());
+      final byte type = in.readByte();
+      switch (visitor.needsField(fieldInfo)) {
+        case YES:
+          readField(in, type, fieldInfo, visitor);
+          break;
+        case NO:
+          skipField(in, type);
+          break;
+        case STOP:
+          return;
+      }
+    }
+  }
+
+  private static void readField(
+      ByteArrayDataInput in, byte type, FieldInfo fieldInfo, StoredFieldVisitor visitor)
+      throws IOException {
+    switch (type) {
+      case STRING:
+        visitor.stringField(fieldInfo, in.readString());
+        break;
+      case BINARY:
+        final byte[] value = new byte[in.readVInt()];
+        in.readBytes(value, 0, value.length);
+        visitor.binaryField(fieldInfo, value);
+        break;
+      case INT:
+        visitor.intField(fieldInfo, in.readInt());
+        break;
+      case LONG:
+        visitor.longField(fieldInfo, in.readLong());
+        break;
+      case FLOAT:
+        visitor.floatField(fieldInfo, Float.intBitsToFloat(in.readInt()));
+        break;
+      case DOUBLE:
+        visitor.doubleField(fieldInfo, Double.longBitsToDouble(in.readLong()));
+        break;
+      default:
+        throw new IllegalStateException("Unknown stored field type " + type);
+    }
+  }
+
+  private static void skipField(ByteArrayDataInput in, byte type) {
+    switch (type) {
+      case STRING:
+      case BINARY:
+        in.skipBytes(in.readVInt());
+        break;
+      case INT:
+      case FLOAT:
+        in.skipBytes(Integer.BYTES);
+        break;
+      case LONG:
+      case DOUBLE:
+        in.skipBytes(Long.BYTES);
+        break;
+      default:
+        throw new IllegalStateException("Unknown stored field type " + type);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    cache.close();
+  }
+
+  /** Serializes all the stored fields of a document. */
+  private static class RecordingVisitor extends StoredFieldVisitor {
+    final ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) {
+      return Status.YES;
+    }
+
+    @Override
+    public void binaryField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      out.writeVInt(fieldInfo.number);
+      out.writeByte(BINARY);
+      out.writeVInt(value.length);
+      out.writeBytes(value, value.length);
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, String value) throws IOException {
+      out.writeVInt(fieldInfo.number);
+      out.writeByte(STRING);
+      out.writeString(value);
+    }
+
+    @Override
+    public void intField(FieldInfo fieldInfo, int value) throws IOException {
+      out.writeVInt(fieldInfo.number);
+      out.writeByte(INT);
+      out.writeInt(value);
+    }
+
+    @Override
+    public void longField(FieldInfo fieldInfo, long value) throws IOException {
+      out.writeVInt(fieldInfo.number);
+      out.writeByte(LONG);
+      out.writeLong(value);
+    }
+
+    @Override
+    public void floatField(FieldInfo fieldInfo, float value) throws IOException {
+      out.writeVInt(fieldInfo.number);
+      out.writeByte(FLOAT);
+      out.writeInt(Float.floatToIntBits(value));
+    }
+
+    @Override
+    public void doubleField(FieldInfo fieldInfo, double value) throws IOException {
+      out.writeVInt(fieldInfo.number);
+      out.writeByte(DOUBLE);
+      out.writeLong(Double.doubleToLongBits(value));
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import org.apache.lucene.util.BitUtil;
+
+/**
+ * A read write lock for the updates of {@link VersionInfo}, striped over several {@link
+ * StampedLock}s so that the threads adding updates don't all contend on the state of a single
+ * lock. A thread takes the read lock of its stripe only, while the write lock takes the write
+ * locks of all stripes.
+ *
+ * <p>Like the {@link java.util.concurrent.locks.ReentrantReadWriteLock} it replaces, the thread
+ * holding the write lock may take the read lock, which it doesn't need to wait for, and may take
+ * the write lock again. That thread has to release the read lock before it releases the write lock.
+ * The read lock isn't reentrant otherwise, and neither lock is fair.
+ *
+ * @lucene.internal
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+
+  private final StampedLock[] stripes;
+  private final Lock readLock = new ReadLock();
+  private final Lock writeLock = new WriteLock();
+
+  // the thread holding the write lock and the number of times it took it; only written by it
+  private volatile Thread writer;
+  private int writeHolds;
+
+  public StripedReadWriteLock() {
+    this(Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  public StripedReadWriteLock(int numStripes) {
+    stripes = new StampedLock[BitUtil.nextHighestPowerOfTwo(Math.max(1, numStripes))];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new StampedLock();
+    }
+  }
+
+  @Override
+  public Lock readLock() {
+    return readLock;
+  }
+
+  @Override
+  public Lock writeLock() {
+    return writeLock;
+  }
+
+  private StampedLock stripe() {
+    long id = Thread.currentThread().getId();
+    return stripes[(int) (id ^ (id >>> 32)) & (stripes.length - 1)];
+  }
+
+  private boolean isWriter() {
+    return writer == Thread.currentThread();
+  }
+
+  private class ReadLock implements Lock {
+
+    @Override
+    public void lock() {
+      if (!isWriter()) {
+        stripe().asReadLock().lock();
+      }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      if (!isWriter()) {
+        stripe().asReadLock().lockInterruptibly();
+      }
+    }
+
+    @Override
+    public boolean tryLock() {
+      return isWriter() || stripe().asReadLock().tryLock();
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      return isWriter() || stripe().asReadLock().tryLock(time, unit);
+    }
+
+    @Override
+    public void unlock() {
+      if (!isWriter()) {
+        stripe().asReadLock().unlock();
+      }
+    }
+
+    @Override
+    public Condition newCondition() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private class WriteLock implements Lock {
+
+    @Override
+    public void lock() {
+      if (isWriter()) {
+        writeHolds++;
+        return;
+      }
+      for (StampedLock stripe : stripes) {
+        stripe.asWriteLock().lock();
+      }
+      acquired();
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+      if (isWriter()) {
+        writeHolds++;
+        return;
+      }
+      int locked = 0;
+      try {
+        for (; locked < stripes.length; locked++) {
+          stripes[locked].asWriteLock().lockInterruptibly();
+        }
+      } finally {
+        if (locked < stripes.length) {
+          unlockStripes(locked);
+        }
+      }
+      acquired();
+    }
+
+    @Override
+    public boolean tryLock() {
+      if (isWriter()) {
+        writeHolds++;
+        return true;
+      }
+      for (int i = 0; i < stripes.length; i++) {
+        if (!stripes[i].asWriteLock().tryLock()) {
+          unlockStripes(i);
+          return false;
+        }
+      }
+      acquired();
+      return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+      if (isWriter()) {
+        writeHolds++;
+        return true;
+      }
+      long deadline = System.nanoTime() + unit.toNanos(time);
+      int locked = 0;
+      try {
+        for (; locked < stripes.length; locked++) {
+          long remaining = deadline - System.nanoTime();
+          if (!stripes[locked].asWriteLock().tryLock(remaining, TimeUnit.NANOSECONDS)) {
+            return false;
+          }
+        }
+      } finally {
+        if (locked < stripes.length) {
+          unlockStripes(locked);
+        }
+      }
+      acquired();
+      return true;
+    }
+
+    @Override
+    public void unlock() {
+      if (!isWriter()) {
+        throw new IllegalMonitorStateException("The write lock is not held by this thread");
+      }
+      if (--writeHolds > 0) {
+        return;
+      }
+      writer = null;
+      unlockStripes(stripes.length);
+    }
+
+    @Override
+    public Condition newCondition() {
+      throw new UnsupportedOperationException();
+    }
+
+    private void acquired() {
+      writeHolds = 1;
+      writer = Thread.currentThread();
+    }
+
+    private void unlockStripes(int count) {
+      for (int i = count - 1; i >= 0; i--) {
+        stripes[i].asWriteLock().unlock();
+      }
+    }
+  }
+}
@@ -222,6 +222,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   // This should only be used to initialize VersionInfo... the actual number of buckets may be
   // rounded up to a power of two.
   protected int numVersionBuckets;
+  // how VersionInfo locks updates, see VersionInfo#STRIPED_VERSION_LOCKING
+  protected String versionLocking;
   protected Long maxVersionFromIndex = null;
   protected boolean existOldBufferLog = false;
 
@@ -340,6 +342,10 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     return numVersionBuckets;
   }
 
+  public String getVersionLocking() {
+    return versionLocking;
+  }
+
   protected static int objToInt(Object obj, int def) {
     if (obj != null) {
       return Integer.parseInt(obj.toString());
@@ -358,6 +364,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       throw new SolrException(
           SolrException.ErrorCode.SERVER_ERROR,
           "Number of version buckets must be greater than 0!");
+    versionLocking = (String) info.initArgs.get("versionLocking");
 
     log.info(
         "Initializing UpdateLog: dataDir={} defaultSyncLevel={} numRecordsToKeep={} maxNumLogsToKeep={} numVersionBuckets={}",
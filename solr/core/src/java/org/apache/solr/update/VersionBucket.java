@@ -18,6 +18,7 @@ package org.apache.solr.update;
 
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 // TODO: make inner?
 // TODO: store the highest possible in the index on a commit (but how to not block adds?)
@@ -31,12 +32,33 @@ import java.util.concurrent.TimeUnit;
  * ignores the <code>lockTimeoutMs</code>.
  */
 public class VersionBucket {
-  public long highest;
+  private static final AtomicLongFieldUpdater<VersionBucket> HIGHEST =
+      AtomicLongFieldUpdater.newUpdater(VersionBucket.class, "highest");
+
+  /**
+   * The highest version of the bucket, or 0 until it is seeded. It is updated with compare and set,
+   * so it doesn't need the lock of the bucket.
+   */
+  public volatile long highest;
 
   public void updateHighest(long val) {
-    if (highest != 0) {
-      highest = Math.max(highest, Math.abs(val));
-    }
+    long current;
+    long next;
+    do {
+      current = highest;
+      if (current == 0) {
+        return;
+      }
+      next = Math.max(current, Math.abs(val));
+    } while (next != current && !HIGHEST.compareAndSet(this, current, next));
+  }
+
+  /** Raises the highest version of the bucket to the given one, seeding it if it wasn't yet. */
+  public void seedHighest(long val) {
+    long current;
+    do {
+      current = highest;
+    } while (current < val && !HIGHEST.compareAndSet(this, current, val));
   }
 
   @FunctionalInterface
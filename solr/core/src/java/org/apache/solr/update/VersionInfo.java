@@ -21,6 +21,7 @@ import static org.apache.solr.common.params.CommonParams.VERSION_FIELD;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.lucene.index.LeafReader;
@@ -48,10 +49,19 @@ public class VersionInfo {
   private static final String SYS_PROP_BUCKET_VERSION_LOCK_TIMEOUT_MS =
       "bucketVersionLockTimeoutMs";
 
+  /** The default locking of updates, with a fair {@link ReentrantReadWriteLock}. */
+  public static final String FAIR_VERSION_LOCKING = "fair";
+
+  /**
+   * Locks updates with a {@link StripedReadWriteLock}, so that concurrent updates don't contend
+   * on a single lock, at the expense of fairness towards {@link #blockUpdates()}.
+   */
+  public static final String STRIPED_VERSION_LOCKING = "striped";
+
   private final UpdateLog ulog;
   private final VersionBucket[] buckets;
   private SchemaField versionField;
-  final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+  final ReadWriteLock lock;
 
   private int versionBucketLockTimeoutMs;
 
@@ -103,6 +113,21 @@ public class VersionInfo {
             .get("versionBucketLockTimeoutMs")
             .intVal(
                 Integer.parseInt(System.getProperty(SYS_PROP_BUCKET_VERSION_LOCK_TIMEOUT_MS, "0")));
+    String versionLocking = ulog.getVersionLocking();
+    if (versionLocking == null || FAIR_VERSION_LOCKING.equals(versionLocking)) {
+      lock = new ReentrantReadWriteLock(true);
+    } else if (STRIPED_VERSION_LOCKING.equals(versionLocking)) {
+      lock = new StripedReadWriteLock();
+    } else {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "Unknown versionLocking: "
+              + versionLocking
+              + ", must be one of "
+              + FAIR_VERSION_LOCKING
+              + " or "
+              + STRIPED_VERSION_LOCKING);
+    }
     buckets = new VersionBucket[BitUtil.nextHighestPowerOfTwo(nBuckets)];
     for (int i = 0; i < buckets.length; i++) {
       if (versionBucketLockTimeoutMs > 0) {
@@ -169,35 +194,23 @@ public class VersionInfo {
   // Good if we want to relax some constraints to scale down to where only one node may be
   // up at a time.  Possibly harder to detect missing messages (because versions are not
   // contiguous).
-  private long vclock;
-
-  private final Object clockSync = new Object();
+  private final AtomicLong vclock = new AtomicLong();
 
   @SuppressForbidden(
       reason =
           "need currentTimeMillis just for getting realistic version stamps, does not assume monotonicity")
   public long getNewClock() {
-    synchronized (clockSync) {
-      long time = System.currentTimeMillis();
-      long result = time << 20;
-      if (result <= vclock) {
-        result = vclock + 1;
-      }
-      vclock = result;
-      return vclock;
-    }
+    long time = System.currentTimeMillis();
+    return vclock.accumulateAndGet(
+        time << 20, (clock, result) -> result <= clock ? clock + 1 : result);
   }
 
   public long getOldClock() {
-    synchronized (clockSync) {
-      return vclock;
-    }
+    return vclock.get();
   }
 
   public void updateClock(long clock) {
-    synchronized (clockSync) {
-      vclock = Math.max(vclock, clock);
-    }
+    vclock.accumulateAndGet(clock, Math::max);
   }
 
   public VersionBucket bucket(int hash) {
@@ -287,9 +300,7 @@ public class VersionInfo {
     for (int i = 0; i < buckets.length; i++) {
       // should not happen, but in case other threads are calling updateHighest on the version
       // bucket
-      synchronized (buckets[i]) {
-        if (buckets[i].highest < highestVersion) buckets[i].highest = highestVersion;
-      }
+      buckets[i].seedHighest(highestVersion);
     }
   }
 
@@ -17,13 +17,15 @@
 
 package org.apache.solr.util;
 
+import org.apache.lucene.util.Accountable;
+
 /**
  * An efficient map for storing keys as integer in range from 0..n with n can be estimated up-front.
  * By automatically switching from a hashMap (which is memory efficient) to an array (which is
  * faster) on increasing number of keys. So it SHOULD not be used for other cases where key can be
  * any arbitrary integer.
  */
-public interface DynamicMap {
+public interface DynamicMap extends Accountable {
 
   default boolean useArrayBased(int expectedKeyMax) {
     boolean assertsEnabled = false;
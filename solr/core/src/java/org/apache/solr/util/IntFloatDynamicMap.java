@@ -22,8 +22,12 @@ import com.carrotsearch.hppc.cursors.FloatCursor;
 import com.carrotsearch.hppc.procedures.IntFloatProcedure;
 import java.util.Arrays;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 
 public class IntFloatDynamicMap implements DynamicMap {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(IntFloatDynamicMap.class);
+
   private int maxSize;
   private IntFloatHashMap hashMap;
   private float[] keyValues;
@@ -113,4 +117,14 @@ public class IntFloatDynamicMap implements DynamicMap {
       hashMap.remove(key);
     }
   }
+
+  @Override
+  public long ramBytesUsed() {
+    if (keyValues != null) {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(keyValues);
+    }
+    return BASE_RAM_BYTES_USED
+        + RamUsageEstimator.sizeOf(hashMap.keys)
+        + RamUsageEstimator.sizeOf(hashMap.values);
+  }
 }
@@ -23,11 +23,19 @@ import com.carrotsearch.hppc.procedures.IntIntProcedure;
 import java.util.Arrays;
 import java.util.function.IntConsumer;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
 
 public class IntIntDynamicMap implements DynamicMap {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(IntIntDynamicMap.class);
+
   private int maxSize;
   private IntIntHashMap hashMap;
   private int[] keyValues;
+  // used instead of keyValues when packed, holds value - emptyValue so that empty is 0
+  private PackedInts.Mutable packedValues;
+  private int bitsPerValue;
   private int emptyValue;
   private int threshold;
 
@@ -47,7 +55,34 @@ public class IntIntDynamicMap implements DynamicMap {
     }
   }
 
+  /**
+   * Create map with expected max value of key, whose values are all in {@code [emptyValue,
+   * maxValue]}. Once it switches to an array, the values are packed with the bits that range needs
+   * instead of taking an int each. If {@code hashOnly}, it never switches to an array, so it only
+   * takes memory for the keys put in it, at the cost of slower lookups.
+   */
+  public IntIntDynamicMap(int expectedKeyMax, int emptyValue, int maxValue, boolean hashOnly) {
+    this.threshold = hashOnly ? Integer.MAX_VALUE : threshold(expectedKeyMax);
+    this.maxSize = expectedKeyMax;
+    this.emptyValue = emptyValue;
+    this.bitsPerValue = PackedInts.bitsRequired((long) maxValue - emptyValue);
+    if (!hashOnly && useArrayBased(expectedKeyMax)) {
+      upgradeToArray();
+    } else {
+      this.hashMap = new IntIntHashMap(hashOnly ? 4 : mapExpectedElements(expectedKeyMax));
+    }
+  }
+
   private void upgradeToArray() {
+    if (bitsPerValue > 0) {
+      packedValues = PackedInts.getMutable(maxSize, bitsPerValue, PackedInts.COMPACT);
+      if (hashMap != null) {
+        hashMap.forEach(
+            (IntIntProcedure) (key, value) -> packedValues.set(key, (long) value - emptyValue));
+        hashMap = null;
+      }
+      return;
+    }
     keyValues = new int[maxSize];
     if (emptyValue != 0) {
       Arrays.fill(keyValues, emptyValue);
@@ -59,6 +94,15 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   private void growBuffer(int minSize) {
+    if (packedValues != null) {
+      PackedInts.Mutable grown =
+          PackedInts.getMutable(
+              ArrayUtil.oversize(minSize, Integer.BYTES), bitsPerValue, PackedInts.COMPACT);
+      PackedInts.copy(
+          packedValues, 0, grown, 0, packedValues.size(), PackedInts.DEFAULT_BUFFER_SIZE);
+      packedValues = grown;
+      return;
+    }
     assert keyValues != null;
     int size = keyValues.length;
     keyValues = ArrayUtil.grow(keyValues, minSize);
@@ -70,7 +114,12 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   public void put(int key, int value) {
-    if (keyValues != null) {
+    if (packedValues != null) {
+      if (key >= packedValues.size()) {
+        growBuffer(key + 1);
+      }
+      packedValues.set(key, (long) value - emptyValue);
+    } else if (keyValues != null) {
       if (key >= keyValues.length) {
         growBuffer(key + 1);
       }
@@ -85,7 +134,12 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   public int get(int key) {
-    if (keyValues != null) {
+    if (packedValues != null) {
+      if (key >= packedValues.size()) {
+        return emptyValue;
+      }
+      return (int) (packedValues.get(key) + emptyValue);
+    } else if (keyValues != null) {
       if (key >= keyValues.length) {
         return emptyValue;
       }
@@ -96,7 +150,12 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   public void forEachValue(IntConsumer consumer) {
-    if (keyValues != null) {
+    if (packedValues != null) {
+      for (int i = 0; i < packedValues.size(); i++) {
+        long val = packedValues.get(i);
+        if (val != 0) consumer.accept((int) (val + emptyValue));
+      }
+    } else if (keyValues != null) {
       for (int val : keyValues) {
         if (val != emptyValue) consumer.accept(val);
       }
@@ -108,10 +167,24 @@ public class IntIntDynamicMap implements DynamicMap {
   }
 
   public void remove(int key) {
-    if (keyValues != null) {
+    if (packedValues != null) {
+      if (key < packedValues.size()) packedValues.set(key, 0);
+    } else if (keyValues != null) {
       if (key < keyValues.length) keyValues[key] = emptyValue;
     } else {
       hashMap.remove(key);
     }
   }
+
+  @Override
+  public long ramBytesUsed() {
+    if (packedValues != null) {
+      return BASE_RAM_BYTES_USED + packedValues.ramBytesUsed();
+    } else if (keyValues != null) {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(keyValues);
+    }
+    return BASE_RAM_BYTES_USED
+        + RamUsageEstimator.sizeOf(hashMap.keys)
+        + RamUsageEstimator.sizeOf(hashMap.values);
+  }
 }
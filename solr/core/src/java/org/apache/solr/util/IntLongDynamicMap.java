@@ -23,8 +23,12 @@ import com.carrotsearch.hppc.procedures.IntLongProcedure;
 import java.util.Arrays;
 import java.util.function.LongConsumer;
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 
 public class IntLongDynamicMap implements DynamicMap {
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(IntLongDynamicMap.class);
+
   private int maxSize;
   private IntLongHashMap hashMap;
   private long[] keyValues;
@@ -114,4 +118,14 @@ public class IntLongDynamicMap implements DynamicMap {
       hashMap.remove(key);
     }
   }
+
+  @Override
+  public long ramBytesUsed() {
+    if (keyValues != null) {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(keyValues);
+    }
+    return BASE_RAM_BYTES_USED
+        + RamUsageEstimator.sizeOf(hashMap.keys)
+        + RamUsageEstimator.sizeOf(hashMap.values);
+  }
 }
@@ -27,13 +27,22 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.lucene.index.DirectoryReader;
@@ -170,6 +179,9 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
       followerClient = null;
     }
     System.clearProperty("solr.indexfetcher.sotimeout");
+    System.clearProperty("solr.tests.fetchConcurrency");
+    System.clearProperty("solr.tests.maxReadMBPerSec");
+    System.clearProperty("solr.tests.resumableFetch");
   }
 
   static JettySolrRunner createAndStartJetty(SolrInstance instance) throws Exception {
@@ -1519,6 +1531,323 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
     assertTrue(timeTakenInSeconds - approximateTimeInSeconds > 0);
   }
 
+  @Test
+  public void doTestParallelIndexFetch() throws Exception {
+    // stop follower
+    followerJetty.stop();
+
+    nDocs--;
+    leaderClient.deleteByQuery("*:*");
+    // several commits, so that there are several segments to fetch in parallel
+    for (int i = 0; i < nDocs; i++) {
+      index(leaderClient, "id", i, "name", "name = " + i);
+      if (i % 100 == 0) leaderClient.commit();
+    }
+    leaderClient.commit();
+
+    NamedList<Object> leaderQueryRsp = rQuery(nDocs, "*:*", leaderClient);
+    SolrDocumentList leaderQueryResult = (SolrDocumentList) leaderQueryRsp.get("response");
+    assertEquals(nDocs, leaderQueryResult.getNumFound());
+
+    follower.setTestPort(leaderJetty.getLocalPort());
+    follower.copyConfigFile(CONF_DIR + "solrconfig-follower-parallel.xml", "solrconfig.xml");
+
+    // start follower
+    followerJetty = createAndStartJetty(follower);
+    followerClient.close();
+    followerClient =
+        createNewSolrClient(buildUrl(followerJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME);
+
+    // get docs from follower and check if number is equal to leader
+    NamedList<Object> followerQueryRsp = rQuery(nDocs, "*:*", followerClient);
+    SolrDocumentList followerQueryResult = (SolrDocumentList) followerQueryRsp.get("response");
+    assertEquals(nDocs, followerQueryResult.getNumFound());
+
+    // compare results
+    String cmp =
+        BaseDistributedSearchTestCase.compare(leaderQueryResult, followerQueryResult, 0, null);
+    assertNull(cmp);
+    checkForSingleIndex(followerJetty);
+  }
+
+  @Test
+  public void doTestCompressedIndexFetch() throws Exception {
+    // stop follower
+    followerJetty.stop();
+
+    nDocs--;
+    leaderClient.deleteByQuery("*:*");
+    for (int i = 0; i < nDocs; i++) {
+      index(leaderClient, "id", i, "name", "name = " + i);
+    }
+    leaderClient.commit();
+
+    NamedList<Object> leaderQueryRsp = rQuery(nDocs, "*:*", leaderClient);
+    SolrDocumentList leaderQueryResult = (SolrDocumentList) leaderQueryRsp.get("response");
+    assertEquals(nDocs, leaderQueryResult.getNumFound());
+
+    follower.setTestPort(leaderJetty.getLocalPort());
+    follower.copyConfigFile(CONF_DIR + "solrconfig-follower-compressed.xml", "solrconfig.xml");
+
+    // start follower
+    followerJetty = createAndStartJetty(follower);
+    followerClient.close();
+    followerClient =
+        createNewSolrClient(buildUrl(followerJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME);
+
+    // get docs from follower and check if number is equal to leader
+    NamedList<Object> followerQueryRsp = rQuery(nDocs, "*:*", followerClient);
+    SolrDocumentList followerQueryResult = (SolrDocumentList) followerQueryRsp.get("response");
+    assertEquals(nDocs, followerQueryResult.getNumFound());
+
+    // compare results
+    String cmp =
+        BaseDistributedSearchTestCase.compare(leaderQueryResult, followerQueryResult, 0, null);
+    assertNull(cmp);
+    checkForSingleIndex(followerJetty);
+
+    // the replication properties are written once the fetched index is opened
+    new TimeOut(30, TimeUnit.SECONDS, TimeSource.NANO_TIME)
+        .waitFor(
+            "replication properties were not written",
+            () -> {
+              try {
+                return loadFollowerReplicationProperties()
+                        .getProperty(IndexFetcher.LAST_CYCLE_BYTES_SAVED_BY_COMPRESSION)
+                    != null;
+              } catch (IOException e) {
+                return false;
+              }
+            });
+    // the postings of the repetitive names compress
+    long bytesSaved =
+        Long.parseLong(
+            loadFollowerReplicationProperties()
+                .getProperty(IndexFetcher.LAST_CYCLE_BYTES_SAVED_BY_COMPRESSION));
+    assertTrue("expected bytes saved by compression: " + bytesSaved, bytesSaved > 0);
+  }
+
+  @Test
+  public void doTestConcurrentIndexFileFetch() throws Exception {
+    useFactory(null);
+    try {
+      followerJetty.stop();
+      int totalDocs = indexLargeDocsInSegments();
+      // throttled, so that the files take a while to fetch
+      startResumableFollower(4, 0.5);
+
+      invokeReplicationCommand(followerUrl(), "fetchindex&wait=true");
+
+      assertEquals(totalDocs, numFound(rQuery(totalDocs, "*:*", followerClient)));
+      int maxConcurrentFileFetches =
+          Integer.parseInt(
+              loadFollowerReplicationProperties()
+                  .getProperty(IndexFetcher.LAST_CYCLE_MAX_CONCURRENT_FILE_FETCHES));
+      assertTrue(
+          "expected several files fetched at a time: " + maxConcurrentFileFetches,
+          maxConcurrentFileFetches > 1);
+      assertTrue(maxConcurrentFileFetches <= 4);
+    } finally {
+      resetFactory();
+    }
+  }
+
+  @Test
+  public void doTestThrottledConcurrentIndexFileFetch() throws Exception {
+    useFactory(null);
+    try {
+      followerJetty.stop();
+      int totalDocs = indexLargeDocsInSegments();
+      startResumableFollower(4, 0.1);
+
+      long startTime = System.nanoTime();
+      invokeReplicationCommand(followerUrl(), "fetchindex&wait=true");
+      double timeTakenInSeconds = (System.nanoTime() - startTime) / 1e9;
+
+      assertEquals(totalDocs, numFound(rQuery(totalDocs, "*:*", followerClient)));
+      long bytesDownloaded =
+          Long.parseLong(
+              loadFollowerReplicationProperties()
+                  .getProperty(IndexFetcher.LAST_CYCLE_BYTES_DOWNLOADED));
+      // the rate limits all the fetchers together, maxReadMBPerSec=0.1
+      double approximateTimeInSeconds = bytesDownloaded / 1024. / 1024. / 0.1;
+      log.info(
+          "bytesDownloaded = {} approximateTimeInSeconds = {} timeTakenInSeconds = {}",
+          bytesDownloaded,
+          approximateTimeInSeconds,
+          timeTakenInSeconds);
+      // the first packet is not delayed, so allow for some slack
+      assertTrue(timeTakenInSeconds > approximateTimeInSeconds / 2);
+    } finally {
+      resetFactory();
+    }
+  }
+
+  @Test
+  public void doTestResumeIndexFetchAfterRestart() throws Exception {
+    // the kept files and replication.properties have to survive the restart
+    useFactory(null);
+    try {
+      followerJetty.stop();
+      int totalDocs = indexLargeDocsInSegments();
+      String tmpIndexDirName = abortFullCopy(totalDocs);
+      Path tmpIndexDir = Paths.get(follower.getDataDir(), tmpIndexDirName);
+      Map<String, FileTime> fetchedFiles = new HashMap<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(tmpIndexDir)) {
+        for (Path file : stream) {
+          if (!file.getFileName().toString().endsWith(".lock")) {
+            fetchedFiles.put(file.getFileName().toString(), Files.getLastModifiedTime(file));
+          }
+        }
+      }
+      assertFalse(fetchedFiles.isEmpty());
+
+      // restart the follower without throttling, the kept dir is not cleaned up as an old index
+      // but the others are
+      followerJetty.stop();
+      Path oldIndexDir = Files.createDirectories(Paths.get(follower.getDataDir(), OLD_INDEX_DIR));
+      startResumableFollower(1, 0);
+      waitForDeletion(oldIndexDir);
+      assertTrue(Files.isDirectory(tmpIndexDir));
+
+      invokeReplicationCommand(followerUrl(), "fetchindex&wait=true");
+      assertEquals(totalDocs, numFound(rQuery(totalDocs, "*:*", followerClient)));
+
+      // the fetch completed in the kept dir, without fetching its files again
+      Properties indexProps = new Properties();
+      try (Reader reader =
+          Files.newBufferedReader(
+              Paths.get(follower.getDataDir(), IndexFetcher.INDEX_PROPERTIES),
+              StandardCharsets.UTF_8)) {
+        indexProps.load(reader);
+      }
+      assertEquals(tmpIndexDirName, indexProps.getProperty("index"));
+      for (Map.Entry<String, FileTime> entry : fetchedFiles.entrySet()) {
+        assertEquals(
+            entry.getKey(),
+            entry.getValue(),
+            Files.getLastModifiedTime(tmpIndexDir.resolve(entry.getKey())));
+      }
+      assertNull(
+          loadFollowerReplicationProperties().getProperty(IndexFetcher.RESUME_TMP_INDEX_DIR));
+    } finally {
+      resetFactory();
+    }
+  }
+
+  @Test
+  public void doTestDiscardResumeStateWhenNotResumable() throws Exception {
+    useFactory(null);
+    try {
+      followerJetty.stop();
+      int totalDocs = indexLargeDocsInSegments();
+      Path tmpIndexDir = Paths.get(follower.getDataDir(), abortFullCopy(totalDocs));
+
+      // once resumableFetch is off, the kept dir and its record are removed on startup
+      followerJetty.stop();
+      System.setProperty("solr.tests.resumableFetch", "false");
+      startResumableFollower(1, 0);
+      waitForDeletion(tmpIndexDir);
+      assertNull(
+          loadFollowerReplicationProperties().getProperty(IndexFetcher.RESUME_TMP_INDEX_DIR));
+
+      invokeReplicationCommand(followerUrl(), "fetchindex&wait=true");
+      assertEquals(totalDocs, numFound(rQuery(totalDocs, "*:*", followerClient)));
+    } finally {
+      resetFactory();
+    }
+  }
+
+  /** An index dir name of a long gone index, that is cleaned up as an old index dir */
+  private static final String OLD_INDEX_DIR = "index.20000101000000000";
+
+  /**
+   * Starts a resumable follower with a newer commit than the leader, so that it fetches a full
+   * copy, and aborts the fetch once a file is fetched.
+   *
+   * @return the name of the tmp index dir of the aborted fetch, recorded to resume from
+   */
+  private String abortFullCopy(int totalDocs) throws Exception {
+    // one file at a time and slowly, so that the fetch can be aborted halfway
+    startResumableFollower(1, 0.05);
+    // a commit newer than the leader's makes the follower fetch a full copy
+    followerClient.deleteByQuery("*:*");
+    index(followerClient, "id", totalDocs, "name", "follower only");
+    followerClient.commit();
+
+    invokeReplicationCommand(followerUrl(), "fetchindex");
+    TimeOut timeOut = new TimeOut(30, TimeUnit.SECONDS, TimeSource.NANO_TIME);
+    while (getFollowerDetails("numFilesDownloaded") == null
+        || Integer.parseInt(getFollowerDetails("numFilesDownloaded")) < 1) {
+      assertFalse("timed out waiting for a fetched file", timeOut.hasTimedOut());
+      Thread.sleep(50);
+    }
+    invokeReplicationCommand(followerUrl(), ReplicationHandler.CMD_ABORT_FETCH);
+    timeOut.waitFor(
+        "fetch was not aborted",
+        () -> {
+          try {
+            return "false".equals(getFollowerDetails("isReplicating"));
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+    assertEquals(1, numFound(query("*:*", followerClient)));
+
+    // the tmp index dir of the aborted fetch is recorded, with the files fetched so far
+    Properties props = loadFollowerReplicationProperties();
+    String tmpIndexDirName = props.getProperty(IndexFetcher.RESUME_TMP_INDEX_DIR);
+    assertNotNull("no tmp index dir to resume from: " + props, tmpIndexDirName);
+    return tmpIndexDirName;
+  }
+
+  private static void waitForDeletion(Path dir) throws Exception {
+    new TimeOut(30, TimeUnit.SECONDS, TimeSource.NANO_TIME)
+        .waitFor(dir + " was not deleted", () -> !Files.exists(dir));
+  }
+
+  /**
+   * Indexes docs with large fields in several commits on the leader, so that there are several
+   * files of some size to fetch.
+   */
+  private int indexLargeDocsInSegments() throws Exception {
+    leaderClient.deleteByQuery("*:*");
+    final int totalDocs = TestUtil.nextInt(random(), 40, 60);
+    for (int i = 0; i < totalDocs; i++) {
+      index(leaderClient, "id", i, "name", TestUtil.randomSimpleString(random(), 1000, 5000));
+      if (i % 10 == 9) leaderClient.commit();
+    }
+    leaderClient.commit();
+    return totalDocs;
+  }
+
+  /** Starts the follower with a resumable fetch of the given concurrency and read rate. */
+  private void startResumableFollower(int fetchConcurrency, double maxReadMBPerSec)
+      throws Exception {
+    System.setProperty("solr.tests.fetchConcurrency", String.valueOf(fetchConcurrency));
+    System.setProperty("solr.tests.maxReadMBPerSec", String.valueOf(maxReadMBPerSec));
+    follower.setTestPort(leaderJetty.getLocalPort());
+    follower.copyConfigFile(CONF_DIR + "solrconfig-follower-resumable.xml", "solrconfig.xml");
+    followerJetty = createAndStartJetty(follower);
+    followerClient.close();
+    followerClient = createNewSolrClient(followerUrl());
+  }
+
+  private String followerUrl() {
+    return buildUrl(followerJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME;
+  }
+
+  private Properties loadFollowerReplicationProperties() throws IOException {
+    Properties props = new Properties();
+    try (Reader reader =
+        Files.newBufferedReader(
+            Paths.get(follower.getDataDir(), IndexFetcher.REPLICATION_PROPERTIES),
+            StandardCharsets.UTF_8)) {
+      props.load(reader);
+    }
+    return props;
+  }
+
   @Test
   public void doTestIllegalFilePaths() {
     // Loop through the file=, cf=, tlogFile= params and prove that it throws exception for path
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler;
+
+import java.util.Arrays;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class TestReplicationPacketCompression extends SolrTestCase {
+
+  @Test
+  public void testCompressibleFiles() {
+    assertTrue(ReplicationPacketCompression.isCompressible("_0.doc"));
+    assertTrue(ReplicationPacketCompression.isCompressible("_0_Lucene90_0.dvd"));
+    assertTrue(ReplicationPacketCompression.isCompressible("_0.tim"));
+    assertFalse(ReplicationPacketCompression.isCompressible("_0.fdt"));
+    assertFalse(ReplicationPacketCompression.isCompressible("_0.cfs"));
+    assertFalse(ReplicationPacketCompression.isCompressible("segments_2"));
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ReplicationPacketCompression compression = new ReplicationPacketCompression();
+    byte[] packet = new byte[atLeast(1024)];
+    for (int i = 0; i < packet.length; i++) {
+      packet[i] = (byte) (i % 7);
+    }
+    int storedLen = compression.compress(packet, packet.length);
+    assertTrue(storedLen < packet.length);
+
+    byte[] restored = new byte[packet.length];
+    ReplicationPacketCompression.decompress(
+        compression.compressedBytes(), storedLen, restored, packet.length);
+    assertArrayEquals(packet, restored);
+  }
+
+  @Test
+  public void testIncompressiblePacketIsStoredRaw() throws Exception {
+    ReplicationPacketCompression compression = new ReplicationPacketCompression();
+    byte[] packet = new byte[atLeast(1024)];
+    random().nextBytes(packet);
+    byte[] copy = Arrays.copyOf(packet, packet.length);
+    assertEquals(packet.length, compression.compress(packet, packet.length));
+    assertArrayEquals(copy, packet);
+  }
+}
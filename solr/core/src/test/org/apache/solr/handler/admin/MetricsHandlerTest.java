@@ -18,6 +18,7 @@
 package org.apache.solr.handler.admin;
 
 import com.codahale.metrics.Counter;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
+import org.apache.solr.response.PrometheusResponseWriter;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.security.AuthorizationContext;
 import org.junit.AfterClass;
@@ -361,6 +363,67 @@ public class MetricsHandlerTest extends SolrTestCaseJ4 {
     handler.close();
   }
 
+  @Test
+  public void testPrometheus() throws Exception {
+    MetricsHandler handler = new MetricsHandler(h.getCoreContainer());
+
+    SolrQueryResponse resp = new SolrQueryResponse();
+    SolrQueryRequest req =
+        req(
+            CommonParams.QT,
+            "/admin/metrics",
+            CommonParams.WT,
+            MetricsHandler.PROMETHEUS_WT,
+            MetricsHandler.GROUP_PARAM,
+            "jetty,node,core");
+    handler.handleRequestBody(req, resp);
+    StringWriter writer = new StringWriter();
+    new PrometheusResponseWriter().write(writer, req, resp);
+    String text = writer.toString();
+
+    assertTrue(text, text.contains("# TYPE solr_metrics_jetty_solrtest_foo_total counter\n"));
+    assertTrue(text, text.contains("\nsolr_metrics_jetty_solrtest_foo_total 2\n"));
+    assertTrue(text, text.contains("\nsolr_metrics_jetty_solrtest_foo:bar_total 3\n"));
+    assertTrue(text, text.contains("\nsolr_metrics_node_container_cores_loaded 1\n"));
+    assertTrue(
+        text,
+        text.contains("\nsolr_metrics_core_searcher_new_errors_total{core=\"collection1\"} 0\n"));
+    String timer = "solr_metrics_core_query_select_requesttimes_seconds";
+    assertTrue(text, text.contains("# TYPE " + timer + " summary\n"));
+    assertTrue(
+        text, text.contains("\n" + timer + "{core=\"collection1\",quantile=\"0.99\"} "));
+    assertTrue(text, text.contains("\n" + timer + "_count{core=\"collection1\"} "));
+    // the registries not requested are left out
+    assertFalse(text, text.contains("solr_metrics_jvm_"));
+
+    // the type and prefix parameters select the metrics as with the other response formats
+    resp = new SolrQueryResponse();
+    req =
+        req(
+            CommonParams.QT,
+            "/admin/metrics",
+            CommonParams.WT,
+            MetricsHandler.PROMETHEUS_WT,
+            MetricsHandler.GROUP_PARAM,
+            "jetty,jvm",
+            MetricsHandler.TYPE_PARAM,
+            "counter",
+            MetricsHandler.PREFIX_PARAM,
+            "solrtest_");
+    handler.handleRequestBody(req, resp);
+    writer = new StringWriter();
+    new PrometheusResponseWriter().write(writer, req, resp);
+    assertEquals(
+        "# TYPE solr_metrics_jetty_solrtest_foo_total counter\n"
+            + "solr_metrics_jetty_solrtest_foo_total 2\n"
+            + "# TYPE solr_metrics_jetty_solrtest_foo:bar_total counter\n"
+            + "solr_metrics_jetty_solrtest_foo:bar_total 3\n"
+            + "# TYPE solr_metrics_jvm_solrtest_foo_total counter\n"
+            + "solr_metrics_jvm_solrtest_foo_total 1\n",
+        writer.toString());
+    handler.close();
+  }
+
   @Test
   public void testPropertyFilter() throws Exception {
     assertQ(req("*:*"), "//result[@numFound='0']");
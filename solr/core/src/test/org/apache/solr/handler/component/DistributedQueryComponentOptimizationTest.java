@@ -432,6 +432,49 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
         rsp, nonDistribRsp); // make sure distrib and distrib.singlePass return the same thing
   }
 
+  @Test
+  public void testDistribSinglePassAuto() throws Exception {
+    // payload is a single-valued docValues field, cheap to fetch for all the top docs of the shards
+    assertSinglePassAuto(true, "q", "*:*", "fl", "id,payload", "sort", "payload asc");
+    assertSinglePassAuto(true, "q", "*:*", "fl", "payload,score", "sort", "payload desc");
+    // test_sS is only stored, and fl=* may return any field
+    assertSinglePassAuto(false, "q", "*:*", "fl", "id,test_sS", "sort", "payload asc");
+    assertSinglePassAuto(false, "q", "*:*", "fl", "*", "sort", "payload asc");
+    // test_sSdv has docValues, but they aren't used as stored so the stored document is read
+    assertSinglePassAuto(false, "q", "*:*", "fl", "id,test_sSdv", "sort", "payload asc");
+    // the fields of the docs that won't be on the page would be too large
+    assertSinglePassAuto(
+        false,
+        "q",
+        "*:*",
+        "fl",
+        "id,payload",
+        "sort",
+        "payload asc",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_BYTES,
+        "10");
+  }
+
+  private void assertSinglePassAuto(boolean singlePass, String... q) throws Exception {
+    QueryResponse expected =
+        cluster.getSolrClient().query(COLLECTION, new SolrQuery("rows", "5", q));
+    SolrQuery query = new SolrQuery("rows", "5", q);
+    query.set("debug", "track");
+    query.set(ShardParams.DISTRIB_SINGLE_PASS, ShardParams.DISTRIB_SINGLE_PASS_AUTO);
+    QueryResponse rsp = cluster.getSolrClient().query(COLLECTION, query);
+    @SuppressWarnings({"unchecked"})
+    SimpleOrderedMap<Object> track = (SimpleOrderedMap<Object>) rsp.getDebugMap().get("track");
+    assertNotNull(track);
+    assertNotNull(track.get("EXECUTE_QUERY"));
+    assertEquals(
+        "distrib.singlePass=auto chose the wrong number of passes",
+        singlePass,
+        track.get("GET_FIELDS") == null);
+    assertNull(
+        BaseDistributedSearchTestCase.compare(
+            expected.getResults(), rsp.getResults(), 0, new HashMap<>()));
+  }
+
   @Test
   public void testOptimizations() throws Exception {
 
@@ -945,6 +945,21 @@ public class TestExpandComponent extends SolrTestCaseJ4 {
     assertQ(req(params), "*[count(//doc)=0]");
   }
 
+  @Test
+  public void testExpandDebugInfo() {
+    assertU(adoc("id", "1", "group_s", "group1", "test_i", "5"));
+    assertU(adoc("id", "2", "group_s", "group1", "test_i", "6"));
+    assertU(adoc("id", "3", "group_s", "group2", "test_i", "7"));
+    assertU(commit());
+
+    final String debug = "/response/lst[@name='debug']/lst[@name='expand']/lst[@name='group_s']";
+    assertQ(
+        req("q", "*:*", "fq", "{!collapse field=group_s}", "expand", "true", "debugQuery", "true"),
+        "*[count(/response/result/doc)=2]",
+        debug + "/int[@name='groups'][.='2']",
+        debug + "/long[@name='groupBitsBytes']");
+  }
+
   @Test
   public void testErrorCases() {
     String[] doc = {
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.NamedList;
+
+public class TestShardDocMerger extends SolrTestCase {
+
+  /** The merged page is the same as the one of a {@link ShardFieldSortedHitQueue}. */
+  public void testSameAsQueue() {
+    for (int iter = 0; iter < 50; iter++) {
+      SortField[] fields = randomSort();
+      ShardDocMerger merger = new ShardDocMerger(fields, null);
+      List<ShardDoc> docs = new ArrayList<>();
+      int numShards = 1 + random().nextInt(5);
+      for (int shard = 0; shard < numShards; shard++) {
+        // the values of the docs of the shard, in the order of the sort
+        int numDocs = random().nextInt(50);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+          rows.add(randomRow(fields));
+        }
+        rows.sort((a, b) -> compareRows(fields, a, b));
+
+        NamedList<List<Object>> sortFieldValues = new NamedList<>();
+        for (SortField field : fields) {
+          if (field.getType() != SortField.Type.SCORE) {
+            sortFieldValues.add(field.getField(), new ArrayList<>());
+          }
+        }
+        Object[] ids = new Object[numDocs];
+        int[] ordersInShard = new int[numDocs];
+        float[] scores = new float[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+          Object[] row = rows.get(i);
+          ShardDoc doc = new ShardDoc();
+          doc.id = shard + "_" + i;
+          doc.shard = "shard" + shard;
+          doc.orderInShard = i;
+          doc.sortFieldValues = sortFieldValues;
+          for (int f = 0; f < fields.length; f++) {
+            if (fields[f].getType() == SortField.Type.SCORE) {
+              doc.score = (Float) row[f];
+            } else {
+              sortFieldValues.get(fields[f].getField()).add(row[f]);
+            }
+          }
+          docs.add(doc);
+          ids[i] = doc.id;
+          ordersInShard[i] = i;
+          scores[i] = doc.score;
+        }
+        merger.addShard("shard" + shard, sortFieldValues, ids, ordersInShard, scores, numDocs);
+      }
+
+      int offset = random().nextInt(20);
+      int count = random().nextInt(100);
+      ShardFieldSortedHitQueue queue = new ShardFieldSortedHitQueue(fields, offset + count, null);
+      for (ShardDoc doc : docs) {
+        queue.insertWithOverflow(doc);
+      }
+      List<ShardDoc> expected = new ArrayList<>();
+      while (queue.size() > offset) {
+        expected.add(0, queue.pop());
+      }
+
+      ShardDoc[] page = merger.merge(offset, count);
+      assertEquals(expected.size(), page.length);
+      for (int i = 0; i < page.length; i++) {
+        assertEquals(expected.get(i).id, page[i].id);
+        assertEquals(expected.get(i).orderInShard, page[i].orderInShard);
+        assertEquals(i, page[i].positionInResponse);
+      }
+    }
+  }
+
+  private static SortField[] randomSort() {
+    SortField[] fields = new SortField[1 + random().nextInt(3)];
+    for (int i = 0; i < fields.length; i++) {
+      boolean reverse = random().nextBoolean();
+      switch (random().nextInt(4)) {
+        case 0:
+          fields[i] = new SortField("i" + i, SortField.Type.INT, reverse);
+          break;
+        case 1:
+          fields[i] = new SortField("d" + i, SortField.Type.DOUBLE, reverse);
+          break;
+        case 2:
+          fields[i] = new SortField(null, SortField.Type.SCORE, reverse);
+          break;
+        default:
+          // not numeric, so compared with the comparators
+          fields[i] = new SortField("s" + i, SortField.Type.STRING, reverse);
+          break;
+      }
+    }
+    return fields;
+  }
+
+  private static Object[] randomRow(SortField[] fields) {
+    Object[] row = new Object[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      // few distinct values, for ties
+      switch (fields[i].getType()) {
+        case INT:
+          row[i] = random().nextInt(3);
+          break;
+        case DOUBLE:
+          row[i] = random().nextInt(3) / 2.0;
+          break;
+        case SCORE:
+          row[i] = (float) random().nextInt(3);
+          break;
+        default:
+          row[i] = new BytesRef(Integer.toString(random().nextInt(3)));
+          break;
+      }
+    }
+    return row;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareRows(SortField[] fields, Object[] a, Object[] b) {
+    for (int i = 0; i < fields.length; i++) {
+      int c = ((Comparable) a[i]).compareTo(b[i]);
+      // the score sorts in descending order unless reversed, unlike the other fields
+      if ((fields[i].getType() == SortField.Type.SCORE) != fields[i].getReverse()) {
+        c = -c;
+      }
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.lucene.search.SortField;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.NamedList;
+
+public class TestShardFieldSortedHitQueue extends SolrTestCase {
+
+  /** Merging with the packed numeric sort keys gives the same order as with the comparators. */
+  public void testPackedSortKeys() {
+    for (int iter = 0; iter < 20; iter++) {
+      SortField[] fields = {
+        new SortField("i", SortField.Type.INT, random().nextBoolean()),
+        random().nextBoolean()
+            ? SortField.FIELD_SCORE
+            : new SortField("d", SortField.Type.DOUBLE, random().nextBoolean()),
+        new SortField("l", SortField.Type.LONG, random().nextBoolean())
+      };
+      int numShards = 1 + random().nextInt(5);
+      List<ShardDoc> docs = new ArrayList<>();
+      List<ShardDoc> copies = new ArrayList<>();
+      for (int shard = 0; shard < numShards; shard++) {
+        int numDocs = random().nextInt(50);
+        NamedList<List<Object>> sortFieldValues = new NamedList<>();
+        for (SortField field : fields) {
+          if (field.getType() != SortField.Type.SCORE) {
+            sortFieldValues.add(field.getField(), new ArrayList<>());
+          }
+        }
+        for (int i = 0; i < numDocs; i++) {
+          sortFieldValues.get("i").add(random().nextInt(3));
+          if (sortFieldValues.get("d") != null) {
+            sortFieldValues.get("d").add(random().nextInt(3) / 2.0);
+          }
+          sortFieldValues.get("l").add((long) random().nextInt(3));
+          ShardDoc doc = new ShardDoc();
+          doc.id = shard + "_" + i;
+          doc.shard = "shard" + shard;
+          doc.orderInShard = i;
+          doc.score = random().nextInt(3);
+          doc.sortFieldValues = sortFieldValues;
+          docs.add(doc);
+          ShardDoc copy = new ShardDoc();
+          copy.id = doc.id;
+          copy.shard = doc.shard;
+          copy.orderInShard = i;
+          copy.score = doc.score;
+          copy.sortFieldValues = sortFieldValues;
+          copies.add(copy);
+        }
+      }
+      int size = 1 + random().nextInt(100);
+      ShardFieldSortedHitQueue packed = new ShardFieldSortedHitQueue(fields, size, null, true);
+      ShardFieldSortedHitQueue unpacked = new ShardFieldSortedHitQueue(fields, size, null, false);
+      for (int i = 0; i < docs.size(); i++) {
+        packed.insertWithOverflow(docs.get(i));
+        unpacked.insertWithOverflow(copies.get(i));
+      }
+      assertEquals(unpacked.size(), packed.size());
+      while (unpacked.size() > 0) {
+        assertEquals(unpacked.pop().id, packed.pop().id);
+      }
+    }
+  }
+}
@@ -53,6 +53,7 @@ import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.schema.TrieDateField;
+import org.apache.solr.search.SolrDocumentFetcher;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
 import org.apache.solr.util.RefCounted;
@@ -226,6 +227,51 @@ public class TestRetrieveFieldsOptimizer extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testFetchDocsTogether() throws Exception {
+    String flAll =
+        fieldsHolder.allFields.stream()
+            .map(RetrieveField::getName)
+            .collect(Collectors.joining(","));
+    String flDv =
+        idNotStoredDv
+            + ","
+            + fieldsHolder.dvNotStoredFields.stream()
+                .filter(field -> !fieldsHolder.multiValuedFields.contains(field))
+                .map(RetrieveField::getName)
+                .collect(Collectors.joining(","));
+
+    SolrQueryRequest req = req();
+    RefCounted<SolrIndexSearcher> refCounted = h.getCore().getSearcher();
+    try {
+      SolrIndexSearcher searcher = refCounted.get();
+      SolrDocumentFetcher docFetcher = searcher.getDocFetcher();
+      // all documents in random order, with one of them twice
+      List<Integer> shuffled = new ArrayList<>();
+      for (int i = 0; i < searcher.maxDoc(); i++) {
+        shuffled.add(i);
+      }
+      Collections.shuffle(shuffled, random());
+      shuffled.add(shuffled.get(random().nextInt(shuffled.size())));
+      int[] docIds = shuffled.stream().mapToInt(Integer::intValue).toArray();
+
+      for (String fl : Arrays.asList(flAll, flDv)) {
+        SolrReturnFields together = new SolrReturnFields(fl, req);
+        SolrDocument[] docs = docFetcher.solrDocs(docIds, docIds.length, together);
+        assertEquals(docIds.length, docs.length);
+        SolrReturnFields oneByOne = new SolrReturnFields(fl, req);
+        for (int i = 0; i < docIds.length; i++) {
+          SolrDocument expected = docFetcher.solrDoc(docIds[i], oneByOne);
+          assertEquals(expected.toString(), docs[i].toString());
+        }
+        assertEquals(oneByOne.getFieldSources(), together.getFieldSources());
+      }
+    } finally {
+      refCounted.decref();
+      req.close();
+    }
+  }
+
   @SuppressWarnings({"unchecked", "rawtypes"})
   private void checkFetchSources(SolrReturnFields.FIELD_SOURCES source) throws Exception {
     String flAll =
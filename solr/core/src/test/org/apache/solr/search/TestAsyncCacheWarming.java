@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import com.codahale.metrics.Gauge;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** With asyncCacheWarming, a new searcher is registered before its caches are warmed. */
+public class TestAsyncCacheWarming extends SolrTestCaseJ4 {
+
+  private static volatile CountDownLatch release;
+  private static volatile CountDownLatch warmed;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.asyncCacheWarming", "true");
+    initCore("solrconfig.xml", "schema.xml");
+    // the new searcher listeners run after warming, on the same thread
+    h.getCore().registerNewSearcherListener(new BlockingListener());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.asyncCacheWarming");
+    if (release != null) {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testRegisteredBeforeWarming() throws Exception {
+    assertU(adoc("id", "1", "foo_s", "a"));
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "foo_s:a"), "//result[@numFound='1']");
+    assertQ(req("q", "*:*", "fq", "foo_s:b"), "//result[@numFound='0']");
+
+    release = new CountDownLatch(1);
+    warmed = new CountDownLatch(1);
+    assertU(adoc("id", "2", "foo_s", "b"));
+    // returns once the new searcher is registered, although it can't finish warming
+    assertU(commit());
+    assertQ(req("q", "*:*"), "//result[@numFound='2']");
+    assertEquals(1L, warmed.getCount());
+
+    release.countDown();
+    assertTrue(warmed.await(30, TimeUnit.SECONDS));
+    Map<String, Object> stats = cacheStats("filterCache");
+    assertEquals(2, stats.get("warmupEntries"));
+    assertEquals(0, stats.get("warmupPending"));
+    assertEquals(Boolean.FALSE, searcherGauge("warming").getValue());
+    // the warmed entries were regenerated for the new searcher
+    assertQ(req("q", "*:*", "fq", "foo_s:b"), "//result[@numFound='1']");
+  }
+
+  private static class BlockingListener implements SolrEventListener {
+    @Override
+    public void init(NamedList<?> args) {}
+
+    @Override
+    public void postCommit() {}
+
+    @Override
+    public void postSoftCommit() {}
+
+    @Override
+    public void newSearcher(SolrIndexSearcher newSearcher, SolrIndexSearcher currentSearcher) {
+      final CountDownLatch latch = release;
+      if (latch == null) {
+        return;
+      }
+      try {
+        latch.await(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      warmed.countDown();
+    }
+  }
+
+  private static Gauge<?> searcherGauge(String name) {
+    return ((SolrMetricManager.GaugeWrapper<?>)
+            h.getCore()
+                .getCoreMetricManager()
+                .getRegistry()
+                .getMetrics()
+                .get("SEARCHER.searcher." + name))
+        .getGauge();
+  }
+
+  private static Map<String, Object> cacheStats(String cacheName) {
+    return ((MetricsMap)
+            ((SolrMetricManager.GaugeWrapper<?>)
+                    h.getCore()
+                        .getCoreMetricManager()
+                        .getRegistry()
+                        .getMetrics()
+                        .get("CACHE.searcher." + cacheName))
+                .getGauge())
+        .getValue();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** The requests of the hottest query result cache keys are saved, and replayed. */
+public class TestCacheKeysSnapshot extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.cacheKeysSnapshot.enabled", "true");
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.cacheKeysSnapshot.enabled");
+  }
+
+  @Test
+  public void testSaveAndReplay() throws Exception {
+    assertU(adoc("id", "1", "foo_s", "a"));
+    assertU(adoc("id", "2", "foo_s", "b"));
+    assertU(commit());
+
+    select("q", "id:1");
+    select("q", "*:*", "fq", "foo_s:b", "sort", "id desc", "NOW", "1000");
+    select("q", "*:*", "fq", "foo_s:b", "sort", "id desc", "NOW", "2000");
+    // not a request to a handler, it can't be replayed
+    assertQ(req("q", "id:2"), "//result[@numFound='1']");
+
+    final CacheKeysSnapshot snapshot = h.getCore().getCacheKeysSnapshot();
+    snapshot.save();
+    final List<String> lines = Files.readAllLines(snapshot.getFile(), StandardCharsets.UTF_8);
+    assertEquals(lines.toString(), 2, lines.size());
+    for (String line : lines) {
+      assertTrue(line, line.startsWith("/select?"));
+      assertFalse(line, line.contains("NOW="));
+    }
+    assertTrue(lines.toString(), lines.stream().anyMatch(line -> line.contains("q=id%3A1")));
+
+    long lookups = (Long) cacheStats().get("lookups");
+    assertEquals(2, h.getCore().withSearcher(snapshot::replay).intValue());
+    assertEquals(lookups + 2, cacheStats().get("lookups"));
+
+    // the warm budget is honored
+    final CacheKeysSnapshot limited =
+        new CacheKeysSnapshot(
+            h.getCore(), new CacheKeysSnapshot.Config(16, 1, 60000, 300), snapshot.getFile());
+    assertEquals(1, h.getCore().withSearcher(limited::replay).intValue());
+  }
+
+  private static void select(String... params) throws Exception {
+    final SolrQueryRequest req = req(params);
+    req.getContext().put("path", "/select");
+    h.query("/select", req);
+  }
+
+  private static Map<String, Object> cacheStats() {
+    return ((MetricsMap)
+            ((SolrMetricManager.GaugeWrapper<?>)
+                    h.getCore()
+                        .getCoreMetricManager()
+                        .getRegistry()
+                        .getMetrics()
+                        .get("CACHE.searcher.queryResultCache"))
+                .getGauge())
+        .getValue();
+  }
+}
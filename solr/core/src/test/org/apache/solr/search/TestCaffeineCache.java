@@ -355,4 +355,124 @@ public class TestCaffeineCache extends SolrTestCase {
     cache.close();
     assertEquals(emptySize, cache.ramBytesUsed());
   }
+
+  @Test
+  public void testCostAwareAdmission() {
+    CaffeineCache<Integer, String> cache = new CaffeineCache<>();
+    SolrMetricsContext solrMetricsContext = new SolrMetricsContext(metricManager, registry, "foo");
+    cache.initializeMetrics(solrMetricsContext, scope + "-admission");
+    Map<String, String> params =
+        Map.of(
+            SolrCache.SIZE_PARAM, "100",
+            CaffeineCache.ADMIT_COST_MS_PARAM, "10",
+            SolrCache.ASYNC_PARAM, Boolean.FALSE.toString());
+    cache.init(params, null, new NoOpRegenerator());
+    long ms = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // expensive enough to cache after a single lookup
+    assertNull(cache.get(1));
+    cache.put(1, "1", 20 * ms);
+    // too cheap for how rarely it's looked up
+    assertNull(cache.get(2));
+    cache.put(2, "2", 2 * ms);
+    assertNull(cache.get(2));
+    // but worth it once it's looked up often enough
+    for (int i = 0; i < 4; i++) {
+      cache.get(2);
+    }
+    cache.put(2, "2", 2 * ms);
+    // values without a cost are always cached
+    cache.put(3, "3");
+
+    assertEquals("1", cache.get(1));
+    assertEquals("2", cache.get(2));
+    assertEquals("3", cache.get(3));
+    Map<String, Object> nl = cache.getMetricsMap().getValue();
+    assertEquals(2L, nl.get("admitted"));
+    assertEquals(1L, nl.get("rejected"));
+    assertEquals(22L, nl.get("timeSavedMs"));
+    assertEquals(3L, nl.get("inserts"));
+  }
+
+  @Test
+  public void testWarmKeepsCosts() {
+    SolrMetricsContext solrMetricsContext = new SolrMetricsContext(metricManager, registry, "foo");
+    Map<String, String> params =
+        Map.of(
+            SolrCache.SIZE_PARAM, "100",
+            "autowarmCount", "100",
+            CaffeineCache.ADMIT_COST_MS_PARAM, "10",
+            SolrCache.ASYNC_PARAM, Boolean.FALSE.toString());
+    NoOpRegenerator regenerator = new NoOpRegenerator();
+    CaffeineCache<Integer, String> cache = new CaffeineCache<>();
+    cache.initializeMetrics(solrMetricsContext, scope + "-costs-1");
+    Object initObj = cache.init(params, null, regenerator);
+    cache.setState(SolrCache.State.LIVE);
+    cache.put(1, "1", TimeUnit.MILLISECONDS.toNanos(20));
+
+    CaffeineCache<Integer, String> newCache = new CaffeineCache<>();
+    newCache.initializeMetrics(solrMetricsContext, scope + "-costs-2");
+    newCache.init(params, initObj, regenerator);
+    newCache.warm(null, cache);
+    newCache.setState(SolrCache.State.LIVE);
+
+    // the warmed entry saves as much time as in the old cache
+    assertEquals("1", newCache.get(1));
+    assertEquals(20L, newCache.getMetricsMap().getValue().get("timeSavedMs"));
+  }
+
+  @Test
+  public void testFrequencySketch() {
+    FrequencySketch sketch = new FrequencySketch(64);
+    for (int i = 0; i < 20; i++) {
+      sketch.increment("hot");
+      if (i < 3) {
+        sketch.increment("warm");
+      }
+    }
+    assertEquals(15, sketch.frequency("hot"));
+    assertTrue(sketch.frequency("warm") >= 3);
+    assertTrue(sketch.frequency("cold") <= 1);
+
+    // the frequencies decay as other keys are seen
+    for (int i = 0; i < 10 * 64; i++) {
+      sketch.increment(i);
+    }
+    assertTrue(sketch.frequency("hot") < 15);
+  }
+
+  @Test
+  public void testFrequencySketchConcurrentIncrements() throws Exception {
+    // large enough for the counters not to be halved
+    FrequencySketch sketch = new FrequencySketch(1 << 16);
+    int numThreads = TestUtil.nextInt(random(), 2, 8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int thread = t;
+      threads.add(
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                  return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                  sketch.increment("hot");
+                  sketch.increment(thread * 1000 + i);
+                }
+              }));
+    }
+    threads.forEach(Thread::start);
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // some keys may be dropped while the counters are busy, but not most of them
+    assertEquals(15, sketch.frequency("hot"));
+    assertTrue(sketch.frequency("cold") <= 1);
+  }
 }
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import static org.apache.solr.common.util.Utils.fromJSONString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Collapsing on a String field with the {@link CollapsingQParserPlugin#COLLAPSE_CACHE} enabled
+ * gives the same results as without it, and the cache is reused across requests and searchers.
+ */
+public class TestCollapseCache extends SolrTestCaseJ4 {
+
+  // min/max of a numeric field caches the group heads, the other selectors only the ordinals
+  private static final String[] SELECTORS = {
+    "max=test_i", "min=test_l", "max=test_f", "max=sum(test_i,test_l)", "sort='test_i desc'", ""
+  };
+
+  private static final String[] QUERIES = {"*:*", "term_s:a", "term_s:b"};
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    if (Boolean.getBoolean(NUMERIC_POINTS_SYSPROP))
+      System.setProperty(NUMERIC_DOCVALUES_SYSPROP, "true");
+    System.setProperty("solr.collapseCache.enabled", "true");
+    initCore("solrconfig-collapseqparser.xml", "schema11.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.collapseCache.enabled");
+  }
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    clearIndex();
+    assertU(commit());
+  }
+
+  @Test
+  public void testCachedSameAsUncached() throws Exception {
+    indexDocs();
+    assertSameAsUncached();
+
+    // the entries rebuilt for the new searcher follow deletes and updates
+    assertU(delI("3"));
+    assertU(delI("17"));
+    assertU(adoc("id", "8", "group_s", "g3", "test_i", "100", "test_l", "-5", "test_f", "0.1"));
+    assertU(adoc("id", "40", "group_s", "g5", "test_i", "1", "test_l", "1", "test_f", "1"));
+    assertU(commit());
+    assertSameAsUncached();
+  }
+
+  @Test
+  public void testCacheReuse() throws Exception {
+    indexDocs();
+    // entries of earlier tests are carried over by warming
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              searcher.getCache(CollapsingQParserPlugin.COLLAPSE_CACHE).clear();
+              return null;
+            });
+
+    collapse("*:*", "max=test_i");
+    // the same key, whatever the query
+    collapse("term_s:a", "max=test_i");
+    collapse("*:*", "min=test_i");
+    // both only cache the ordinals
+    collapse("*:*", "sort='test_i desc'");
+    collapse("*:*", "");
+    Map<String, Object> stats = collapseCacheStats();
+    assertEquals(5L, stats.get("lookups"));
+    assertEquals(2L, stats.get("hits"));
+    assertEquals(3L, stats.get("inserts"));
+    assertEquals(3, stats.get("size"));
+
+    // the entries are regenerated when the new searcher is warmed
+    assertU(adoc("id", "40", "group_s", "g1", "test_i", "1", "test_l", "1", "test_f", "1"));
+    assertU(commit());
+    stats = collapseCacheStats();
+    assertEquals(3, stats.get("warmupEntries"));
+    assertEquals(3, stats.get("size"));
+
+    collapse("term_s:b", "max=test_i");
+    collapse("*:*", "");
+    stats = collapseCacheStats();
+    assertEquals(2L, stats.get("lookups"));
+    assertEquals(2L, stats.get("hits"));
+    assertEquals(0L, stats.get("inserts"));
+  }
+
+  /** Docs in several segments, some of them without a group. */
+  private void indexDocs() {
+    for (int i = 0; i < 40; i++) {
+      List<String> fields = new ArrayList<>();
+      fields.add("id");
+      fields.add(Integer.toString(i));
+      if (i % 9 != 0) {
+        fields.add("group_s");
+        fields.add("g" + (i % 5));
+      }
+      fields.add("test_i");
+      fields.add(Integer.toString((i * 7) % 13));
+      fields.add("test_l");
+      fields.add(Integer.toString((i * 11) % 17));
+      fields.add("test_f");
+      fields.add(Float.toString((i * 3) % 7 + 0.5f));
+      fields.add("term_s");
+      fields.add(i % 2 == 0 ? "a" : "b");
+      assertU(adoc(fields.toArray(new String[0])));
+      if (i % 10 == 9) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+  }
+
+  private void assertSameAsUncached() throws Exception {
+    for (String q : QUERIES) {
+      for (String selector : SELECTORS) {
+        // the top level field cache doesn't go through the collapse cache
+        assertEquals(
+            q + " " + selector,
+            collapse(q, selector + " hint=top_fc"),
+            collapse(q, selector));
+      }
+    }
+  }
+
+  /** The ids of the group heads, in id order. */
+  private List<Object> collapse(String q, String collapseParams) throws Exception {
+    // the main query isn't cached, so that the collapse runs every time
+    String response =
+        JQ(
+            req(
+                "q", "{!cache=false}" + q,
+                "fq", "{!collapse field=group_s " + collapseParams + "}",
+                "fl", "id",
+                "sort", "id asc",
+                "rows", "100"));
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, List<Map<String, Object>>>> rsp =
+        (Map<String, Map<String, List<Map<String, Object>>>>) fromJSONString(response);
+    List<Object> ids = new ArrayList<>();
+    for (Map<String, Object> doc : rsp.get("response").get("docs")) {
+      ids.add(doc.get("id"));
+    }
+    return ids;
+  }
+
+  private Map<String, Object> collapseCacheStats() throws Exception {
+    return h.getCore()
+        .withSearcher(
+            searcher -> {
+              SolrCache<?, ?> cache = searcher.getCache(CollapsingQParserPlugin.COLLAPSE_CACHE);
+              return ((CaffeineCache<?, ?>) cache).getMetricsMap().getValue();
+            });
+  }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.solr.search;
 
+import static org.apache.solr.common.util.Utils.fromJSONString;
 import static org.hamcrest.core.StringContains.containsString;
 
 import java.util.ArrayList;
@@ -24,9 +25,12 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.SparseFixedBitSet;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
@@ -35,6 +39,7 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.search.CollapsingQParserPlugin.GroupHeadSelector;
 import org.apache.solr.search.CollapsingQParserPlugin.GroupHeadSelectorType;
 import org.hamcrest.MatcherAssert;
+import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -45,9 +50,16 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
     // we need DVs on point fields to compute stats & facets
     if (Boolean.getBoolean(NUMERIC_POINTS_SYSPROP))
       System.setProperty(NUMERIC_DOCVALUES_SYSPROP, "true");
+    // randomly collapse on String fields through the cached ordinals and group heads
+    System.setProperty("solr.collapseCache.enabled", String.valueOf(random().nextBoolean()));
     initCore("solrconfig-collapseqparser.xml", "schema11.xml");
   }
 
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.collapseCache.enabled");
+  }
+
   @Override
   @Before
   public void setUp() throws Exception {
@@ -281,6 +293,132 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
     assertQ(req(params), "*[count(//doc)=1]", "//result/doc[1]/str[@name='id'][.='2']");
   }
 
+  @Test
+  public void testMinMaxCollapseOnSubsetOfGroup() {
+    // the head of group1 across the index is doc 3 (max) or doc 2 (min), but filters may exclude it
+    assertU(adoc("id", "1", "group_s", "group1", "test_i", "5", "term_s", "a"));
+    assertU(adoc("id", "2", "group_s", "group1", "test_i", "1", "term_s", "b"));
+    assertU(commit());
+    assertU(adoc("id", "3", "group_s", "group1", "test_i", "9", "term_s", "a"));
+    assertU(adoc("id", "4", "group_s", "group1", "test_i", "9", "term_s", "b"));
+    assertU(adoc("id", "5", "group_s", "group2", "test_i", "7", "term_s", "a"));
+    assertU(commit());
+
+    assertQ(
+        req("q", "*:*", "fq", "{!collapse field=group_s max=test_i}", "sort", "id_i asc"),
+        "*[count(//doc)=2]",
+        "//result/doc[1]/str[@name='id'][.='3']",
+        "//result/doc[2]/str[@name='id'][.='5']");
+    assertQ(
+        req("q", "term_s:b", "fq", "{!collapse field=group_s max=test_i}"),
+        "*[count(//doc)=1]",
+        "//result/doc[1]/str[@name='id'][.='4']");
+    assertQ(
+        req("q", "term_s:a", "fq", "{!collapse field=group_s min=test_i}", "sort", "id_i asc"),
+        "*[count(//doc)=2]",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='5']");
+
+    // the heads must follow deletes and updates
+    assertU(delI("3"));
+    assertU(adoc("id", "2", "group_s", "group1", "test_i", "10", "term_s", "b"));
+    assertU(commit());
+    assertQ(
+        req("q", "*:*", "fq", "{!collapse field=group_s max=test_i}", "sort", "id_i asc"),
+        "*[count(//doc)=2]",
+        "//result/doc[1]/str[@name='id'][.='2']",
+        "//result/doc[2]/str[@name='id'][.='5']");
+    assertQ(
+        req("q", "term_s:a", "fq", "{!collapse field=group_s max=test_i}", "sort", "id_i asc"),
+        "*[count(//doc)=2]",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='5']");
+  }
+
+  @Test
+  public void testCollapseDebugInfo() {
+    assertU(adoc("id", "1", "group_s", "group1", "test_i", "5"));
+    assertU(adoc("id", "2", "group_s", "group1", "test_i", "6"));
+    assertU(adoc("id", "3", "group_s", "group2", "test_i", "7"));
+    assertU(commit());
+
+    final String debug = "/response/lst[@name='debug']/lst[@name='collapse']/lst[@name='group_s']";
+    assertQ(
+        req("q", "*:*", "fq", "{!collapse field=group_s}", "debugQuery", "true"),
+        "*[count(/response/result/doc)=2]",
+        debug + "/str[@name='collector'][.='OrdScoreCollector']",
+        debug + "/long[@name='collapsedSetBytes']",
+        debug + "/long[@name='totalBytes']");
+    assertQ(
+        req("q", "*:*", "fq", "{!collapse field=group_s max=test_i}", "debugQuery", "true"),
+        "*[count(/response/result/doc)=2]",
+        debug + "/str[@name='collector'][.='OrdFieldValueCollector']",
+        debug + "/long[@name='groupHeadBytes']");
+  }
+
+  @Test
+  public void testCollapseMemoryBudget() throws Exception {
+    for (int i = 0; i < 300; i++) {
+      assertU(adoc("id", Integer.toString(i), "group_s", "group" + (i % 150), "test_i", "" + i));
+    }
+    assertU(commit());
+
+    for (String collapse :
+        new String[] {"{!collapse field=group_s}", "{!collapse field=group_s max=test_i}"}) {
+      // no budget, then one the collapsed set and an int per group don't fit in
+      final long unbudgeted = groupHeadBytes("*:*", collapse, null);
+      final long packed = groupHeadBytes("*:*", collapse, Long.toString(150 * Integer.BYTES));
+      assertTrue(packed < unbudgeted);
+      assertQ(
+          req(
+              "q", "*:*",
+              "fq", collapse,
+              "sort", "id asc",
+              CollapsingQParserPlugin.COLLAPSE_MEMORY_BUDGET, "1"),
+          "*[count(//doc)=10]",
+          "//result/doc[1]/str[@name='id'][.='" + (collapse.contains("max") ? "150" : "0") + "']");
+
+      // the packed map doesn't fit either, so only the groups with a head take memory
+      final String q = "id:(1 OR 2 OR 3)";
+      assertTrue(groupHeadBytes(q, collapse, "1") < groupHeadBytes(q, collapse, null));
+      assertQ(
+          req("q", q, "fq", collapse, CollapsingQParserPlugin.COLLAPSE_MEMORY_BUDGET, "1"),
+          "*[count(//doc)=3]");
+    }
+  }
+
+  private long groupHeadBytes(String q, String collapse, String memoryBudget) throws Exception {
+    ModifiableSolrParams params =
+        params("q", q, "fq", collapse, "debugQuery", "true", "wt", "json");
+    if (memoryBudget != null) {
+      params.set(CollapsingQParserPlugin.COLLAPSE_MEMORY_BUDGET, memoryBudget);
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, Map<String, Map<String, Object>>>> rsp =
+        (Map<String, Map<String, Map<String, Map<String, Object>>>>)
+            fromJSONString(JQ(req(params)));
+    Map<String, Object> dbg = rsp.get("debug").get("collapse").get("group_s");
+    if (memoryBudget != null) {
+      assertEquals(Long.valueOf(memoryBudget), dbg.get("memoryBudget"));
+    }
+    return ((Number) dbg.get("groupHeadBytes")).longValue();
+  }
+
+  @Test
+  public void testNewCollapsedSet() {
+    final int ignore = CollapsingQParserPlugin.NullPolicy.IGNORE.getCode();
+    final int expand = CollapsingQParserPlugin.NullPolicy.EXPAND.getCode();
+    assertTrue(
+        CollapsingQParserPlugin.newCollapsedSet(1 << 20, 100, ignore, 0)
+            instanceof SparseFixedBitSet);
+    assertTrue(
+        CollapsingQParserPlugin.newCollapsedSet(1 << 20, 1 << 19, ignore, 0)
+            instanceof FixedBitSet);
+    // docs without a value are all heads when nulls are expanded
+    assertTrue(
+        CollapsingQParserPlugin.newCollapsedSet(1 << 20, 100, expand, 0) instanceof FixedBitSet);
+  }
+
   @Test // https://issues.apache.org/jira/browse/SOLR-9494
   public void testNeedsScoreBugFixed() {
     String[] doc = {"id", "1", "group_s", "xyz", "text_ws", "hello xxx world"};
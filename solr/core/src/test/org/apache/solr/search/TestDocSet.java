@@ -107,6 +107,10 @@ public class TestDocSet extends SolrTestCase {
     return new BitDocSet(bs);
   }
 
+  public DocSet getRoaringDocSet(FixedBitSet bs) {
+    return RoaringDocSet.of(bs);
+  }
+
   public DocSlice getDocSlice(FixedBitSet bs) {
     int len = bs.cardinality();
     int[] arr = new int[len + 5];
@@ -128,7 +132,7 @@ public class TestDocSet extends SolrTestCase {
   }
 
   public DocSet getDocSet(FixedBitSet bs) {
-    switch (rand.nextInt(9)) {
+    switch (rand.nextInt(11)) {
       case 0:
       case 1:
       case 2:
@@ -145,6 +149,10 @@ public class TestDocSet extends SolrTestCase {
         return getIntDocSet(bs);
       case 8:
         return getIntDocSet(bs);
+
+      case 9:
+      case 10:
+        return getRoaringDocSet(bs);
     }
     return null;
   }
@@ -578,16 +586,18 @@ public class TestDocSet extends SolrTestCase {
   }
 
   /**
-   * Tests equivalence among {@link DocIdSetIterator} instances retrieved from {@link BitDocSet} and
-   * {@link SortedIntDocSet} implementations, via {@link DocSet#makeQuery()} and directly via {@link
-   * DocSet#iterator(LeafReaderContext)}. Also tests corresponding random-access {@link Bits}
-   * instances retrieved via {@link DocSet#makeQuery()}/ {@link DocIdSet#bits()}.
+   * Tests equivalence among {@link DocIdSetIterator} instances retrieved from {@link BitDocSet},
+   * {@link SortedIntDocSet} and {@link RoaringDocSet} implementations, via {@link
+   * DocSet#makeQuery()} and directly via {@link DocSet#iterator(LeafReaderContext)}. Also tests
+   * corresponding random-access {@link Bits} instances retrieved via {@link DocSet#makeQuery()}/
+   * {@link DocIdSet#bits()}.
    */
   public void doFilterTest(IndexReader reader) throws IOException {
     IndexReaderContext topLevelContext = reader.getContext();
     FixedBitSet bs = getRandomSet(reader.maxDoc(), rand.nextInt(reader.maxDoc() + 1));
     DocSet a = new BitDocSet(bs);
     DocSet b = getIntDocSet(bs);
+    DocSet c = getRoaringDocSet(bs);
 
     //    Query fa = a.makeQuery();
     //    Query fb = b.makeQuery();
@@ -607,7 +617,8 @@ public class TestDocSet extends SolrTestCase {
       doTestIteratorEqual(
           getExpectedBits(a, readerContext),
           () -> a.iterator(readerContext),
-          () -> b.iterator(readerContext));
+          () -> b.iterator(readerContext),
+          () -> c.iterator(readerContext));
     }
 
     int nReaders = leaves.size();
@@ -617,7 +628,8 @@ public class TestDocSet extends SolrTestCase {
       doTestIteratorEqual(
           getExpectedBits(a, readerContext),
           () -> a.iterator(readerContext),
-          () -> b.iterator(readerContext));
+          () -> b.iterator(readerContext),
+          () -> c.iterator(readerContext));
     }
   }
 
@@ -633,6 +645,95 @@ public class TestDocSet extends SolrTestCase {
     }
   }
 
+  /** Sets spanning several roaring blocks, each either empty, sparse, or dense. */
+  public void testRoaringDocSetBlocks() {
+    for (int iter = 0; iter < 20; iter++) {
+      int maxDoc = RoaringDocSet.BLOCK_SIZE + rand.nextInt(3 * RoaringDocSet.BLOCK_SIZE);
+      FixedBitSet bs1 = getRandomBlocks(maxDoc);
+      FixedBitSet bs2 = getRandomBlocks(maxDoc);
+      DocSet r1 = getRoaringDocSet(bs1);
+      DocSet r2 = getRoaringDocSet(bs2);
+
+      RoaringDocSet.Builder builder = new RoaringDocSet.Builder(maxDoc);
+      for (int doc = bs1.nextSetBit(0);
+          doc != DocIdSetIterator.NO_MORE_DOCS;
+          doc = doc + 1 < maxDoc ? bs1.nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+        builder.add(doc);
+      }
+      DocSet built = builder.build();
+      assertEquals(r1.size(), built.size());
+      assertEquals(r1.ramBytesUsed(), built.ramBytesUsed());
+      iter(r1, built);
+
+      assertEquals(bs1.cardinality(), r1.size());
+      iter(new BitDocSet(bs1), r1);
+      assertEquals(bs1, r1.getFixedBitSet());
+
+      FixedBitSet and = bs1.clone();
+      and.and(bs2);
+      FixedBitSet or = bs1.clone();
+      or.or(bs2);
+      FixedBitSet andNot = bs1.clone();
+      andNot.andNot(bs2);
+      for (DocSet other : new DocSet[] {r2, getBitDocSet(bs2), getIntDocSet(bs2)}) {
+        iter(new BitDocSet(and), r1.intersection(other));
+        iter(new BitDocSet(and), other.intersection(r1));
+        assertEquals(and.cardinality(), r1.intersectionSize(other));
+        assertEquals(and.cardinality(), other.intersectionSize(r1));
+        assertEquals(and.cardinality() > 0, r1.intersects(other));
+        iter(new BitDocSet(or), r1.union(other));
+        assertEquals(or.cardinality(), other.unionSize(r1));
+        iter(new BitDocSet(andNot), r1.andNot(other));
+        assertEquals(andNot.cardinality(), r1.andNotSize(other));
+      }
+
+      FixedBitSet target = new FixedBitSet(maxDoc);
+      r2.addAllTo(target);
+      assertEquals(bs2, target);
+    }
+  }
+
+  /** Builds a set whose blocks of {@link RoaringDocSet#BLOCK_SIZE} docs have random densities. */
+  private FixedBitSet getRandomBlocks(int maxDoc) {
+    FixedBitSet bs = new FixedBitSet(maxDoc);
+    for (int start = 0; start < maxDoc; start += RoaringDocSet.BLOCK_SIZE) {
+      int end = Math.min(start + RoaringDocSet.BLOCK_SIZE, maxDoc);
+      switch (rand.nextInt(4)) {
+        case 0:
+          break;
+        case 1:
+          for (int i = rand.nextInt(RoaringDocSet.MAX_ARRAY_LENGTH); i > 0; i--) {
+            bs.set(start + rand.nextInt(end - start));
+          }
+          break;
+        case 2:
+          // right at the limit between an array and a bitmap
+          bs.set(start, Math.min(end, start + RoaringDocSet.MAX_ARRAY_LENGTH + rand.nextInt(2)));
+          break;
+        default:
+          for (int i = rand.nextInt(end - start); i > 0; i--) {
+            bs.set(start + rand.nextInt(end - start));
+          }
+      }
+    }
+    return bs;
+  }
+
+  public void testCompact() {
+    int maxDoc = RoaringDocSet.BLOCK_SIZE * 4;
+    FixedBitSet sparse = getRandomSet(maxDoc, maxDoc >>> 6);
+    DocSet compacted = DocSetUtil.compact(new BitDocSet(sparse));
+    assertTrue(compacted instanceof RoaringDocSet);
+    assertTrue(compacted.ramBytesUsed() < new BitDocSet(sparse).ramBytesUsed());
+    iter(new BitDocSet(sparse), compacted);
+
+    DocSet dense = new BitDocSet(getRandomSet(maxDoc, maxDoc >>> 2));
+    assertSame(dense, DocSetUtil.compact(dense));
+
+    DocSet smallIndex = new BitDocSet(getRandomSet(1000, 10));
+    assertSame(smallIndex, DocSetUtil.compact(smallIndex));
+  }
+
   private static final int MAX_SRC_SIZE = 130; // push _just_ into 3 `long` "words"
 
   public void testCopyBitsToRange() {
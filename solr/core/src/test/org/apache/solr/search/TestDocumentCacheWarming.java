@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** The documents of the document cache are carried over to the next searcher. */
+public class TestDocumentCacheWarming extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // the segment of the first documents must survive the next commits
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    System.setProperty("solr.documentCache.autowarmCount", "100%");
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+    System.clearProperty("solr.documentCache.autowarmCount");
+  }
+
+  @Test
+  public void testWarming() throws Exception {
+    assertU(adoc("id", "1", "name", "one", "foo_s", "a"));
+    assertU(adoc("id", "2", "name", "two", "foo_s", "b"));
+    assertU(commit());
+    // the other fields are loaded lazily
+    assertJQ(
+        req("q", "*:*", "fl", "id,name", "sort", "id asc"),
+        "/response/docs==[{'id':'1','name':'one'},{'id':'2','name':'two'}]");
+    assertEquals(2L, cacheStats().get("inserts"));
+
+    assertU(adoc("id", "3", "name", "three", "foo_s", "c"));
+    assertU(delI("2"));
+    assertU(commit());
+    Map<String, Object> stats = cacheStats();
+    // the deleted document isn't carried over
+    assertEquals(1, stats.get("warmupEntries"));
+    assertEquals(1, stats.get("size"));
+    assertEquals(0.0, (Double) stats.get("previous_hitratio"), 0.0);
+
+    // the lazy fields of the document are read from the new searcher
+    assertJQ(
+        req("q", "*:*", "fl", "id,foo_s", "sort", "id asc"),
+        "/response/docs==[{'id':'1','foo_s':'a'},{'id':'3','foo_s':'c'}]");
+    stats = cacheStats();
+    assertEquals(1L, stats.get("hits"));
+    assertEquals(1L, stats.get("inserts"));
+  }
+
+  private static Map<String, Object> cacheStats() {
+    return ((MetricsMap)
+            ((SolrMetricManager.GaugeWrapper)
+                    h.getCore()
+                        .getCoreMetricManager()
+                        .getRegistry()
+                        .getMetrics()
+                        .get("CACHE.searcher.documentCache"))
+                .getGauge())
+        .getValue();
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.apache.solr.SolrTestCase;
+
+public class TestNumericSortCollector extends SolrTestCase {
+
+  private static final String[] FIELDS = {"i", "l", "f", "d"};
+  private static final SortField.Type[] TYPES = {
+    SortField.Type.INT, SortField.Type.LONG, SortField.Type.FLOAT, SortField.Type.DOUBLE
+  };
+
+  public void testSameAsTopFieldCollector() throws Exception {
+    try (Directory dir = newDirectory()) {
+      RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+      final int numDocs = atLeast(500);
+      for (int i = 0; i < numDocs; i++) {
+        Document doc = new Document();
+        doc.add(newStringField("even", Boolean.toString(i % 2 == 0), Field.Store.NO));
+        // few distinct values, for ties on the first sort fields
+        if (random().nextInt(10) != 0) {
+          doc.add(new NumericDocValuesField("i", random().nextInt(7) - 3));
+        }
+        if (random().nextInt(10) != 0) {
+          doc.add(new NumericDocValuesField("l", random().nextInt(5) * (long) Integer.MAX_VALUE));
+        }
+        if (random().nextInt(10) != 0) {
+          doc.add(new FloatDocValuesField("f", random().nextInt(9) - 4.5f));
+        }
+        if (random().nextInt(10) != 0) {
+          doc.add(new DoubleDocValuesField("d", random().nextDouble()));
+        }
+        iw.addDocument(doc);
+        if (random().nextInt(100) == 0) {
+          iw.commit();
+        }
+      }
+      try (IndexReader reader = iw.getReader()) {
+        iw.close();
+        IndexSearcher searcher = new IndexSearcher(reader);
+        for (int iter = 0; iter < 50; iter++) {
+          Sort sort = randomSort();
+          Query query =
+              random().nextBoolean()
+                  ? new MatchAllDocsQuery()
+                  : new TermQuery(new Term("even", Boolean.toString(random().nextBoolean())));
+          int numHits = 1 + random().nextInt(numDocs + 10);
+
+          TopFieldCollector expectedCollector =
+              TopFieldCollector.create(sort, numHits, null, Integer.MAX_VALUE);
+          searcher.search(query, expectedCollector);
+          TopDocs expected = expectedCollector.topDocs();
+
+          NumericSortKeys sortKeys = NumericSortKeys.forCollection(sort.getSort());
+          assertNotNull(sortKeys);
+          NumericSortCollector collector = new NumericSortCollector(sortKeys, numHits);
+          searcher.search(query, collector);
+          assertEquals(expectedCollector.getTotalHits(), collector.getTotalHits());
+          TopDocs actual = collector.topDocs();
+
+          assertEquals(expected.totalHits, actual.totalHits);
+          assertEquals(sort.toString(), expected.scoreDocs.length, actual.scoreDocs.length);
+          for (int i = 0; i < expected.scoreDocs.length; i++) {
+            FieldDoc expectedDoc = (FieldDoc) expected.scoreDocs[i];
+            FieldDoc actualDoc = (FieldDoc) actual.scoreDocs[i];
+            assertEquals(sort.toString(), expectedDoc.doc, actualDoc.doc);
+            assertArrayEquals(sort.toString(), expectedDoc.fields, actualDoc.fields);
+          }
+        }
+      }
+    }
+  }
+
+  public void testUnsupportedSorts() {
+    SortField i = new SortField("i", SortField.Type.INT);
+    SortField l = new SortField("l", SortField.Type.LONG);
+    assertNull(NumericSortKeys.forCollection(new SortField[] {i}));
+    assertNull(NumericSortKeys.forCollection(new SortField[] {i, SortField.FIELD_SCORE}));
+    assertNull(NumericSortKeys.forCollection(new SortField[] {i, l, i, l, i}));
+    assertNull(
+        NumericSortKeys.forCollection(
+            new SortField[] {i, new SortedNumericSortField("l", SortField.Type.LONG)}));
+    SortField s = new SortField("s", SortField.Type.STRING);
+    assertNull(NumericSortKeys.forCollection(new SortField[] {i, s}));
+    assertNotNull(NumericSortKeys.forValues(new SortField[] {i, SortField.FIELD_SCORE}));
+    assertNull(NumericSortKeys.forValues(new SortField[] {SortField.FIELD_SCORE}));
+  }
+
+  public void testKeysRoundTrip() {
+    NumericSortKeys sortKeys =
+        NumericSortKeys.forValues(
+            new SortField[] {
+              new SortField("i", SortField.Type.INT, true),
+              new SortField("f", SortField.Type.FLOAT),
+              SortField.FIELD_SCORE
+            });
+    assertEquals(-3, sortKeys.value(0, sortKeys.key(0, -3)));
+    assertEquals(-0.0f, sortKeys.value(1, sortKeys.key(1, -0.0f)));
+    assertEquals(2.5f, sortKeys.value(2, sortKeys.key(2, 2.5f)));
+    // reversed fields and the score sort in descending order
+    assertTrue(sortKeys.key(0, 5) < sortKeys.key(0, 4));
+    assertTrue(sortKeys.key(1, 4f) < sortKeys.key(1, 5f));
+    assertTrue(sortKeys.key(2, 5f) < sortKeys.key(2, 4f));
+    long[] keys = {sortKeys.key(0, 1), sortKeys.key(1, 2f)};
+    long[] other = {sortKeys.key(0, 1), sortKeys.key(1, 3f)};
+    assertTrue(NumericSortKeys.compare(keys, 0, other, 0, 2) < 0);
+    assertEquals(0, NumericSortKeys.compare(keys, 0, keys.clone(), 0, 2));
+  }
+
+  private static Sort randomSort() {
+    int numFields = 2 + random().nextInt(NumericSortKeys.MAX_SORT_FIELDS - 1);
+    SortField[] sortFields = new SortField[numFields];
+    for (int i = 0; i < numFields; i++) {
+      int field = random().nextInt(FIELDS.length);
+      SortField sortField = new SortField(FIELDS[field], TYPES[field], random().nextBoolean());
+      if (random().nextBoolean()) {
+        switch (TYPES[field]) {
+          case INT:
+            sortField.setMissingValue(random().nextBoolean() ? Integer.MIN_VALUE : 1);
+            break;
+          case LONG:
+            sortField.setMissingValue(random().nextBoolean() ? Long.MAX_VALUE : 1L);
+            break;
+          case FLOAT:
+            sortField.setMissingValue(random().nextBoolean() ? Float.NEGATIVE_INFINITY : 0.5f);
+            break;
+          case DOUBLE:
+            sortField.setMissingValue(random().nextBoolean() ? Double.POSITIVE_INFINITY : 0.5);
+            break;
+          default:
+            throw new AssertionError();
+        }
+      }
+      sortFields[i] = sortField;
+    }
+    return new Sort(sortFields);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestStoredFieldsCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // the segment of the first documents must survive the second commit
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    System.setProperty("solr.storedFieldsCache.enabled", "true");
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+    System.clearProperty("solr.storedFieldsCache.enabled");
+  }
+
+  @Test
+  public void testSharedAcrossSearchers() throws Exception {
+    assertNotNull(h.getCore().getStoredFieldsCache());
+    assertU(
+        adoc("id", "1", "name", "one", "foo_i", "1", "foo_l", "10", "foo_f", "1.5", "foo_d", "2"));
+    assertU(adoc("id", "2", "name", "two"));
+    assertU(commit());
+
+    final MetricsMap stats = cacheStats();
+    long inserts = (Long) stats.getValue().get("inserts");
+    long hits = (Long) stats.getValue().get("hits");
+    final String[] query = {"q", "*:*", "fl", "id,name,foo_i,foo_l,foo_f,foo_d", "sort", "id asc"};
+    final String firstDocs =
+        "{'id':'1','name':'one','foo_i':1,'foo_l':10,'foo_f':1.5,'foo_d':2.0},"
+            + "{'id':'2','name':'two'}";
+    assertJQ(req(query), "/response/docs==[" + firstDocs + "]");
+    assertEquals(inserts + 2, ((Long) stats.getValue().get("inserts")).longValue());
+    assertEquals(hits, ((Long) stats.getValue().get("hits")).longValue());
+
+    // a new searcher with an empty document cache, whose first segment is unchanged
+    assertU(adoc("id", "3", "name", "three"));
+    assertU(commit());
+    assertJQ(
+        req("q", "*:*", "fl", "id,foo_l", "sort", "id asc"),
+        "/response/docs==[{'id':'1','foo_l':10},{'id':'2'},{'id':'3'}]");
+    assertEquals(inserts + 3, ((Long) stats.getValue().get("inserts")).longValue());
+    assertEquals(hits + 2, ((Long) stats.getValue().get("hits")).longValue());
+  }
+
+  private static MetricsMap cacheStats() {
+    return (MetricsMap)
+        ((SolrMetricManager.GaugeWrapper)
+                h.getCore()
+                    .getCoreMetricManager()
+                    .getRegistry()
+                    .getMetrics()
+                    .get("CACHE.core.storedFieldsCache"))
+            .getGauge();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class StripedReadWriteLockTest extends SolrTestCase {
+
+  @Test
+  public void testWriterMayReadAndWriteAgain() {
+    StripedReadWriteLock lock = new StripedReadWriteLock(4);
+    lock.writeLock().lock();
+    // like the log replay, which adds updates while it blocks them
+    lock.readLock().lock();
+    lock.readLock().unlock();
+    assertTrue(lock.writeLock().tryLock());
+    lock.writeLock().unlock();
+    lock.writeLock().unlock();
+    expectThrows(IllegalMonitorStateException.class, () -> lock.writeLock().unlock());
+  }
+
+  @Test
+  public void testReadersExcludeWriter() throws Exception {
+    StripedReadWriteLock lock = new StripedReadWriteLock(4);
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread reader =
+        new Thread(
+            () -> {
+              lock.readLock().lock();
+              try {
+                locked.countDown();
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } finally {
+                lock.readLock().unlock();
+              }
+            });
+    reader.start();
+    locked.await();
+    // other readers are not blocked, but the writer is
+    assertTrue(lock.readLock().tryLock());
+    lock.readLock().unlock();
+    assertFalse(lock.writeLock().tryLock());
+
+    release.countDown();
+    reader.join();
+    assertTrue(lock.writeLock().tryLock());
+    AtomicBoolean readLocked = new AtomicBoolean(true);
+    Thread blockedReader = new Thread(() -> readLocked.set(lock.readLock().tryLock()));
+    blockedReader.start();
+    blockedReader.join();
+    assertFalse(readLocked.get());
+    lock.writeLock().unlock();
+  }
+
+  @Test
+  public void testConcurrentReadersAndWriters() throws Exception {
+    StripedReadWriteLock lock = new StripedReadWriteLock(8);
+    AtomicInteger readers = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      boolean writer = t % 4 == 0;
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < 2000; i++) {
+                  if (writer) {
+                    lock.writeLock().lock();
+                    try {
+                      if (readers.get() != 0) {
+                        failed.set(true);
+                      }
+                    } finally {
+                      lock.writeLock().unlock();
+                    }
+                  } else {
+                    lock.readLock().lock();
+                    try {
+                      readers.incrementAndGet();
+                      readers.decrementAndGet();
+                    } finally {
+                      lock.readLock().unlock();
+                    }
+                  }
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertFalse("a writer held the lock together with a reader", failed.get());
+  }
+
+  @Test
+  public void testUpdateHighest() {
+    VersionBucket bucket = new VersionBucket();
+    // the highest version is only maintained once it was seeded
+    bucket.updateHighest(10);
+    assertEquals(0, bucket.highest);
+    bucket.seedHighest(5);
+    bucket.updateHighest(-10);
+    assertEquals(10, bucket.highest);
+    bucket.updateHighest(7);
+    bucket.seedHighest(8);
+    assertEquals(10, bucket.highest);
+  }
+}
@@ -86,4 +86,58 @@ public class DynamicMapsTest extends SolrTestCase {
     assertEquals(-1, map.get(101));
     assertEquals(-1, map.get(0));
   }
+
+  public void testPackedIntIntMap() {
+    for (boolean hashOnly : new boolean[] {false, true}) {
+      IntIntDynamicMap map = new IntIntDynamicMap(10, -1, 999, hashOnly);
+      Map<Integer, Integer> standard = new HashMap<>();
+      for (int i = 0; i < 100; i++) {
+        int key = random().nextInt(100) + 1;
+        int val = random().nextInt(1000);
+        standard.put(key, val);
+        map.put(key, val);
+      }
+      int removed = standard.keySet().iterator().next();
+      standard.remove(removed);
+      map.remove(removed);
+
+      for (Map.Entry<Integer, Integer> entry : standard.entrySet()) {
+        assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+      }
+      AtomicInteger size = new AtomicInteger(0);
+      map.forEachValue(i -> size.incrementAndGet());
+      assertEquals(standard.size(), size.get());
+
+      assertEquals(-1, map.get(removed));
+      assertEquals(-1, map.get(101));
+      assertEquals(-1, map.get(0));
+    }
+  }
+
+  public void testPackedRamBytesUsed() {
+    IntIntDynamicMap ints = new IntIntDynamicMap(1 << 16, -1);
+    // docs of an index of 1000 docs only need 10 bits
+    IntIntDynamicMap packed = new IntIntDynamicMap(1 << 16, -1, 999, false);
+    IntIntDynamicMap hashOnly = new IntIntDynamicMap(1 << 16, -1, 999, true);
+    for (int i = 0; i < 1 << 12; i++) {
+      ints.put(i << 4, i % 1000);
+      packed.put(i << 4, i % 1000);
+      hashOnly.put(i << 4, i % 1000);
+    }
+    assertTrue(packed.ramBytesUsed() < ints.ramBytesUsed() / 2);
+    // a few keys out of many
+    assertTrue(hashOnly.ramBytesUsed() < ints.ramBytesUsed());
+  }
+
+  public void testRamBytesUsed() {
+    IntIntDynamicMap map = new IntIntDynamicMap(1 << 16, -1);
+    long hashBased = map.ramBytesUsed();
+    assertTrue(hashBased > 0);
+    // enough keys to upgrade to a dense array
+    for (int i = 0; i < 1 << 12; i++) {
+      map.put(i, i);
+    }
+    assertTrue(map.ramBytesUsed() >= (long) Integer.BYTES * (1 << 16));
+    assertTrue(map.ramBytesUsed() > hashBased);
+  }
 }
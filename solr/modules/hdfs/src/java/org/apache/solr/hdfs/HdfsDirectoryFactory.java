@@ -595,7 +595,10 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory
 
   @Override
   public void cleanupOldIndexDirectories(
-      final String dataDir, final String currentIndexDir, boolean afterReload) {
+      final String dataDir,
+      final String currentIndexDir,
+      boolean afterReload,
+      final String resumeIndexDir) {
 
     // Get the FileSystem object
     final Path dataDirPath = new Path(dataDir);
@@ -616,6 +619,8 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory
 
     final Path currentIndexDirPath =
         new Path(currentIndexDir); // make sure we don't delete the current
+    // nor the tmp index dir a failed fetch will resume from
+    final Path resumeIndexDirPath = resumeIndexDir == null ? null : new Path(resumeIndexDir);
     final FileSystem fs = fileSystem;
     FileStatus[] oldIndexDirs = null;
     try {
@@ -631,6 +636,7 @@ public class HdfsDirectoryFactory extends CachingDirectoryFactory
                     accept =
                         fs.getFileStatus(path).isDirectory()
                             && !path.equals(currentIndexDirPath)
+                            && !path.equals(resumeIndexDirPath)
                             && (pathName.equals("index")
                                 || pathName.matches(INDEX_W_TIMESTAMP_REGEX));
                   } catch (IOException e) {
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.ltr;
+
+import java.io.IOException;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.ltr.feature.Feature;
+
+/**
+ * The feature values of a block of documents of a single segment, sorted by docid. The values are
+ * extracted one feature at a time by {@link LTRScoringQuery.ModelWeight#extractFeatures}, so each
+ * feature scorer is created once per segment and only moves forward, and the features can be
+ * extracted in parallel since they write to their own arrays.
+ *
+ * <p>A batch is reused for every segment of a rerank; the time spent extracting each feature adds
+ * up over all of them.
+ */
+public class FeatureBatch {
+
+  private final Feature.FeatureWeight[] featureWeights;
+  private final int[] docs;
+  private final float[] originalDocScores;
+  // indexed like featureWeights, then by position in the batch
+  private final float[][] values;
+  private final FixedBitSet[] matches;
+  private final long[] extractionNanos;
+  private int size;
+
+  /**
+   * @param featureWeights the features to extract, in the order of the model weight's extracted
+   *     features
+   * @param capacity the maximum number of documents of a segment in the batch
+   */
+  FeatureBatch(Feature.FeatureWeight[] featureWeights, int capacity) {
+    this.featureWeights = featureWeights;
+    this.docs = new int[capacity];
+    this.originalDocScores = new float[capacity];
+    this.values = new float[featureWeights.length][capacity];
+    this.matches = new FixedBitSet[featureWeights.length];
+    for (int i = 0; i < matches.length; i++) {
+      matches[i] = new FixedBitSet(capacity);
+    }
+    this.extractionNanos = new long[featureWeights.length];
+  }
+
+  /** Empties the batch, before adding the documents of another segment. */
+  public void clear() {
+    for (FixedBitSet featureMatches : matches) {
+      featureMatches.clear(0, size);
+    }
+    size = 0;
+  }
+
+  /**
+   * Adds a document, which must be greater than the previously added one.
+   *
+   * @param doc the docid, relative to the segment
+   * @param originalDocScore the score of the document for the original query
+   */
+  public void add(int doc, float originalDocScore) {
+    assert size == 0 || docs[size - 1] < doc;
+    docs[size] = doc;
+    originalDocScores[size] = originalDocScore;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int numFeatures() {
+    return featureWeights.length;
+  }
+
+  public Feature.FeatureWeight getFeatureWeight(int feature) {
+    return featureWeights[feature];
+  }
+
+  /** Whether the feature matched the document at the given position of the batch. */
+  public boolean matches(int feature, int pos) {
+    return matches[feature].get(pos);
+  }
+
+  public float getValue(int feature, int pos) {
+    return values[feature][pos];
+  }
+
+  /** The time spent extracting the feature, in nanoseconds, over all the segments. */
+  public long getExtractionNanos(int feature) {
+    return extractionNanos[feature];
+  }
+
+  /**
+   * Scores every document of the batch with one feature. The feature scorer is advanced once to
+   * each document, and has its own {@link DocInfo} so that features can be extracted concurrently.
+   */
+  void extract(int feature, LeafReaderContext context) throws IOException {
+    final long start = System.nanoTime();
+    final Feature.FeatureWeight.FeatureScorer scorer = featureWeights[feature].scorer(context);
+    if (scorer != null) {
+      final DocInfo docInfo = new DocInfo();
+      scorer.setDocInfo(docInfo);
+      final DocIdSetIterator iterator = scorer.iterator();
+      final float[] featureValues = values[feature];
+      final FixedBitSet featureMatches = matches[feature];
+      for (int pos = 0; pos < size; pos++) {
+        final int doc = docs[pos];
+        int current = iterator.docID();
+        if (current < doc) {
+          current = iterator.advance(doc);
+        }
+        if (current == DocIdSetIterator.NO_MORE_DOCS) {
+          break;
+        }
+        if (current == doc) {
+          docInfo.setOriginalDocScore(originalDocScores[pos]);
+          featureValues[pos] = scorer.score();
+          featureMatches.set(pos);
+        }
+      }
+    }
+    extractionNanos[feature] += System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.ltr;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Caches the extracted feature values of documents in the user defined {@link SolrCache} named
+ * {@value #NAME}, so that paging through the results of a rerank query, or reranking the same
+ * documents with another model of the same feature store, doesn't extract the features again.
+ *
+ * <p>The feature values of a document are keyed by the feature store, the external feature info
+ * and the original query, whose score the {@link org.apache.solr.ltr.feature.OriginalScoreFeature}
+ * uses. A feature vector holds the features extracted by all the models that were scored for the
+ * document, so models using different features of the same store fill it up in turn. The cache
+ * is searcher scoped, so it has to be defined without a regenerator, and is emptied whenever a new
+ * searcher is opened:
+ *
+ * <pre>
+ * &lt;cache name="ltrFeatureVectorCache"
+ *        class="solr.CaffeineCache"
+ *        size="4096"
+ *        initialSize="0"
+ *        autowarmCount="0"/&gt;
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public class FeatureVectorCache {
+
+  /** The name of the user cache holding the feature vectors. */
+  public static final String NAME = "ltrFeatureVectorCache";
+
+  private final SolrCache<Key, FeatureVector> cache;
+  private final QueryKey queryKey;
+
+  private FeatureVectorCache(SolrCache<Key, FeatureVector> cache, LTRScoringQuery scoringQuery) {
+    this.cache = cache;
+    this.queryKey =
+        new QueryKey(
+            scoringQuery.getScoringModel().getFeatureStoreName(),
+            scoringQuery.getExternalFeatureInfo(),
+            scoringQuery.getOriginalQuery());
+  }
+
+  /**
+   * Returns the feature vector cache of the searcher for the scoring query, or null if the {@value
+   * #NAME} cache isn't defined.
+   */
+  public static FeatureVectorCache of(IndexSearcher searcher, LTRScoringQuery scoringQuery) {
+    if (!(searcher instanceof SolrIndexSearcher)) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    final SolrCache<Key, FeatureVector> cache = ((SolrIndexSearcher) searcher).getCache(NAME);
+    if (cache == null || scoringQuery.getScoringModel() == null) {
+      return null;
+    }
+    return new FeatureVectorCache(cache, scoringQuery);
+  }
+
+  /** Returns the cached features of the document, which may lack some of the model features. */
+  public FeatureVector get(int docid) {
+    return cache.get(new Key(queryKey, docid));
+  }
+
+  /** Whether the feature vector holds all the features extracted by the model weight. */
+  public boolean isComplete(FeatureVector featureVector, LTRScoringQuery.ModelWeight modelWeight) {
+    if (featureVector == null) {
+      return false;
+    }
+    final LTRScoringQuery.FeatureInfo[] featuresInfo = modelWeight.getFeaturesInfo();
+    if (featureVector.values.length != featuresInfo.length) {
+      return false;
+    }
+    for (int i = 0; i < featuresInfo.length; i++) {
+      if (featuresInfo[i] != null && !featureVector.isExtracted(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Loads the cached features into the {@link LTRScoringQuery.ModelWeight#getFeaturesInfo()
+   * features info} of the model weight.
+   *
+   * @return false, leaving the features info untouched, if the feature vector isn't {@link
+   *     #isComplete complete}
+   */
+  public boolean load(FeatureVector featureVector, LTRScoringQuery.ModelWeight modelWeight) {
+    if (!isComplete(featureVector, modelWeight)) {
+      return false;
+    }
+    final LTRScoringQuery.FeatureInfo[] featuresInfo = modelWeight.getFeaturesInfo();
+    modelWeight.reset();
+    for (int i = 0; i < featuresInfo.length; i++) {
+      if (featuresInfo[i] != null && featureVector.isUsed(i)) {
+        featuresInfo[i].setValue(featureVector.values[i]);
+        featuresInfo[i].setUsed(true);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Caches the features just extracted for the document by the model weight, along with the ones
+   * of the previously cached feature vector, if any.
+   */
+  public void put(int docid, FeatureVector cached, LTRScoringQuery.ModelWeight modelWeight) {
+    cache.put(new Key(queryKey, docid), new FeatureVector(modelWeight.getFeaturesInfo(), cached));
+  }
+
+  /**
+   * The values of the features extracted for a document, indexed like the features of their
+   * feature store.
+   */
+  public static final class FeatureVector implements Accountable {
+    private static final long BASE_RAM_BYTES =
+        RamUsageEstimator.shallowSizeOfInstance(FeatureVector.class)
+            + 2 * RamUsageEstimator.shallowSizeOfInstance(FixedBitSet.class);
+
+    private final float[] values;
+    private final FixedBitSet extracted;
+    private final FixedBitSet used;
+
+    FeatureVector(LTRScoringQuery.FeatureInfo[] featuresInfo, FeatureVector previous) {
+      final int numFeatures = featuresInfo.length;
+      if (previous != null && previous.values.length == numFeatures) {
+        values = previous.values.clone();
+        extracted = previous.extracted.clone();
+        used = previous.used.clone();
+      } else {
+        values = new float[numFeatures];
+        extracted = new FixedBitSet(numFeatures);
+        used = new FixedBitSet(numFeatures);
+      }
+      for (int i = 0; i < numFeatures; i++) {
+        final LTRScoringQuery.FeatureInfo featureInfo = featuresInfo[i];
+        if (featureInfo != null) {
+          extracted.set(i);
+          if (featureInfo.isUsed()) {
+            used.set(i);
+            values[i] = featureInfo.getValue();
+          } else {
+            used.clear(i);
+          }
+        }
+      }
+    }
+
+    public boolean isExtracted(int featureIndex) {
+      return extracted.get(featureIndex);
+    }
+
+    public boolean isUsed(int featureIndex) {
+      return used.get(featureIndex);
+    }
+
+    public float getValue(int featureIndex) {
+      return values[featureIndex];
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES
+          + RamUsageEstimator.sizeOf(values)
+          + RamUsageEstimator.sizeOf(extracted.getBits())
+          + RamUsageEstimator.sizeOf(used.getBits());
+    }
+  }
+
+  /** The part of the key shared by all the documents reranked by a query. */
+  private static final class QueryKey {
+    private final String featureStoreName;
+    // sorted, with values compared by content
+    private final Map<String, String> efi;
+    private final Query originalQuery;
+    private final int hashCode;
+
+    QueryKey(String featureStoreName, Map<String, String[]> efi, Query originalQuery) {
+      this.featureStoreName = featureStoreName;
+      this.efi = new TreeMap<>();
+      if (efi != null) {
+        for (Map.Entry<String, String[]> entry : efi.entrySet()) {
+          this.efi.put(entry.getKey(), Arrays.toString(entry.getValue()));
+        }
+      }
+      this.originalQuery = originalQuery;
+      this.hashCode = Objects.hash(featureStoreName, this.efi, originalQuery);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof QueryKey)) {
+        return false;
+      }
+      final QueryKey other = (QueryKey) obj;
+      return hashCode == other.hashCode
+          && Objects.equals(featureStoreName, other.featureStoreName)
+          && efi.equals(other.efi)
+          && Objects.equals(originalQuery, other.originalQuery);
+    }
+  }
+
+  /** The key of the feature vector of a document. */
+  private static final class Key implements Accountable {
+    // the query key is shared by all the keys of a query
+    private static final long RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+    private final QueryKey queryKey;
+    private final int docid;
+
+    Key(QueryKey queryKey, int docid) {
+      this.queryKey = queryKey;
+      this.docid = docid;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * queryKey.hashCode() + docid;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return docid == other.docid && queryKey.equals(other.queryKey);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return RAM_BYTES_USED;
+    }
+  }
+}
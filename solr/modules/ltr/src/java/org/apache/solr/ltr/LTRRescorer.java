@@ -30,7 +30,10 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.ltr.interleaving.OriginalRankingLTRScoringQuery;
+import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.search.SolrIndexSearcher;
 
 /**
@@ -158,6 +161,13 @@ public class LTRRescorer extends Rescorer {
       List<LeafReaderContext> leaves,
       ScoreDoc[] reranked)
       throws IOException {
+    final FeatureVectorCache featureVectorCache =
+        FeatureVectorCache.of(indexSearcher, scoringQuery);
+    if (scoringQuery.isBatchFeatureExtraction()) {
+      scoreFeaturesInBatches(
+          indexSearcher, topN, modelWeight, hits, leaves, reranked, featureVectorCache);
+      return;
+    }
 
     int readerUpto = -1;
     int endDoc = 0;
@@ -180,13 +190,102 @@ public class LTRRescorer extends Rescorer {
         docBase = readerContext.docBase;
         scorer = modelWeight.scorer(readerContext);
       }
-      if (scoreSingleHit(topN, docBase, hitUpto, hit, docID, scorer, reranked)) {
+      if (scoreSingleHit(
+          topN, docBase, hitUpto, hit, docID, scorer, reranked, featureVectorCache)) {
         logSingleHit(indexSearcher, modelWeight, hit.doc, scoringQuery);
       }
       hitUpto++;
     }
   }
 
+  /**
+   * Scores the hits a segment at a time: the features of all the hits of a segment are extracted
+   * one feature at a time, possibly in parallel, then the model scores each hit from the extracted
+   * values. Hits whose features are all in the feature vector cache are left out of the batches.
+   * With debug enabled, the time spent extracting each feature is reported in the {@code ltr}
+   * section of the debug output.
+   */
+  private void scoreFeaturesInBatches(
+      IndexSearcher indexSearcher,
+      int topN,
+      LTRScoringQuery.ModelWeight modelWeight,
+      ScoreDoc[] hits,
+      List<LeafReaderContext> leaves,
+      ScoreDoc[] reranked,
+      FeatureVectorCache featureVectorCache)
+      throws IOException {
+    final FeatureBatch batch = modelWeight.newFeatureBatch(hits.length);
+    final FeatureVectorCache.FeatureVector[] cached =
+        featureVectorCache == null ? null : new FeatureVectorCache.FeatureVector[hits.length];
+    final boolean[] loadable = featureVectorCache == null ? null : new boolean[hits.length];
+    long modelNanos = 0;
+    int numBatches = 0;
+    int readerUpto = -1;
+    int hitUpto = 0;
+    while (hitUpto < hits.length) {
+      LeafReaderContext readerContext;
+      do {
+        readerUpto++;
+        readerContext = leaves.get(readerUpto);
+      } while (hits[hitUpto].doc >= readerContext.docBase + readerContext.reader().maxDoc());
+      final int docBase = readerContext.docBase;
+      final int endDoc = docBase + readerContext.reader().maxDoc();
+
+      final int batchStart = hitUpto;
+      batch.clear();
+      while (hitUpto < hits.length && hits[hitUpto].doc < endDoc) {
+        final ScoreDoc hit = hits[hitUpto];
+        if (featureVectorCache != null) {
+          cached[hitUpto] = featureVectorCache.get(hit.doc);
+          loadable[hitUpto] = featureVectorCache.isComplete(cached[hitUpto], modelWeight);
+        }
+        if (featureVectorCache == null || !loadable[hitUpto]) {
+          batch.add(hit.doc - docBase, hit.score);
+        }
+        hitUpto++;
+      }
+      if (batch.size() > 0) {
+        modelWeight.extractFeatures(readerContext, batch);
+        numBatches++;
+      }
+
+      final long start = System.nanoTime();
+      int pos = 0;
+      for (int i = batchStart; i < hitUpto; i++) {
+        final ScoreDoc hit = hits[i];
+        if (featureVectorCache != null && loadable[i]) {
+          featureVectorCache.load(cached[i], modelWeight);
+          hit.score = modelWeight.scoreFeaturesInfo();
+        } else {
+          hit.score = modelWeight.score(batch, pos++);
+          if (featureVectorCache != null) {
+            featureVectorCache.put(hit.doc, cached[i], modelWeight);
+          }
+        }
+        if (addRerankedHit(topN, i, hit, reranked)) {
+          logSingleHit(indexSearcher, modelWeight, hit.doc, scoringQuery);
+        }
+      }
+      modelNanos += System.nanoTime() - start;
+    }
+
+    final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    final ResponseBuilder rb = info == null ? null : info.getResponseBuilder();
+    if (rb != null && rb.isDebug()) {
+      final SimpleOrderedMap<Object> featureTimes = new SimpleOrderedMap<>();
+      for (int i = 0; i < batch.numFeatures(); i++) {
+        featureTimes.add(batch.getFeatureWeight(i).getName(), batch.getExtractionNanos(i) / 1e6);
+      }
+      final SimpleOrderedMap<Object> dbg = new SimpleOrderedMap<>();
+      dbg.add("docs", hits.length);
+      dbg.add("batches", numBatches);
+      dbg.add("parallel", scoringQuery.isParallel());
+      dbg.add("featureExtractionTime", featureTimes);
+      dbg.add("modelScoringTime", modelNanos / 1e6);
+      rb.addDebug(dbg, "ltr", scoringQuery.getScoringModelName());
+    }
+  }
+
   /**
    * Call this method if the {@link #scoreSingleHit(int, int, int, ScoreDoc, int,
    * org.apache.solr.ltr.LTRScoringQuery.ModelWeight.ModelScorer, ScoreDoc[])} method indicated that
@@ -230,10 +329,52 @@ public class LTRRescorer extends Rescorer {
     scorer.docID();
     scorer.iterator().advance(targetDoc);
 
-    boolean logHit = false;
-
     scorer.getDocInfo().setOriginalDocScore(hit.score);
     hit.score = scorer.score();
+    return addRerankedHit(topN, hitUpto, hit, reranked);
+  }
+
+  /**
+   * Like {@link #scoreSingleHit(int, int, int, ScoreDoc, int,
+   * org.apache.solr.ltr.LTRScoringQuery.ModelWeight.ModelScorer, ScoreDoc[])}, but scores the
+   * document from its cached feature vector when the cache holds all its features, and caches the
+   * features it extracts otherwise.
+   *
+   * @param featureVectorCache the feature vector cache for the scorer's query, may be null
+   */
+  protected static boolean scoreSingleHit(
+      int topN,
+      int docBase,
+      int hitUpto,
+      ScoreDoc hit,
+      int docID,
+      LTRScoringQuery.ModelWeight.ModelScorer scorer,
+      ScoreDoc[] reranked,
+      FeatureVectorCache featureVectorCache)
+      throws IOException {
+    if (featureVectorCache == null) {
+      return scoreSingleHit(topN, docBase, hitUpto, hit, docID, scorer, reranked);
+    }
+    final LTRScoringQuery.ModelWeight modelWeight =
+        (LTRScoringQuery.ModelWeight) scorer.getWeight();
+    final FeatureVectorCache.FeatureVector cached = featureVectorCache.get(docID);
+    if (featureVectorCache.load(cached, modelWeight)) {
+      hit.score = modelWeight.scoreFeaturesInfo();
+      return addRerankedHit(topN, hitUpto, hit, reranked);
+    }
+    final boolean logHit = scoreSingleHit(topN, docBase, hitUpto, hit, docID, scorer, reranked);
+    featureVectorCache.put(docID, cached, modelWeight);
+    return logHit;
+  }
+
+  /**
+   * Adds an already scored hit to the reranked documents, which are turned into a min heap once
+   * topN hits have been added. Returns true if the hit made it into the topN documents, and so
+   * its feature info should be logged.
+   */
+  protected static boolean addRerankedHit(
+      int topN, int hitUpto, ScoreDoc hit, ScoreDoc[] reranked) {
+    boolean logHit = false;
     if (hitUpto < topN) {
       reranked[hitUpto] = hit;
       // if the heap is not full, maybe I want to log the features for this
@@ -75,6 +75,9 @@ public class LTRScoringQuery extends Query implements Accountable {
   // Original solr request
   private SolrQueryRequest request;
 
+  // extract the features of the reranked documents a segment at a time
+  private boolean batchFeatureExtraction;
+
   public LTRScoringQuery(LTRScoringModel ltrScoringModel) {
     this(ltrScoringModel, Collections.<String, String[]>emptyMap(), null);
   }
@@ -129,6 +132,19 @@ public class LTRScoringQuery extends Query implements Accountable {
     return request;
   }
 
+  public void setBatchFeatureExtraction(boolean batchFeatureExtraction) {
+    this.batchFeatureExtraction = batchFeatureExtraction;
+  }
+
+  public boolean isBatchFeatureExtraction() {
+    return batchFeatureExtraction;
+  }
+
+  /** Whether the features are extracted by the threads of the {@link LTRThreadModule}. */
+  public boolean isParallel() {
+    return querySemaphore != null;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -451,6 +467,14 @@ public class LTRScoringQuery extends Query implements Accountable {
       return ltrScoringModel.score(modelFeatureValuesNormalized);
     }
 
+    /**
+     * Scores with the model the feature values currently held by {@link #getFeaturesInfo()}, for
+     * instance the ones loaded from the {@link FeatureVectorCache}.
+     */
+    public float scoreFeaturesInfo() {
+      return makeNormalizedFeaturesAndScore();
+    }
+
     @Override
     public Explanation explain(LeafReaderContext context, int doc) throws IOException {
 
@@ -483,6 +507,76 @@ public class LTRScoringQuery extends Query implements Accountable {
       }
     }
 
+    /**
+     * Creates a batch holding the extracted feature values of up to {@code capacity} documents of a
+     * segment.
+     */
+    public FeatureBatch newFeatureBatch(int capacity) {
+      return new FeatureBatch(extractedFeatureWeights, capacity);
+    }
+
+    /**
+     * Extracts the features of all the documents of the batch, one feature at a time. With a {@link
+     * LTRThreadModule}, the features are extracted in parallel.
+     */
+    public void extractFeatures(LeafReaderContext context, FeatureBatch batch) throws IOException {
+      if (querySemaphore == null) {
+        for (int i = 0; i < batch.numFeatures(); i++) {
+          batch.extract(i, context);
+        }
+      } else {
+        extractFeaturesParallel(context, batch);
+      }
+    }
+
+    private void extractFeaturesParallel(LeafReaderContext context, FeatureBatch batch)
+        throws RuntimeException {
+      final List<Future<Void>> futures = new ArrayList<>(batch.numFeatures());
+      try {
+        for (int i = 0; i < batch.numFeatures(); i++) {
+          final int feature = i;
+          final RunnableFuture<Void> runnableFuture =
+              new FutureTask<>(
+                  () -> {
+                    try {
+                      batch.extract(feature, context);
+                      return null;
+                    } finally {
+                      querySemaphore.release();
+                      ltrThreadMgr.releaseLTRSemaphore();
+                    }
+                  });
+          // same order as in createWeightsParallel
+          querySemaphore.acquire();
+          ltrThreadMgr.acquireLTRSemaphore();
+          ltrThreadMgr.execute(runnableFuture);
+          futures.add(runnableFuture);
+        }
+        for (final Future<Void> future : futures) {
+          future.get();
+        }
+      } catch (Exception e) { // To catch InterruptedException and ExecutionException
+        log.info("Error while extracting features in LTR", e);
+        throw new RuntimeException("Error while extracting features in LTR: " + e.getMessage(), e);
+      }
+    }
+
+    /**
+     * Scores the document at the given position of the batch with the model. Afterwards, {@link
+     * #getFeaturesInfo()} holds the features of that document.
+     */
+    public float score(FeatureBatch batch, int pos) {
+      reset();
+      for (int i = 0; i < batch.numFeatures(); i++) {
+        if (batch.matches(i, pos)) {
+          final int featureId = batch.getFeatureWeight(i).getIndex();
+          featuresInfo[featureId].setValue(batch.getValue(i, pos));
+          featuresInfo[featureId].setUsed(true);
+        }
+      }
+      return makeNormalizedFeaturesAndScore();
+    }
+
     @Override
     public ModelScorer scorer(LeafReaderContext context) throws IOException {
 
@@ -27,6 +27,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.TopDocs;
+import org.apache.solr.ltr.FeatureVectorCache;
 import org.apache.solr.ltr.LTRRescorer;
 import org.apache.solr.ltr.LTRScoringQuery;
 
@@ -129,6 +130,12 @@ public class LTRInterleavingRescorer extends LTRRescorer {
     int hitUpto = 0;
     LTRScoringQuery.ModelWeight.ModelScorer[] scorers =
         new LTRScoringQuery.ModelWeight.ModelScorer[rerankingQueries.length];
+    FeatureVectorCache[] featureVectorCaches = new FeatureVectorCache[rerankingQueries.length];
+    for (int i = 0; i < rerankingQueries.length; i++) {
+      if (modelWeights[i] != null) {
+        featureVectorCaches[i] = FeatureVectorCache.of(indexSearcher, rerankingQueries[i]);
+      }
+    }
     while (hitUpto < hits.length) {
       final ScoreDoc hit = hits[hitUpto];
       final int docID = hit.doc;
@@ -152,7 +159,14 @@ public class LTRInterleavingRescorer extends LTRRescorer {
         if (modelWeights[i] != null) {
           final ScoreDoc hit_i = new ScoreDoc(hit.doc, hit.score, hit.shardIndex);
           if (scoreSingleHit(
-              topN, docBase, hitUpto, hit_i, docID, scorers[i], rerankedPerModel[i])) {
+              topN,
+              docBase,
+              hitUpto,
+              hit_i,
+              docID,
+              scorers[i],
+              rerankedPerModel[i],
+              featureVectorCaches[i])) {
             logSingleHit(indexSearcher, modelWeights[i], hit_i.doc, rerankingQueries[i]);
           }
         }
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Objects;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.ltr.feature.Feature;
 import org.apache.solr.ltr.feature.FeatureException;
 import org.apache.solr.ltr.norm.Normalizer;
@@ -112,6 +113,11 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
    * influence the class hashCode, equals, etc.
    */
   private List<RegressionTree> trees;
+  /**
+   * flattenedTrees is built from trees when the model is validated, and is what {@link
+   * #score(float[])} walks.
+   */
+  private FlattenedTrees flattenedTrees;
 
   private boolean isNullSameAsZero = true;
 
@@ -293,6 +299,7 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
     for (RegressionTree tree : trees) {
       tree.validate();
     }
+    flattenedTrees = new FlattenedTrees(trees);
   }
 
   @Override
@@ -322,6 +329,19 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
 
   @Override
   public float score(float[] modelFeatureValuesNormalized) {
+    if (flattenedTrees == null
+        || modelFeatureValuesNormalized.length <= flattenedTrees.maxFeatureIndex) {
+      // not validated yet, or the trees split on features missing from the vector
+      return scoreTreeNodes(modelFeatureValuesNormalized);
+    }
+    return flattenedTrees.score(modelFeatureValuesNormalized, isNullSameAsZero);
+  }
+
+  /**
+   * Scores by walking the {@link RegressionTreeNode}s of each tree, like {@link #explain} does.
+   * This gives the same score as {@link #score(float[])}, which walks the flattened trees instead.
+   */
+  public float scoreTreeNodes(float[] modelFeatureValuesNormalized) {
     float score = 0;
     for (final RegressionTree t : trees) {
       score += t.score(modelFeatureValuesNormalized);
@@ -329,6 +349,117 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
     return score;
   }
 
+  /**
+   * The trees flattened in depth-first order into primitive arrays, so that scoring a document
+   * doesn't chase pointers between {@link RegressionTreeNode} objects. The left child of a split
+   * node is the next node, and its right child is at <code>rightChildren[node]</code>. The values
+   * of the leaves are already multiplied by the weight of their tree.
+   */
+  private static final class FlattenedTrees {
+    private static final int LEAF = -1;
+
+    private final int[] roots;
+    // the feature a node splits on, or LEAF
+    private final int[] featureIndexes;
+    // the threshold of a split node, or the weighted value of a leaf
+    private final float[] thresholdsOrValues;
+    private final int[] rightChildren;
+    // whether a split node sends missing (NaN) feature values left
+    private final boolean[] missingLeft;
+    private final int maxFeatureIndex;
+
+    FlattenedTrees(List<RegressionTree> trees) {
+      int numNodes = 0;
+      for (final RegressionTree tree : trees) {
+        numNodes += countNodes(tree.root);
+      }
+      roots = new int[trees.size()];
+      featureIndexes = new int[numNodes];
+      thresholdsOrValues = new float[numNodes];
+      rightChildren = new int[numNodes];
+      missingLeft = new boolean[numNodes];
+
+      final RegressionTreeNode[] nodeStack = new RegressionTreeNode[numNodes];
+      // the split node whose right child is the node at the same depth in nodeStack, or -1
+      final int[] parentStack = new int[numNodes];
+      int maxFeature = -1;
+      int next = 0;
+      for (int t = 0; t < roots.length; t++) {
+        final RegressionTree tree = trees.get(t);
+        roots[t] = next;
+        int depth = 0;
+        nodeStack[depth] = tree.root;
+        parentStack[depth++] = -1;
+        while (depth > 0) {
+          final RegressionTreeNode node = nodeStack[--depth];
+          final int parent = parentStack[depth];
+          final int index = next++;
+          if (parent >= 0) {
+            rightChildren[parent] = index;
+          }
+          if (node.isLeaf() || node.featureIndex < 0) {
+            featureIndexes[index] = LEAF;
+            // a tree splitting on an unsupported feature scores 0
+            final float value = node.isLeaf() ? node.value : 0f;
+            thresholdsOrValues[index] = tree.weight.floatValue() * value;
+          } else {
+            featureIndexes[index] = node.featureIndex;
+            thresholdsOrValues[index] = node.threshold;
+            missingLeft[index] = "left".equals(node.missing);
+            maxFeature = Math.max(maxFeature, node.featureIndex);
+            nodeStack[depth] = node.right;
+            parentStack[depth++] = index;
+            nodeStack[depth] = node.left;
+            parentStack[depth++] = -1;
+          }
+        }
+      }
+      maxFeatureIndex = maxFeature;
+    }
+
+    private static int countNodes(RegressionTreeNode root) {
+      int count = 0;
+      final Deque<RegressionTreeNode> stack = new ArrayDeque<>();
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        final RegressionTreeNode node = stack.pop();
+        count++;
+        if (!node.isLeaf() && node.featureIndex >= 0) {
+          stack.push(node.right);
+          stack.push(node.left);
+        }
+      }
+      return count;
+    }
+
+    float score(float[] featureVector, boolean isNullSameAsZero) {
+      float score = 0;
+      for (final int root : roots) {
+        int node = root;
+        int featureIndex;
+        while ((featureIndex = featureIndexes[node]) != LEAF) {
+          final float value = featureVector[featureIndex];
+          if (value <= thresholdsOrValues[node]
+              || (!isNullSameAsZero && missingLeft[node] && Float.isNaN(value))) {
+            node++;
+          } else {
+            node = rightChildren[node];
+          }
+        }
+        score += thresholdsOrValues[node];
+      }
+      return score;
+    }
+
+    long ramBytesUsed() {
+      return RamUsageEstimator.sizeOf(roots)
+          + RamUsageEstimator.sizeOf(featureIndexes)
+          + RamUsageEstimator.sizeOf(thresholdsOrValues)
+          + RamUsageEstimator.sizeOf(rightChildren)
+          + RamUsageEstimator.sizeOf(missingLeft);
+    }
+  }
+
   private static float scoreNode(float[] featureVector, RegressionTreeNode regressionTreeNode) {
     while (true) {
       if (regressionTreeNode.isLeaf()) {
@@ -503,6 +634,11 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
         finalScore, toString() + " model applied to features, sum of:", details);
   }
 
+  @Override
+  public long ramBytesUsed() {
+    return super.ramBytesUsed() + (flattenedTrees == null ? 0 : flattenedTrees.ramBytesUsed());
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder(getClass().getSimpleName());
@@ -30,6 +30,7 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.ltr.CSVFeatureLogger;
 import org.apache.solr.ltr.FeatureLogger;
+import org.apache.solr.ltr.FeatureVectorCache;
 import org.apache.solr.ltr.LTRRescorer;
 import org.apache.solr.ltr.LTRScoringQuery;
 import org.apache.solr.ltr.LTRThreadModule;
@@ -189,6 +190,7 @@ public class LTRFeatureLoggerTransformerFactory extends TransformerFactory {
 
     private LTRScoringQuery[] rerankingQueries;
     private LTRScoringQuery.ModelWeight[] modelWeights;
+    private FeatureVectorCache[] featureVectorCaches;
     private FeatureLogger featureLogger;
     private boolean docsWereReranked;
 
@@ -376,6 +378,7 @@ public class LTRFeatureLoggerTransformerFactory extends TransformerFactory {
 
     private void setupRerankingWeightsForLogging(ResultContext context, FeatureLogger logger) {
       modelWeights = new LTRScoringQuery.ModelWeight[rerankingQueries.length];
+      featureVectorCaches = new FeatureVectorCache[rerankingQueries.length];
       for (int i = 0; i < rerankingQueries.length; i++) {
         if (rerankingQueries[i].getOriginalQuery() == null) {
           rerankingQueries[i].setOriginalQuery(context.getQuery());
@@ -397,6 +400,7 @@ public class LTRFeatureLoggerTransformerFactory extends TransformerFactory {
                 SolrException.ErrorCode.BAD_REQUEST,
                 "error logging the features, model weight is null");
           }
+          featureVectorCaches[i] = FeatureVectorCache.of(searcher, rerankingQueries[i]);
         }
       }
     }
@@ -414,12 +418,14 @@ public class LTRFeatureLoggerTransformerFactory extends TransformerFactory {
     private void implTransform(SolrDocument doc, int docid, Float score) throws IOException {
       LTRScoringQuery rerankingQuery = rerankingQueries[0];
       LTRScoringQuery.ModelWeight rerankingModelWeight = modelWeights[0];
+      FeatureVectorCache featureVectorCache = featureVectorCaches[0];
       for (int i = 1; i < rerankingQueries.length; i++) {
         if (((LTRInterleavingScoringQuery) rerankingQueriesFromContext[i])
             .getPickedInterleavingDocIds()
             .contains(docid)) {
           rerankingQuery = rerankingQueries[i];
           rerankingModelWeight = modelWeights[i];
+          featureVectorCache = featureVectorCaches[i];
         }
       }
       if (!(rerankingQuery instanceof OriginalRankingLTRScoringQuery) || hasExplicitFeatureStore) {
@@ -427,15 +433,34 @@ public class LTRFeatureLoggerTransformerFactory extends TransformerFactory {
         if (featureVector == null) { // FV for this document was not in the cache
           featureVector =
               featureLogger.makeFeatureVector(
-                  LTRRescorer.extractFeaturesInfo(
-                      rerankingModelWeight,
-                      docid,
-                      (!docsWereReranked ? score : null),
-                      leafContexts));
+                  extractFeaturesInfo(rerankingModelWeight, featureVectorCache, docid, score));
         }
         doc.addField(name, featureVector);
       }
     }
+
+    /** Extracts the features of the document, unless they are in the feature vector cache. */
+    private LTRScoringQuery.FeatureInfo[] extractFeaturesInfo(
+        LTRScoringQuery.ModelWeight modelWeight,
+        FeatureVectorCache featureVectorCache,
+        int docid,
+        Float score)
+        throws IOException {
+      FeatureVectorCache.FeatureVector cached = null;
+      if (featureVectorCache != null) {
+        cached = featureVectorCache.get(docid);
+        if (featureVectorCache.load(cached, modelWeight)) {
+          return modelWeight.getFeaturesInfo();
+        }
+      }
+      final LTRScoringQuery.FeatureInfo[] featuresInfo =
+          LTRRescorer.extractFeaturesInfo(
+              modelWeight, docid, (!docsWereReranked ? score : null), leafContexts);
+      if (featureVectorCache != null && featuresInfo.length > 0) {
+        featureVectorCache.put(docid, cached, modelWeight);
+      }
+      return featuresInfo;
+    }
   }
 
   private static class LoggingModel extends LTRScoringModel {
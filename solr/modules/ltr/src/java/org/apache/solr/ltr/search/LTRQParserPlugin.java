@@ -81,6 +81,12 @@ public class LTRQParserPlugin extends QParserPlugin
   /** query parser plugin:the param that selects the interleaving algorithm to use */
   public static final String INTERLEAVING_ALGORITHM = "interleavingAlgorithm";
 
+  /**
+   * query parser plugin: the param that makes the features of the reranked documents be extracted
+   * a segment at a time, one feature after the other
+   */
+  public static final String BATCH_FEATURE_EXTRACTION = "batchFeatureExtraction";
+
   @Override
   public void init(NamedList<?> args) {
     super.init(args);
@@ -185,6 +191,8 @@ public class LTRQParserPlugin extends QParserPlugin
           } else {
             rerankingQuery =
                 new LTRScoringQuery(ltrScoringModel, externalFeatureInfo, threadManager);
+            rerankingQuery.setBatchFeatureExtraction(
+                localParams.getBool(BATCH_FEATURE_EXTRACTION, false));
             rerankingQueries[i] = null;
           }
 
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.ltr;
+
+import java.util.Map;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.CaffeineCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFeatureVectorCache extends TestRerankBase {
+
+  @Before
+  public void before() throws Exception {
+    // solrconfig-multiseg.xml defines the ltrFeatureVectorCache
+    setuptest("solrconfig-multiseg.xml", "schema.xml");
+
+    assertU(adoc("id", "1", "title", "w1 w3", "description", "w1", "popularity", "1"));
+    assertU(adoc("id", "2", "title", "w2", "description", "w2", "popularity", "2"));
+    assertU(adoc("id", "3", "title", "w3", "description", "w3", "popularity", "3"));
+    assertU(adoc("id", "4", "title", "w3 w3", "description", "w4", "popularity", "4"));
+    assertU(adoc("id", "5", "title", "w5", "description", "w5", "popularity", "5"));
+    assertU(commit());
+
+    loadFeatures("external_features.json");
+    loadModels("external_model.json");
+  }
+
+  @After
+  public void after() throws Exception {
+    aftertest();
+  }
+
+  @Test
+  public void testPagingReusesFeatureVectors() throws Exception {
+    final SolrQuery query = new SolrQuery();
+    query.setQuery("*:*");
+    query.add("fl", "id,score");
+    query.add("rows", "3");
+    query.add("rq", "{!ltr reRankDocs=10 model=externalmodel efi.user_query=w3}");
+
+    assertJQ("/query" + query.toQueryString(), "/response/docs/[0]/id=='4'");
+    assertCacheStats(5, 0, 5);
+
+    // the next page reranks the same documents, from their cached feature vectors
+    query.set("start", "1");
+    assertJQ(
+        "/query" + query.toQueryString(),
+        "/response/docs/[0]/id=='3'",
+        "/response/docs/[1]/id=='1'");
+    assertCacheStats(10, 5, 5);
+
+    // batched extraction shares the cache
+    query.set(
+        "rq",
+        "{!ltr reRankDocs=10 model=externalmodel efi.user_query=w3 batchFeatureExtraction=true}");
+    assertJQ(
+        "/query" + query.toQueryString(),
+        "/response/docs/[0]/id=='3'",
+        "/response/docs/[1]/id=='1'");
+    assertCacheStats(15, 10, 5);
+
+    // other efi params don't
+    query.set("rq", "{!ltr reRankDocs=10 model=externalmodel efi.user_query=w5}");
+    assertJQ("/query" + query.toQueryString(), "/response/numFound==5");
+    assertCacheStats(20, 10, 10);
+  }
+
+  @Test
+  public void testNewSearcherStartsEmpty() throws Exception {
+    final SolrQuery query = new SolrQuery();
+    query.setQuery("*:*");
+    query.add("fl", "id,score");
+    query.add("rq", "{!ltr reRankDocs=10 model=externalmodel efi.user_query=w3}");
+
+    assertJQ("/query" + query.toQueryString(), "/response/docs/[0]/id=='4'");
+    assertCacheStats(5, 0, 5);
+
+    assertU(adoc("id", "6", "title", "w3 w3 w3", "description", "w6", "popularity", "6"));
+    assertU(commit());
+
+    assertJQ("/query" + query.toQueryString(), "/response/numFound==6");
+    assertCacheStats(6, 0, 6);
+  }
+
+  private static void assertCacheStats(long lookups, long hits, long inserts) throws Exception {
+    final Map<String, Object> stats;
+    try (SolrCore core = jetty.getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+      stats =
+          core.withSearcher(
+              searcher ->
+                  ((CaffeineCache<?, ?>) searcher.getCache(FeatureVectorCache.NAME))
+                      .getMetricsMap()
+                      .getValue());
+    }
+    assertEquals(lookups, stats.get("lookups"));
+    assertEquals(hits, stats.get("hits"));
+    assertEquals(inserts, stats.get("inserts"));
+  }
+}
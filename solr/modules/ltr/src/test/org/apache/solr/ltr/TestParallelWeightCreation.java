@@ -16,7 +16,9 @@
  */
 package org.apache.solr.ltr;
 
+import java.util.Map;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.util.Utils;
 import org.junit.Test;
 
 public class TestParallelWeightCreation extends TestRerankBase {
@@ -50,6 +52,58 @@ public class TestParallelWeightCreation extends TestRerankBase {
     aftertest();
   }
 
+  @Test
+  public void testLTRScoringQueryParallelFeatureExtractionResultOrder() throws Exception {
+    setuptest("solrconfig-ltr_Th10_10.xml", "schema.xml");
+
+    assertU(adoc("id", "1", "title", "w1 w3", "description", "w1", "popularity", "1"));
+    assertU(adoc("id", "2", "title", "w2", "description", "w2", "popularity", "2"));
+    assertU(adoc("id", "3", "title", "w3", "description", "w3", "popularity", "3"));
+    assertU(adoc("id", "4", "title", "w3 w3", "description", "w4", "popularity", "4"));
+    assertU(adoc("id", "5", "title", "w5", "description", "w5", "popularity", "5"));
+    assertU(commit());
+
+    loadFeatures("external_features.json");
+    loadModels("external_model.json");
+
+    // the features extracted a segment at a time rank the documents like the ones extracted a
+    // document at a time
+    final SolrQuery query = new SolrQuery();
+    query.setQuery("*:*");
+    query.add("fl", "*,score");
+    query.add("rows", "4");
+    query.add("debug", "true");
+
+    query.add(
+        "rq",
+        "{!ltr reRankDocs=10 model=externalmodel efi.user_query=w3 batchFeatureExtraction=true}");
+    assertJQ("/query" + query.toQueryString(), "/response/docs/[0]/id=='4'");
+    assertJQ("/query" + query.toQueryString(), "/response/docs/[1]/id=='3'");
+    assertJQ("/query" + query.toQueryString(), "/response/docs/[2]/id=='1'");
+    assertJQ("/query" + query.toQueryString(), "/debug/ltr/externalmodel/docs==5");
+    assertJQ("/query" + query.toQueryString(), "/debug/ltr/externalmodel/parallel==true");
+
+    final Map<String, Object> batched = queryJson(query);
+    @SuppressWarnings({"unchecked"})
+    final Map<String, Object> featureExtractionTime =
+        (Map<String, Object>)
+            ((Map<String, Object>)
+                    ((Map<String, Object>) ((Map<String, Object>) batched.get("debug")).get("ltr"))
+                        .get("externalmodel"))
+                .get("featureExtractionTime");
+    assertTrue(featureExtractionTime.containsKey("matchedTitle"));
+
+    query.set("rq", "{!ltr reRankDocs=10 model=externalmodel efi.user_query=w3}");
+    assertEquals(queryJson(query).get("response"), batched.get("response"));
+    aftertest();
+  }
+
+  @SuppressWarnings({"unchecked"})
+  private static Map<String, Object> queryJson(SolrQuery query) throws Exception {
+    return (Map<String, Object>)
+        Utils.fromJSONString(restTestHarness.query("/query" + query.toQueryString()));
+  }
+
   @Test
   public void testLTRQParserThreadInitialization() throws Exception {
     // setting the value of number of threads to -ve should throw an exception
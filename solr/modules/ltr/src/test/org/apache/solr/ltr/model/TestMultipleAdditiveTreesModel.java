@@ -18,8 +18,16 @@ package org.apache.solr.ltr.model;
 
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.ltr.TestRerankBase;
+import org.apache.solr.ltr.feature.Feature;
+import org.apache.solr.ltr.norm.IdentityNormalizer;
+import org.apache.solr.ltr.norm.Normalizer;
 import org.hamcrest.MatcherAssert;
 import org.junit.After;
 import org.junit.Before;
@@ -53,6 +61,64 @@ public class TestMultipleAdditiveTreesModel extends TestRerankBase {
     doTestMultipleAdditiveTreesExplain();
   }
 
+  @Test
+  public void testFlattenedTreesScoreLikeTreeNodes() throws Exception {
+    final List<Feature> features = getFeatures(new String[] {"f0", "f1", "f2", "f3", "f4"});
+    final List<Normalizer> norms =
+        new ArrayList<>(Collections.nCopies(features.size(), IdentityNormalizer.INSTANCE));
+    final boolean isNullSameAsZero = random().nextBoolean();
+
+    final List<Object> trees = new ArrayList<>();
+    for (int i = atLeast(10); i > 0; i--) {
+      final Map<String, Object> tree = new HashMap<>();
+      tree.put("weight", Float.toString(random().nextFloat() * 2 - 1));
+      tree.put("root", randomNode(features, random().nextInt(8)));
+      trees.add(tree);
+    }
+    final Map<String, Object> params = new HashMap<>();
+    params.put("trees", trees);
+    params.put("isNullSameAsZero", isNullSameAsZero);
+
+    final MultipleAdditiveTreesModel model =
+        (MultipleAdditiveTreesModel)
+            LTRScoringModel.getInstance(
+                solrResourceLoader,
+                MultipleAdditiveTreesModel.class.getName(),
+                "flattened",
+                features,
+                norms,
+                "test",
+                features,
+                params);
+
+    for (int i = atLeast(100); i > 0; i--) {
+      final float[] featureVector = new float[features.size()];
+      for (int f = 0; f < featureVector.length; f++) {
+        featureVector[f] = random().nextInt(10) == 0 ? Float.NaN : random().nextFloat();
+      }
+      assertEquals(model.scoreTreeNodes(featureVector), model.score(featureVector), 0f);
+    }
+  }
+
+  private Map<String, Object> randomNode(List<Feature> features, int depth) {
+    final Map<String, Object> node = new HashMap<>();
+    if (depth == 0 || random().nextInt(4) == 0) {
+      node.put("value", Float.toString(random().nextFloat() * 100 - 50));
+    } else {
+      // now and then, split on a feature the model doesn't have
+      node.put(
+          "feature",
+          random().nextInt(20) == 0
+              ? "notInModel"
+              : features.get(random().nextInt(features.size())).getName());
+      node.put("threshold", Float.toString(random().nextFloat()));
+      node.put("missing", random().nextBoolean() ? "left" : "right");
+      node.put("left", randomNode(features, depth - 1));
+      node.put("right", randomNode(features, depth - 1));
+    }
+    return node;
+  }
+
   private void doTestMultipleAdditiveTreesScoringWithAndWithoutEfiFeatureMatches()
       throws Exception {
 
@@ -19,12 +19,16 @@ package org.apache.solr.handler.sql;
 import static org.apache.solr.client.solrj.io.stream.metrics.CountDistinctMetric.APPROX_COUNT_DISTINCT;
 import static org.apache.solr.client.solrj.io.stream.metrics.CountDistinctMetric.COUNT_DISTINCT;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Properties;
 import org.apache.calcite.plan.RelOptCluster;
 import org.apache.calcite.plan.RelTraitSet;
+import org.apache.calcite.plan.volcano.RelSubset;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.RelWriter;
 import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.AggregateCall;
 import org.apache.calcite.rel.hint.RelHint;
@@ -89,6 +93,45 @@ class SolrAggregate extends Aggregate implements SolrRel {
     return new SolrAggregate(getCluster(), traitSet, hints, input, groupSet, groupSets, aggCalls);
   }
 
+  /**
+   * Adds how the groups are rolled up to the plan, so that {@code EXPLAIN PLAN FOR} shows whether
+   * the facets or the workers of the map_reduce mode aggregate them.
+   */
+  @Override
+  public RelWriter explainTerms(RelWriter pw) {
+    super.explainTerms(pw);
+    final SolrTable solrTable = findSolrTable(getInput());
+    if (solrTable != null && !getGroupSet().isEmpty()) {
+      final Properties properties = solrTable.getProperties();
+      final List<String> inNames = SolrRules.solrFieldNames(getInput().getRowType());
+      final List<String> buckets = new ArrayList<>();
+      for (int group : getGroupSet()) {
+        buckets.add(inNames.get(group));
+      }
+      final boolean mapReduce = solrTable.isMapReduce(properties, buckets);
+      final int numWorkers = Integer.parseInt(properties.getProperty("numWorkers", "1"));
+      pw.item("aggregationMode", mapReduce ? "map_reduce" : "facet");
+      pw.itemIf("numWorkers", numWorkers, mapReduce && numWorkers > 1);
+    }
+    return pw;
+  }
+
+  // the table the aggregated rows are read from, through the filters and projections
+  private static SolrTable findSolrTable(RelNode input) {
+    while (input != null) {
+      if (input instanceof SolrTableScan) {
+        return ((SolrTableScan) input).getSolrTable();
+      } else if (input instanceof RelSubset) {
+        input = ((RelSubset) input).getOriginal();
+      } else if (input.getInputs().size() == 1) {
+        input = input.getInput(0);
+      } else {
+        return null;
+      }
+    }
+    return null;
+  }
+
   @Override
   public void implement(Implementor implementor) {
     implementor.visitChild(0, getInput());
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -44,6 +45,7 @@ import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.LukeResponse;
 import org.apache.solr.common.cloud.Aliases;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.luke.FieldFlag;
 import org.apache.solr.schema.DateValueFieldType;
@@ -62,6 +64,9 @@ class SolrSchema extends AbstractSchema implements Closeable {
   // so there's some benefit to caching it for the duration of a statement
   // every statement gets a new SolrSchema instance
   private Map<String, RelDataType> schemaCache = new ConcurrentHashMap<>();
+  // the statistics are cached for the duration of a statement as well
+  private Map<String, Long> numDocsCache = new ConcurrentHashMap<>();
+  private Map<String, Long> cardinalityCache = new ConcurrentHashMap<>();
 
   SolrSchema(Properties properties, SolrClientCache solrClientCache) {
     super();
@@ -112,7 +117,71 @@ class SolrSchema extends AbstractSchema implements Closeable {
     try {
       LukeRequest lukeRequest = new LukeRequest();
       lukeRequest.setNumTerms(0);
-      return lukeRequest.process(solrClientCache.getCloudSolrClient(zk), collection).getFieldInfo();
+      LukeResponse response =
+          lukeRequest.process(solrClientCache.getCloudSolrClient(zk), collection);
+      Integer numDocs = response.getNumDocs();
+      if (numDocs != null) {
+        numDocsCache.put(collection, (long) numDocs * getNumShards(collection));
+      }
+      return response.getFieldInfo();
+    } catch (SolrServerException | IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      PKIAuthenticationPlugin.withServerIdentity(false);
+    }
+  }
+
+  /**
+   * An estimate of the number of documents in a collection. Luke only reports the documents of the
+   * replica it is sent to, so this is its count times the number of shards.
+   *
+   * @return the estimate, or -1 if it is unknown
+   */
+  long getNumDocs(String collection) {
+    getRowSchema(collection);
+    return numDocsCache.getOrDefault(collection, -1L);
+  }
+
+  /**
+   * An estimate of the number of distinct combinations of values of some fields, which is the
+   * product of the number of distinct terms of each of them in the shard Luke is sent to. This
+   * enumerates the terms of the fields, which is still much cheaper than exporting the documents.
+   *
+   * @return the estimate, at most Long.MAX_VALUE, or -1 if a field isn't indexed so that its terms
+   *     can't be counted
+   */
+  long getCardinality(String collection, List<String> fields) {
+    long cardinality = 1;
+    for (String field : fields) {
+      long distinct =
+          cardinalityCache.computeIfAbsent(
+              collection + "/" + field, key -> getDistinctTerms(collection, field));
+      if (distinct < 0) {
+        return -1;
+      }
+      distinct = Math.max(distinct, 1);
+      // saturates rather than overflows, the estimate only has to exceed the threshold
+      cardinality =
+          distinct > Long.MAX_VALUE / cardinality ? Long.MAX_VALUE : cardinality * distinct;
+    }
+    return cardinality;
+  }
+
+  private long getDistinctTerms(final String collection, final String field) {
+    final String zk = this.properties.getProperty("zk");
+    PKIAuthenticationPlugin.withServerIdentity(true);
+    try {
+      LukeRequest lukeRequest = new LukeRequest();
+      lukeRequest.setFields(List.of(field));
+      lukeRequest.setNumTerms(0);
+      lukeRequest.setIncludeIndexFieldFlags(false);
+      LukeResponse.FieldInfo fieldInfo =
+          lukeRequest
+              .process(solrClientCache.getCloudSolrClient(zk), collection)
+              .getFieldInfo()
+              .get(field);
+      // fields without terms, like docValues only fields, have no distinct count
+      return fieldInfo != null && fieldInfo.getDocs() > 0 ? fieldInfo.getDistinct() : -1;
     } catch (SolrServerException | IOException e) {
       throw new RuntimeException(e);
     } finally {
@@ -120,6 +189,14 @@ class SolrSchema extends AbstractSchema implements Closeable {
     }
   }
 
+  private int getNumShards(final String collection) {
+    final String zk = this.properties.getProperty("zk");
+    DocCollection docCollection =
+        solrClientCache.getCloudSolrClient(zk).getClusterState().getCollectionOrNull(collection);
+    // an alias may span several collections, count it as one shard
+    return docCollection != null ? Math.max(docCollection.getActiveSlices().size(), 1) : 1;
+  }
+
   private LukeResponse getSchema(final String collection) {
     final String zk = this.properties.getProperty("zk");
     PKIAuthenticationPlugin.withServerIdentity(true);
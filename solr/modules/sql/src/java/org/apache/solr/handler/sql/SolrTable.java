@@ -44,6 +44,8 @@ import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
 import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTableQueryable;
 import org.apache.calcite.util.Pair;
@@ -91,6 +93,7 @@ import org.apache.solr.common.params.ModifiableSolrParams;
 /** Table based on a Solr collection */
 class SolrTable extends AbstractQueryableTable implements TranslatableTable {
   private static final String DEFAULT_QUERY = "*:*";
+  private static final long DEFAULT_MAP_REDUCE_CARDINALITY = 100_000;
 
   private final String collection;
   private final SolrSchema schema;
@@ -115,6 +118,38 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
     return protoRowType.apply(typeFactory);
   }
 
+  /** The connection properties, which choose how the queries on the table are executed. */
+  Properties getProperties() {
+    return schema.properties;
+  }
+
+  /**
+   * The estimated number of documents of the collection, so that the planner weighs the plans it
+   * considers by the number of rows they would transfer.
+   */
+  @Override
+  public Statistic getStatistic() {
+    final long numDocs = schema.getNumDocs(collection);
+    return numDocs < 0 ? Statistics.UNKNOWN : Statistics.of(Math.max(numDocs, 1), null);
+  }
+
+  /**
+   * Whether a group by on some fields is rolled up by the workers of the map_reduce mode rather
+   * than by the facets. In the auto mode, the map_reduce mode is chosen when the estimated number
+   * of groups exceeds the mapReduceCardinality property.
+   */
+  boolean isMapReduce(Properties properties, List<String> buckets) {
+    final String aggregationMode = properties.getProperty("aggregationMode");
+    if ("auto".equals(aggregationMode)) {
+      final long threshold =
+          Long.parseLong(
+              properties.getProperty(
+                  "mapReduceCardinality", String.valueOf(DEFAULT_MAP_REDUCE_CARDINALITY)));
+      return schema.getCardinality(collection, buckets) > threshold;
+    }
+    return "map_reduce".equals(aggregationMode);
+  }
+
   private Enumerable<Object> query(final Properties properties) {
     return query(
         properties,
@@ -149,7 +184,6 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
       final String havingPredicate,
       final String offset) {
     // SolrParams should be a ModifiableParams instead of a map
-    boolean mapReduce = "map_reduce".equals(properties.getProperty("aggregationMode"));
     boolean negative = Boolean.parseBoolean(negativeQuery);
 
     String q = null;
@@ -173,7 +207,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         if (buckets.isEmpty()) {
           tupleStream = handleStats(zk, collection, q, metricPairs, fields);
         } else {
-          if (mapReduce) {
+          if (isMapReduce(properties, buckets)) {
             tupleStream =
                 handleGroupByMapReduce(
                     zk,
@@ -586,6 +620,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
             .withFunctionName("val", RawValueEvaluator.class)
             .withFunctionName("lteq", LessThanEqualToEvaluator.class)
             .withFunctionName("having", HavingStream.class)
+            .withFunctionName("top", RankStream.class)
             .withFunctionName("gteq", GreaterThanEqualToEvaluator.class);
 
     if (havingPredicate != null) {
@@ -599,12 +634,32 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
       // Do the rollups in parallel
       // Maintain the sort of the Tuples coming from the workers.
       StreamComparator comp = bucketSortComp(buckets, sortDirection);
+      int workerLimit = -1;
+      if (orders != null && orders.size() > 0 && !sortsEqual(buckets, sortDirection, orders)) {
+        workerLimit = (limit == null) ? 100 : Integer.parseInt(limit);
+        comp = getComp(orders);
+      } else if (limit != null) {
+        workerLimit = Integer.parseInt(limit);
+      }
+
+      // The tuples are partitioned on the buckets, so every group is rolled up by a single worker.
+      // Each worker can then rank its own groups, and only the top of each one is merged here
+      // instead of all the rolled up tuples.
+      if (workerLimit != -1) {
+        tupleStream = new RankStream(tupleStream, workerLimit, comp);
+      }
+
       @SuppressWarnings("resource")
       final ParallelStream parallelStream =
           new ParallelStream(zk, collection, tupleStream, numWorkers, comp);
 
       parallelStream.setStreamFactory(factory);
       tupleStream = parallelStream;
+
+      if (workerLimit != -1) {
+        tupleStream = new LimitStream(tupleStream, workerLimit);
+      }
+      return tupleStream;
     }
 
     // TODO: Currently we are not pushing down the having clause.
@@ -616,8 +671,6 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         int lim = (limit == null) ? 100 : Integer.parseInt(limit);
         StreamComparator comp = getComp(orders);
         // Rank the Tuples
-        // If parallel stream is used ALL the Rolled up tuples from the workers will be ranked
-        // Providing a true Top or Bottom.
         tupleStream = new RankStream(tupleStream, lim, comp);
       } else {
         // Sort is the same as the same as the underlying stream
@@ -2348,6 +2348,143 @@ public class TestSQLHandler extends SolrCloudTestCase {
     assertEquals(1, tuple.getDouble("EXPR$3"), 0.0); // sum(item_i)
   }
 
+  @Test
+  public void testParallelGroupByRankedByWorkers() throws Exception {
+    new UpdateRequest()
+        .add("id", "1", "str_s", "a", "field_i", "1")
+        .add("id", "2", "str_s", "b", "field_i", "2")
+        .add("id", "3", "str_s", "a", "field_i", "20")
+        .add("id", "4", "str_s", "b", "field_i", "2")
+        .add("id", "5", "str_s", "c", "field_i", "30")
+        .add("id", "6", "str_s", "c", "field_i", "30")
+        .add("id", "7", "str_s", "d", "field_i", "5")
+        .add("id", "8", "str_s", "d", "field_i", "6")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    // each worker ranks the groups it rolled up, the top of each worker is merged
+    SolrParams sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "numWorkers",
+            "2",
+            "aggregationMode",
+            "map_reduce",
+            "stmt",
+            "select str_s, sum(field_i) from collection1 group by str_s"
+                + " order by sum(field_i) desc limit 2");
+
+    List<Tuple> tuples = getTuples(sParams, sqlUrl());
+    assertEquals(2, tuples.size());
+    assertEquals("c", tuples.get(0).get("str_s"));
+    assertEquals(60, tuples.get(0).getDouble("EXPR$1"), 0.0);
+    assertEquals("a", tuples.get(1).get("str_s"));
+    assertEquals(21, tuples.get(1).getDouble("EXPR$1"), 0.0);
+
+    // the limit alone is applied by the workers as well
+    sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "numWorkers",
+            "2",
+            "aggregationMode",
+            "map_reduce",
+            "stmt",
+            "select str_s, sum(field_i) from collection1 group by str_s"
+                + " order by str_s desc limit 3");
+
+    tuples = getTuples(sParams, sqlUrl());
+    assertEquals(3, tuples.size());
+    assertEquals("d", tuples.get(0).get("str_s"));
+    assertEquals("c", tuples.get(1).get("str_s"));
+    assertEquals("b", tuples.get(2).get("str_s"));
+
+    // the plan shows how the groups are rolled up
+    sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "numWorkers",
+            "2",
+            "aggregationMode",
+            "map_reduce",
+            "stmt",
+            "explain plan for select str_s, sum(field_i) from collection1 group by str_s");
+
+    tuples = getTuples(sParams, sqlUrl());
+    assertEquals(1, tuples.size());
+    String plan = tuples.get(0).getString("PLAN");
+    assertTrue(plan, plan.contains("aggregationMode=[map_reduce]"));
+    assertTrue(plan, plan.contains("numWorkers=[2]"));
+
+    sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "stmt",
+            "explain plan for select str_s, sum(field_i) from collection1 group by str_s");
+
+    plan = getTuples(sParams, sqlUrl()).get(0).getString("PLAN");
+    assertTrue(plan, plan.contains("aggregationMode=[facet]"));
+    assertFalse(plan, plan.contains("numWorkers"));
+  }
+
+  @Test
+  public void testAutoAggregationMode() throws Exception {
+    new UpdateRequest()
+        .add("id", "1", "str_s", "a", "field_i", "1")
+        .add("id", "2", "str_s", "b", "field_i", "2")
+        .add("id", "3", "str_s", "a", "field_i", "20")
+        .add("id", "4", "str_s", "c", "field_i", "30")
+        .add("id", "5", "str_s", "d", "field_i", "5")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    final String stmt =
+        "select str_s, sum(field_i) from collection1 group by str_s order by str_s asc";
+
+    // few groups are rolled up by the facets
+    SolrParams sParams =
+        params(
+            CommonParams.QT, "/sql", "aggregationMode", "auto", "stmt", "explain plan for " + stmt);
+    String plan = getTuples(sParams, sqlUrl()).get(0).getString("PLAN");
+    assertTrue(plan, plan.contains("aggregationMode=[facet]"));
+
+    // past the cardinality threshold the groups are rolled up by the workers
+    sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "aggregationMode",
+            "auto",
+            "mapReduceCardinality",
+            "0",
+            "stmt",
+            "explain plan for " + stmt);
+    plan = getTuples(sParams, sqlUrl()).get(0).getString("PLAN");
+    assertTrue(plan, plan.contains("aggregationMode=[map_reduce]"));
+
+    // both give the same groups
+    for (String mapReduceCardinality : new String[] {"0", "100000"}) {
+      sParams =
+          params(
+              CommonParams.QT,
+              "/sql",
+              "aggregationMode",
+              "auto",
+              "mapReduceCardinality",
+              mapReduceCardinality,
+              "stmt",
+              stmt);
+      List<Tuple> tuples = getTuples(sParams, sqlUrl());
+      assertEquals(4, tuples.size());
+      assertEquals("a", tuples.get(0).get("str_s"));
+      assertEquals(21, tuples.get(0).getDouble("EXPR$1"), 0.0);
+      assertEquals("d", tuples.get(3).get("str_s"));
+      assertEquals(5, tuples.get(3).getDouble("EXPR$1"), 0.0);
+    }
+  }
+
   protected List<Tuple> getTuples(final SolrParams params, String baseUrl) throws IOException {
     List<Tuple> tuples = new ArrayList<>();
     try (TupleStream tupleStream = new SolrStream(baseUrl, params)) {
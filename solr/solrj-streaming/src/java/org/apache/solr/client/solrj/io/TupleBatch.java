@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.stream.BatchTupleStream;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+
+/**
+ * A batch of tuples stored column by column. Long and double fields are held in primitive arrays,
+ * so that streams implementing {@link BatchTupleStream} can pass rows along without allocating a
+ * {@link Tuple}, its map and boxed values for each of them.
+ *
+ * <p>The columns of a batch are added as they are met, and a column whose values don't all have
+ * the same numeric type holds them as objects. Other values, including ints and floats, are held
+ * as objects too, so that a row read from a batch has the same values as the tuple it was made
+ * from. {@link #fill(TupleStream)} and {@link #toTuple(int)} adapt the batch to the per tuple API.
+ *
+ * @lucene.experimental
+ */
+public class TupleBatch {
+
+  /** The default maximum number of rows in a batch. */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /** How the values of a column are stored. */
+  public enum ColumnType {
+    LONG,
+    DOUBLE,
+    OBJECT
+  }
+
+  private final int capacity;
+  private final List<String> names;
+  private final Map<String, Integer> columns;
+  private ColumnType[] types;
+  private long[][] longs;
+  private double[][] doubles;
+  private Object[][] objects;
+  // the rows that have a value, per column
+  private long[][] present;
+  private int size;
+  private Tuple eof;
+
+  public TupleBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public TupleBatch(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.names = new ArrayList<>();
+    this.columns = new HashMap<>();
+    this.types = new ColumnType[4];
+    this.longs = new long[4][];
+    this.doubles = new double[4][];
+    this.objects = new Object[4][];
+    this.present = new long[4][];
+  }
+
+  // a batch sharing the arrays of another one, see select
+  private TupleBatch(int capacity, int numColumns) {
+    this.capacity = capacity;
+    this.names = new ArrayList<>(numColumns);
+    this.columns = new HashMap<>();
+    final int length = Math.max(numColumns, 1);
+    this.types = new ColumnType[length];
+    this.longs = new long[length][];
+    this.doubles = new double[length][];
+    this.objects = new Object[length][];
+    this.present = new long[length][];
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /** The number of rows in the batch. */
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /**
+   * Removes all the rows and the EOF marker. The columns are kept, so that a stream can reuse the
+   * batch for its next rows.
+   */
+  public void clear() {
+    final int words = wordCount(size);
+    for (int column = 0; column < names.size(); column++) {
+      Arrays.fill(present[column], 0, words, 0L);
+      if (objects[column] != null) {
+        Arrays.fill(objects[column], 0, size, null);
+      }
+    }
+    size = 0;
+    eof = null;
+  }
+
+  /** Whether the stream ended after the rows of this batch. */
+  public boolean isEOF() {
+    return eof != null;
+  }
+
+  /** The EOF tuple of the stream, which may hold metrics, or null if it didn't end yet. */
+  public Tuple getEOF() {
+    return eof;
+  }
+
+  public void setEOF(Tuple eof) {
+    assert eof == null || eof.EOF;
+    this.eof = eof;
+  }
+
+  public int numColumns() {
+    return names.size();
+  }
+
+  /** The index of the column of a field, or -1 if the batch has no such column. */
+  public int getColumn(String name) {
+    final Integer column = columns.get(name);
+    return column == null ? -1 : column;
+  }
+
+  public String getColumnName(int column) {
+    return names.get(column);
+  }
+
+  public ColumnType getColumnType(int column) {
+    return types[column];
+  }
+
+  /**
+   * Adds a column, with no value for the rows already in the batch.
+   *
+   * @return the index of the column
+   */
+  public int addColumn(String name, ColumnType type) {
+    if (columns.containsKey(name)) {
+      throw new IllegalArgumentException("Duplicate column: " + name);
+    }
+    final int column = names.size();
+    if (column == types.length) {
+      final int newLength = column * 2;
+      types = Arrays.copyOf(types, newLength);
+      longs = Arrays.copyOf(longs, newLength);
+      doubles = Arrays.copyOf(doubles, newLength);
+      objects = Arrays.copyOf(objects, newLength);
+      present = Arrays.copyOf(present, newLength);
+    }
+    names.add(name);
+    columns.put(name, column);
+    types[column] = type;
+    switch (type) {
+      case LONG:
+        longs[column] = new long[capacity];
+        break;
+      case DOUBLE:
+        doubles[column] = new double[capacity];
+        break;
+      default:
+        objects[column] = new Object[capacity];
+    }
+    present[column] = new long[wordCount(capacity)];
+    return column;
+  }
+
+  /**
+   * Appends a row without any value; the values are then set column by column.
+   *
+   * @return the index of the row
+   */
+  public int addRow() {
+    if (size == capacity) {
+      throw new IllegalStateException("The batch is full");
+    }
+    return size++;
+  }
+
+  /** Appends a row with the fields of the tuple, adding the columns it introduces. */
+  public void add(Tuple tuple) {
+    final int row = addRow();
+    for (Map.Entry<String, Object> field : tuple.getFields().entrySet()) {
+      final Object value = field.getValue();
+      if (value == null) {
+        continue;
+      }
+      int column = getColumn(field.getKey());
+      if (column == -1) {
+        column = addColumn(field.getKey(), typeOf(value));
+      }
+      set(column, row, value);
+    }
+  }
+
+  /** Creates a tuple holding the values of a row. */
+  public Tuple toTuple(int row) {
+    final Tuple tuple = new Tuple();
+    for (int column = 0; column < names.size(); column++) {
+      if (!isNull(column, row)) {
+        tuple.put(names.get(column), get(column, row));
+      }
+    }
+    return tuple;
+  }
+
+  /**
+   * Empties the batch, then reads tuples from the stream until the batch is full or the stream
+   * ends. This adapts streams that only produce tuples one at a time.
+   *
+   * @return this batch
+   */
+  public TupleBatch fill(TupleStream stream) throws IOException {
+    clear();
+    while (size < capacity) {
+      final Tuple tuple = stream.read();
+      if (tuple.EOF) {
+        eof = tuple;
+        break;
+      }
+      add(tuple);
+    }
+    return this;
+  }
+
+  /**
+   * Creates a batch sharing the rows and the column arrays of this one, with only the given
+   * columns, renamed. Fields this batch has no column for are left out, as well as fields renamed
+   * like a field already selected. The returned batch is only valid as long as this one isn't
+   * modified.
+   *
+   * @param fieldNames the fields to keep, mapped to their name in the returned batch
+   */
+  public TupleBatch select(Map<String, String> fieldNames) {
+    final TupleBatch selected = new TupleBatch(capacity, fieldNames.size());
+    for (Map.Entry<String, String> fieldName : fieldNames.entrySet()) {
+      final int column = getColumn(fieldName.getKey());
+      if (column != -1 && !selected.columns.containsKey(fieldName.getValue())) {
+        final int selectedColumn = selected.names.size();
+        selected.names.add(fieldName.getValue());
+        selected.columns.put(fieldName.getValue(), selectedColumn);
+        selected.types[selectedColumn] = types[column];
+        selected.longs[selectedColumn] = longs[column];
+        selected.doubles[selectedColumn] = doubles[column];
+        selected.objects[selectedColumn] = objects[column];
+        selected.present[selectedColumn] = present[column];
+      }
+    }
+    selected.size = size;
+    selected.eof = eof;
+    return selected;
+  }
+
+  public boolean isNull(int column, int row) {
+    return (present[column][row >>> 6] & (1L << row)) == 0;
+  }
+
+  /** Whether two rows have the same value, or both none, in a column. */
+  public boolean sameValue(int column, int row, int otherRow) {
+    final boolean isNull = isNull(column, row);
+    if (isNull || isNull(column, otherRow)) {
+      return isNull == isNull(column, otherRow);
+    }
+    switch (types[column]) {
+      case LONG:
+        return longs[column][row] == longs[column][otherRow];
+      case DOUBLE:
+        return Double.doubleToLongBits(doubles[column][row])
+            == Double.doubleToLongBits(doubles[column][otherRow]);
+      default:
+        return objects[column][row].equals(objects[column][otherRow]);
+    }
+  }
+
+  /** The value of a {@link ColumnType#LONG} column, or 0 if the row has no value. */
+  public long getLong(int column, int row) {
+    assert types[column] == ColumnType.LONG;
+    return longs[column][row];
+  }
+
+  /**
+   * The value of a {@link ColumnType#DOUBLE} or {@link ColumnType#LONG} column, or 0 if the row has
+   * no value.
+   */
+  public double getDouble(int column, int row) {
+    assert types[column] != ColumnType.OBJECT;
+    return types[column] == ColumnType.LONG ? longs[column][row] : doubles[column][row];
+  }
+
+  /** The boxed value of any column, or null if the row has no value. */
+  public Object get(int column, int row) {
+    if (isNull(column, row)) {
+      return null;
+    }
+    switch (types[column]) {
+      case LONG:
+        return longs[column][row];
+      case DOUBLE:
+        return doubles[column][row];
+      default:
+        return objects[column][row];
+    }
+  }
+
+  public void setLong(int column, int row, long value) {
+    if (types[column] == ColumnType.LONG) {
+      longs[column][row] = value;
+      markPresent(column, row);
+    } else {
+      set(column, row, value);
+    }
+  }
+
+  public void setDouble(int column, int row, double value) {
+    if (types[column] == ColumnType.DOUBLE) {
+      doubles[column][row] = value;
+      markPresent(column, row);
+    } else {
+      set(column, row, value);
+    }
+  }
+
+  /**
+   * Sets the value of a row, turning the column into an {@link ColumnType#OBJECT} column if the
+   * value doesn't match its type.
+   */
+  public void set(int column, int row, Object value) {
+    if (value == null) {
+      present[column][row >>> 6] &= ~(1L << row);
+      if (objects[column] != null) {
+        objects[column][row] = null;
+      }
+      return;
+    }
+    final ColumnType type = typeOf(value);
+    if (type != types[column]) {
+      toObjectColumn(column);
+    }
+    switch (types[column]) {
+      case LONG:
+        longs[column][row] = ((Number) value).longValue();
+        break;
+      case DOUBLE:
+        doubles[column][row] = ((Number) value).doubleValue();
+        break;
+      default:
+        objects[column][row] = value;
+    }
+    markPresent(column, row);
+  }
+
+  private void markPresent(int column, int row) {
+    present[column][row >>> 6] |= 1L << row;
+  }
+
+  private void toObjectColumn(int column) {
+    if (types[column] == ColumnType.OBJECT) {
+      return;
+    }
+    final Object[] values = new Object[capacity];
+    for (int row = 0; row < size; row++) {
+      values[row] = get(column, row);
+    }
+    types[column] = ColumnType.OBJECT;
+    longs[column] = null;
+    doubles[column] = null;
+    objects[column] = values;
+  }
+
+  private static ColumnType typeOf(Object value) {
+    // ints and floats aren't widened, their tuples would then differ from the unbatched ones
+    if (value instanceof Long) {
+      return ColumnType.LONG;
+    } else if (value instanceof Double) {
+      return ColumnType.DOUBLE;
+    } else {
+      return ColumnType.OBJECT;
+    }
+  }
+
+  private static int wordCount(int numBits) {
+    return (numBits + 63) >>> 6;
+  }
+}
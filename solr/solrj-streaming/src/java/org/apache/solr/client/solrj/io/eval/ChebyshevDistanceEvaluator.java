@@ -17,7 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Locale;
 import org.apache.commons.math3.ml.distance.ChebyshevDistance;
@@ -69,8 +68,8 @@ public class ChebyshevDistanceEvaluator extends RecursiveNumericEvaluator
     ChebyshevDistance distance = new ChebyshevDistance();
     return distance.compute(
         ((List<?>) first)
-            .stream().mapToDouble(value -> ((BigDecimal) value).doubleValue()).toArray(),
+            .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
         ((List<?>) second)
-            .stream().mapToDouble(value -> ((BigDecimal) value).doubleValue()).toArray());
+            .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
   }
 }
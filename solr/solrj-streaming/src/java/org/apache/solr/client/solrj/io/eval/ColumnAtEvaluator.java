@@ -17,8 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -46,11 +44,11 @@ public class ColumnAtEvaluator extends RecursiveObjectEvaluator implements TwoVa
       Matrix matrix = (Matrix) value1;
       Number index = (Number) value2;
       double[][] data = matrix.getData();
-      List<Number> list = new ArrayList<>();
-      for (double[] row : data) {
-        list.add(row[index.intValue()]);
+      double[] column = new double[data.length];
+      for (int i = 0; i < data.length; i++) {
+        column[i] = data[i][index.intValue()];
       }
-      return list;
+      return new DoubleList(column);
     } else {
       throw new IOException("The rowAt function expects a matrix as the first parameter");
     }
@@ -104,25 +104,19 @@ public class CorrelationEvaluator extends RecursiveObjectEvaluator implements Ma
       if (type.equals(CorrelationType.pearsons)) {
         PearsonsCorrelation pearsonsCorrelation = new PearsonsCorrelation();
         return pearsonsCorrelation.correlation(
-            ((List<?>) first)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-            ((List<?>) second)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+            DoubleList.toDoubleArray((List<?>) first),
+            DoubleList.toDoubleArray((List<?>) second));
       } else if (type.equals(CorrelationType.kendalls)) {
         KendallsCorrelation kendallsCorrelation = new KendallsCorrelation();
         return kendallsCorrelation.correlation(
-            ((List<?>) first)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-            ((List<?>) second)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+            DoubleList.toDoubleArray((List<?>) first),
+            DoubleList.toDoubleArray((List<?>) second));
 
       } else if (type.equals(CorrelationType.spearmans)) {
         SpearmansCorrelation spearmansCorrelation = new SpearmansCorrelation();
         return spearmansCorrelation.correlation(
-            ((List<?>) first)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-            ((List<?>) second)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+            DoubleList.toDoubleArray((List<?>) first),
+            DoubleList.toDoubleArray((List<?>) second));
       } else {
         return null;
       }
@@ -40,9 +40,8 @@ public class CovarianceEvaluator extends RecursiveObjectEvaluator implements Man
       Covariance covariance = new Covariance();
 
       return covariance.covariance(
-          ((List<?>) first).stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-          ((List<?>) second)
-              .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+          DoubleList.toDoubleArray((List<?>) first),
+          DoubleList.toDoubleArray((List<?>) second));
     } else if (values.length == 1) {
       Matrix matrix = (Matrix) values[0];
       double[][] data = matrix.getData();
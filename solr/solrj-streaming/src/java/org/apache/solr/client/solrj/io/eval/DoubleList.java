@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.eval;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of doubles backed by a primitive array. Evaluators return it for numeric
+ * vectors, so that the evaluators reading them get the array with {@link #toDoubleArray(List)}
+ * instead of boxing and unboxing every value, and so that it isn't normalized to a list of {@link
+ * java.math.BigDecimal}s between evaluators. Other consumers see an ordinary list of doubles.
+ */
+public class DoubleList extends AbstractList<Number> implements RandomAccess {
+
+  private final double[] values;
+
+  /**
+   * @param values the values of the list, which are not copied and must not be modified anymore
+   */
+  public DoubleList(double[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public Double get(int index) {
+    return values[index];
+  }
+
+  public double getDouble(int index) {
+    return values[index];
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+
+  boolean hasNaN() {
+    for (double value : values) {
+      if (Double.isNaN(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The values of a list of numbers as doubles. The array backing a {@link DoubleList} is returned
+   * as is, so the returned array must not be modified.
+   */
+  public static double[] toDoubleArray(List<?> values) {
+    if (values instanceof DoubleList) {
+      return ((DoubleList) values).values;
+    }
+    final double[] array = new double[values.size()];
+    int i = 0;
+    for (Object value : values) {
+      array[i++] = ((Number) value).doubleValue();
+    }
+    return array;
+  }
+}
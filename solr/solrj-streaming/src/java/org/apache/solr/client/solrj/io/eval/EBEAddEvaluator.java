@@ -17,7 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
@@ -52,17 +51,10 @@ public class EBEAddEvaluator extends RecursiveObjectEvaluator implements TwoValu
     if (first instanceof List && second instanceof List) {
       double[] result =
           MathArrays.ebeAdd(
-              ((List<?>) first)
-                  .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-              ((List<?>) second)
-                  .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+              DoubleList.toDoubleArray((List<?>) first),
+              DoubleList.toDoubleArray((List<?>) second));
 
-      List<Number> numbers = new ArrayList<>();
-      for (double d : result) {
-        numbers.add(d);
-      }
-
-      return numbers;
+      return new DoubleList(result);
     } else if (first instanceof Matrix && second instanceof Matrix) {
       double[][] data1 = ((Matrix) first).getData();
       double[][] data2 = ((Matrix) second).getData();
@@ -17,7 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.commons.math3.util.MathArrays;
@@ -66,16 +65,9 @@ public class EBEDivideEvaluator extends RecursiveNumericEvaluator implements Two
 
     double[] result =
         MathArrays.ebeDivide(
-            ((List<?>) first)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-            ((List<?>) second)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+            DoubleList.toDoubleArray((List<?>) first),
+            DoubleList.toDoubleArray((List<?>) second));
 
-    List<Number> numbers = new ArrayList<>();
-    for (double d : result) {
-      numbers.add(d);
-    }
-
-    return numbers;
+    return new DoubleList(result);
   }
 }
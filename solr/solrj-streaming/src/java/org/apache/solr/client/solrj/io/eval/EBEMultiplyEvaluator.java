@@ -17,7 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.commons.math3.util.MathArrays;
@@ -67,16 +66,9 @@ public class EBEMultiplyEvaluator extends RecursiveNumericEvaluator implements T
 
     double[] result =
         MathArrays.ebeMultiply(
-            ((List<?>) first)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray(),
-            ((List<?>) second)
-                .stream().mapToDouble(value -> ((Number) value).doubleValue()).toArray());
+            DoubleList.toDoubleArray((List<?>) first),
+            DoubleList.toDoubleArray((List<?>) second));
 
-    List<Number> numbers = new ArrayList<>();
-    for (double d : result) {
-      numbers.add(d);
-    }
-
-    return numbers;
+    return new DoubleList(result);
   }
 }
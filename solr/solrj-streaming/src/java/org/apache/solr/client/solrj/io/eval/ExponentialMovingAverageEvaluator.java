@@ -18,10 +18,9 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 
@@ -113,30 +112,19 @@ public class ExponentialMovingAverageEvaluator extends RecursiveNumericEvaluator
       alpha = 2.0 / (window.doubleValue() + 1.0);
     }
 
-    List<Number> sequence = new ArrayList<>();
-    DescriptiveStatistics slider = new DescriptiveStatistics(window.intValue());
-    Number lastValue = 0;
-    for (Object value : observations) {
-      slider.addValue(((Number) value).doubleValue());
-      if (slider.getN() == window.intValue()) {
-        lastValue = slider.getMean();
-        break;
-      }
+    double[] array = DoubleList.toDoubleArray(observations);
+    int windowSize = window.intValue();
+    double[] sequence = new double[Math.max(array.length - windowSize, 0) + 1];
+    double lastValue = 0;
+    if (windowSize <= array.length) {
+      lastValue = new Mean().evaluate(array, 0, windowSize);
     }
 
-    sequence.add(lastValue);
-    int i = 0;
-
-    for (Object value : observations) {
-      if (i >= window.intValue()) {
-        Number val =
-            (alpha.doubleValue() * (((Number) value).doubleValue() - lastValue.doubleValue())
-                + lastValue.doubleValue());
-        sequence.add(val);
-        lastValue = val;
-      }
-      ++i;
+    sequence[0] = lastValue;
+    for (int i = windowSize; i < array.length; i++) {
+      lastValue = alpha.doubleValue() * (array[i] - lastValue) + lastValue;
+      sequence[i - windowSize + 1] = lastValue;
     }
-    return sequence;
+    return new DoubleList(sequence);
   }
 }
@@ -42,13 +42,9 @@ public class MatrixEvaluator extends RecursiveNumericListEvaluator implements Ma
   public Object doWork(Object... values) throws IOException {
     double[][] data = new double[values.length][];
     for (int i = 0; i < values.length; i++) {
-      @SuppressWarnings({"unchecked"})
-      List<Number> vec = (List<Number>) values[i];
-      double[] array = new double[vec.size()];
-      for (int j = 0; j < array.length; j++) {
-        array[j] = vec.get(j).doubleValue();
-      }
-      data[i] = array;
+      // the arrays of double lists are copied, since the data of a matrix may be modified in place
+      double[] row = DoubleList.toDoubleArray((List<?>) values[i]);
+      data[i] = values[i] instanceof DoubleList ? row.clone() : row;
     }
 
     return new Matrix(data);
@@ -17,10 +17,9 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 
@@ -68,16 +67,22 @@ public class MovingAverageEvaluator extends RecursiveNumericEvaluator implements
     List<?> values = (List<?>) first;
     int window = ((Number) second).intValue();
 
-    List<Number> moving = new ArrayList<>();
-    DescriptiveStatistics slider = new DescriptiveStatistics(window);
-    for (Object value : values) {
-      slider.addValue(((Number) value).doubleValue());
+    if (window < 1) {
+      throw new IOException(
+          String.format(
+              Locale.ROOT,
+              "Invalid expression %s - found a window size of %d, expecting a positive window",
+              toExpression(constructingFactory),
+              window));
+    }
 
-      if (slider.getN() >= window) {
-        moving.add(slider.getMean());
-      }
+    double[] array = DoubleList.toDoubleArray(values);
+    double[] moving = new double[Math.max(array.length - window + 1, 0)];
+    Mean mean = new Mean();
+    for (int i = 0; i < moving.length; i++) {
+      moving[i] = mean.evaluate(array, i, window);
     }
 
-    return moving;
+    return new DoubleList(moving);
   }
 }
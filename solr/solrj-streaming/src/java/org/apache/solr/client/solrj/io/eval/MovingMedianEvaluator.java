@@ -17,7 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
@@ -69,17 +68,17 @@ public class MovingMedianEvaluator extends RecursiveNumericEvaluator implements
     List<?> values = (List<?>) first;
     int window = ((Number) second).intValue();
 
-    List<Number> moving = new ArrayList<>();
+    double[] array = DoubleList.toDoubleArray(values);
+    double[] moving = new double[Math.max(array.length - window + 1, 0)];
     DescriptiveStatistics slider = new DescriptiveStatistics(window);
     Percentile percentile = new Percentile();
-    for (Object value : values) {
-      slider.addValue(((Number) value).doubleValue());
+    for (int i = 0; i < array.length; i++) {
+      slider.addValue(array[i]);
       if (slider.getN() >= window) {
-        double median = percentile.evaluate(slider.getValues(), 50);
-        moving.add(median);
+        moving[i - window + 1] = percentile.evaluate(slider.getValues(), 50);
       }
     }
 
-    return moving;
+    return new DoubleList(moving);
   }
 }
@@ -56,6 +56,9 @@ public abstract class RecursiveEvaluator implements StreamEvaluator, ValueWorker
       return null;
     } else if (value instanceof VectorFunction) {
       return value;
+    } else if (value instanceof DoubleList && !((DoubleList) value).hasNaN()) {
+      // already numbers, which the evaluators read as doubles
+      return value;
     } else if (value instanceof Double) {
       if (Double.isNaN((Double) value)) {
         return null;
@@ -121,6 +124,8 @@ public abstract class RecursiveEvaluator implements StreamEvaluator, ValueWorker
       return value;
     } else if (value instanceof Number) {
       return ((Number) value).doubleValue();
+    } else if (value instanceof DoubleList) {
+      return value;
     } else if (value instanceof List) {
       // normalize each value in the list
       return ((List<?>) value)
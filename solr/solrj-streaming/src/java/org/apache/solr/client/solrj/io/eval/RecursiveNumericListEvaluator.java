@@ -35,6 +35,8 @@ public abstract class RecursiveNumericListEvaluator extends RecursiveEvaluator {
   public Object normalizeInputType(Object value) throws StreamEvaluatorException {
     if (null == value) {
       return null;
+    } else if (value instanceof DoubleList && !((DoubleList) value).hasNaN()) {
+      return value;
     } else if (value instanceof List) {
       return ((List<?>) value)
           .stream().map(innerValue -> convertToNumber(innerValue)).collect(Collectors.toList());
@@ -17,8 +17,6 @@
 package org.apache.solr.client.solrj.io.eval;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -46,12 +44,7 @@ public class RowAtEvaluator extends RecursiveObjectEvaluator implements TwoValue
       Matrix matrix = (Matrix) value1;
       Number index = (Number) value2;
       double[] row = matrix.getData()[index.intValue()];
-      List<Number> list = new ArrayList<>();
-      for (double d : row) {
-        list.add(d);
-      }
-
-      return list;
+      return new DoubleList(row.clone());
     } else {
       throw new IOException("The rowAt function expects a matrix as the first parameter");
     }
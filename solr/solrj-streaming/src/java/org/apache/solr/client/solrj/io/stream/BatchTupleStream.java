@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import org.apache.solr.client.solrj.io.TupleBatch;
+
+/**
+ * Implemented by a {@link TupleStream} that can produce its tuples a {@link TupleBatch} at a time,
+ * which saves the decorators reading it from allocating a tuple per row. An opened stream is read
+ * either with {@link TupleStream#read()} or with {@link #readBatch()}, never both.
+ *
+ * @lucene.experimental
+ */
+public interface BatchTupleStream {
+
+  /**
+   * Reads the next rows of the stream. Once the stream ended, the returned batch is marked as
+   * {@link TupleBatch#isEOF() EOF}; it may still hold the last rows. The returned batch may be
+   * reused by the next call, so its rows must be consumed or copied before then.
+   */
+  TupleBatch readBatch() throws IOException;
+
+  /**
+   * Reads the next rows of any stream: in batches if it implements {@link BatchTupleStream}, or
+   * tuple by tuple into the given batch otherwise.
+   *
+   * @param reuse the batch to fill when the stream doesn't produce batches itself
+   */
+  static TupleBatch readBatch(TupleStream stream, TupleBatch reuse) throws IOException {
+    if (stream instanceof BatchTupleStream) {
+      return ((BatchTupleStream) stream).readBatch();
+    }
+    return reuse.fill(stream);
+  }
+}
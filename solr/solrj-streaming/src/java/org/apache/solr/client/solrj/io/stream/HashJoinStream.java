@@ -16,8 +16,12 @@
  */
 package org.apache.solr.client.solrj.io.stream;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -41,6 +45,12 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * being computed on then that tuple will not be considered a match to anything. Ie, all fields
  * which are part of the hash must have a non-null value.
  *
+ * <p>With a {@code memoryBudget}, in bytes, the hashed tuples are held in memory only as long as
+ * their estimated size fits in it. Past it, both streams are partitioned by hash into temporary
+ * files, grace hash join style, and the partitions are joined one after the other. The joined
+ * tuples are then no longer in the order of the fullStream, and the EOF tuple reports the spilled
+ * bytes and partitions in its {@link org.apache.solr.common.params.StreamParams#METRICS metrics}.
+ *
  * @since 6.0.0
  */
 public class HashJoinStream extends TupleStream implements Expressible {
@@ -57,6 +67,19 @@ public class HashJoinStream extends TupleStream implements Expressible {
   protected String workingFullHash = null;
   protected int workngHashSetIdx = 0;
 
+  // the estimated size in bytes the hashed tuples may have in memory, or -1 if unlimited
+  protected long memoryBudget = -1;
+
+  // the partitions the streams are spilled to, while reading them
+  private transient Partition[] spillPartitions;
+  // the spilled partitions left to join, and the one being joined
+  private transient Deque<Partition> pendingPartitions;
+  private transient Partition currentPartition;
+  private transient Tuple eofTuple;
+  private transient boolean spillMetricsAdded;
+  private long spilledBytes;
+  private int spilledPartitions;
+
   public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
       throws IOException {
     init(fullStream, hashStream, hashOn);
@@ -70,9 +93,12 @@ public class HashJoinStream extends TupleStream implements Expressible {
     StreamExpressionNamedParameter hashStreamExpression =
         factory.getNamedOperand(expression, "hashed");
     StreamExpressionNamedParameter onExpression = factory.getNamedOperand(expression, "on");
+    StreamExpressionNamedParameter memoryBudgetExpression =
+        factory.getNamedOperand(expression, "memoryBudget");
 
     // validate expression contains only what we want.
-    if (expression.getParameters().size() != streamExpressions.size() + 2) {
+    if (expression.getParameters().size()
+        != streamExpressions.size() + 2 + (null == memoryBudgetExpression ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -114,6 +140,46 @@ public class HashJoinStream extends TupleStream implements Expressible {
         factory.constructStream(streamExpressions.get(0)),
         factory.constructStream((StreamExpression) hashStreamExpression.getParameter()),
         hashOn);
+
+    if (null != memoryBudgetExpression) {
+      try {
+        setMemoryBudget(
+            Long.parseLong(
+                ((StreamExpressionValue) memoryBudgetExpression.getParameter()).getValue()));
+      } catch (ClassCastException | IllegalArgumentException e) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - expecting 'memoryBudget' to be a number of bytes",
+                expression),
+            e);
+      }
+    }
+  }
+
+  /**
+   * Sets the estimated size in bytes the hashed tuples may have in memory before the streams are
+   * spilled to temporary files, or -1 to hold all of them in memory.
+   */
+  public void setMemoryBudget(long memoryBudget) {
+    if (memoryBudget < -1) {
+      throw new IllegalArgumentException("memoryBudget must be -1 or positive: " + memoryBudget);
+    }
+    this.memoryBudget = memoryBudget;
+  }
+
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /** The number of bytes spilled to temporary files since the stream was opened. */
+  public long getSpilledBytes() {
+    return spilledBytes;
+  }
+
+  /** The number of partitions spilled to temporary files since the stream was opened. */
+  public int getSpilledPartitions() {
+    return spilledPartitions;
   }
 
   private void init(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
@@ -190,6 +256,10 @@ public class HashJoinStream extends TupleStream implements Expressible {
     }
 
     expression.addParameter(new StreamExpressionNamedParameter("on", sb.toString()));
+    if (memoryBudget != -1) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("memoryBudget", Long.toString(memoryBudget)));
+    }
     return expression;
   }
 
@@ -225,23 +295,157 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public void open() throws IOException {
     hashStream.open();
     fullStream.open();
+    spilledBytes = 0;
+    spilledPartitions = 0;
 
+    long hashedBytes = 0;
     Tuple tuple = hashStream.read();
     while (!tuple.EOF) {
       String hash = computeHash(tuple, rightHashOn);
       if (null != hash) {
-        if (hashedTuples.containsKey(hash)) {
-          hashedTuples.get(hash).add(tuple);
+        if (null != spillPartitions) {
+          spillPartitions[SpillFile.partition(hash.hashCode(), 0)].hashed.write(tuple);
         } else {
-          ArrayList<Tuple> set = new ArrayList<>();
-          set.add(tuple);
-          hashedTuples.put(hash, set);
+          addHashedTuple(hash, tuple);
+          if (memoryBudget != -1) {
+            hashedBytes += SpillFile.estimateBytes(tuple);
+            if (hashedBytes > memoryBudget) {
+              spillPartitions = newPartitions(0);
+              spillHashedTuples(spillPartitions, 0);
+            }
+          }
         }
       }
       tuple = hashStream.read();
     }
   }
 
+  private void addHashedTuple(String hash, Tuple tuple) {
+    if (hashedTuples.containsKey(hash)) {
+      hashedTuples.get(hash).add(tuple);
+    } else {
+      ArrayList<Tuple> set = new ArrayList<>();
+      set.add(tuple);
+      hashedTuples.put(hash, set);
+    }
+  }
+
+  private Partition[] newPartitions(int level) throws IOException {
+    Partition[] partitions = new Partition[SpillFile.NUM_PARTITIONS];
+    for (int i = 0; i < partitions.length; i++) {
+      partitions[i] = new Partition(level);
+    }
+    spilledPartitions += partitions.length;
+    return partitions;
+  }
+
+  // moves the hashed tuples held in memory to the partitions
+  private void spillHashedTuples(Partition[] partitions, int level) throws IOException {
+    for (List<Tuple> tuples : hashedTuples.values()) {
+      for (Tuple hashed : tuples) {
+        String hash = computeHash(hashed, rightHashOn);
+        partitions[SpillFile.partition(hash.hashCode(), level)].hashed.write(hashed);
+      }
+    }
+    hashedTuples.clear();
+  }
+
+  /**
+   * The next tuple of the fullStream. Once the streams spilled, the fullStream is partitioned
+   * first, then the tuples of each partition are read after its hashed tuples are loaded. The
+   * tuples of the fullStream without a hash aren't spilled, since they join nothing.
+   */
+  protected Tuple readFullTuple() throws IOException {
+    if (null == spillPartitions && null == pendingPartitions) {
+      return fullStream.read();
+    }
+
+    if (null != spillPartitions) {
+      while (true) {
+        Tuple fullTuple = fullStream.read();
+        if (fullTuple.EOF) {
+          eofTuple = fullTuple;
+          pendingPartitions = new ArrayDeque<>(Arrays.asList(spillPartitions));
+          spillPartitions = null;
+          break;
+        }
+        String fullHash = computeHash(fullTuple, leftHashOn);
+        if (null == fullHash) {
+          return fullTuple;
+        }
+        spillPartitions[SpillFile.partition(fullHash.hashCode(), 0)].full.write(fullTuple);
+      }
+    }
+
+    while (true) {
+      if (null != currentPartition) {
+        Tuple fullTuple = currentPartition.full.read();
+        if (null != fullTuple) {
+          return fullTuple;
+        }
+        spilledBytes += currentPartition.bytes();
+        currentPartition.close();
+        currentPartition = null;
+        hashedTuples.clear();
+      }
+      Partition partition = pendingPartitions.poll();
+      if (null == partition) {
+        if (!spillMetricsAdded) {
+          SpillFile.addSpillMetrics(eofTuple, spilledBytes, spilledPartitions);
+          spillMetricsAdded = true;
+        }
+        return eofTuple;
+      }
+      loadPartition(partition);
+    }
+  }
+
+  /**
+   * Loads the hashed tuples of a spilled partition, or partitions it again if they don't fit in the
+   * memory budget.
+   */
+  private void loadPartition(Partition partition) throws IOException {
+    if (partition.full.size() == 0) {
+      // nothing to join
+      spilledBytes += partition.bytes();
+      partition.close();
+      return;
+    }
+
+    long hashedBytes = 0;
+    Tuple tuple;
+    while (null != (tuple = partition.hashed.read())) {
+      addHashedTuple(computeHash(tuple, rightHashOn), tuple);
+      hashedBytes += SpillFile.estimateBytes(tuple);
+      if (hashedBytes > memoryBudget && partition.level < SpillFile.MAX_SPILL_LEVEL) {
+        int level = partition.level + 1;
+        Partition[] partitions = newPartitions(level);
+        spillHashedTuples(partitions, level);
+        while (null != (tuple = partition.hashed.read())) {
+          String hash = computeHash(tuple, rightHashOn);
+          partitions[SpillFile.partition(hash.hashCode(), level)].hashed.write(tuple);
+        }
+        while (null != (tuple = partition.full.read())) {
+          String hash = computeHash(tuple, leftHashOn);
+          partitions[SpillFile.partition(hash.hashCode(), level)].full.write(tuple);
+        }
+        spilledBytes += partition.bytes();
+        partition.close();
+        pendingPartitions.addAll(Arrays.asList(partitions));
+        return;
+      }
+    }
+    currentPartition = partition;
+  }
+
+  /**
+   * The tuple to return for a tuple of the fullStream that has no hash or no matching hashed tuple,
+   * or null to skip it.
+   */
+  protected Tuple unmatchedFullTuple(Tuple fullTuple) {
+    return null;
+  }
+
   protected String computeHash(Tuple tuple, List<String> hashOn) {
     StringBuilder sb = new StringBuilder();
     for (String part : hashOn) {
@@ -258,8 +462,33 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
   @Override
   public void close() throws IOException {
-    hashStream.close();
-    fullStream.close();
+    try {
+      hashStream.close();
+      fullStream.close();
+    } finally {
+      closePartitions();
+    }
+  }
+
+  private void closePartitions() throws IOException {
+    List<Partition> partitions = new ArrayList<>();
+    if (null != spillPartitions) {
+      partitions.addAll(Arrays.asList(spillPartitions));
+    }
+    if (null != pendingPartitions) {
+      partitions.addAll(pendingPartitions);
+    }
+    if (null != currentPartition) {
+      partitions.add(currentPartition);
+    }
+    spillPartitions = null;
+    pendingPartitions = null;
+    currentPartition = null;
+    eofTuple = null;
+    spillMetricsAdded = false;
+    for (Partition partition : partitions) {
+      partition.close();
+    }
   }
 
   @Override
@@ -267,7 +496,7 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
     findNextWorkingFullTuple:
     while (null == workingFullTuple) {
-      Tuple fullTuple = fullStream.read();
+      Tuple fullTuple = readFullTuple();
 
       // We're at the end of the line
       if (fullTuple.EOF) {
@@ -278,6 +507,10 @@ public class HashJoinStream extends TupleStream implements Expressible {
       // join with then retry loop - keep going until we find one
       String fullHash = computeHash(fullTuple, leftHashOn);
       if (null == fullHash || !hashedTuples.containsKey(fullHash)) {
+        Tuple unmatchedTuple = unmatchedFullTuple(fullTuple);
+        if (null != unmatchedTuple) {
+          return unmatchedTuple;
+        }
         continue findNextWorkingFullTuple;
       }
 
@@ -314,4 +547,30 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public int getCost() {
     return 0;
   }
+
+  /** The hashed and full tuples spilled to a partition. */
+  private static class Partition implements Closeable {
+    final int level;
+    final SpillFile hashed;
+    final SpillFile full;
+
+    Partition(int level) throws IOException {
+      this.level = level;
+      this.hashed = new SpillFile("hashjoin");
+      this.full = new SpillFile("hashjoin");
+    }
+
+    long bytes() throws IOException {
+      return hashed.bytes() + full.bytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        hashed.close();
+      } finally {
+        full.close();
+      }
+    }
+  }
 }
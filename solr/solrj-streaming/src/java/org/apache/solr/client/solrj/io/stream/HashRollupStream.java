@@ -17,7 +17,10 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,6 +43,16 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 
+/**
+ * Rolls up the tuples of a stream by the buckets, in any order, holding the metrics of every bucket
+ * in a hash map.
+ *
+ * <p>With a {@code memoryBudget}, in bytes, the buckets are held in memory only as long as their
+ * estimated size fits in it. Past it, the tuples of the buckets met afterwards are partitioned by
+ * hash into temporary files, which are rolled up one after the other once the buckets in memory
+ * were read. The EOF tuple then reports the spilled bytes and partitions in its {@link
+ * org.apache.solr.common.params.StreamParams#METRICS metrics}.
+ */
 public class HashRollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
@@ -50,6 +63,15 @@ public class HashRollupStream extends TupleStream implements Expressible {
 
   private Iterator<Tuple> tupleIterator;
 
+  // the estimated size in bytes the buckets may have in memory, or -1 if unlimited
+  private long memoryBudget = -1;
+  // the spilled partitions left to roll up
+  private transient Deque<Partition> pendingPartitions;
+  private transient Tuple eofTuple;
+  private transient boolean spillMetricsAdded;
+  private long spilledBytes;
+  private int spilledPartitions;
+
   public HashRollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
     init(tupleStream, buckets, metrics);
   }
@@ -62,10 +84,15 @@ public class HashRollupStream extends TupleStream implements Expressible {
     List<StreamExpression> metricExpressions =
         factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter memoryBudgetExpression =
+        factory.getNamedOperand(expression, "memoryBudget");
 
     // validate expression contains only what we want.
     if (expression.getParameters().size()
-        != streamExpressions.size() + metricExpressions.size() + 1) {
+        != streamExpressions.size()
+            + metricExpressions.size()
+            + 1
+            + (null == memoryBudgetExpression ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -110,6 +137,46 @@ public class HashRollupStream extends TupleStream implements Expressible {
     }
 
     init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+
+    if (null != memoryBudgetExpression) {
+      try {
+        setMemoryBudget(
+            Long.parseLong(
+                ((StreamExpressionValue) memoryBudgetExpression.getParameter()).getValue()));
+      } catch (ClassCastException | IllegalArgumentException e) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - expecting 'memoryBudget' to be a number of bytes",
+                expression),
+            e);
+      }
+    }
+  }
+
+  /**
+   * Sets the estimated size in bytes the buckets may have in memory before the tuples are spilled
+   * to temporary files, or -1 to hold all of them in memory.
+   */
+  public void setMemoryBudget(long memoryBudget) {
+    if (memoryBudget < -1) {
+      throw new IllegalArgumentException("memoryBudget must be -1 or positive: " + memoryBudget);
+    }
+    this.memoryBudget = memoryBudget;
+  }
+
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /** The number of bytes spilled to temporary files since the stream was opened. */
+  public long getSpilledBytes() {
+    return spilledBytes;
+  }
+
+  /** The number of partitions spilled to temporary files since the stream was opened. */
+  public int getSpilledPartitions() {
+    return spilledPartitions;
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor) {
@@ -165,6 +232,11 @@ public class HashRollupStream extends TupleStream implements Expressible {
       expression.addParameter(metric.toExpression(factory));
     }
 
+    if (memoryBudget != -1) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("memoryBudget", Long.toString(memoryBudget)));
+    }
+
     return expression;
   }
 
@@ -205,62 +277,129 @@ public class HashRollupStream extends TupleStream implements Expressible {
 
   @Override
   public void close() throws IOException {
-    tupleStream.close();
-    tupleIterator = null;
+    try {
+      tupleStream.close();
+    } finally {
+      tupleIterator = null;
+      if (null != pendingPartitions) {
+        for (Partition partition : pendingPartitions) {
+          partition.tuples.close();
+        }
+        pendingPartitions = null;
+      }
+      eofTuple = null;
+      spillMetricsAdded = false;
+    }
   }
 
   @Override
   public Tuple read() throws IOException {
     // On the first call to read build the tupleIterator.
     if (tupleIterator == null) {
-      Map<HashKey, Metric[]> metricMap = new HashMap<>();
-      while (true) {
-        Tuple tuple = tupleStream.read();
-        if (tuple.EOF) {
-          List<Tuple> tuples = new ArrayList<>();
-          for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
-            Tuple t = new Tuple();
-            Metric[] finishedMetrics = entry.getValue();
-            for (Metric metric : finishedMetrics) {
-              t.put(metric.getIdentifier(), metric.getValue());
-            }
+      pendingPartitions = new ArrayDeque<>();
+      spilledBytes = 0;
+      spilledPartitions = 0;
+      tupleIterator = rollup(null);
+    }
 
-            HashKey hashKey = entry.getKey();
-            for (int i = 0; i < buckets.length; i++) {
-              t.put(buckets[i].toString(), hashKey.getParts()[i]);
-            }
-            tuples.add(t);
-          }
-          tuples.add(tuple);
-          this.tupleIterator = tuples.iterator();
-          break;
+    // then roll up the spilled partitions, one after the other
+    while (!tupleIterator.hasNext()) {
+      Partition partition = pendingPartitions.poll();
+      if (partition == null) {
+        if (!spillMetricsAdded) {
+          SpillFile.addSpillMetrics(eofTuple, spilledBytes, spilledPartitions);
+          spillMetricsAdded = true;
         }
+        return eofTuple;
+      }
+      tupleIterator = rollup(partition);
+    }
+
+    return tupleIterator.next();
+  }
 
-        Object[] bucketValues = new Object[buckets.length];
-        for (int i = 0; i < buckets.length; i++) {
-          bucketValues[i] = buckets[i].getBucketValue(tuple);
+  /**
+   * Rolls up the tuples of the stream, or of a spilled partition, into the buckets that fit in the
+   * memory budget. The tuples of the other buckets are spilled to new partitions.
+   */
+  private Iterator<Tuple> rollup(Partition source) throws IOException {
+    int level = source == null ? 0 : source.level + 1;
+    Map<HashKey, Metric[]> metricMap = new HashMap<>();
+    Partition[] partitions = null;
+    long bucketBytes = 0;
+    while (true) {
+      Tuple tuple;
+      if (source == null) {
+        tuple = tupleStream.read();
+        if (tuple.EOF) {
+          eofTuple = tuple;
+          break;
         }
+      } else {
+        tuple = source.tuples.read();
+        if (tuple == null) {
+          break;
+        }
+      }
+
+      Object[] bucketValues = new Object[buckets.length];
+      for (int i = 0; i < buckets.length; i++) {
+        bucketValues[i] = buckets[i].getBucketValue(tuple);
+      }
 
-        HashKey hashKey = new HashKey(bucketValues);
-        Metric[] currentMetrics = metricMap.get(hashKey);
+      HashKey hashKey = new HashKey(bucketValues);
+      Metric[] currentMetrics = metricMap.get(hashKey);
 
-        if (currentMetrics != null) {
-          for (Metric bucketMetric : currentMetrics) {
-            bucketMetric.update(tuple);
-          }
-        } else {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
+      if (currentMetrics != null) {
+        for (Metric bucketMetric : currentMetrics) {
+          bucketMetric.update(tuple);
+        }
+      } else if (partitions != null) {
+        partitions[SpillFile.partition(hashKey.hashCode(), level)].tuples.write(tuple);
+      } else {
+        currentMetrics = new Metric[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+          Metric bucketMetric = metrics[i].newInstance();
+          bucketMetric.update(tuple);
+          currentMetrics[i] = bucketMetric;
+        }
+        metricMap.put(hashKey, currentMetrics);
+
+        if (memoryBudget != -1 && level <= SpillFile.MAX_SPILL_LEVEL) {
+          bucketBytes +=
+              SpillFile.estimateBytes(Arrays.asList(bucketValues)) + 64L * metrics.length;
+          if (bucketBytes > memoryBudget) {
+            partitions = new Partition[SpillFile.NUM_PARTITIONS];
+            for (int i = 0; i < partitions.length; i++) {
+              partitions[i] = new Partition(level);
+            }
+            pendingPartitions.addAll(Arrays.asList(partitions));
+            spilledPartitions += partitions.length;
           }
-          metricMap.put(hashKey, currentMetrics);
         }
       }
     }
 
-    return tupleIterator.next();
+    if (source != null) {
+      spilledBytes += source.tuples.bytes();
+      source.tuples.close();
+    }
+
+    List<Tuple> tuples = new ArrayList<>();
+    for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
+      Tuple t = new Tuple();
+      Metric[] finishedMetrics = entry.getValue();
+      for (Metric metric : finishedMetrics) {
+        t.put(metric.getIdentifier(), metric.getValue());
+      }
+
+      HashKey hashKey = entry.getKey();
+      for (int i = 0; i < buckets.length; i++) {
+        t.put(buckets[i].toString(), hashKey.getParts()[i]);
+      }
+      tuples.add(t);
+    }
+    return tuples.iterator();
   }
 
   @Override
@@ -272,4 +411,15 @@ public class HashRollupStream extends TupleStream implements Expressible {
   public StreamComparator getStreamSort() {
     return tupleStream.getStreamSort();
   }
+
+  /** The tuples spilled to a partition. */
+  private static class Partition {
+    final int level;
+    final SpillFile tuples;
+
+    Partition(int level) throws IOException {
+      this.level = level;
+      this.tuples = new SpillFile("hashrollup");
+    }
+  }
 }
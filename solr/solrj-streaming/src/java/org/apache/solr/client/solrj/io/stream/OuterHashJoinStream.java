@@ -36,6 +36,8 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * tuple from the fullStream does not contain a value (ie, null) for one of the fields the hash is
  * being computed on then that tuple will be returned without any joined tuples from the hashStream
  *
+ * <p>Like a {@link HashJoinStream}, it spills to temporary files past its {@code memoryBudget}.
+ *
  * @since 6.0.0
  */
 public class OuterHashJoinStream extends HashJoinStream implements Expressible {
@@ -88,50 +90,18 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
       }
     }
     expression.addParameter(new StreamExpressionNamedParameter("on", sb.toString()));
+    if (memoryBudget != -1) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter("memoryBudget", Long.toString(memoryBudget)));
+    }
 
     return expression;
   }
 
   @Override
-  public Tuple read() throws IOException {
-
-    if (null == workingFullTuple) {
-      Tuple fullTuple = fullStream.read();
-
-      // We're at the end of the line
-      if (fullTuple.EOF) {
-        return fullTuple;
-      }
-
-      // If fullTuple doesn't have a valid hash or the hash cannot be found in the hashedTuples then
-      // return the tuple from fullStream. This is an outer join so there is no requirement there be
-      // a matching value in the hashed stream
-      String fullHash = computeHash(fullTuple, leftHashOn);
-      if (null == fullHash || !hashedTuples.containsKey(fullHash)) {
-        return fullTuple.clone();
-      }
-
-      workingFullTuple = fullTuple;
-      workingFullHash = fullHash;
-      workngHashSetIdx = 0;
-    }
-
-    // At this point we know we have at least one doc to match on due to the check at the end,
-    // before returning, we know we have at least one to match with left
-    List<Tuple> matches = hashedTuples.get(workingFullHash);
-    Tuple returnTuple = workingFullTuple.clone();
-    returnTuple.merge(matches.get(workngHashSetIdx));
-
-    // Increment this so the next time we hit the next matching tuple
-    workngHashSetIdx++;
-
-    if (workngHashSetIdx >= matches.size()) {
-      // well, now we've reached all the matches, clear it all out
-      workingFullTuple = null;
-      workingFullHash = null;
-      workngHashSetIdx = 0;
-    }
-
-    return returnTuple;
+  protected Tuple unmatchedFullTuple(Tuple fullTuple) {
+    // This is an outer join so there is no requirement there be a matching value in the hashed
+    // stream
+    return fullTuple.clone();
   }
 }
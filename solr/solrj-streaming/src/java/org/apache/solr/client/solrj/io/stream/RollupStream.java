@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.HashKey;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
@@ -52,6 +53,12 @@ public class RollupStream extends TupleStream implements Expressible {
   private Metric[] currentMetrics;
   private boolean finished = false;
 
+  // the underlying stream, if it produces batches, see readBatched
+  private BatchTupleStream batchStream;
+  private transient TupleBatch batch;
+  private int batchRow;
+  private int[] bucketColumns;
+
   public RollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
     init(tupleStream, buckets, metrics);
   }
@@ -131,6 +138,8 @@ public class RollupStream extends TupleStream implements Expressible {
 
   private void init(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
     this.tupleStream = new PushBackStream(tupleStream);
+    this.batchStream =
+        tupleStream instanceof BatchTupleStream ? (BatchTupleStream) tupleStream : null;
     this.buckets = buckets;
     this.metrics = metrics;
   }
@@ -211,10 +220,14 @@ public class RollupStream extends TupleStream implements Expressible {
     this.currentMetrics = null;
     this.currentKey = new HashKey("-");
     this.finished = false;
+    this.batch = null;
   }
 
   @Override
   public Tuple read() throws IOException {
+    if (batchStream != null && metrics != null) {
+      return readBatched();
+    }
 
     while (true) {
       Tuple tuple = tupleStream.read();
@@ -225,14 +238,7 @@ public class RollupStream extends TupleStream implements Expressible {
             return tuple;
           }
 
-          Tuple t = new Tuple();
-          for (Metric metric : currentMetrics) {
-            t.put(metric.getIdentifier(), metric.getValue());
-          }
-
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
+          Tuple t = currentBucketTuple();
           tupleStream.pushBack(tuple);
           finished = true;
           return t;
@@ -255,14 +261,7 @@ public class RollupStream extends TupleStream implements Expressible {
       } else {
         Tuple t = null;
         if (currentMetrics != null) {
-          t = new Tuple();
-          for (Metric metric : currentMetrics) {
-            t.put(metric.getIdentifier(), metric.getValue());
-          }
-
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
+          t = currentBucketTuple();
         }
 
         currentKey = hashKey;
@@ -282,6 +281,94 @@ public class RollupStream extends TupleStream implements Expressible {
     }
   }
 
+  /**
+   * Rolls up the batches of the underlying stream. The metrics are updated with each run of rows
+   * of the same bucket at once, without creating a tuple for every row.
+   */
+  private Tuple readBatched() throws IOException {
+    while (true) {
+      if (batch == null || batchRow == batch.size()) {
+        if (batch != null && batch.isEOF()) {
+          if (!finished) {
+            finished = true;
+            if (currentMetrics != null) {
+              return currentBucketTuple();
+            }
+          }
+          return batch.getEOF();
+        }
+        batch = batchStream.readBatch();
+        batchRow = 0;
+        // columns may be added by later batches, so they are looked up for each one
+        bucketColumns = new int[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+          bucketColumns[i] = batch.getColumn(buckets[i].toString());
+        }
+        continue;
+      }
+
+      Tuple t = null;
+      if (currentMetrics == null || !isCurrentBucket(batchRow)) {
+        if (currentMetrics != null) {
+          t = currentBucketTuple();
+        }
+        Object[] bucketValues = new Object[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+          bucketValues[i] = buckets[i].getBucketValue(batch, bucketColumns[i], batchRow);
+        }
+        currentKey = new HashKey(bucketValues);
+        currentMetrics = new Metric[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+          currentMetrics[i] = metrics[i].newInstance();
+        }
+      }
+
+      int end = batchRow + 1;
+      while (end < batch.size() && isSameBucket(end - 1, end)) {
+        end++;
+      }
+      for (Metric bucketMetric : currentMetrics) {
+        bucketMetric.update(batch, batchRow, end);
+      }
+      batchRow = end;
+
+      if (t != null) {
+        return t;
+      }
+    }
+  }
+
+  private boolean isCurrentBucket(int row) {
+    final Object[] parts = currentKey.getParts();
+    for (int i = 0; i < buckets.length; i++) {
+      if (!parts[i].equals(buckets[i].getBucketValue(batch, bucketColumns[i], row))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isSameBucket(int row, int otherRow) {
+    for (int column : bucketColumns) {
+      if (column != -1 && !batch.sameValue(column, row, otherRow)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Tuple currentBucketTuple() {
+    Tuple t = new Tuple();
+    for (Metric metric : currentMetrics) {
+      t.put(metric.getIdentifier(), metric.getValue());
+    }
+
+    for (int i = 0; i < buckets.length; i++) {
+      t.put(buckets[i].toString(), currentKey.getParts()[i]);
+    }
+    return t;
+  }
+
   @Override
   public int getCost() {
     return 0;
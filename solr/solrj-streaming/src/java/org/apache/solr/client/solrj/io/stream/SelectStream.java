@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eval.EvaluatorException;
 import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
@@ -45,7 +46,7 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  *
  * @since 6.0.0
  */
-public class SelectStream extends TupleStream implements Expressible {
+public class SelectStream extends TupleStream implements Expressible, BatchTupleStream {
 
   private static final long serialVersionUID = 1;
 
@@ -54,6 +55,7 @@ public class SelectStream extends TupleStream implements Expressible {
   private Map<String, String> selectedFields;
   private Map<StreamEvaluator, String> selectedEvaluators;
   private List<StreamOperation> operations;
+  private transient TupleBatch batch;
 
   public SelectStream(TupleStream stream, List<String> selectedFields) throws IOException {
     this.stream = stream;
@@ -282,6 +284,7 @@ public class SelectStream extends TupleStream implements Expressible {
   @Override
   public void close() throws IOException {
     stream.close();
+    batch = null;
   }
 
   @Override
@@ -336,6 +339,21 @@ public class SelectStream extends TupleStream implements Expressible {
     return stream.getStreamSort().copyAliased(selectedFields);
   }
 
+  /**
+   * Without evaluators or operations, the selected fields are the columns of the batches of the
+   * underlying stream, which aren't copied; otherwise the selected tuples are batched.
+   */
+  @Override
+  public TupleBatch readBatch() throws IOException {
+    if (batch == null) {
+      batch = new TupleBatch();
+    }
+    if (selectedEvaluators.isEmpty() && operations.isEmpty()) {
+      return BatchTupleStream.readBatch(stream, batch).select(selectedFields);
+    }
+    return batch.fill(this);
+  }
+
   @Override
   public int getCost() {
     return 0;
@@ -285,6 +285,8 @@ public class SolrStream extends TupleStream {
       modifiableSolrParams.set("indent", modifiableSolrParams.get("indent", "off"));
     }
 
+    // javabin tuples are cheaper to parse, but only used when asked for since their floats are
+    // widened to double rather than the decimal values json gives
     String wt = requestParams.get(CommonParams.WT, "json");
     QueryRequest query = new QueryRequest(requestParams);
 
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.params.StreamParams;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * A temporary file the hash streams spill tuples to once they exceed their memory budget. The
+ * tuples are written in javabin format, then read back once in the same order; the file is deleted
+ * when closed.
+ */
+class SpillFile implements Closeable {
+
+  /** The number of files the tuples are partitioned into when a hash stream spills. */
+  static final int NUM_PARTITIONS = 16;
+
+  /**
+   * How many times the tuples of a partition that still exceeds the memory budget are partitioned
+   * again, before it is loaded anyway.
+   */
+  static final int MAX_SPILL_LEVEL = 3;
+
+  private final Path path;
+  private final JavaBinCodec codec = new JavaBinCodec();
+  private FastOutputStream out;
+  private FastInputStream in;
+  private int size;
+  private int read;
+
+  SpillFile(String prefix) throws IOException {
+    this.path = Files.createTempFile(prefix, ".spill");
+    this.out = new FastOutputStream(Files.newOutputStream(path));
+    codec.init(out);
+  }
+
+  void write(Tuple tuple) throws IOException {
+    assert out != null : "already read";
+    codec.writeVal(tuple.getFields());
+    size++;
+  }
+
+  /** The number of tuples in the file. */
+  int size() {
+    return size;
+  }
+
+  /** The number of bytes written, which is only final once reading started. */
+  long bytes() throws IOException {
+    return out != null ? out.size() : Files.size(path);
+  }
+
+  /** Reads the next tuple, or returns null once all of them were read. */
+  @SuppressWarnings("unchecked")
+  Tuple read() throws IOException {
+    if (out != null) {
+      out.close();
+      out = null;
+      in = new FastInputStream(Files.newInputStream(path));
+    }
+    if (read == size) {
+      return null;
+    }
+    read++;
+    return new Tuple((Map<String, ?>) codec.readVal(in));
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (out != null) {
+        out.close();
+      }
+      if (in != null) {
+        in.close();
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * The partition of a hash at the given spill level. Each level mixes the hash differently, so
+   * that the tuples of a partition are spread when it is partitioned again.
+   */
+  static int partition(int hash, int level) {
+    int h = hash * 0x9E3779B9 + level * 0x7F4A7C15;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return Math.floorMod(h, NUM_PARTITIONS);
+  }
+
+  /** A rough estimate of the heap used by a tuple held in a map. */
+  static long estimateBytes(Tuple tuple) {
+    long bytes = 64;
+    for (Map.Entry<String, Object> field : tuple.getFields().entrySet()) {
+      bytes += 32 + estimateBytes(field.getKey()) + estimateBytes(field.getValue());
+    }
+    return bytes;
+  }
+
+  static long estimateBytes(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof String) {
+      return 40 + ((String) value).length();
+    } else if (value instanceof Collection) {
+      long bytes = 40;
+      for (Object item : (Collection<?>) value) {
+        bytes += 8 + estimateBytes(item);
+      }
+      return bytes;
+    } else {
+      return 24;
+    }
+  }
+
+  /**
+   * Adds the spill statistics of a stream to the {@link StreamParams#METRICS metrics} of the EOF
+   * tuple, summing them with those of the streams it reads.
+   */
+  static Tuple addSpillMetrics(Tuple eof, long spilledBytes, int spillPartitions) {
+    if (spillPartitions == 0) {
+      return eof;
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, Object> metrics = (Map<String, Object>) eof.get(StreamParams.METRICS);
+    if (metrics == null) {
+      metrics = new HashMap<>();
+      eof.put(StreamParams.METRICS, metrics);
+    }
+    metrics.merge(StreamParams.SPILLED_BYTES, spilledBytes, (a, b) -> (Long) a + (Long) b);
+    metrics.merge(
+        StreamParams.SPILL_PARTITIONS, (long) spillPartitions, (a, b) -> (Long) a + (Long) b);
+    return eof;
+  }
+}
@@ -17,6 +17,7 @@
 package org.apache.solr.client.solrj.io.stream.metrics;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 
 public class Bucket {
 
@@ -37,6 +38,19 @@ public class Bucket {
     }
   }
 
+  /**
+   * The bucket value of a row of a batch.
+   *
+   * @param column the column of the bucket field in the batch, or -1 if it has none
+   */
+  public Object getBucketValue(TupleBatch batch, int column, int row) {
+    if (column == -1 || batch.isNull(column, row)) {
+      return NULL_VALUE;
+    } else {
+      return batch.get(column, row);
+    }
+  }
+
   @Override
   public String toString() {
     return bucketKey;
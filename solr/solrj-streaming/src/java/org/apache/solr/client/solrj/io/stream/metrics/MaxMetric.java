@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream.metrics;
 import java.io.IOException;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -102,6 +103,38 @@ public class MaxMetric extends Metric {
     }
   }
 
+  @Override
+  public void update(TupleBatch batch, int from, int to) {
+    final int column = batch.getColumn(columnName);
+    if (column == -1) {
+      return;
+    }
+    switch (batch.getColumnType(column)) {
+      case LONG:
+        for (int row = from; row < to; row++) {
+          if (!batch.isNull(column, row)) {
+            final long l = batch.getLong(column, row);
+            if (l > longMax) {
+              longMax = l;
+            }
+          }
+        }
+        break;
+      case DOUBLE:
+        for (int row = from; row < to; row++) {
+          if (!batch.isNull(column, row)) {
+            final double d = batch.getDouble(column, row);
+            if (d > doubleMax) {
+              doubleMax = d;
+            }
+          }
+        }
+        break;
+      default:
+        super.update(batch, from, to);
+    }
+  }
+
   @Override
   public Metric newInstance() {
     return new MaxMetric(columnName);
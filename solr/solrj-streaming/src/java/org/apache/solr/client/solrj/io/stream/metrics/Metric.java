@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream.metrics;
 import java.io.IOException;
 import java.util.UUID;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation.ExpressionType;
 import org.apache.solr.client.solrj.io.stream.expr.Expressible;
@@ -72,6 +73,17 @@ public abstract class Metric implements Expressible {
 
   public abstract void update(Tuple tuple);
 
+  /**
+   * Updates the metric with the rows of a batch, from {@code from} inclusive to {@code to}
+   * exclusive. The default implementation creates a tuple for each row; metrics over numeric
+   * columns read their values directly.
+   */
+  public void update(TupleBatch batch, int from, int to) {
+    for (int row = from; row < to; row++) {
+      update(batch.toTuple(row));
+    }
+  }
+
   public abstract Metric newInstance();
 
   public abstract String[] getColumns();
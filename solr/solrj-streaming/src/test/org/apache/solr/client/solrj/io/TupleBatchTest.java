@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.BatchTupleStream;
+import org.apache.solr.client.solrj.io.stream.RollupStream;
+import org.apache.solr.client.solrj.io.stream.SelectStream;
+import org.apache.solr.client.solrj.io.stream.StreamContext;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.junit.Test;
+
+public class TupleBatchTest extends SolrTestCase {
+
+  @Test
+  public void testColumnTypes() {
+    final TupleBatch batch = new TupleBatch(4);
+    batch.add(tuple("a", 1L, "b", 1.5d, "c", "x"));
+    batch.add(tuple("a", 2L, "b", 2.5d));
+    batch.add(tuple("a", "three", "c", "z"));
+
+    assertEquals(3, batch.size());
+    assertEquals(TupleBatch.ColumnType.OBJECT, batch.getColumnType(batch.getColumn("a")));
+    assertEquals(TupleBatch.ColumnType.DOUBLE, batch.getColumnType(batch.getColumn("b")));
+    assertEquals(TupleBatch.ColumnType.OBJECT, batch.getColumnType(batch.getColumn("c")));
+    assertEquals(-1, batch.getColumn("d"));
+
+    // values added before the column became an object column are kept
+    assertEquals(1L, batch.get(batch.getColumn("a"), 0));
+    assertEquals(2L, batch.get(batch.getColumn("a"), 1));
+    assertEquals("three", batch.get(batch.getColumn("a"), 2));
+
+    final int b = batch.getColumn("b");
+    assertEquals(2.5d, batch.getDouble(b, 1), 0d);
+    assertTrue(batch.isNull(b, 2));
+    assertNull(batch.get(b, 2));
+    assertTrue(batch.isNull(batch.getColumn("c"), 1));
+
+    assertEquals(tuple("a", 2L, "b", 2.5d).getFields(), batch.toTuple(1).getFields());
+  }
+
+  @Test
+  public void testIntsAndFloats() {
+    final TupleBatch batch = new TupleBatch(4);
+    final Tuple tuple = tuple("i", 1, "f", 1.1f, "l", 1L, "d", 1.1d);
+    batch.add(tuple);
+
+    assertEquals(TupleBatch.ColumnType.OBJECT, batch.getColumnType(batch.getColumn("i")));
+    assertEquals(TupleBatch.ColumnType.OBJECT, batch.getColumnType(batch.getColumn("f")));
+    assertEquals(TupleBatch.ColumnType.LONG, batch.getColumnType(batch.getColumn("l")));
+    assertEquals(TupleBatch.ColumnType.DOUBLE, batch.getColumnType(batch.getColumn("d")));
+    // not widened to a long and a double
+    assertEquals(tuple.getFields(), batch.toTuple(0).getFields());
+
+    // a long column holds objects once it meets an int
+    batch.add(tuple("l", 2));
+    final int l = batch.getColumn("l");
+    assertEquals(TupleBatch.ColumnType.OBJECT, batch.getColumnType(l));
+    assertEquals(1L, batch.get(l, 0));
+    assertEquals(2, batch.get(l, 1));
+  }
+
+  @Test
+  public void testSameValue() {
+    final TupleBatch batch = new TupleBatch(4);
+    batch.add(tuple("a", 1L, "b", "x"));
+    batch.add(tuple("a", 1L));
+    batch.add(tuple("a", 2L, "b", "x"));
+    batch.add(tuple("b", "x"));
+
+    final int a = batch.getColumn("a");
+    final int b = batch.getColumn("b");
+    assertTrue(batch.sameValue(a, 0, 1));
+    assertFalse(batch.sameValue(a, 1, 2));
+    assertFalse(batch.sameValue(a, 2, 3));
+    assertTrue(batch.sameValue(b, 0, 2));
+    assertFalse(batch.sameValue(b, 0, 1));
+  }
+
+  @Test
+  public void testFillAndClear() throws IOException {
+    final List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      tuples.add(tuple("id", (long) i, "value", i * 0.5d));
+    }
+    final TupleStream stream = new ListTupleStream(tuples);
+    stream.open();
+
+    final TupleBatch batch = new TupleBatch(3);
+    batch.fill(stream);
+    assertEquals(3, batch.size());
+    assertFalse(batch.isEOF());
+    assertEquals(tuples.get(2).getFields(), batch.toTuple(2).getFields());
+
+    batch.fill(stream);
+    assertEquals(2, batch.size());
+    assertTrue(batch.isEOF());
+    assertEquals(tuples.get(4).getFields(), batch.toTuple(1).getFields());
+    // the rows of the previous fill are gone
+    assertTrue(batch.isNull(batch.getColumn("id"), 2));
+  }
+
+  @Test
+  public void testSelect() {
+    final TupleBatch batch = new TupleBatch(2);
+    batch.add(tuple("a", 1L, "b", "x", "c", 2.0d));
+    batch.add(tuple("a", 2L, "c", 3.0d));
+
+    final TupleBatch selected = batch.select(Map.of("a", "a1", "b", "b", "missing", "m"));
+    assertEquals(2, selected.numColumns());
+    assertEquals(2, selected.size());
+    assertEquals(-1, selected.getColumn("a"));
+    assertEquals(-1, selected.getColumn("c"));
+    assertEquals(tuple("a1", 1L, "b", "x").getFields(), selected.toTuple(0).getFields());
+    assertEquals(tuple("a1", 2L).getFields(), selected.toTuple(1).getFields());
+  }
+
+  @Test
+  public void testBatchedRollup() throws IOException {
+    final List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      final Tuple tuple = tuple("bucket", (long) (i / 7), "id", i);
+      if (i % 5 != 0) {
+        tuple.put("value", i % 3 == 0 ? (Object) (i * 1.5d) : (Object) (long) i);
+      }
+      if (i % 11 == 0) {
+        tuple.put("bucket", "other");
+      }
+      tuples.add(tuple);
+    }
+    // more columns than the first batches have
+    tuples.get(40).put("late", 1L);
+
+    final List<Map<String, Object>> expected = rollup(new ListTupleStream(tuples));
+    assertEquals(expected, rollup(new BatchedListTupleStream(tuples, 3)));
+    assertEquals(expected, rollup(new BatchedListTupleStream(tuples, 64)));
+    assertEquals(
+        expected,
+        rollup(
+            new SelectStream(
+                new BatchedListTupleStream(tuples, 5), List.of("bucket", "value"))));
+  }
+
+  private static List<Map<String, Object>> rollup(TupleStream stream) throws IOException {
+    final Metric[] metrics = {
+      new CountMetric(),
+      new CountMetric("value"),
+      new SumMetric("value"),
+      new MinMetric("value"),
+      new MaxMetric("value"),
+      new MeanMetric("value")
+    };
+    final List<Map<String, Object>> tuples = new ArrayList<>();
+    try (RollupStream rollup =
+        new RollupStream(stream, new Bucket[] {new Bucket("bucket")}, metrics)) {
+      rollup.setStreamContext(new StreamContext());
+      rollup.open();
+      while (true) {
+        final Tuple tuple = rollup.read();
+        if (tuple.EOF) {
+          break;
+        }
+        tuples.add(tuple.getFields());
+      }
+    }
+    return tuples;
+  }
+
+  private static Tuple tuple(Object... fields) {
+    final Tuple tuple = new Tuple();
+    for (int i = 0; i < fields.length; i += 2) {
+      tuple.put((String) fields[i], fields[i + 1]);
+    }
+    return tuple;
+  }
+
+  private static class ListTupleStream extends TupleStream {
+    private final List<Tuple> tuples;
+    private int next;
+
+    ListTupleStream(List<Tuple> tuples) {
+      this.tuples = tuples;
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {}
+
+    @Override
+    public List<TupleStream> children() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void open() {
+      next = 0;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Tuple read() {
+      return next < tuples.size() ? tuples.get(next++) : Tuple.EOF();
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return null;
+    }
+  }
+
+  private static class BatchedListTupleStream extends ListTupleStream
+      implements BatchTupleStream {
+    private final TupleBatch batch;
+
+    BatchedListTupleStream(List<Tuple> tuples, int batchSize) {
+      super(tuples);
+      this.batch = new TupleBatch(batchSize);
+    }
+
+    @Override
+    public TupleBatch readBatch() throws IOException {
+      return batch.fill(this);
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParser;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.apache.solr.common.params.StreamParams;
+import org.junit.Test;
+
+public class HashStreamSpillTest extends SolrTestCase {
+
+  @Test
+  public void testHashJoinSpills() throws IOException {
+    final List<Tuple> full = tuples(2000, 300, "left");
+    final List<Tuple> hashed = tuples(1500, 200, "right");
+
+    final HashJoinStream inMemory =
+        new HashJoinStream(new ListTupleStream(full), new ListTupleStream(hashed), List.of("key"));
+    final List<String> expected = readSorted(inMemory);
+    assertEquals(0, inMemory.getSpilledPartitions());
+    assertFalse(expected.isEmpty());
+
+    final HashJoinStream spilling =
+        new HashJoinStream(new ListTupleStream(full), new ListTupleStream(hashed), List.of("key"));
+    spilling.setMemoryBudget(10_000);
+    final List<Tuple> eof = new ArrayList<>();
+    assertEquals(expected, readSorted(spilling, eof));
+    assertTrue(spilling.getSpilledPartitions() >= SpillFile.NUM_PARTITIONS);
+    assertTrue(spilling.getSpilledBytes() > 0);
+    assertSpillMetrics(eof.get(0), spilling.getSpilledBytes(), spilling.getSpilledPartitions());
+    assertNoSpillFiles();
+  }
+
+  @Test
+  public void testOuterHashJoinSpills() throws IOException {
+    final List<Tuple> full = tuples(2000, 300, "left");
+    // tuples without the key are returned unjoined
+    for (int i = 0; i < 10; i++) {
+      full.add(new Tuple("left", "nokey" + i));
+    }
+    final List<Tuple> hashed = tuples(1500, 200, "right");
+
+    final List<String> expected =
+        readSorted(
+            new OuterHashJoinStream(
+                new ListTupleStream(full), new ListTupleStream(hashed), List.of("key")));
+
+    final OuterHashJoinStream spilling =
+        new OuterHashJoinStream(
+            new ListTupleStream(full), new ListTupleStream(hashed), List.of("key"));
+    spilling.setMemoryBudget(10_000);
+    assertEquals(expected, readSorted(spilling));
+    assertTrue(spilling.getSpilledPartitions() > 0);
+    assertNoSpillFiles();
+  }
+
+  @Test
+  public void testHashRollupSpills() throws IOException {
+    final List<Tuple> tuples = tuples(5000, 1000, "value");
+
+    final List<String> expected = readSorted(rollup(tuples, -1));
+
+    final HashRollupStream spilling = rollup(tuples, 5_000);
+    final List<Tuple> eof = new ArrayList<>();
+    final List<String> actual = readSorted(spilling, eof);
+    assertEquals(expected, actual);
+    assertTrue(spilling.getSpilledPartitions() >= SpillFile.NUM_PARTITIONS);
+    assertSpillMetrics(eof.get(0), spilling.getSpilledBytes(), spilling.getSpilledPartitions());
+    assertNoSpillFiles();
+  }
+
+  @Test
+  public void testCloseDeletesSpillFiles() throws IOException {
+    final HashJoinStream stream =
+        new HashJoinStream(
+            new ListTupleStream(tuples(2000, 300, "left")),
+            new ListTupleStream(tuples(1500, 200, "right")),
+            List.of("key"));
+    stream.setMemoryBudget(10_000);
+    stream.setStreamContext(new StreamContext());
+    stream.open();
+    assertFalse(stream.read().EOF);
+    stream.close();
+    assertNoSpillFiles();
+  }
+
+  @Test
+  public void testMemoryBudgetExpression() throws IOException {
+    final StreamFactory factory =
+        new StreamFactory()
+            .withCollectionZkHost("collection1", "testhost:1234")
+            .withFunctionName("search", CloudSolrStream.class)
+            .withFunctionName("hashJoin", HashJoinStream.class)
+            .withFunctionName("hashRollup", HashRollupStream.class)
+            .withFunctionName("sum", SumMetric.class);
+
+    try (HashJoinStream stream =
+        new HashJoinStream(
+            StreamExpressionParser.parse(
+                "hashJoin(search(collection1, q=*:*, fl=\"id\", sort=\"id asc\"),"
+                    + " hashed=search(collection1, q=*:*, fl=\"id\", sort=\"id asc\"),"
+                    + " on=\"id\", memoryBudget=1048576)"),
+            factory)) {
+      assertEquals(1048576, stream.getMemoryBudget());
+      assertTrue(stream.toExpression(factory).toString().contains("memoryBudget=1048576"));
+    }
+
+    try (HashRollupStream stream =
+        new HashRollupStream(
+            StreamExpressionParser.parse(
+                "hashRollup(search(collection1, q=*:*, fl=\"id,a_i\", sort=\"id asc\"),"
+                    + " over=\"id\", sum(a_i), memoryBudget=4096)"),
+            factory)) {
+      assertEquals(4096, stream.getMemoryBudget());
+      assertTrue(stream.toExpression(factory).toString().contains("memoryBudget=4096"));
+    }
+
+    expectThrows(
+        IOException.class,
+        () ->
+            new HashJoinStream(
+                StreamExpressionParser.parse(
+                    "hashJoin(search(collection1, q=*:*, fl=\"id\", sort=\"id asc\"),"
+                        + " hashed=search(collection1, q=*:*, fl=\"id\", sort=\"id asc\"),"
+                        + " on=\"id\", memoryBudget=lots)"),
+                factory));
+  }
+
+  private static HashRollupStream rollup(List<Tuple> tuples, long memoryBudget) {
+    final Metric[] metrics = {new CountMetric(), new SumMetric("value")};
+    final HashRollupStream stream =
+        new HashRollupStream(
+            new ListTupleStream(tuples), new Bucket[] {new Bucket("key")}, metrics);
+    stream.setMemoryBudget(memoryBudget);
+    return stream;
+  }
+
+  // tuples with a key field of the given cardinality, and a field with the given name
+  private static List<Tuple> tuples(int count, int cardinality, String field) {
+    final List<Tuple> tuples = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final Tuple tuple = new Tuple();
+      tuple.put("key", "k" + random().nextInt(cardinality));
+      tuple.put(field, (long) i);
+      tuples.add(tuple);
+    }
+    return tuples;
+  }
+
+  private static List<String> readSorted(TupleStream stream) throws IOException {
+    return readSorted(stream, new ArrayList<>());
+  }
+
+  // the tuples of the stream as sorted strings, since spilling doesn't keep their order
+  private static List<String> readSorted(TupleStream stream, List<Tuple> eof) throws IOException {
+    final List<String> tuples = new ArrayList<>();
+    try (stream) {
+      stream.setStreamContext(new StreamContext());
+      stream.open();
+      while (true) {
+        final Tuple tuple = stream.read();
+        if (tuple.EOF) {
+          eof.add(tuple);
+          break;
+        }
+        tuples.add(new TreeMap<>(tuple.getFields()).toString());
+      }
+    }
+    Collections.sort(tuples);
+    return tuples;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void assertSpillMetrics(Tuple eof, long spilledBytes, int spilledPartitions) {
+    final Map<String, Object> metrics = (Map<String, Object>) eof.get(StreamParams.METRICS);
+    assertNotNull(metrics);
+    assertEquals(spilledBytes, metrics.get(StreamParams.SPILLED_BYTES));
+    assertEquals((long) spilledPartitions, metrics.get(StreamParams.SPILL_PARTITIONS));
+  }
+
+  private static void assertNoSpillFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+      assertEquals(0, files.filter(f -> f.toString().endsWith(".spill")).count());
+    }
+  }
+
+  private static class ListTupleStream extends TupleStream {
+    private final List<Tuple> tuples;
+    private int next;
+
+    ListTupleStream(List<Tuple> tuples) {
+      this.tuples = tuples;
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {}
+
+    @Override
+    public List<TupleStream> children() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void open() {
+      next = 0;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Tuple read() {
+      return next < tuples.size() ? tuples.get(next++) : Tuple.EOF();
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return null;
+    }
+  }
+}
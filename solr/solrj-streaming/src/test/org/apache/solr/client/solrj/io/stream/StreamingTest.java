@@ -55,6 +55,7 @@ import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
@@ -2700,15 +2701,21 @@ public class StreamingTest extends SolrCloudTestCase {
 
     tryWithQt("/export");
     tryWithQt("/select");
+    // javabin is only used when asked for
+    tryWithQt("/export", CommonParams.JAVABIN);
+  }
+
+  private void tryWithQt(String which) throws IOException {
+    tryWithQt(which, null);
   }
 
   // We should be getting the exact same thing back with both the export and select handlers, so
   // test
-  private void tryWithQt(String which) throws IOException {
+  private void tryWithQt(String which, String wt) throws IOException {
     StreamContext streamContext = new StreamContext();
     SolrClientCache solrClientCache = new SolrClientCache();
     streamContext.setSolrClientCache(solrClientCache);
-    SolrParams sParams =
+    ModifiableSolrParams sParams =
         params(
             "q",
             "*:*",
@@ -2718,6 +2725,9 @@ public class StreamingTest extends SolrCloudTestCase {
             "id,i_sing,i_multi,l_sing,l_multi,f_sing,f_multi,d_sing,d_multi,dt_sing,dt_multi,s_sing,s_multi,b_sing,b_multi",
             "sort",
             "i_sing asc");
+    if (wt != null) {
+      sParams.set(CommonParams.WT, wt);
+    }
     try (CloudSolrStream stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams)) {
 
       stream.setStreamContext(streamContext);
@@ -2736,6 +2746,10 @@ public class StreamingTest extends SolrCloudTestCase {
           "MV should be returned for l_multi", 16, tuple.getLongs("l_multi").get(1).longValue());
 
       assertEquals("floats should be returned", 1.7, tuple.getDouble("f_sing"), 0.001);
+      if (wt == null) {
+        // json gives the decimal value of the float, not the float widened to double
+        assertEquals(Double.valueOf(1.7), tuple.getDouble("f_sing"));
+      }
       assertEquals(
           "MV should be returned for f_multi", 1.8, tuple.getDoubles("f_multi").get(0), 0.001);
       assertEquals(
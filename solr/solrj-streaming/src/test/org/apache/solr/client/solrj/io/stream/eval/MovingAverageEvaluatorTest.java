@@ -17,11 +17,15 @@
 package org.apache.solr.client.solrj.io.stream.eval;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.solr.SolrTestCase;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.eval.CorrelationEvaluator;
+import org.apache.solr.client.solrj.io.eval.DoubleList;
+import org.apache.solr.client.solrj.io.eval.EBESubtractEvaluator;
 import org.apache.solr.client.solrj.io.eval.MovingAverageEvaluator;
 import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -35,7 +39,11 @@ public class MovingAverageEvaluatorTest extends SolrTestCase {
   public MovingAverageEvaluatorTest() {
     super();
 
-    factory = new StreamFactory().withFunctionName("movingAvg", MovingAverageEvaluator.class);
+    factory =
+        new StreamFactory()
+            .withFunctionName("movingAvg", MovingAverageEvaluator.class)
+            .withFunctionName("corr", CorrelationEvaluator.class)
+            .withFunctionName("ebeSubtract", EBESubtractEvaluator.class);
     values = new HashMap<>();
   }
 
@@ -49,4 +57,33 @@ public class MovingAverageEvaluatorTest extends SolrTestCase {
     result = evaluator.evaluate(new Tuple(values));
     assertEquals(Collections.emptyList(), result);
   }
+
+  @Test
+  public void movingAverage() throws Exception {
+    StreamEvaluator evaluator = factory.constructEvaluator("movingAvg(a,3)");
+
+    values.clear();
+    values.put("a", Arrays.asList(1, 2, 3, 4, 5.5));
+    Object result = evaluator.evaluate(new Tuple(values));
+    assertTrue(result instanceof DoubleList);
+    assertEquals(Arrays.asList(2.0, 3.0, 4.166666666666667), result);
+
+    values.put("a", Arrays.asList(1, 2));
+    assertEquals(Collections.emptyList(), evaluator.evaluate(new Tuple(values)));
+  }
+
+  @Test
+  public void movingAveragesPassedAsDoubles() throws Exception {
+    StreamEvaluator evaluator =
+        factory.constructEvaluator(
+            "corr(movingAvg(a,2), ebeSubtract(movingAvg(b,2), movingAvg(a,2)))");
+
+    values.clear();
+    values.put("a", Arrays.asList(1, 2, 4, 8, 16));
+    values.put("b", Arrays.asList(2, 5, 9, 18, 33));
+    // the double lists of the moving averages are read by ebeSubtract and corr as they are
+    Object result = evaluator.evaluate(new Tuple(values));
+    assertTrue(result instanceof Double);
+    assertEquals(0.9984878088842035, (Double) result, 1e-9);
+  }
 }
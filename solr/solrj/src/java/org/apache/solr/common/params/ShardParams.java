@@ -100,9 +100,22 @@ public interface ShardParams {
 
   String _ROUTE_ = "_route_";
 
-  /** Force a single-pass distributed query? (true/false) */
+  /**
+   * Force a single-pass distributed query? (true/false), or {@value #DISTRIB_SINGLE_PASS_AUTO} to
+   * choose one when it's cheaper than fetching the fields in a second pass
+   */
   String DISTRIB_SINGLE_PASS = "distrib.singlePass";
 
+  /** The value of {@value #DISTRIB_SINGLE_PASS} that chooses the number of passes per request */
+  String DISTRIB_SINGLE_PASS_AUTO = "auto";
+
+  /**
+   * The maximum estimated number of bytes of fields that {@value #DISTRIB_SINGLE_PASS}={@value
+   * #DISTRIB_SINGLE_PASS_AUTO} fetches for docs that end up off the page, in order to save the
+   * second pass
+   */
+  String DISTRIB_SINGLE_PASS_MAX_BYTES = "distrib.singlePass.maxBytes";
+
   /**
    * Throw an error from search requests when the {@value #SHARDS_TOLERANT} param has this value and
    * ZooKeeper is not connected.
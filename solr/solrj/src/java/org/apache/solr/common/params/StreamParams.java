@@ -34,6 +34,10 @@ public interface StreamParams {
   String EXCEPTION = "EXCEPTION";
   String METRICS = "_METRICS_";
 
+  // metrics
+  String SPILLED_BYTES = "spilledBytes";
+  String SPILL_PARTITIONS = "spillPartitions";
+
   // other common tuple properties
   String P_VALUE = "p-value";
 }
@@ -73,6 +73,14 @@ public class ShardParamsTest extends SolrTestCase {
     assertEquals(ShardParams.DISTRIB_SINGLE_PASS, "distrib.singlePass");
   }
 
+  public void testDistribSinglePassAuto() {
+    assertEquals(ShardParams.DISTRIB_SINGLE_PASS_AUTO, "auto");
+  }
+
+  public void testDistribSinglePassMaxBytes() {
+    assertEquals(ShardParams.DISTRIB_SINGLE_PASS_MAX_BYTES, "distrib.singlePass.maxBytes");
+  }
+
   @Test
   public void testGetShardsTolerantAsBool() {
     ModifiableSolrParams params = new ModifiableSolrParams();